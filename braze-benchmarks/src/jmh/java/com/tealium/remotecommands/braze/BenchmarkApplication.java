@@ -0,0 +1,27 @@
+package com.tealium.remotecommands.braze;
+
+import android.app.Application;
+
+import java.io.File;
+
+/**
+ * Application stand-in whose no-backup files directory can be shared between instances, so that
+ * files persisted by one BrazeRemoteCommand can be read by the next, as after an app restart.
+ */
+class BenchmarkApplication extends Application {
+
+    private final File mNoBackupFilesDir;
+
+    BenchmarkApplication() {
+        this(null);
+    }
+
+    BenchmarkApplication(File noBackupFilesDir) {
+        mNoBackupFilesDir = noBackupFilesDir;
+    }
+
+    @Override
+    public synchronized File getNoBackupFilesDir() {
+        return mNoBackupFilesDir != null ? mNoBackupFilesDir : super.getNoBackupFilesDir();
+    }
+}
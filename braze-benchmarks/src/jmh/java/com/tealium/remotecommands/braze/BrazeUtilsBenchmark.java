@@ -0,0 +1,192 @@
+package com.tealium.remotecommands.braze;
+
+import com.braze.models.outgoing.BrazeProperties;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the conversion of event, purchase and attribute values into the types Braze expects.
+ * Run with {@code -prof gc} to see the allocation rate of each conversion.
+ * <p>
+ * The {@code _legacy} variants reproduce the earlier implementations for comparison: string values
+ * parsed by trying each type in turn until one does not throw, and natively typed values passed
+ * through {@link BrazeUtils#addCustomProperty(String, Object, BrazeProperties)} one key at a time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class BrazeUtilsBenchmark {
+
+    private JSONObject mNativeProperties;
+    private JSONObject mStringProperties;
+    private JSONObject mMixedProperties;
+    private JSONArray mPrices;
+    private JSONArray mObjects;
+
+    @Setup
+    public void setup() throws JSONException {
+        mNativeProperties = new JSONObject()
+                .put("quantity", 3)
+                .put("total", 29.97)
+                .put("member", true)
+                .put("points", 1200)
+                .put("discount", 0.15)
+                .put("subscribed", false);
+
+        mStringProperties = new JSONObject()
+                .put("quantity", "3")
+                .put("total", "29.97")
+                .put("member", "true")
+                .put("tier", "gold")
+                .put("signup_date", "2024-01-31");
+
+        mMixedProperties = new JSONObject()
+                .put("quantity", 3)
+                .put("total", 29.97)
+                .put("member", "true")
+                .put("tier", "gold")
+                .put("signup_date", "2024-01-31");
+
+        mPrices = new JSONArray();
+        mObjects = new JSONArray();
+        for (int i = 0; i < 10; i++) {
+            mPrices.put(i % 2 == 0 ? (Object) (i + 0.99) : String.valueOf(i + 0.49));
+            mObjects.put(new JSONObject().put("sku", "sku-" + i).put("price", i + 0.99));
+        }
+    }
+
+    @Benchmark
+    public BrazeProperties addCustomProperty_integer() {
+        return BrazeUtils.addCustomProperty("quantity", 3);
+    }
+
+    @Benchmark
+    public BrazeProperties addCustomProperty_integerString() {
+        return BrazeUtils.addCustomProperty("quantity", "3");
+    }
+
+    @Benchmark
+    public BrazeProperties addCustomProperty_doubleString() {
+        return BrazeUtils.addCustomProperty("total", "29.97");
+    }
+
+    @Benchmark
+    public BrazeProperties addCustomProperty_booleanString() {
+        return BrazeUtils.addCustomProperty("member", "true");
+    }
+
+    @Benchmark
+    public BrazeProperties addCustomProperty_dateString() {
+        return BrazeUtils.addCustomProperty("signup_date", "2024-01-31");
+    }
+
+    @Benchmark
+    public BrazeProperties addCustomProperty_plainString() {
+        return BrazeUtils.addCustomProperty("tier", "gold");
+    }
+
+    @Benchmark
+    public BrazeProperties extractCustomProperties_native() {
+        return BrazeUtils.extractCustomProperties(mNativeProperties);
+    }
+
+    /**
+     * Every key added through addCustomProperty, as before natively typed values were added
+     * directly.
+     */
+    @Benchmark
+    public BrazeProperties extractCustomProperties_native_legacy() throws JSONException {
+        BrazeProperties props = new BrazeProperties();
+        Iterator<String> iterator = mNativeProperties.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            props = BrazeUtils.addCustomProperty(key, mNativeProperties.get(key), props);
+        }
+        return props;
+    }
+
+    @Benchmark
+    public BrazeProperties extractCustomProperties_strings() {
+        return BrazeUtils.extractCustomProperties(mStringProperties);
+    }
+
+    @Benchmark
+    public BrazeProperties extractCustomProperties_strings_legacy() throws JSONException {
+        return extractByTryParsing(mStringProperties);
+    }
+
+    @Benchmark
+    public BrazeProperties extractCustomProperties_mixed() {
+        return BrazeUtils.extractCustomProperties(mMixedProperties);
+    }
+
+    @Benchmark
+    public BrazeProperties extractCustomProperties_mixed_legacy() throws JSONException {
+        return extractByTryParsing(mMixedProperties);
+    }
+
+    @Benchmark
+    public BigDecimal[] getBigDecimalArrayFromJson() {
+        return BrazeUtils.getBigDecimalArrayFromJson(mPrices);
+    }
+
+    @Benchmark
+    public JSONObject[] getJSONObjectArrayFromJson() {
+        return BrazeUtils.getJSONObjectArrayFromJson(mObjects);
+    }
+
+    private static BrazeProperties extractByTryParsing(JSONObject json) throws JSONException {
+        BrazeProperties props = new BrazeProperties();
+        Iterator<String> iterator = json.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            props = addByTryParsing(key, json.get(key), props);
+        }
+        return props;
+    }
+
+    /**
+     * The conversion prior to classifying strings: each type is attempted in turn, relying on
+     * the exception to move on to the next. Dates use the current parser, so that only the order
+     * of parsing differs.
+     */
+    private static BrazeProperties addByTryParsing(String key, Object data, BrazeProperties properties) {
+        if (data instanceof String) {
+            String string = (String) data;
+            try {
+                properties.addProperty(key, Integer.parseInt(string));
+                return properties;
+            } catch (NumberFormatException ignored) {
+            }
+            try {
+                properties.addProperty(key, Double.parseDouble(string));
+                return properties;
+            } catch (NumberFormatException ignored) {
+            }
+            Date date;
+            if ((date = BrazeUtils.parseDate(string)) != null) {
+                properties.addProperty(key, date);
+            } else if (string.equalsIgnoreCase("true") || string.equalsIgnoreCase("false")) {
+                properties.addProperty(key, Boolean.parseBoolean(string));
+            } else {
+                properties.addProperty(key, string);
+            }
+            return properties;
+        }
+        return BrazeUtils.addCustomProperty(key, data, properties);
+    }
+}
@@ -0,0 +1,353 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.RemoteCommand;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import static com.tealium.remotecommands.braze.BrazeConstants.Config;
+import static com.tealium.remotecommands.braze.BrazeConstants.Event;
+import static com.tealium.remotecommands.braze.BrazeConstants.Location;
+import static com.tealium.remotecommands.braze.BrazeConstants.Purchase;
+import static com.tealium.remotecommands.braze.BrazeConstants.User;
+
+/**
+ * Benchmarks command dispatch: resolving the command string into a {@link CommandPlan}, routing
+ * each command to its handler, and the full {@code onInvoke} path through to the (no-op) Braze SDK
+ * for typical payloads.
+ * <p>
+ * Routing is measured twice against the switch statement that {@link CommandRegistry} replaced:
+ * once in isolation, with handlers that only count their calls, and once executing the commands,
+ * where the switch reproduces the previous {@code parseCommands} body.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class CommandDispatchBenchmark {
+
+    @Param({"event", "purchase", "user", "batch"})
+    public String mPayload;
+
+    private BrazeRemoteCommand mCommand;
+    private RemoteCommand.Response mResponse;
+    private String mCommandString;
+    private JSONObject mPayloadJson;
+    private CommandPlan mPlan;
+    private CommandRegistry mCountingRegistry;
+    private final long[] mCounts = new long[CommandType.count()];
+
+    @Setup
+    public void setup() throws JSONException {
+        mCommand = new BrazeRemoteCommand(new BenchmarkApplication());
+
+        final JSONObject payload = new JSONObject();
+        switch (mPayload) {
+            case "event":
+                mCommandString = Commands.LOG_CUSTOM_EVENT;
+                putEvent(payload);
+                break;
+            case "purchase":
+                mCommandString = Commands.LOG_PURCHASE_EVENT;
+                putPurchase(payload);
+                break;
+            case "user":
+                mCommandString = Commands.USER_ATTRIBUTE + BrazeConstants.SEPARATOR + Commands.SET_CUSTOM_ATTRIBUTE;
+                putUser(payload);
+                break;
+            default:
+                mCommandString = String.join(BrazeConstants.SEPARATOR,
+                        Commands.USER_ATTRIBUTE,
+                        Commands.SET_CUSTOM_ATTRIBUTE,
+                        Commands.LOG_CUSTOM_EVENT,
+                        Commands.LOG_PURCHASE_EVENT,
+                        Commands.FLUSH);
+                putUser(payload);
+                putEvent(payload);
+                putPurchase(payload);
+                break;
+        }
+        payload.put(Commands.COMMAND_KEY, mCommandString);
+        mResponse = new RemoteCommand.Response(null, "braze", "", payload);
+        mPayloadJson = payload;
+        mPlan = CommandPlan.compile(mCommandString);
+
+        mCountingRegistry = new CommandRegistry();
+        for (CommandType type : CommandType.values()) {
+            final int ordinal = type.ordinal();
+            mCountingRegistry.register(type, json -> mCounts[ordinal]++);
+        }
+    }
+
+    /**
+     * The command string handling prior to {@link CommandPlan}s: split, trim and resolve on every
+     * invocation.
+     */
+    @Benchmark
+    public void splitCommands(Blackhole blackhole) {
+        for (String command : mCommandString.split(BrazeConstants.SEPARATOR)) {
+            blackhole.consume(CommandType.fromName(command.trim()));
+        }
+    }
+
+    @Benchmark
+    public CommandPlan compilePlan() {
+        return CommandPlan.compile(mCommandString);
+    }
+
+    @Benchmark
+    public CommandPlan cachedPlan() {
+        return mCommand.mCommandPlans.get(mCommandString);
+    }
+
+    /**
+     * Routing through the registry, to handlers that only count their calls.
+     */
+    @Benchmark
+    public long routeRegistry() throws Exception {
+        final CommandPlan plan = mPlan;
+        for (int i = 0; i < plan.size(); i++) {
+            final CommandType type = plan.types[i];
+            final BrazeRemoteCommand.CommandHandler handler = type != null
+                    ? mCountingRegistry.get(type)
+                    : mCountingRegistry.getCustom(plan.names[i]);
+            if (handler != null) {
+                handler.handle(mPayloadJson);
+            }
+        }
+        return mCounts[0];
+    }
+
+    /**
+     * Routing through a switch over the opcode, to the same counting as {@link #routeRegistry()}.
+     */
+    @Benchmark
+    public long routeSwitch() {
+        final CommandPlan plan = mPlan;
+        for (int i = 0; i < plan.size(); i++) {
+            final CommandType type = plan.types[i];
+            if (type == null) {
+                continue;
+            }
+            switch (type) {
+                case INITIALIZE: mCounts[0]++; break;
+                case ENABLE_SDK: mCounts[1]++; break;
+                case DISABLE_SDK: mCounts[2]++; break;
+                case WIPE_DATA: mCounts[3]++; break;
+                case USER_IDENTIFIER: mCounts[4]++; break;
+                case USER_ALIAS: mCounts[5]++; break;
+                case USER_ATTRIBUTE: mCounts[6]++; break;
+                case SET_CUSTOM_ATTRIBUTE: mCounts[7]++; break;
+                case UNSET_CUSTOM_ATTRIBUTE: mCounts[8]++; break;
+                case INCREMENT_CUSTOM_ATTRIBUTE: mCounts[9]++; break;
+                case SET_CUSTOM_ARRAY_ATTRIBUTE: mCounts[10]++; break;
+                case APPEND_CUSTOM_ARRAY_ATTRIBUTE: mCounts[11]++; break;
+                case REMOVE_CUSTOM_ARRAY_ATTRIBUTE: mCounts[12]++; break;
+                case EMAIL_NOTIFICATION: mCounts[13]++; break;
+                case PUSH_NOTIFICATION: mCounts[14]++; break;
+                case LOG_CUSTOM_EVENT: mCounts[15]++; break;
+                case LOG_PURCHASE_EVENT: mCounts[16]++; break;
+                case FLUSH: mCounts[17]++; break;
+                case ADD_TO_SUBSCRIPTION_GROUP: mCounts[18]++; break;
+                case REMOVE_FROM_SUBSCRIPTION_GROUP: mCounts[19]++; break;
+                case SET_SDK_AUTH_SIGNATURE: mCounts[20]++; break;
+                case SET_LAST_KNOWN_LOCATION: mCounts[21]++; break;
+                case SET_AD_TRACKING_ENABLED: mCounts[22]++; break;
+            }
+        }
+        return mCounts[0];
+    }
+
+    /**
+     * Executing a compiled plan through the registry, including the validation, metrics and
+     * interceptor checks made around each handler.
+     */
+    @Benchmark
+    public void executeRegistry() {
+        mCommand.parseCommands(mPlan, mPayloadJson);
+    }
+
+    /**
+     * Executing a compiled plan through the switch statement that the registry replaced.
+     */
+    @Benchmark
+    public void executeSwitch() {
+        final CommandPlan plan = mPlan;
+        for (int i = 0; i < plan.size(); i++) {
+            final CommandType type = plan.types[i];
+            if (type == null) {
+                continue;
+            }
+            try {
+                executeSwitch(mCommand, type, mPayloadJson);
+            } catch (Exception ignore) {
+            }
+        }
+    }
+
+    @Benchmark
+    public void onInvoke() throws Exception {
+        mCommand.onInvoke(mResponse);
+    }
+
+    /**
+     * The body of {@code parseCommands} prior to the {@link CommandRegistry}, against the current
+     * {@link BrazeCommand} API.
+     */
+    private static void executeSwitch(BrazeRemoteCommand command, CommandType type, JSONObject payload) throws JSONException {
+        final BrazeCommand braze = command.mBraze;
+        switch (type) {
+            case INITIALIZE:
+                braze.initialize(payload.optString(Config.API_KEY), payload, command.configOverriders);
+                break;
+            case ENABLE_SDK:
+                braze.enableSdk();
+                break;
+            case DISABLE_SDK:
+                braze.disableSdk();
+                break;
+            case WIPE_DATA:
+                braze.wipeData();
+                break;
+            case USER_IDENTIFIER:
+                String authSignature = payload.optString(User.SDK_AUTH_SIGNATURE);
+                braze.setUserId(payload.optString(User.USER_ID), !authSignature.isEmpty() ? authSignature : null);
+                break;
+            case USER_ALIAS:
+                braze.setUserAlias(payload.optString(User.ALIAS), payload.optString(User.ALIAS_LABEL));
+                break;
+            case USER_ATTRIBUTE:
+                braze.setUserFirstName(payload.optString(User.FIRST_NAME));
+                braze.setUserLastName(payload.optString(User.LAST_NAME));
+                braze.setUserEmail(payload.optString(User.EMAIL));
+                braze.setUserLanguage(payload.optString(User.LANGUAGE));
+                braze.setUserGender(payload.optString(User.GENDER));
+                braze.setUserHomeCity(payload.optString(User.HOME_CITY));
+                braze.setUserCountry(payload.optString(User.COUNTRY));
+                braze.setUserPhone(payload.optString(User.PHONE));
+                braze.setUserDateOfBirth(payload.optString(User.DATE_OF_BIRTH));
+                break;
+            case SET_CUSTOM_ATTRIBUTE:
+                braze.setUserCustomAttributes(payload.getJSONObject(User.SET_CUSTOM_ATTRIBUTE));
+                break;
+            case UNSET_CUSTOM_ATTRIBUTE:
+                braze.unsetUserCustomAttributes(payload.getJSONArray(User.UNSET_CUSTOM_ATTRIBUTE));
+                break;
+            case SET_CUSTOM_ARRAY_ATTRIBUTE:
+                braze.setUserCustomAttributeArrays(payload.getJSONObject(User.SET_CUSTOM_ARRAY_ATTRIBUTE));
+                break;
+            case REMOVE_CUSTOM_ARRAY_ATTRIBUTE:
+                braze.removeFromUserCustomAttributeArrays(payload.getJSONObject(User.REMOVE_CUSTOM_ARRAY_ATTRIBUTE));
+                break;
+            case APPEND_CUSTOM_ARRAY_ATTRIBUTE:
+                braze.appendUserCustomAttributeArrays(payload.getJSONObject(User.APPEND_CUSTOM_ARRAY_ATTRIBUTE));
+                break;
+            case INCREMENT_CUSTOM_ATTRIBUTE:
+                braze.incrementUserCustomAttributes(payload.getJSONObject(User.INCREMENT_CUSTOM_ATTRIBUTE));
+                break;
+            case LOG_CUSTOM_EVENT:
+                JSONObject eventProps = payload.optJSONObject(Event.EVENT_PROPERTIES);
+                if (eventProps == null) {
+                    eventProps = payload.optJSONObject(Event.EVENT_PROPERTIES_SHORTHAND);
+                }
+                braze.logCustomEvent(payload.getString(Event.EVENT_NAME), eventProps);
+                break;
+            case LOG_PURCHASE_EVENT:
+                Object productId = payload.get(Purchase.PRODUCT_ID);
+                if (productId instanceof JSONArray) {
+                    JSONArray purchaseProps = payload.optJSONArray(Purchase.PURCHASE_PROPERTIES);
+                    if (purchaseProps == null) {
+                        purchaseProps = payload.optJSONArray(Purchase.PURCHASE_PROPERTIES_SHORTHAND);
+                    }
+                    braze.logPurchase(
+                            BrazeUtils.getStringArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_ID)),
+                            BrazeUtils.getStringArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_CURRENCY)),
+                            BrazeUtils.getBigDecimalArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_PRICE)),
+                            BrazeUtils.getIntegerArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_QTY)),
+                            BrazeUtils.getJSONObjectArrayFromJson(purchaseProps));
+                } else {
+                    JSONObject purchaseProps = payload.optJSONObject(Purchase.PURCHASE_PROPERTIES);
+                    if (purchaseProps == null) {
+                        purchaseProps = payload.optJSONObject(Purchase.PURCHASE_PROPERTIES_SHORTHAND);
+                    }
+                    braze.logPurchase(
+                            payload.optString(Purchase.PRODUCT_ID),
+                            payload.optString(Purchase.PRODUCT_CURRENCY),
+                            BigDecimal.valueOf(payload.optDouble(Purchase.PRODUCT_PRICE, 0d)),
+                            payload.optInt(Purchase.PRODUCT_QTY),
+                            purchaseProps);
+                }
+                break;
+            case EMAIL_NOTIFICATION:
+                braze.setEmailSubscriptionType(payload.getString(User.EMAIL_NOTIFICATION));
+                break;
+            case PUSH_NOTIFICATION:
+                braze.setPushNotificationSubscriptionType(payload.getString(User.PUSH_NOTIFICATION));
+                break;
+            case FLUSH:
+                braze.requestFlush();
+                break;
+            case ADD_TO_SUBSCRIPTION_GROUP:
+                braze.addToSubscriptionGroup(payload.getString(User.SUBSCRIPTION_GROUP_ID));
+                break;
+            case REMOVE_FROM_SUBSCRIPTION_GROUP:
+                braze.removeFromSubscriptionGroup(payload.getString(User.SUBSCRIPTION_GROUP_ID));
+                break;
+            case SET_SDK_AUTH_SIGNATURE:
+                braze.setSdkAuthSignature(payload.getString(User.SDK_AUTH_SIGNATURE));
+                break;
+            case SET_LAST_KNOWN_LOCATION:
+                double latitude = payload.getDouble(Location.LOCATION_LATITUDE);
+                double longitude = payload.getDouble(Location.LOCATION_LONGITUDE);
+                double altitude = payload.optDouble(Location.LOCATION_ALTITUDE);
+                double accuracy = payload.optDouble(Location.LOCATION_ACCURACY);
+                braze.setLastKnownLocation(latitude, longitude,
+                        Double.isNaN(altitude) ? null : altitude,
+                        Double.isNaN(accuracy) ? null : accuracy);
+                break;
+            case SET_AD_TRACKING_ENABLED:
+                braze.setAdTrackingEnabled(payload.getString(User.GOOGLE_ADID), !payload.getBoolean(User.AD_TRACKING_ENABLED));
+                break;
+        }
+    }
+
+    private static void putEvent(JSONObject payload) throws JSONException {
+        payload.put(Event.EVENT_NAME, "add_to_cart");
+        payload.put(Event.EVENT_PROPERTIES, new JSONObject()
+                .put("sku", "sku-1")
+                .put("quantity", 2)
+                .put("price", 9.99)
+                .put("member", "true"));
+    }
+
+    private static void putPurchase(JSONObject payload) throws JSONException {
+        payload.put(Purchase.PRODUCT_ID, new JSONArray().put("sku-1").put("sku-2").put("sku-3"));
+        payload.put(Purchase.PRODUCT_CURRENCY, new JSONArray().put("USD").put("USD").put("USD"));
+        payload.put(Purchase.PRODUCT_PRICE, new JSONArray().put(9.99).put(19.99).put("4.50"));
+        payload.put(Purchase.PRODUCT_QTY, new JSONArray().put(1).put(2).put(3));
+    }
+
+    private static void putUser(JSONObject payload) throws JSONException {
+        payload.put(User.FIRST_NAME, "Jane");
+        payload.put(User.LAST_NAME, "Doe");
+        payload.put(User.EMAIL, "jane@example.com");
+        payload.put(User.HOME_CITY, "San Diego");
+        payload.put(User.SET_CUSTOM_ATTRIBUTE, new JSONObject()
+                .put("loyalty_points", 120)
+                .put("tier", "gold")
+                .put("opted_in", true));
+    }
+}
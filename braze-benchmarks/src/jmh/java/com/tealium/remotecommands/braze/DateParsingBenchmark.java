@@ -0,0 +1,52 @@
+package com.tealium.remotecommands.braze;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks date parsing for each supported form, both through the shared, cached, parser used by
+ * {@link BrazeUtils#parseDate(String)} and through a parser whose cache always misses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class DateParsingBenchmark {
+
+    @Param({
+            "Wed Jan 31 10:15:30 GMT 2024",
+            "2024-01-31T10:15:30Z",
+            "2024-01-31",
+            "2024-01-31 10:15:30",
+            "01-31 10:15:30.000",
+            "10:15 AM",
+            "not a date"
+    })
+    public String mValue;
+
+    private BrazeDateParser mUncachedParser;
+
+    @Setup
+    public void setup() {
+        mUncachedParser = new BrazeDateParser(1);
+    }
+
+    @Benchmark
+    public Date parseDate_cached() {
+        return BrazeUtils.parseDate(mValue);
+    }
+
+    @Benchmark
+    public Date parseDate_uncached() {
+        mUncachedParser.clear();
+        return mUncachedParser.parse(mValue);
+    }
+}
@@ -0,0 +1,77 @@
+package com.tealium.remotecommands.braze;
+
+import com.braze.configuration.BrazeConfig;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import static com.tealium.remotecommands.braze.BrazeConstants.Config;
+
+/**
+ * Benchmarks building the BrazeConfig from the launch options of an "initialize" command, and
+ * {@link BrazeInstance#initialize} itself when the configuration is unchanged or changes on every
+ * call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class InitializeBenchmark {
+
+    private LaunchOptionTable mLaunchOptions;
+    private JSONObject mPayload;
+    private BrazeInstance mInstance;
+    private boolean mToggle;
+
+    @Setup
+    public void setup() throws JSONException {
+        mLaunchOptions = new LaunchOptionTable();
+        mPayload = new JSONObject()
+                .put(Commands.COMMAND_KEY, Commands.INITIALIZE)
+                .put(Config.API_KEY, "api-key")
+                .put(Config.CUSTOM_ENDPOINT, "sdk.iad-01.braze.com")
+                .put(Config.SESSION_TIMEOUT, 30)
+                .put(Config.FIREBASE_ENABLED, true)
+                .put(Config.FIREBASE_SENDER_ID, "123456789")
+                .put(Config.DEFAULT_NOTIFICATION_CHANNEL_NAME, "General")
+                .put(Config.ENABLE_GEOFENCES, "true")
+                .put(Config.TRIGGER_INTERVAL_SECONDS, "10")
+                .put(Config.DEVICE_OPTIONS, new JSONArray().put("android_version").put("model").put("locale"))
+                .put("first_name", "Jane")
+                .put("event_name", "app_open");
+        mInstance = new BrazeInstance(new BenchmarkApplication(), true, null, true, null, mLaunchOptions);
+    }
+
+    @Benchmark
+    public BrazeConfig buildConfig() {
+        BrazeConfig.Builder builder = new BrazeConfig.Builder().setApiKey("api-key");
+        mLaunchOptions.apply(builder, mPayload);
+        return builder.build();
+    }
+
+    @Benchmark
+    public long fingerprint() {
+        return ConfigFingerprint.compute(mLaunchOptions.keys(), "api-key", mPayload, null);
+    }
+
+    @Benchmark
+    public void initialize_unchanged() {
+        mInstance.initialize("api-key", mPayload, null);
+    }
+
+    @Benchmark
+    public void initialize_changed() {
+        mToggle = !mToggle;
+        mInstance.initialize(mToggle ? "api-key" : "other-api-key", mPayload, null);
+    }
+}
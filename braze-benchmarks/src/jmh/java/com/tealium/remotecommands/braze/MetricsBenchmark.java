@@ -0,0 +1,41 @@
+package com.tealium.remotecommands.braze;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the cost of recording a single command latency, including both System.nanoTime
+ * calls, from one thread and from several contending threads.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private final CommandMetrics mMetrics = new CommandMetrics();
+
+    @Benchmark
+    public void recordCommand() {
+        final long start = System.nanoTime();
+        mMetrics.recordCommand(CommandType.LOG_CUSTOM_EVENT, System.nanoTime() - start);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordCommand_contended() {
+        final long start = System.nanoTime();
+        mMetrics.recordCommand(CommandType.LOG_CUSTOM_EVENT, System.nanoTime() - start);
+    }
+
+    @Benchmark
+    public BrazeRemoteCommand.MetricsSnapshot snapshot() {
+        return mMetrics.snapshot();
+    }
+}
@@ -0,0 +1,116 @@
+package com.tealium.remotecommands.braze;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+import static com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import static com.tealium.remotecommands.braze.BrazeConstants.Purchase;
+
+/**
+ * Benchmarks converting the parallel arrays of a multi-line "logpurchase" command, and executing
+ * the command through {@link BrazeRemoteCommand} to the (no-op) Braze SDK, for baskets of up to
+ * 1,000 lines, as well as a single purchase.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PurchaseBenchmark {
+
+    private static final double[] PRICES = {0.99, 4.50, 9.99, 19.99, 24.00, 49.95};
+    private static final String[] CURRENCIES = {"USD", "usd", "GBP", "EUR"};
+
+    @Param({"10", "1000"})
+    public int mLines;
+
+    private JSONArray mProductIds;
+    private JSONArray mCurrencies;
+    private JSONArray mPrices;
+    private JSONArray mQuantities;
+    private BrazeRemoteCommand mCommand;
+    private CommandPlan mPlan;
+    private JSONObject mBasketPayload;
+    private JSONObject mSinglePayload;
+
+    @Setup
+    public void setup() throws JSONException {
+        mProductIds = new JSONArray();
+        mCurrencies = new JSONArray();
+        mPrices = new JSONArray();
+        mQuantities = new JSONArray();
+        for (int i = 0; i < mLines; i++) {
+            mProductIds.put("sku-" + i);
+            mCurrencies.put(CURRENCIES[i % CURRENCIES.length]);
+            double price = PRICES[i % PRICES.length];
+            mPrices.put(i % 3 == 0 ? (Object) String.valueOf(price) : (Object) price);
+            mQuantities.put(1 + i % 4);
+        }
+        mCommand = new BrazeRemoteCommand(new BenchmarkApplication());
+        mPlan = CommandPlan.compile(Commands.LOG_PURCHASE_EVENT);
+        mBasketPayload = new JSONObject()
+                .put(Purchase.PRODUCT_ID, mProductIds)
+                .put(Purchase.PRODUCT_CURRENCY, mCurrencies)
+                .put(Purchase.PRODUCT_PRICE, mPrices)
+                .put(Purchase.PRODUCT_QTY, mQuantities);
+        mSinglePayload = new JSONObject()
+                .put(Purchase.PRODUCT_ID, "sku-0")
+                .put(Purchase.PRODUCT_CURRENCY, "usd")
+                .put(Purchase.PRODUCT_PRICE, 9.99)
+                .put(Purchase.PRODUCT_QTY, 2);
+    }
+
+    /**
+     * The conversion prior to {@link PurchaseBatch}: boxed quantities and binary-approximated prices.
+     */
+    @Benchmark
+    public void convert_legacy(Blackhole blackhole) {
+        final int size = mProductIds.length();
+        final String[] ids = new String[size];
+        final String[] currencies = new String[size];
+        final BigDecimal[] prices = new BigDecimal[size];
+        final Integer[] quantities = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = mProductIds.optString(i, "");
+            currencies[i] = mCurrencies.optString(i, "");
+            prices[i] = new BigDecimal(mPrices.optDouble(i, 0));
+            quantities[i] = mQuantities.optInt(i, 1);
+        }
+        blackhole.consume(ids);
+        blackhole.consume(currencies);
+        blackhole.consume(prices);
+        blackhole.consume(quantities);
+    }
+
+    @Benchmark
+    public PurchaseBatch convert_batch() {
+        return PurchaseBatch.fromJson(mProductIds, mCurrencies, mPrices, mQuantities, new JSONObject[0]);
+    }
+
+    /**
+     * The "logpurchase" command for the whole basket, as executed for a tag payload.
+     */
+    @Benchmark
+    public void logPurchaseCommand_basket() {
+        mCommand.parseCommands(mPlan, mBasketPayload);
+    }
+
+    /**
+     * The "logpurchase" command for a single purchase, as executed for a tag payload.
+     */
+    @Benchmark
+    public void logPurchaseCommand_single() {
+        mCommand.parseCommands(mPlan, mSinglePayload);
+    }
+}
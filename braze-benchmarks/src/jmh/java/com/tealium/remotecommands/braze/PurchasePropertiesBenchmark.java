@@ -0,0 +1,86 @@
+package com.tealium.remotecommands.braze;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the per-line purchase properties of a 200-line "logpurchase" command: extracting
+ * them from the payload, and logging the basket when every line has its own properties, or when
+ * every line carries the same properties. Run with the gc profiler, which the build enables, to
+ * compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PurchasePropertiesBenchmark {
+
+    private static final int LINES = 200;
+
+    @Param({"distinct", "identical"})
+    public String mProperties;
+
+    private JSONArray mPayloadProperties;
+    private BrazeInstance mInstance;
+    private String[] mProductIds;
+
+    @Setup
+    public void setup() throws JSONException {
+        final JSONObject shared = lineProperties(0);
+        mPayloadProperties = new JSONArray();
+        mProductIds = new String[LINES];
+        for (int i = 0; i < LINES; i++) {
+            mProductIds[i] = "sku-" + i;
+            // "identical" lines are equal, but separate, objects, as they would be once parsed.
+            mPayloadProperties.put("identical".equals(mProperties) ? new JSONObject(shared.toString()) : lineProperties(i));
+        }
+        mInstance = new BrazeInstance(new BenchmarkApplication(), false, null, false, null, new LaunchOptionTable());
+    }
+
+    /**
+     * The extraction prior to reusing elements: each line serialised and parsed again.
+     */
+    @Benchmark
+    public JSONObject[] extract_legacy() {
+        final JSONObject[] properties = new JSONObject[mPayloadProperties.length()];
+        for (int i = 0; i < properties.length; i++) {
+            try {
+                properties[i] = new JSONObject(mPayloadProperties.optString(i, "{}"));
+            } catch (JSONException ex) {
+                properties[i] = new JSONObject();
+            }
+        }
+        return properties;
+    }
+
+    @Benchmark
+    public JSONObject[] extract() {
+        return BrazeUtils.getJSONObjectArrayFromJson(mPayloadProperties);
+    }
+
+    /**
+     * Extracts the properties and logs the basket, converting properties once per distinct line.
+     */
+    @Benchmark
+    public void logPurchases() {
+        mInstance.logPurchase(mProductIds, null, null, null, BrazeUtils.getJSONObjectArrayFromJson(mPayloadProperties));
+    }
+
+    private static JSONObject lineProperties(int line) throws JSONException {
+        return new JSONObject()
+                .put("category", "category-" + line % 8)
+                .put("line", line)
+                .put("discounted", line % 2 == 0)
+                .put("weight", 0.25 * line);
+    }
+}
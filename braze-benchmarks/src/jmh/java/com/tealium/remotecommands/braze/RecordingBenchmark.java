@@ -0,0 +1,62 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import com.tealium.remotecommands.braze.BrazeConstants.Event;
+import com.tealium.remotecommands.braze.BrazeConstants.User;
+import com.tealium.remotecommands.braze.testing.RecordingBrazeCommand;
+import com.tealium.remotecommands.braze.testing.RecordingBrazeSdk;
+import com.tealium.remotecommands.braze.testing.TestableBrazeRemoteCommand;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the rate at which payloads can be invoked on a BrazeRemoteCommand backed by the
+ * braze-testing recorders: a RecordingBrazeCommand, in place of the command implementation, or a
+ * RecordingBrazeSdk, beneath the standard one. Each payload sets a custom attribute and logs an
+ * event, as in the braze-testing load tests.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class RecordingBenchmark {
+
+    private static final int PAYLOADS = 1024; // power of 2
+
+    @Param({"command", "sdk"})
+    public String mRecorder;
+
+    private final JSONObject[] mPayloads = new JSONObject[PAYLOADS];
+    private TestableBrazeRemoteCommand mCommand;
+    private int mNext;
+
+    @Setup
+    public void setup() throws JSONException {
+        for (int i = 0; i < PAYLOADS; i++) {
+            mPayloads[i] = new JSONObject()
+                    .put(Commands.COMMAND_KEY, Commands.SET_CUSTOM_ATTRIBUTE + BrazeConstants.SEPARATOR + Commands.LOG_CUSTOM_EVENT)
+                    .put(User.SET_CUSTOM_ATTRIBUTE, new JSONObject().put("index", i))
+                    .put(Event.EVENT_NAME, "event-" + i)
+                    .put(Event.EVENT_PROPERTIES, new JSONObject().put("index", i));
+        }
+        // the recorders keep only the most recent calls, so memory use stays flat.
+        mCommand = "command".equals(mRecorder)
+                ? new TestableBrazeRemoteCommand(new BenchmarkApplication(), new RecordingBrazeCommand(PAYLOADS * 2))
+                : new TestableBrazeRemoteCommand(new BenchmarkApplication(), new RecordingBrazeSdk(PAYLOADS * 3));
+    }
+
+    @Benchmark
+    public void invoke() throws Exception {
+        mCommand.invoke(mPayloads[mNext++ & (PAYLOADS - 1)]);
+    }
+}
@@ -0,0 +1,84 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.RemoteCommand;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import static com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import static com.tealium.remotecommands.braze.BrazeConstants.Config;
+
+/**
+ * Measures the time from constructing a BrazeRemoteCommand to Braze being configured, either from
+ * the persisted configuration via {@link BrazeRemoteCommand#earlyConfigure()}, or by waiting for
+ * the first "initialize" command payload. Each invocation uses a new command, as on a cold start.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 50)
+@State(Scope.Thread)
+public class StartupBenchmark {
+
+    private File mNoBackupFilesDir;
+    private RemoteCommand.Response mInitialize;
+    private BrazeRemoteCommand mCommand;
+
+    @Setup(Level.Trial)
+    public void setupTrial() throws Exception {
+        mNoBackupFilesDir = Files.createTempDirectory("braze-startup").toFile();
+        final JSONObject payload = new JSONObject()
+                .put(Commands.COMMAND_KEY, Commands.INITIALIZE)
+                .put(Config.API_KEY, "api-key")
+                .put(Config.CUSTOM_ENDPOINT, "sdk.iad-01.braze.com")
+                .put(Config.SESSION_TIMEOUT, 30)
+                .put(Config.FIREBASE_ENABLED, true)
+                .put(Config.FIREBASE_SENDER_ID, "123456789");
+        mInitialize = new RemoteCommand.Response(null, "braze", "", payload);
+
+        // persist the configuration, as a previous launch would have.
+        final BrazeRemoteCommand previousLaunch = new BrazeRemoteCommand(new BenchmarkApplication(mNoBackupFilesDir));
+        previousLaunch.earlyConfigure();
+        previousLaunch.onInvoke(mInitialize);
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation() {
+        mCommand = new BrazeRemoteCommand(new BenchmarkApplication(mNoBackupFilesDir));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        File[] files = mNoBackupFilesDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mNoBackupFilesDir.delete();
+    }
+
+    @Benchmark
+    public boolean earlyConfigure() {
+        return mCommand.earlyConfigure();
+    }
+
+    @Benchmark
+    public void initializeCommand() throws Exception {
+        mCommand.onInvoke(mInitialize);
+    }
+}
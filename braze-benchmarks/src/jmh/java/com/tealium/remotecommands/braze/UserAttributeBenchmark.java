@@ -0,0 +1,124 @@
+package com.tealium.remotecommands.braze;
+
+import android.content.Context;
+
+import com.braze.Braze;
+import com.braze.BrazeUser;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing a typical set of user attributes, nine standard attributes and three custom
+ * ones, comparing the cached {@link BrazeUser} handle with the previous lookup on every write.
+ * <p>
+ * The stand-in SDK counts {@code getCurrentUser} calls; each benchmark reports them through the
+ * {@code lookups} counter alongside the {@code writes} counter, one per payload written.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class UserAttributeBenchmark {
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long lookups;
+        public long writes;
+
+        private long mStart;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lookups = 0;
+            writes = 0;
+        }
+
+        void begin() {
+            mStart = Braze.getCurrentUserLookupCount();
+        }
+
+        void end() {
+            lookups += Braze.getCurrentUserLookupCount() - mStart;
+            writes++;
+        }
+    }
+
+    private Context mContext;
+    private BrazeInstance mInstance;
+    private JSONObject mCustomAttributes;
+
+    @Setup
+    public void setup() throws JSONException {
+        mContext = new BenchmarkApplication();
+        mInstance = new BrazeInstance(new BenchmarkApplication(), false, null, false, null, new LaunchOptionTable());
+        mCustomAttributes = new JSONObject()
+                .put("loyalty_points", 120)
+                .put("tier", "gold")
+                .put("opted_in", true);
+    }
+
+    @Benchmark
+    public void writeAttributes_cachedUser(Counters counters) {
+        counters.begin();
+        mInstance.setUserFirstName("Jane");
+        mInstance.setUserLastName("Doe");
+        mInstance.setUserEmail("jane@example.com");
+        mInstance.setUserLanguage("en");
+        mInstance.setUserGender("female");
+        mInstance.setUserHomeCity("San Diego");
+        mInstance.setUserCountry("US");
+        mInstance.setUserPhone("5555550100");
+        mInstance.setUserDateOfBirth("1990-01-01");
+        mInstance.setUserCustomAttributes(mCustomAttributes);
+        counters.end();
+    }
+
+    /**
+     * The writes prior to caching the handle: the SDK instance and current user are looked up for
+     * every attribute.
+     */
+    @Benchmark
+    public void writeAttributes_lookupPerWrite(Counters counters) {
+        counters.begin();
+        user().setFirstName("Jane");
+        user().setLastName("Doe");
+        user().setEmail("jane@example.com");
+        user().setLanguage("en");
+        user().setGender(BrazeUtils.getGenderEnumFromString("female"));
+        user().setHomeCity("San Diego");
+        user().setCountry("US");
+        user().setPhoneNumber("5555550100");
+        user().setDateOfBirth(1990, BrazeUtils.getMonthEnumFromInt(0), 1);
+
+        Iterator<String> keys = mCustomAttributes.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            Object value = mCustomAttributes.opt(key);
+            if (value instanceof Integer) {
+                user().setCustomUserAttribute(key, (Integer) value);
+            } else if (value instanceof Boolean) {
+                user().setCustomUserAttribute(key, (Boolean) value);
+            } else {
+                user().setCustomUserAttribute(key, (String) value);
+            }
+        }
+        counters.end();
+    }
+
+    private BrazeUser user() {
+        return Braze.getInstance(mContext).getCurrentUser();
+    }
+}
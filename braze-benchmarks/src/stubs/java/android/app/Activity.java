@@ -0,0 +1,9 @@
+package android.app;
+
+import android.content.Context;
+
+/**
+ * JVM stand-in for android.app.Activity.
+ */
+public class Activity extends Context {
+}
@@ -0,0 +1,39 @@
+package android.app;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * JVM stand-in for android.app.Application.
+ */
+public class Application extends Context {
+
+    public interface ActivityLifecycleCallbacks {
+        void onActivityCreated(Activity activity, Bundle savedInstanceState);
+
+        void onActivityStarted(Activity activity);
+
+        void onActivityResumed(Activity activity);
+
+        void onActivityPaused(Activity activity);
+
+        void onActivityStopped(Activity activity);
+
+        void onActivitySaveInstanceState(Activity activity, Bundle outState);
+
+        void onActivityDestroyed(Activity activity);
+    }
+
+    private final List<ActivityLifecycleCallbacks> mCallbacks = new CopyOnWriteArrayList<>();
+
+    public void registerActivityLifecycleCallbacks(ActivityLifecycleCallbacks callback) {
+        mCallbacks.add(callback);
+    }
+
+    public void unregisterActivityLifecycleCallbacks(ActivityLifecycleCallbacks callback) {
+        mCallbacks.remove(callback);
+    }
+}
@@ -0,0 +1,46 @@
+package android.content;
+
+import android.content.res.Resources;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
+/**
+ * JVM stand-in for android.content.Context, backed by a temporary directory.
+ */
+public class Context {
+
+    private File mNoBackupFilesDir;
+
+    public Context getApplicationContext() {
+        return this;
+    }
+
+    public synchronized File getNoBackupFilesDir() {
+        if (mNoBackupFilesDir == null) {
+            try {
+                mNoBackupFilesDir = Files.createTempDirectory("no_backup").toFile();
+                mNoBackupFilesDir.deleteOnExit();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return mNoBackupFilesDir;
+    }
+
+    public Resources getResources() {
+        return Resources.INSTANCE;
+    }
+
+    public String getPackageName() {
+        return "com.tealium.remotecommands.braze.benchmarks";
+    }
+
+    public void registerComponentCallbacks(ComponentCallbacks callback) {
+    }
+
+    public void unregisterComponentCallbacks(ComponentCallbacks callback) {
+    }
+}
@@ -0,0 +1,13 @@
+package android.content.res;
+
+/**
+ * JVM stand-in for android.content.res.Resources, with no resources defined.
+ */
+public final class Resources {
+
+    public static final Resources INSTANCE = new Resources();
+
+    public int getIdentifier(String name, String defType, String defPackage) {
+        return 0;
+    }
+}
@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * JVM stand-in for android.os.Looper. Every thread is treated as the main thread, so work posted
+ * to the main looper runs synchronously.
+ */
+public final class Looper {
+
+    private static final Looper MAIN = new Looper();
+
+    private Looper() {
+    }
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+
+    public static Looper myLooper() {
+        return MAIN;
+    }
+}
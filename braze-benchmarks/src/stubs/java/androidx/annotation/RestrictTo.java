@@ -0,0 +1,21 @@
+package androidx.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+/**
+ * JVM stand-in for androidx.annotation.RestrictTo.
+ */
+@Retention(RetentionPolicy.CLASS)
+public @interface RestrictTo {
+
+    Scope[] value();
+
+    enum Scope {
+        LIBRARY,
+        LIBRARY_GROUP,
+        LIBRARY_GROUP_PREFIX,
+        TESTS,
+        SUBCLASSES
+    }
+}
@@ -0,0 +1,82 @@
+package com.braze;
+
+import android.app.Activity;
+import android.content.Context;
+
+import com.braze.configuration.BrazeConfig;
+import com.braze.models.outgoing.BrazeProperties;
+
+import java.math.BigDecimal;
+
+/**
+ * JVM stand-in for the Braze SDK singleton. Every call is a no-op, so that benchmarks measure the
+ * remote command's own overhead rather than the SDK's.
+ * <p>
+ * Calls to {@link #getCurrentUser()} are counted, as the real lookup is not free; see
+ * {@link #getCurrentUserLookupCount()}.
+ */
+public class Braze {
+
+    private static final Braze INSTANCE = new Braze();
+    private static long sCurrentUserLookups = 0;
+
+    private final BrazeUser mCurrentUser = new BrazeUser();
+
+    public static boolean configure(Context context, BrazeConfig config) {
+        return true;
+    }
+
+    public static Braze getInstance(Context context) {
+        return INSTANCE;
+    }
+
+    public static boolean isDisabled() {
+        return false;
+    }
+
+    public static void enableSdk(Context context) {
+    }
+
+    public static void disableSdk(Context context) {
+    }
+
+    public static void wipeData(Context context) {
+    }
+
+    public void openSession(Activity activity) {
+    }
+
+    public void changeUser(String userId) {
+    }
+
+    public void changeUser(String userId, String sdkAuthSignature) {
+    }
+
+    public void setGoogleAdvertisingId(String googleAdvertisingId, boolean limitAdTrackingEnabled) {
+    }
+
+    public BrazeUser getCurrentUser() {
+        sCurrentUserLookups++;
+        return mCurrentUser;
+    }
+
+    /**
+     * @return the number of calls to {@link #getCurrentUser()} so far, on any instance; not
+     * thread-safe, so only exact for single-threaded benchmarks
+     */
+    public static long getCurrentUserLookupCount() {
+        return sCurrentUserLookups;
+    }
+
+    public void logCustomEvent(String eventName, BrazeProperties properties) {
+    }
+
+    public void logPurchase(String productId, String currencyCode, BigDecimal price, int quantity, BrazeProperties properties) {
+    }
+
+    public void requestImmediateDataFlush() {
+    }
+
+    public void setSdkAuthenticationSignature(String signature) {
+    }
+}
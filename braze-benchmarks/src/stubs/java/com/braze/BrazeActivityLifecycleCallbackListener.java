@@ -0,0 +1,47 @@
+package com.braze;
+
+import android.app.Activity;
+import android.app.Application.ActivityLifecycleCallbacks;
+import android.os.Bundle;
+
+import java.util.Set;
+
+/**
+ * JVM stand-in for Braze's Activity lifecycle listener. Every callback is a no-op.
+ */
+public class BrazeActivityLifecycleCallbackListener implements ActivityLifecycleCallbacks {
+
+    public BrazeActivityLifecycleCallbackListener(boolean sessionHandlingEnabled,
+                                                  boolean registerInAppMessageManager,
+                                                  Set<Class<?>> inAppMessagingRegistrationBlocklist,
+                                                  Set<Class<?>> sessionHandlingBlocklist) {
+    }
+
+    @Override
+    public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(Activity activity) {
+    }
+
+    @Override
+    public void onActivityResumed(Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(Activity activity) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.braze;
+
+import com.braze.enums.Gender;
+import com.braze.enums.Month;
+import com.braze.enums.NotificationSubscriptionType;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * JVM stand-in for BrazeUser. Every call is a no-op.
+ */
+public class BrazeUser {
+
+    public boolean setFirstName(String firstName) {
+        return true;
+    }
+
+    public boolean setLastName(String lastName) {
+        return true;
+    }
+
+    public boolean setEmail(String email) {
+        return true;
+    }
+
+    public boolean setLanguage(String language) {
+        return true;
+    }
+
+    public boolean setGender(Gender gender) {
+        return true;
+    }
+
+    public boolean setHomeCity(String homeCity) {
+        return true;
+    }
+
+    public boolean setCountry(String country) {
+        return true;
+    }
+
+    public boolean setPhoneNumber(String phoneNumber) {
+        return true;
+    }
+
+    public boolean setDateOfBirth(int year, Month month, int day) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, long value) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, int value) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, double value) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, float value) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, boolean value) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, String value) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, JSONArray value) {
+        return true;
+    }
+
+    public boolean setCustomUserAttribute(String key, JSONObject value) {
+        return true;
+    }
+
+    public boolean unsetCustomUserAttribute(String key) {
+        return true;
+    }
+
+    public boolean incrementCustomUserAttribute(String key, int incrementValue) {
+        return true;
+    }
+
+    public boolean setCustomAttributeArray(String key, String[] values) {
+        return true;
+    }
+
+    public boolean addToCustomAttributeArray(String key, String value) {
+        return true;
+    }
+
+    public boolean removeFromCustomAttributeArray(String key, String value) {
+        return true;
+    }
+
+    public boolean setPushNotificationSubscriptionType(NotificationSubscriptionType type) {
+        return true;
+    }
+
+    public boolean setEmailNotificationSubscriptionType(NotificationSubscriptionType type) {
+        return true;
+    }
+
+    public void setLastKnownLocation(double latitude, double longitude, Double altitude, Double accuracy) {
+    }
+
+    public boolean addToSubscriptionGroup(String groupId) {
+        return true;
+    }
+
+    public boolean removeFromSubscriptionGroup(String groupId) {
+        return true;
+    }
+
+    public boolean addAlias(String alias, String label) {
+        return true;
+    }
+}
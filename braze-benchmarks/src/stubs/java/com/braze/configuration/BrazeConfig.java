@@ -0,0 +1,126 @@
+package com.braze.configuration;
+
+import com.braze.enums.DeviceKey;
+
+import java.util.EnumSet;
+
+/**
+ * JVM stand-in for BrazeConfig. The Builder accepts, and discards, every setting used by the
+ * launch option table.
+ */
+public class BrazeConfig {
+
+    private BrazeConfig() {
+    }
+
+    public static class Builder {
+
+        public Builder setApiKey(String apiKey) {
+            return this;
+        }
+
+        public Builder setFirebaseCloudMessagingSenderIdKey(String value) {
+            return this;
+        }
+
+        public Builder setFallbackFirebaseMessagingServiceClasspath(String value) {
+            return this;
+        }
+
+        public Builder setCustomEndpoint(String value) {
+            return this;
+        }
+
+        public Builder setSmallNotificationIcon(String value) {
+            return this;
+        }
+
+        public Builder setLargeNotificationIcon(String value) {
+            return this;
+        }
+
+        public Builder setDefaultNotificationChannelDescription(String value) {
+            return this;
+        }
+
+        public Builder setDefaultNotificationChannelName(String value) {
+            return this;
+        }
+
+        public Builder setPushDeepLinkBackStackActivityClass(Class<?> value) {
+            return this;
+        }
+
+        public Builder setIsFirebaseCloudMessagingRegistrationEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setFallbackFirebaseMessagingServiceEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setIsFirebaseMessagingServiceOnNewTokenRegistrationEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setAdmMessagingRegistrationEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setHandlePushDeepLinksAutomatically(boolean value) {
+            return this;
+        }
+
+        public Builder setIsAutomaticLocationCollectionEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setGeofencesEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setAutomaticGeofenceRequestsEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setPushDeepLinkBackStackActivityEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setIsSdkAuthenticationEnabled(boolean value) {
+            return this;
+        }
+
+        public Builder setSessionTimeout(int value) {
+            return this;
+        }
+
+        public Builder setTriggerActionMinimumTimeIntervalSeconds(int value) {
+            return this;
+        }
+
+        public Builder setDefaultNotificationAccentColor(int value) {
+            return this;
+        }
+
+        public Builder setBadNetworkDataFlushInterval(int value) {
+            return this;
+        }
+
+        public Builder setGoodNetworkDataFlushInterval(int value) {
+            return this;
+        }
+
+        public Builder setGreatNetworkDataFlushInterval(int value) {
+            return this;
+        }
+
+        public Builder setDeviceObjectAllowlist(EnumSet<DeviceKey> value) {
+            return this;
+        }
+
+        public BrazeConfig build() {
+            return new BrazeConfig();
+        }
+    }
+}
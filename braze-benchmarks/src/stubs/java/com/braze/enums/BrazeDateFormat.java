@@ -0,0 +1,22 @@
+package com.braze.enums;
+
+/**
+ * JVM stand-in for Braze's BrazeDateFormat.
+ */
+public enum BrazeDateFormat {
+    SHORT("yyyy-MM-dd"),
+    LONG("yyyy-MM-dd kk:mm:ss"),
+    CLOCK_12_HOUR("h:mm a"),
+    ANDROID_LOGCAT("MM-dd kk:mm:ss.SSS"),
+    ISO_8601("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    private final String mFormat;
+
+    BrazeDateFormat(String format) {
+        mFormat = format;
+    }
+
+    public String getFormat() {
+        return mFormat;
+    }
+}
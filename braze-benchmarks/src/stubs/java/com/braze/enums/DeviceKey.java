@@ -0,0 +1,15 @@
+package com.braze.enums;
+
+/**
+ * JVM stand-in for Braze's DeviceKey.
+ */
+public enum DeviceKey {
+    ANDROID_VERSION,
+    CARRIER,
+    BRAND,
+    MODEL,
+    RESOLUTION,
+    LOCALE,
+    TIMEZONE,
+    NOTIFICATION_ENABLED
+}
@@ -0,0 +1,13 @@
+package com.braze.enums;
+
+/**
+ * JVM stand-in for Braze's Gender.
+ */
+public enum Gender {
+    MALE,
+    FEMALE,
+    OTHER,
+    UNKNOWN,
+    NOT_APPLICABLE,
+    PREFER_NOT_TO_SAY
+}
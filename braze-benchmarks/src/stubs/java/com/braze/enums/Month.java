@@ -0,0 +1,29 @@
+package com.braze.enums;
+
+/**
+ * JVM stand-in for Braze's Month.
+ */
+public enum Month {
+    JANUARY,
+    FEBRUARY,
+    MARCH,
+    APRIL,
+    MAY,
+    JUNE,
+    JULY,
+    AUGUST,
+    SEPTEMBER,
+    OCTOBER,
+    NOVEMBER,
+    DECEMBER;
+
+    private static final Month[] VALUES = values();
+
+    /**
+     * @param month - the zero-based month
+     * @return the Month, or null if out of range
+     */
+    public static Month getMonth(int month) {
+        return month >= 0 && month < VALUES.length ? VALUES[month] : null;
+    }
+}
@@ -0,0 +1,23 @@
+package com.braze.enums;
+
+import java.util.Locale;
+
+/**
+ * JVM stand-in for Braze's NotificationSubscriptionType.
+ */
+public enum NotificationSubscriptionType {
+    OPTED_IN,
+    SUBSCRIBED,
+    UNSUBSCRIBED;
+
+    public static NotificationSubscriptionType fromValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+}
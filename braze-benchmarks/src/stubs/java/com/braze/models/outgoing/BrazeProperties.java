@@ -0,0 +1,41 @@
+package com.braze.models.outgoing;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Date;
+
+/**
+ * JVM stand-in for BrazeProperties, backed by a JSONObject as in the SDK.
+ */
+public class BrazeProperties {
+
+    private final JSONObject mProperties;
+
+    public BrazeProperties() {
+        mProperties = new JSONObject();
+    }
+
+    public BrazeProperties(JSONObject properties) {
+        mProperties = new JSONObject();
+        for (String key : properties.keySet()) {
+            addProperty(key, properties.opt(key));
+        }
+    }
+
+    public BrazeProperties addProperty(String key, Object value) {
+        try {
+            mProperties.put(key, value instanceof Date ? String.valueOf(value) : value);
+        } catch (JSONException ignore) {
+        }
+        return this;
+    }
+
+    public int getSize() {
+        return mProperties.length();
+    }
+
+    public JSONObject forJsonPut() {
+        return mProperties;
+    }
+}
@@ -0,0 +1,29 @@
+package com.braze.support;
+
+import com.braze.enums.BrazeDateFormat;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * JVM stand-in for Braze's DateTimeUtils. As with the SDK, a new formatter is created for every
+ * call, values are parsed in UTC, and parse failures are thrown.
+ */
+public final class DateTimeUtils {
+
+    private DateTimeUtils() {
+    }
+
+    public static Date parseDate(String dateString, BrazeDateFormat dateFormat) {
+        try {
+            SimpleDateFormat format = new SimpleDateFormat(dateFormat.getFormat(), Locale.US);
+            format.setTimeZone(TimeZone.getTimeZone("UTC"));
+            return format.parse(dateString);
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+}
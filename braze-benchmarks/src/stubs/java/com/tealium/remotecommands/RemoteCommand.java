@@ -0,0 +1,62 @@
+package com.tealium.remotecommands;
+
+import org.json.JSONObject;
+
+/**
+ * JVM stand-in for the Tealium RemoteCommand base class; only the members used by the Braze
+ * remote command are provided.
+ */
+public abstract class RemoteCommand {
+
+    private final String mCommandName;
+    private final String mDescription;
+    private final String mVersion;
+
+    protected RemoteCommand(String commandName, String description, String version) {
+        mCommandName = commandName;
+        mDescription = description;
+        mVersion = version;
+    }
+
+    public String getCommandName() {
+        return mCommandName;
+    }
+
+    public String getDescription() {
+        return mDescription;
+    }
+
+    public String getVersion() {
+        return mVersion;
+    }
+
+    protected abstract void onInvoke(Response response) throws Exception;
+
+    public static class Response {
+
+        private final String mCommandId;
+        private final String mResponseId;
+        private final JSONObject mRequestPayload;
+
+        public Response(Object handler, String commandId, String responseId, JSONObject requestPayload) {
+            mCommandId = commandId;
+            mResponseId = responseId;
+            mRequestPayload = requestPayload;
+        }
+
+        public String getCommandId() {
+            return mCommandId;
+        }
+
+        public String getResponseId() {
+            return mResponseId;
+        }
+
+        public JSONObject getRequestPayload() {
+            return mRequestPayload;
+        }
+
+        public void send() {
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.tealium.remotecommands.braze;
+
+/**
+ * JVM stand-in for the BuildConfig generated by the Android Gradle plugin.
+ */
+public final class BuildConfig {
+    public static final String TEALIUM_BRAZE_VERSION = "benchmark";
+}
@@ -0,0 +1,41 @@
+package com.tealium.remotecommands.braze.testing;
+
+import com.tealium.remotecommands.braze.BrazeCommand;
+
+/**
+ * Identifies each {@link BrazeCommand} method recorded by a {@link RecordingBrazeCommand}.
+ */
+public enum Call {
+    INITIALIZE,
+    ENABLE_SDK,
+    DISABLE_SDK,
+    WIPE_DATA,
+    SET_USER_ID,
+    SET_AD_TRACKING_ENABLED,
+    SET_USER_ALIAS,
+    SET_USER_FIRST_NAME,
+    SET_USER_LAST_NAME,
+    SET_USER_EMAIL,
+    SET_USER_LANGUAGE,
+    SET_USER_GENDER,
+    SET_USER_HOME_CITY,
+    SET_USER_COUNTRY,
+    SET_USER_PHONE,
+    SET_USER_DATE_OF_BIRTH,
+    SET_PUSH_NOTIFICATION_SUBSCRIPTION_TYPE,
+    SET_EMAIL_SUBSCRIPTION_TYPE,
+    SET_USER_CUSTOM_ATTRIBUTES,
+    UNSET_USER_CUSTOM_ATTRIBUTES,
+    INCREMENT_USER_CUSTOM_ATTRIBUTES,
+    SET_USER_CUSTOM_ATTRIBUTE_ARRAYS,
+    APPEND_USER_CUSTOM_ATTRIBUTE_ARRAYS,
+    REMOVE_FROM_USER_CUSTOM_ATTRIBUTE_ARRAYS,
+    LOG_CUSTOM_EVENT,
+    LOG_PURCHASE,
+    LOG_PURCHASES,
+    REQUEST_FLUSH,
+    ADD_TO_SUBSCRIPTION_GROUP,
+    REMOVE_FROM_SUBSCRIPTION_GROUP,
+    SET_SDK_AUTH_SIGNATURE,
+    SET_LAST_KNOWN_LOCATION
+}
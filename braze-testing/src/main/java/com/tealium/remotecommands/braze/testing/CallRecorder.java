@@ -0,0 +1,105 @@
+package com.tealium.remotecommands.braze.testing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fixed capacity ring buffer of calls. All slots are allocated up front, so recording a call does
+ * not allocate beyond boxing its arguments; once full, the oldest calls are overwritten.
+ */
+class CallRecorder<C extends Enum<C>> {
+
+    static final int MAX_ARGUMENTS = 5;
+
+    private static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private final int mCapacity;
+    private final Object[] mCalls;
+    private final long[] mTimestamps;
+    private final boolean[] mFailed;
+    private final int[] mArgumentCounts;
+    private final Object[] mArguments;
+
+    private long mNext = 0;
+
+    CallRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        mCapacity = capacity;
+        mCalls = new Object[capacity];
+        mTimestamps = new long[capacity];
+        mFailed = new boolean[capacity];
+        mArgumentCounts = new int[capacity];
+        mArguments = new Object[capacity * MAX_ARGUMENTS];
+    }
+
+    /**
+     * Records a call, first asking the injector whether it should fail.
+     *
+     * @param call           - the call being made
+     * @param timestampNanos - when the call was received
+     * @param injector       - decides whether the call fails; may be null
+     * @param arguments      - the call's arguments; at most {@link #MAX_ARGUMENTS}
+     * @return the exception to throw from the call, or null if it should succeed
+     */
+    synchronized RuntimeException record(C call, long timestampNanos, FailureInjector<C> injector, Object... arguments) {
+        final long sequence = mNext++;
+        final RuntimeException failure = injector != null ? injector.failure(call, sequence) : null;
+
+        final int slot = (int) (sequence % mCapacity);
+        mCalls[slot] = call;
+        mTimestamps[slot] = timestampNanos;
+        mFailed[slot] = failure != null;
+        mArgumentCounts[slot] = arguments.length;
+
+        final int offset = slot * MAX_ARGUMENTS;
+        for (int i = 0; i < MAX_ARGUMENTS; i++) {
+            mArguments[offset + i] = i < arguments.length ? arguments[i] : null;
+        }
+        return failure;
+    }
+
+    /**
+     * @return a copy of the retained calls, oldest first
+     */
+    @SuppressWarnings("unchecked")
+    synchronized List<RecordedCall<C>> snapshot() {
+        final long first = Math.max(0, mNext - mCapacity);
+        final List<RecordedCall<C>> calls = new ArrayList<>((int) (mNext - first));
+        for (long sequence = first; sequence < mNext; sequence++) {
+            final int slot = (int) (sequence % mCapacity);
+            final int count = mArgumentCounts[slot];
+            final Object[] arguments = count == 0
+                    ? NO_ARGUMENTS
+                    : Arrays.copyOfRange(mArguments, slot * MAX_ARGUMENTS, slot * MAX_ARGUMENTS + count);
+            calls.add(new RecordedCall<>(sequence, (C) mCalls[slot], mTimestamps[slot], mFailed[slot], arguments));
+        }
+        return calls;
+    }
+
+    /**
+     * @return the total number of calls recorded, including any that have been overwritten
+     */
+    synchronized long size() {
+        return mNext;
+    }
+
+    /**
+     * @return the number of calls that have been overwritten
+     */
+    synchronized long overwritten() {
+        return Math.max(0, mNext - mCapacity);
+    }
+
+    int capacity() {
+        return mCapacity;
+    }
+
+    synchronized void clear() {
+        mNext = 0;
+        Arrays.fill(mCalls, null);
+        Arrays.fill(mArguments, null);
+    }
+}
@@ -0,0 +1,63 @@
+package com.tealium.remotecommands.braze.testing;
+
+import java.util.EnumSet;
+import java.util.Random;
+
+/**
+ * Decides whether a recorded call should fail. When it does, the {@link RecordingBrazeCommand} or
+ * {@link RecordingBrazeSdk} throws the returned exception from the call, as the Braze SDK or a
+ * handler might.
+ *
+ * @param <C> - the type identifying the call; {@link Call} or {@link SdkCall}
+ */
+@FunctionalInterface
+public interface FailureInjector<C extends Enum<C>> {
+
+    /**
+     * @param call     - the call being made
+     * @param sequence - the sequence number of the call
+     * @return the exception to throw, or null if the call should succeed
+     */
+    RuntimeException failure(C call, long sequence);
+
+    /**
+     * Fails every call of the given types.
+     */
+    @SafeVarargs
+    static <C extends Enum<C>> FailureInjector<C> always(C first, C... rest) {
+        final EnumSet<C> calls = EnumSet.of(first, rest);
+        return (call, sequence) -> calls.contains(call)
+                ? new IllegalStateException("Injected failure: " + call)
+                : null;
+    }
+
+    /**
+     * Fails every nth call, of any type.
+     */
+    static <C extends Enum<C>> FailureInjector<C> everyNth(int n) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be greater than 0");
+        }
+        return (call, sequence) -> (sequence + 1) % n == 0
+                ? new IllegalStateException("Injected failure: " + call + " #" + sequence)
+                : null;
+    }
+
+    /**
+     * Fails calls, of any type, at random with the given probability. The seed makes the
+     * sequence of failures reproducible.
+     */
+    static <C extends Enum<C>> FailureInjector<C> withProbability(double probability, long seed) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("probability must be between 0 and 1");
+        }
+        final Random random = new Random(seed);
+        return (call, sequence) -> {
+            final boolean fail;
+            synchronized (random) {
+                fail = random.nextDouble() < probability;
+            }
+            return fail ? new IllegalStateException("Injected failure: " + call + " #" + sequence) : null;
+        };
+    }
+}
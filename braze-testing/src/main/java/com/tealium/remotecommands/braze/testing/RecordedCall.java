@@ -0,0 +1,70 @@
+package com.tealium.remotecommands.braze.testing;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable copy of a single call recorded by a {@link RecordingBrazeCommand} or
+ * {@link RecordingBrazeSdk}.
+ *
+ * @param <C> - the type identifying the call; {@link Call} or {@link SdkCall}
+ */
+public final class RecordedCall<C extends Enum<C>> {
+
+    private final long mSequence;
+    private final C mCall;
+    private final long mTimestampNanos;
+    private final boolean mFailed;
+    private final List<Object> mArguments;
+
+    RecordedCall(long sequence, C call, long timestampNanos, boolean failed, Object[] arguments) {
+        mSequence = sequence;
+        mCall = call;
+        mTimestampNanos = timestampNanos;
+        mFailed = failed;
+        mArguments = Collections.unmodifiableList(Arrays.asList(arguments));
+    }
+
+    /**
+     * @return the zero-based position of this call among all calls received, including any that
+     * have since been overwritten
+     */
+    public long getSequence() {
+        return mSequence;
+    }
+
+    public C getCall() {
+        return mCall;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the call was received
+     */
+    public long getTimestampNanos() {
+        return mTimestampNanos;
+    }
+
+    /**
+     * @return true if a failure was injected into this call
+     */
+    public boolean isFailed() {
+        return mFailed;
+    }
+
+    /**
+     * @return the arguments of the call, in declaration order
+     */
+    public List<Object> getArguments() {
+        return mArguments;
+    }
+
+    public Object getArgument(int index) {
+        return mArguments.get(index);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + mSequence + " " + mCall + mArguments + (mFailed ? " (failed)" : "");
+    }
+}
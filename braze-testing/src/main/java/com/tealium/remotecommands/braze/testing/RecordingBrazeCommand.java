@@ -0,0 +1,203 @@
+package com.tealium.remotecommands.braze.testing;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.tealium.remotecommands.braze.BrazeCommand;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.ConfigOverrider;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * A {@link BrazeCommand} that records every call, instead of calling the Braze SDK, so that a
+ * {@link BrazeRemoteCommand} can be driven offline at high rates and both the resulting call
+ * sequence and the achieved throughput asserted on.
+ * <pre>
+ *   RecordingBrazeCommand braze = new RecordingBrazeCommand(10_000);
+ *   BrazeRemoteCommand command = new BrazeRemoteCommand(application, braze);
+ * </pre>
+ * Calls are recorded into a preallocated ring buffer, with optional latency and failure
+ * injection; see {@link RecordingSupport}.
+ * <p>
+ * Calls are recorded as they reach the {@link BrazeCommand}, so none of the library's own handling
+ * of them - user caching, attribute coalescing, increment aggregation - is exercised; use a
+ * {@link RecordingBrazeSdk} to include it.
+ */
+public class RecordingBrazeCommand extends RecordingSupport<Call> implements BrazeCommand {
+
+    public RecordingBrazeCommand() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity - the number of most recent calls to retain
+     */
+    public RecordingBrazeCommand(int capacity) {
+        super(Call.class, capacity);
+    }
+
+    @Override
+    public void initialize(@Nullable String apiKey, @Nullable JSONObject launchOptions, @Nullable List<ConfigOverrider> overrides) {
+        record(Call.INITIALIZE, apiKey, launchOptions, overrides);
+    }
+
+    @Override
+    public void enableSdk() {
+        record(Call.ENABLE_SDK);
+    }
+
+    @Override
+    public void disableSdk() {
+        record(Call.DISABLE_SDK);
+    }
+
+    @Override
+    public void wipeData() {
+        record(Call.WIPE_DATA);
+    }
+
+    @Override
+    public void setUserId(@NonNull String userId, @Nullable String sdkAuthSignature) {
+        record(Call.SET_USER_ID, userId, sdkAuthSignature);
+    }
+
+    @Override
+    public void setAdTrackingEnabled(@NonNull String googleAdid, boolean limitAdTracking) {
+        record(Call.SET_AD_TRACKING_ENABLED, googleAdid, limitAdTracking);
+    }
+
+    @Override
+    public void setUserAlias(@NonNull String userAlias, @NonNull String aliasLabel) {
+        record(Call.SET_USER_ALIAS, userAlias, aliasLabel);
+    }
+
+    @Override
+    public void setUserFirstName(@NonNull String firstName) {
+        record(Call.SET_USER_FIRST_NAME, firstName);
+    }
+
+    @Override
+    public void setUserLastName(@NonNull String lastName) {
+        record(Call.SET_USER_LAST_NAME, lastName);
+    }
+
+    @Override
+    public void setUserEmail(@NonNull String email) {
+        record(Call.SET_USER_EMAIL, email);
+    }
+
+    @Override
+    public void setUserLanguage(@NonNull String language) {
+        record(Call.SET_USER_LANGUAGE, language);
+    }
+
+    @Override
+    public void setUserGender(@NonNull String gender) {
+        record(Call.SET_USER_GENDER, gender);
+    }
+
+    @Override
+    public void setUserHomeCity(@NonNull String city) {
+        record(Call.SET_USER_HOME_CITY, city);
+    }
+
+    @Override
+    public void setUserCountry(@NonNull String country) {
+        record(Call.SET_USER_COUNTRY, country);
+    }
+
+    @Override
+    public void setUserPhone(@NonNull String phone) {
+        record(Call.SET_USER_PHONE, phone);
+    }
+
+    @Override
+    public void setUserDateOfBirth(@NonNull String dob) {
+        record(Call.SET_USER_DATE_OF_BIRTH, dob);
+    }
+
+    @Override
+    public void setPushNotificationSubscriptionType(@NonNull String notificationType) {
+        record(Call.SET_PUSH_NOTIFICATION_SUBSCRIPTION_TYPE, notificationType);
+    }
+
+    @Override
+    public void setEmailSubscriptionType(@NonNull String notificationType) {
+        record(Call.SET_EMAIL_SUBSCRIPTION_TYPE, notificationType);
+    }
+
+    @Override
+    public void setUserCustomAttributes(@NonNull JSONObject attributes) {
+        record(Call.SET_USER_CUSTOM_ATTRIBUTES, attributes);
+    }
+
+    @Override
+    public void unsetUserCustomAttributes(@NonNull JSONArray keys) {
+        record(Call.UNSET_USER_CUSTOM_ATTRIBUTES, keys);
+    }
+
+    @Override
+    public void incrementUserCustomAttributes(@NonNull JSONObject attributes) {
+        record(Call.INCREMENT_USER_CUSTOM_ATTRIBUTES, attributes);
+    }
+
+    @Override
+    public void setUserCustomAttributeArrays(@NonNull JSONObject attributes) {
+        record(Call.SET_USER_CUSTOM_ATTRIBUTE_ARRAYS, attributes);
+    }
+
+    @Override
+    public void appendUserCustomAttributeArrays(@NonNull JSONObject attributes) {
+        record(Call.APPEND_USER_CUSTOM_ATTRIBUTE_ARRAYS, attributes);
+    }
+
+    @Override
+    public void removeFromUserCustomAttributeArrays(@NonNull JSONObject attributes) {
+        record(Call.REMOVE_FROM_USER_CUSTOM_ATTRIBUTE_ARRAYS, attributes);
+    }
+
+    @Override
+    public void logCustomEvent(@NonNull String eventName, @Nullable JSONObject eventProperties) {
+        record(Call.LOG_CUSTOM_EVENT, eventName, eventProperties);
+    }
+
+    @Override
+    public void logPurchase(@NonNull String productId, @Nullable String currency, @NonNull BigDecimal unitPrice, Integer quantity, @Nullable JSONObject purchaseProperties) {
+        record(Call.LOG_PURCHASE, productId, currency, unitPrice, quantity, purchaseProperties);
+    }
+
+    @Override
+    public void logPurchase(@NonNull String[] productIds, @Nullable String[] currencies, @NonNull BigDecimal[] unitPrices, Integer[] quantities, @Nullable JSONObject[] purchaseProperties) {
+        record(Call.LOG_PURCHASES, productIds, currencies, unitPrices, quantities, purchaseProperties);
+    }
+
+    @Override
+    public void requestFlush() {
+        record(Call.REQUEST_FLUSH);
+    }
+
+    @Override
+    public void addToSubscriptionGroup(@NonNull String groupId) {
+        record(Call.ADD_TO_SUBSCRIPTION_GROUP, groupId);
+    }
+
+    @Override
+    public void removeFromSubscriptionGroup(@NonNull String groupId) {
+        record(Call.REMOVE_FROM_SUBSCRIPTION_GROUP, groupId);
+    }
+
+    @Override
+    public void setSdkAuthSignature(@NonNull String signature) {
+        record(Call.SET_SDK_AUTH_SIGNATURE, signature);
+    }
+
+    @Override
+    public void setLastKnownLocation(@NonNull Double latitude, @NonNull Double longitude, @Nullable Double altitude, @Nullable Double accuracy) {
+        record(Call.SET_LAST_KNOWN_LOCATION, latitude, longitude, altitude, accuracy);
+    }
+}
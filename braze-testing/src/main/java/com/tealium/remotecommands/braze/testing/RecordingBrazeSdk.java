@@ -0,0 +1,272 @@
+package com.tealium.remotecommands.braze.testing;
+
+import android.app.Activity;
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.braze.configuration.BrazeConfig;
+import com.braze.enums.Gender;
+import com.braze.enums.Month;
+import com.braze.enums.NotificationSubscriptionType;
+import com.braze.models.outgoing.BrazeProperties;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand;
+import com.tealium.remotecommands.braze.BrazeSdk;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+
+/**
+ * A stand-in for the Braze SDK that records every call made on Braze and the current BrazeUser.
+ * Unlike a {@link RecordingBrazeCommand}, the library's standard command implementation runs in
+ * full - including user caching, attribute diffing and coalescing, and increment aggregation - so
+ * the recorded calls are those the Braze SDK itself would receive.
+ * <pre>
+ *   RecordingBrazeSdk sdk = new RecordingBrazeSdk(10_000);
+ *   BrazeRemoteCommand command = new BrazeRemoteCommand(application, sdk);
+ * </pre>
+ * Calls are recorded into a preallocated ring buffer, with optional latency and failure
+ * injection; see {@link RecordingSupport}. Session handling and the InAppMessageManager are not
+ * registered when constructed this way.
+ *
+ * @see BrazeRemoteCommand#BrazeRemoteCommand(Application, BrazeSdk)
+ */
+public class RecordingBrazeSdk extends RecordingSupport<SdkCall> implements BrazeSdk {
+
+    private final User mUser = new RecordingUser();
+    private volatile boolean mDisabled = false;
+
+    public RecordingBrazeSdk() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity - the number of most recent calls to retain
+     */
+    public RecordingBrazeSdk(int capacity) {
+        super(SdkCall.class, capacity);
+    }
+
+    /**
+     * Not recorded; reflects the last call to {@link #enableSdk()} or {@link #disableSdk()}.
+     */
+    @Override
+    public boolean isDisabled() {
+        return mDisabled;
+    }
+
+    @Override
+    public void configure(@NonNull BrazeConfig config) {
+        record(SdkCall.CONFIGURE, config);
+    }
+
+    @Override
+    public void enableSdk() {
+        mDisabled = false;
+        record(SdkCall.ENABLE_SDK);
+    }
+
+    @Override
+    public void disableSdk() {
+        mDisabled = true;
+        record(SdkCall.DISABLE_SDK);
+    }
+
+    @Override
+    public void wipeData() {
+        record(SdkCall.WIPE_DATA);
+    }
+
+    @Override
+    public void openSession(@NonNull Activity activity) {
+        record(SdkCall.OPEN_SESSION, activity);
+    }
+
+    @Override
+    public void changeUser(@NonNull String userId) {
+        record(SdkCall.CHANGE_USER, userId, null);
+    }
+
+    @Override
+    public void changeUser(@NonNull String userId, @NonNull String sdkAuthSignature) {
+        record(SdkCall.CHANGE_USER, userId, sdkAuthSignature);
+    }
+
+    @Override
+    public void setGoogleAdvertisingId(@NonNull String googleAdvertisingId, boolean limitAdTrackingEnabled) {
+        record(SdkCall.SET_GOOGLE_ADVERTISING_ID, googleAdvertisingId, limitAdTrackingEnabled);
+    }
+
+    @Override
+    public void logCustomEvent(@NonNull String eventName, @Nullable BrazeProperties properties) {
+        record(SdkCall.LOG_CUSTOM_EVENT, eventName, properties);
+    }
+
+    @Override
+    public void logPurchase(@NonNull String productId, @Nullable String currencyCode, @NonNull BigDecimal price, int quantity, @Nullable BrazeProperties properties) {
+        record(SdkCall.LOG_PURCHASE, productId, currencyCode, price, quantity, properties);
+    }
+
+    @Override
+    public void requestImmediateDataFlush() {
+        record(SdkCall.REQUEST_IMMEDIATE_DATA_FLUSH);
+    }
+
+    @Override
+    public void setSdkAuthenticationSignature(@NonNull String signature) {
+        record(SdkCall.SET_SDK_AUTHENTICATION_SIGNATURE, signature);
+    }
+
+    @Nullable
+    @Override
+    public User getCurrentUser() {
+        record(SdkCall.GET_CURRENT_USER);
+        return mUser;
+    }
+
+    private class RecordingUser implements User {
+
+        @Override
+        public void addAlias(@NonNull String alias, @NonNull String label) {
+            record(SdkCall.USER_ADD_ALIAS, alias, label);
+        }
+
+        @Override
+        public void setFirstName(@NonNull String firstName) {
+            record(SdkCall.USER_SET_FIRST_NAME, firstName);
+        }
+
+        @Override
+        public void setLastName(@NonNull String lastName) {
+            record(SdkCall.USER_SET_LAST_NAME, lastName);
+        }
+
+        @Override
+        public void setEmail(@NonNull String email) {
+            record(SdkCall.USER_SET_EMAIL, email);
+        }
+
+        @Override
+        public void setLanguage(@NonNull String language) {
+            record(SdkCall.USER_SET_LANGUAGE, language);
+        }
+
+        @Override
+        public void setGender(@NonNull Gender gender) {
+            record(SdkCall.USER_SET_GENDER, gender);
+        }
+
+        @Override
+        public void setHomeCity(@NonNull String homeCity) {
+            record(SdkCall.USER_SET_HOME_CITY, homeCity);
+        }
+
+        @Override
+        public void setCountry(@NonNull String country) {
+            record(SdkCall.USER_SET_COUNTRY, country);
+        }
+
+        @Override
+        public void setPhoneNumber(@NonNull String phoneNumber) {
+            record(SdkCall.USER_SET_PHONE_NUMBER, phoneNumber);
+        }
+
+        @Override
+        public void setDateOfBirth(int year, @NonNull Month month, int day) {
+            record(SdkCall.USER_SET_DATE_OF_BIRTH, year, month, day);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, long value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, int value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, double value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, float value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, boolean value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, @NonNull String value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, @NonNull JSONArray value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, @NonNull JSONObject value) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, key, value);
+        }
+
+        @Override
+        public void unsetCustomUserAttribute(@NonNull String key) {
+            record(SdkCall.USER_UNSET_CUSTOM_ATTRIBUTE, key);
+        }
+
+        @Override
+        public void incrementCustomUserAttribute(@NonNull String key, int incrementValue) {
+            record(SdkCall.USER_INCREMENT_CUSTOM_ATTRIBUTE, key, incrementValue);
+        }
+
+        @Override
+        public void setCustomAttributeArray(@NonNull String key, @Nullable String[] values) {
+            record(SdkCall.USER_SET_CUSTOM_ATTRIBUTE_ARRAY, key, values);
+        }
+
+        @Override
+        public void addToCustomAttributeArray(@NonNull String key, @NonNull String value) {
+            record(SdkCall.USER_ADD_TO_CUSTOM_ATTRIBUTE_ARRAY, key, value);
+        }
+
+        @Override
+        public void removeFromCustomAttributeArray(@NonNull String key, @NonNull String value) {
+            record(SdkCall.USER_REMOVE_FROM_CUSTOM_ATTRIBUTE_ARRAY, key, value);
+        }
+
+        @Override
+        public void setPushNotificationSubscriptionType(@NonNull NotificationSubscriptionType type) {
+            record(SdkCall.USER_SET_PUSH_NOTIFICATION_SUBSCRIPTION_TYPE, type);
+        }
+
+        @Override
+        public void setEmailNotificationSubscriptionType(@NonNull NotificationSubscriptionType type) {
+            record(SdkCall.USER_SET_EMAIL_NOTIFICATION_SUBSCRIPTION_TYPE, type);
+        }
+
+        @Override
+        public void setLastKnownLocation(double latitude, double longitude, @Nullable Double altitude, @Nullable Double accuracy) {
+            record(SdkCall.USER_SET_LAST_KNOWN_LOCATION, latitude, longitude, altitude, accuracy);
+        }
+
+        @Override
+        public void addToSubscriptionGroup(@NonNull String groupId) {
+            record(SdkCall.USER_ADD_TO_SUBSCRIPTION_GROUP, groupId);
+        }
+
+        @Override
+        public void removeFromSubscriptionGroup(@NonNull String groupId) {
+            record(SdkCall.USER_REMOVE_FROM_SUBSCRIPTION_GROUP, groupId);
+        }
+    }
+}
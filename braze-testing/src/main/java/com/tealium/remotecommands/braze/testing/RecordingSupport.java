@@ -0,0 +1,141 @@
+package com.tealium.remotecommands.braze.testing;
+
+import androidx.annotation.Nullable;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records calls, with {@link System#nanoTime()} timestamps, into a ring buffer that is allocated
+ * up front; once it is full the oldest calls are overwritten, though per-call counts remain exact.
+ * An artificial latency can be added to every call to approximate the cost of the SDK, and a
+ * {@link FailureInjector} used to make calls throw.
+ * <p>
+ * Arguments are recorded by reference; JSON arguments should not be modified after the call.
+ *
+ * @param <C> - the type identifying each call
+ */
+public abstract class RecordingSupport<C extends Enum<C>> {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * Latencies below this are busy-waited, as parking cannot reliably wait for so short a time.
+     */
+    private static final long SPIN_THRESHOLD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final CallRecorder<C> mRecorder;
+    private final AtomicLongArray mCounts;
+    private final AtomicLong mFailures = new AtomicLong();
+    private volatile long mLatencyNanos = 0;
+    private volatile FailureInjector<C> mFailureInjector;
+
+    /**
+     * @param type     - the type identifying each call
+     * @param capacity - the number of most recent calls to retain
+     */
+    RecordingSupport(Class<C> type, int capacity) {
+        mRecorder = new CallRecorder<>(capacity);
+        mCounts = new AtomicLongArray(type.getEnumConstants().length);
+    }
+
+    /**
+     * Sets an artificial latency to add to every call.
+     *
+     * @param latency - the latency; 0 for none
+     * @param unit    - the unit of the latency
+     */
+    public void setLatency(long latency, TimeUnit unit) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("latency must not be negative");
+        }
+        mLatencyNanos = unit.toNanos(latency);
+    }
+
+    /**
+     * Sets the injector that decides which calls fail.
+     *
+     * @param injector - the injector, or null for no failures
+     */
+    public void setFailureInjector(@Nullable FailureInjector<C> injector) {
+        mFailureInjector = injector;
+    }
+
+    /**
+     * @return a copy of the retained calls, oldest first
+     */
+    public List<RecordedCall<C>> getCalls() {
+        return mRecorder.snapshot();
+    }
+
+    /**
+     * @return the total number of calls received, including any that have been overwritten
+     */
+    public long getCallCount() {
+        return mRecorder.size();
+    }
+
+    /**
+     * @return the number of calls of the given type received
+     */
+    public long getCallCount(C call) {
+        return mCounts.get(call.ordinal());
+    }
+
+    /**
+     * @return the number of calls into which a failure was injected
+     */
+    public long getFailureCount() {
+        return mFailures.get();
+    }
+
+    /**
+     * @return the number of calls no longer retained because the buffer was full
+     */
+    public long getOverwrittenCount() {
+        return mRecorder.overwritten();
+    }
+
+    public int getCapacity() {
+        return mRecorder.capacity();
+    }
+
+    /**
+     * Discards all recorded calls and counts. Latency and failure injection are unchanged.
+     */
+    public void reset() {
+        mRecorder.clear();
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        mFailures.set(0);
+    }
+
+    final void record(C call, Object... arguments) {
+        final RuntimeException failure = mRecorder.record(call, System.nanoTime(), mFailureInjector, arguments);
+        mCounts.incrementAndGet(call.ordinal());
+
+        final long latency = mLatencyNanos;
+        if (latency > 0) {
+            delay(latency);
+        }
+
+        if (failure != null) {
+            mFailures.incrementAndGet();
+            throw failure;
+        }
+    }
+
+    private static void delay(long nanos) {
+        final long deadline = System.nanoTime() + nanos;
+        if (nanos >= SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(nanos);
+        }
+        while (System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.tealium.remotecommands.braze.testing;
+
+import com.tealium.remotecommands.braze.BrazeSdk;
+
+/**
+ * Identifies each {@link BrazeSdk} method recorded by a {@link RecordingBrazeSdk}. Calls made on
+ * the current user are prefixed with {@code USER_}.
+ */
+public enum SdkCall {
+    CONFIGURE,
+    ENABLE_SDK,
+    DISABLE_SDK,
+    WIPE_DATA,
+    OPEN_SESSION,
+    CHANGE_USER,
+    SET_GOOGLE_ADVERTISING_ID,
+    LOG_CUSTOM_EVENT,
+    LOG_PURCHASE,
+    REQUEST_IMMEDIATE_DATA_FLUSH,
+    SET_SDK_AUTHENTICATION_SIGNATURE,
+    GET_CURRENT_USER,
+    USER_ADD_ALIAS,
+    USER_SET_FIRST_NAME,
+    USER_SET_LAST_NAME,
+    USER_SET_EMAIL,
+    USER_SET_LANGUAGE,
+    USER_SET_GENDER,
+    USER_SET_HOME_CITY,
+    USER_SET_COUNTRY,
+    USER_SET_PHONE_NUMBER,
+    USER_SET_DATE_OF_BIRTH,
+    USER_SET_CUSTOM_ATTRIBUTE,
+    USER_UNSET_CUSTOM_ATTRIBUTE,
+    USER_INCREMENT_CUSTOM_ATTRIBUTE,
+    USER_SET_CUSTOM_ATTRIBUTE_ARRAY,
+    USER_ADD_TO_CUSTOM_ATTRIBUTE_ARRAY,
+    USER_REMOVE_FROM_CUSTOM_ATTRIBUTE_ARRAY,
+    USER_SET_PUSH_NOTIFICATION_SUBSCRIPTION_TYPE,
+    USER_SET_EMAIL_NOTIFICATION_SUBSCRIPTION_TYPE,
+    USER_SET_LAST_KNOWN_LOCATION,
+    USER_ADD_TO_SUBSCRIPTION_GROUP,
+    USER_REMOVE_FROM_SUBSCRIPTION_GROUP
+}
@@ -0,0 +1,49 @@
+package com.tealium.remotecommands.braze.testing;
+
+import android.app.Application;
+
+import com.tealium.remotecommands.RemoteCommand;
+import com.tealium.remotecommands.braze.BrazeCommand;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand;
+import com.tealium.remotecommands.braze.BrazeSdk;
+
+import org.json.JSONObject;
+
+/**
+ * A {@link BrazeRemoteCommand} that can be invoked directly with a payload, as Tealium would
+ * when dispatching the remote command, so that it can be driven without a Tealium instance.
+ * <pre>
+ *   RecordingBrazeSdk sdk = new RecordingBrazeSdk();
+ *   TestableBrazeRemoteCommand command = new TestableBrazeRemoteCommand(application, sdk);
+ *   command.invoke(payload);
+ * </pre>
+ */
+public class TestableBrazeRemoteCommand extends BrazeRemoteCommand {
+
+    /**
+     * @param app   - The Application instance
+     * @param braze - The BrazeCommand to dispatch commands to, e.g. a {@link RecordingBrazeCommand}
+     */
+    public TestableBrazeRemoteCommand(Application app, BrazeCommand braze) {
+        super(app, braze);
+    }
+
+    /**
+     * @param app - The Application instance
+     * @param sdk - The stand-in for the Braze SDK, e.g. a {@link RecordingBrazeSdk}
+     */
+    public TestableBrazeRemoteCommand(Application app, BrazeSdk sdk) {
+        super(app, sdk);
+    }
+
+    /**
+     * Invokes the remote command with the given payload, which should include the
+     * "command_name" key.
+     *
+     * @param payload - the remote command payload
+     * @throws Exception if the command could not be handled
+     */
+    public void invoke(JSONObject payload) throws Exception {
+        onInvoke(new RemoteCommand.Response(null, getCommandName(), "", payload));
+    }
+}
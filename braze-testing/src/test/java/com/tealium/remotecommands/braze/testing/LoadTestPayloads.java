@@ -0,0 +1,30 @@
+package com.tealium.remotecommands.braze.testing;
+
+import com.tealium.remotecommands.braze.BrazeConstants;
+import com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import com.tealium.remotecommands.braze.BrazeConstants.Event;
+import com.tealium.remotecommands.braze.BrazeConstants.User;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+/**
+ * Payloads shared by the load tests.
+ */
+final class LoadTestPayloads {
+
+    private LoadTestPayloads() {
+    }
+
+    /**
+     * @return a payload that sets the custom attribute "index", then logs the event "event-index"
+     */
+    static JSONObject eventAndAttribute(int index) throws JSONException {
+        JSONObject payload = new JSONObject();
+        payload.put(Commands.COMMAND_KEY, Commands.SET_CUSTOM_ATTRIBUTE + BrazeConstants.SEPARATOR + Commands.LOG_CUSTOM_EVENT);
+        payload.put(User.SET_CUSTOM_ATTRIBUTE, new JSONObject().put("index", index));
+        payload.put(Event.EVENT_NAME, "event-" + index);
+        payload.put(Event.EVENT_PROPERTIES, new JSONObject().put("index", index));
+        return payload;
+    }
+}
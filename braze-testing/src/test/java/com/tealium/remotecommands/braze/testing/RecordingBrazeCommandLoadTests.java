@@ -0,0 +1,82 @@
+package com.tealium.remotecommands.braze.testing;
+
+import static com.tealium.remotecommands.braze.testing.LoadTestPayloads.eventAndAttribute;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives a BrazeRemoteCommand backed by a RecordingBrazeCommand with a large number of payloads.
+ * Throughput is measured by RecordingBenchmark in the braze-benchmarks module, not here.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecordingBrazeCommandLoadTests {
+
+    private static final int PAYLOADS = 5_000;
+
+    Application context = ApplicationProvider.getApplicationContext();
+    RecordingBrazeCommand braze;
+    TestableBrazeRemoteCommand brazeRemoteCommand;
+
+    @Before
+    public void setup() {
+        braze = new RecordingBrazeCommand(PAYLOADS * 2);
+        brazeRemoteCommand = new TestableBrazeRemoteCommand(context, braze);
+    }
+
+    @Test
+    public void onInvoke_RecordsEveryCall_InOrder() throws Exception {
+        for (int i = 0; i < PAYLOADS; i++) {
+            brazeRemoteCommand.invoke(eventAndAttribute(i));
+        }
+
+        List<RecordedCall<Call>> calls = braze.getCalls();
+        assertEquals(PAYLOADS * 2, calls.size());
+        for (int i = 0; i < PAYLOADS; i++) {
+            RecordedCall<Call> attribute = calls.get(i * 2);
+            RecordedCall<Call> event = calls.get(i * 2 + 1);
+            assertEquals(Call.SET_USER_CUSTOM_ATTRIBUTES, attribute.getCall());
+            assertEquals(i, ((JSONObject) attribute.getArgument(0)).getInt("index"));
+            assertEquals(Call.LOG_CUSTOM_EVENT, event.getCall());
+            assertEquals("event-" + i, event.getArgument(0));
+        }
+    }
+
+    @Test
+    public void onInvoke_ContinuesWithRemainingCommands_WhenCallsFail() throws Exception {
+        braze.setFailureInjector(FailureInjector.always(Call.SET_USER_CUSTOM_ATTRIBUTES));
+
+        for (int i = 0; i < 100; i++) {
+            brazeRemoteCommand.invoke(eventAndAttribute(i));
+        }
+
+        assertEquals(100, braze.getCallCount(Call.SET_USER_CUSTOM_ATTRIBUTES));
+        assertEquals(100, braze.getCallCount(Call.LOG_CUSTOM_EVENT));
+        assertEquals(100, braze.getFailureCount());
+    }
+
+    @Test
+    public void onInvoke_IncludesLatency() throws Exception {
+        braze.setLatency(1, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 10; i++) {
+            brazeRemoteCommand.invoke(eventAndAttribute(i));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+}
@@ -0,0 +1,172 @@
+package com.tealium.remotecommands.braze.testing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class RecordingBrazeCommandTests {
+
+    RecordingBrazeCommand braze;
+
+    @Before
+    public void setup() {
+        braze = new RecordingBrazeCommand(4);
+    }
+
+    @Test
+    public void records_CallsInOrder_WithArguments() {
+        JSONObject properties = new JSONObject();
+        braze.setUserId("user-1", null);
+        braze.logCustomEvent("event", properties);
+        braze.logPurchase("sku", "USD", BigDecimal.TEN, 2, null);
+
+        List<RecordedCall<Call>> calls = braze.getCalls();
+        assertEquals(3, calls.size());
+        assertEquals(Call.SET_USER_ID, calls.get(0).getCall());
+        assertEquals("user-1", calls.get(0).getArgument(0));
+        assertNull(calls.get(0).getArgument(1));
+        assertEquals(Call.LOG_CUSTOM_EVENT, calls.get(1).getCall());
+        assertSame(properties, calls.get(1).getArgument(1));
+        assertEquals(Call.LOG_PURCHASE, calls.get(2).getCall());
+        assertEquals(5, calls.get(2).getArguments().size());
+        assertEquals(2, calls.get(2).getArgument(3));
+
+        for (int i = 0; i < calls.size(); i++) {
+            assertEquals(i, calls.get(i).getSequence());
+            assertFalse(calls.get(i).isFailed());
+        }
+        assertTrue(calls.get(0).getTimestampNanos() <= calls.get(1).getTimestampNanos());
+        assertTrue(calls.get(1).getTimestampNanos() <= calls.get(2).getTimestampNanos());
+    }
+
+    @Test
+    public void records_OverwritesOldestCalls_WhenFull() {
+        for (int i = 0; i < 6; i++) {
+            braze.setUserFirstName("name-" + i);
+        }
+        braze.requestFlush();
+
+        List<RecordedCall<Call>> calls = braze.getCalls();
+        assertEquals(4, calls.size());
+        assertEquals(3, calls.get(0).getSequence());
+        assertEquals("name-3", calls.get(0).getArgument(0));
+        assertEquals(Call.REQUEST_FLUSH, calls.get(3).getCall());
+        assertEquals(0, calls.get(3).getArguments().size());
+
+        assertEquals(7, braze.getCallCount());
+        assertEquals(6, braze.getCallCount(Call.SET_USER_FIRST_NAME));
+        assertEquals(1, braze.getCallCount(Call.REQUEST_FLUSH));
+        assertEquals(3, braze.getOverwrittenCount());
+    }
+
+    @Test
+    public void reset_DiscardsCallsAndCounts() {
+        braze.enableSdk();
+        braze.disableSdk();
+        braze.reset();
+
+        assertTrue(braze.getCalls().isEmpty());
+        assertEquals(0, braze.getCallCount());
+        assertEquals(0, braze.getCallCount(Call.ENABLE_SDK));
+
+        braze.wipeData();
+        assertEquals(0, braze.getCalls().get(0).getSequence());
+    }
+
+    @Test
+    public void failureInjector_Always_FailsOnlyMatchingCalls() {
+        braze.setFailureInjector(FailureInjector.always(Call.LOG_CUSTOM_EVENT));
+
+        braze.requestFlush();
+        try {
+            braze.logCustomEvent("event", null);
+            fail("Expected an injected failure");
+        } catch (IllegalStateException expected) {
+        }
+
+        List<RecordedCall<Call>> calls = braze.getCalls();
+        assertFalse(calls.get(0).isFailed());
+        assertTrue(calls.get(1).isFailed());
+        assertEquals(1, braze.getFailureCount());
+        assertEquals(1, braze.getCallCount(Call.LOG_CUSTOM_EVENT));
+    }
+
+    @Test
+    public void failureInjector_EveryNth_FailsEveryNthCall() {
+        braze = new RecordingBrazeCommand(16);
+        braze.setFailureInjector(FailureInjector.everyNth(3));
+
+        int failures = 0;
+        for (int i = 0; i < 9; i++) {
+            try {
+                braze.requestFlush();
+            } catch (IllegalStateException expected) {
+                failures++;
+            }
+        }
+
+        assertEquals(3, failures);
+        assertEquals(3, braze.getFailureCount());
+        assertTrue(braze.getCalls().get(2).isFailed());
+        assertFalse(braze.getCalls().get(3).isFailed());
+    }
+
+    @Test
+    public void failureInjector_WithProbability_IsReproducible() {
+        final int calls = 200;
+        boolean[] first = runWithProbability(0.25, 42L, calls);
+        boolean[] second = runWithProbability(0.25, 42L, calls);
+
+        int failures = 0;
+        for (int i = 0; i < calls; i++) {
+            assertEquals(first[i], second[i]);
+            if (first[i]) failures++;
+        }
+        assertTrue(failures > 0 && failures < calls);
+    }
+
+    @Test
+    public void latency_DelaysEachCall() {
+        braze.setLatency(2, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        braze.requestFlush();
+        braze.requestFlush();
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(elapsed >= TimeUnit.MILLISECONDS.toNanos(4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_RejectsInvalidCapacity() {
+        new RecordingBrazeCommand(0);
+    }
+
+    private static boolean[] runWithProbability(double probability, long seed, int calls) {
+        RecordingBrazeCommand braze = new RecordingBrazeCommand(calls);
+        braze.setFailureInjector(FailureInjector.withProbability(probability, seed));
+        boolean[] failed = new boolean[calls];
+        for (int i = 0; i < calls; i++) {
+            try {
+                braze.requestFlush();
+            } catch (IllegalStateException expected) {
+                failed[i] = true;
+            }
+        }
+        return failed;
+    }
+}
@@ -0,0 +1,106 @@
+package com.tealium.remotecommands.braze.testing;
+
+import static com.tealium.remotecommands.braze.testing.LoadTestPayloads.eventAndAttribute;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import com.tealium.remotecommands.braze.BrazeConstants.Config;
+import com.tealium.remotecommands.braze.BrazeConstants.User;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+/**
+ * Drives a BrazeRemoteCommand backed by a RecordingBrazeSdk, so that the standard command
+ * implementation runs between the payload and the recorded SDK calls. Throughput is measured by
+ * RecordingBenchmark in the braze-benchmarks module, not here.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecordingBrazeSdkLoadTests {
+
+    private static final int PAYLOADS = 5_000;
+
+    Application context = ApplicationProvider.getApplicationContext();
+    RecordingBrazeSdk sdk;
+    TestableBrazeRemoteCommand brazeRemoteCommand;
+
+    @Before
+    public void setup() {
+        sdk = new RecordingBrazeSdk(PAYLOADS * 3);
+        brazeRemoteCommand = new TestableBrazeRemoteCommand(context, sdk);
+    }
+
+    @Test
+    public void invoke_RecordsSdkCalls_InOrder() throws Exception {
+        for (int i = 0; i < PAYLOADS; i++) {
+            brazeRemoteCommand.invoke(eventAndAttribute(i));
+        }
+
+        // the current user is looked up once, before the first attribute is set.
+        assertEquals(1, sdk.getCallCount(SdkCall.GET_CURRENT_USER));
+        List<RecordedCall<SdkCall>> calls = sdk.getCalls();
+        assertEquals(SdkCall.GET_CURRENT_USER, calls.get(0).getCall());
+        assertEquals(PAYLOADS * 2 + 1, calls.size());
+        for (int i = 0; i < PAYLOADS; i++) {
+            RecordedCall<SdkCall> attribute = calls.get(i * 2 + 1);
+            RecordedCall<SdkCall> event = calls.get(i * 2 + 2);
+            assertEquals(SdkCall.USER_SET_CUSTOM_ATTRIBUTE, attribute.getCall());
+            assertEquals("index", attribute.getArgument(0));
+            assertEquals(i, attribute.getArgument(1));
+            assertEquals(SdkCall.LOG_CUSTOM_EVENT, event.getCall());
+            assertEquals("event-" + i, event.getArgument(0));
+        }
+    }
+
+    @Test
+    public void invoke_LooksUpCurrentUser_AfterChangingUser() throws Exception {
+        brazeRemoteCommand.invoke(eventAndAttribute(0));
+        brazeRemoteCommand.invoke(new JSONObject()
+                .put(Commands.COMMAND_KEY, Commands.USER_IDENTIFIER)
+                .put(User.USER_ID, "user-1"));
+        brazeRemoteCommand.invoke(eventAndAttribute(1));
+
+        List<RecordedCall<SdkCall>> calls = sdk.getCalls();
+        assertEquals(SdkCall.GET_CURRENT_USER, calls.get(0).getCall());
+        assertEquals(SdkCall.CHANGE_USER, calls.get(3).getCall());
+        assertEquals("user-1", calls.get(3).getArgument(0));
+        assertNull(calls.get(3).getArgument(1));
+        assertEquals(SdkCall.GET_CURRENT_USER, calls.get(4).getCall());
+        assertEquals(2, sdk.getCallCount(SdkCall.GET_CURRENT_USER));
+    }
+
+    @Test
+    public void invoke_SkipsUnchangedConfiguration() throws Exception {
+        JSONObject initialize = new JSONObject()
+                .put(Commands.COMMAND_KEY, Commands.INITIALIZE)
+                .put(Config.API_KEY, "api-key");
+
+        brazeRemoteCommand.invoke(initialize);
+        brazeRemoteCommand.invoke(initialize);
+
+        assertEquals(1, sdk.getCallCount(SdkCall.CONFIGURE));
+    }
+
+    @Test
+    public void invoke_ContinuesWithRemainingCommands_WhenSdkCallsFail() throws Exception {
+        sdk.setFailureInjector(FailureInjector.always(SdkCall.USER_SET_CUSTOM_ATTRIBUTE));
+
+        for (int i = 0; i < 100; i++) {
+            brazeRemoteCommand.invoke(eventAndAttribute(i));
+        }
+
+        assertEquals(100, sdk.getCallCount(SdkCall.USER_SET_CUSTOM_ATTRIBUTE));
+        assertEquals(100, sdk.getCallCount(SdkCall.LOG_CUSTOM_EVENT));
+        assertEquals(100, sdk.getFailureCount());
+    }
+}
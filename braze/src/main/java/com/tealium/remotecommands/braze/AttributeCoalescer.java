@@ -0,0 +1,185 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds user attribute writes for a time window, keeping only the last value written to each
+ * attribute, so that several writes to the same attribute in quick succession result in a single
+ * SDK call.
+ * <p>
+ * Standard attributes are held in an array indexed by {@link UserAttributeCache.Field}; custom
+ * attributes by name, in the order in which each was first written. Pending values are emitted
+ * when the window closes, or earlier when {@link #flush()} is called; callers are expected to
+ * flush before anything that changes which user the writes apply to, or that must be applied
+ * after them, such as unsetting an attribute, and to flush a single custom attribute with
+ * {@link #flush(String)} before incrementing it.
+ * <p>
+ * The window timer runs on a scheduler supplied by the owner, which decides what to flush when
+ * the window closes, so that it can be shared with the {@link IncrementAggregator}.
+ */
+class AttributeCoalescer {
+
+    /**
+     * Receives the final value of each attribute.
+     */
+    interface Sink {
+        void setField(UserAttributeCache.Field field, String value);
+
+        void setCustomAttribute(String key, Object value);
+    }
+
+    private static final int FIELD_COUNT = UserAttributeCache.Field.values().length;
+
+    private final long mWindowMillis;
+    private final Sink mSink;
+    private final ScheduledExecutorService mScheduler;
+    private final Runnable mOnWindowClosed;
+
+    private final String[] mFields = new String[FIELD_COUNT];
+    private final Map<String, Object> mCustomAttributes = new LinkedHashMap<>();
+    private int mPendingFields = 0;
+    private ScheduledFuture<?> mScheduledFlush;
+
+    private final AtomicLong mReceived = new AtomicLong();
+    private final AtomicLong mEmitted = new AtomicLong();
+
+    /**
+     * @param windowMillis   - how long writes are held for
+     * @param scheduler      - the scheduler to run the window timer on
+     * @param onWindowClosed - run on the scheduler when the window closes; expected to call
+     *                       {@link #flush()}
+     * @param sink           - receives the final value of each attribute
+     */
+    AttributeCoalescer(long windowMillis, ScheduledExecutorService scheduler, Runnable onWindowClosed, Sink sink) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be greater than 0");
+        }
+
+        mWindowMillis = windowMillis;
+        mScheduler = scheduler;
+        mOnWindowClosed = onWindowClosed;
+        mSink = sink;
+    }
+
+    /**
+     * Replaces any pending value of a standard attribute, starting a new window if none is open.
+     *
+     * @param field - the attribute
+     * @param value - the new, already validated, value
+     */
+    synchronized void setField(UserAttributeCache.Field field, String value) {
+        mReceived.incrementAndGet();
+        if (mFields[field.ordinal()] == null) {
+            mPendingFields++;
+        }
+        mFields[field.ordinal()] = value;
+        scheduleFlush();
+    }
+
+    /**
+     * Replaces any pending value of a custom attribute, starting a new window if none is open.
+     *
+     * @param key   - the custom attribute name
+     * @param value - the new value
+     */
+    synchronized void setCustomAttribute(String key, Object value) {
+        mReceived.incrementAndGet();
+        mCustomAttributes.put(key, value);
+        scheduleFlush();
+    }
+
+    /**
+     * Synchronously emits the pending value of every attribute to the sink and closes the current
+     * window.
+     */
+    synchronized void flush() {
+        if (mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+            mScheduledFlush = null;
+        }
+        if (pendingCount() == 0) {
+            return;
+        }
+
+        for (UserAttributeCache.Field field : UserAttributeCache.Field.values()) {
+            final String value = mFields[field.ordinal()];
+            if (value == null) continue;
+
+            try {
+                mSink.setField(field, value);
+            } catch (Exception ex) {
+                BrazeLog.w("Failed to set user attribute: {}", field, ex);
+            }
+            mEmitted.incrementAndGet();
+        }
+        for (Map.Entry<String, Object> entry : mCustomAttributes.entrySet()) {
+            try {
+                mSink.setCustomAttribute(entry.getKey(), entry.getValue());
+            } catch (Exception ex) {
+                BrazeLog.w("Failed to set custom attribute: {}", entry.getKey(), ex);
+            }
+            mEmitted.incrementAndGet();
+        }
+
+        Arrays.fill(mFields, null);
+        mPendingFields = 0;
+        mCustomAttributes.clear();
+    }
+
+    /**
+     * Synchronously emits the pending value of a single custom attribute, if there is one, leaving
+     * any other pending writes held until the window closes.
+     *
+     * @param key - the custom attribute name
+     */
+    synchronized void flush(String key) {
+        if (!mCustomAttributes.containsKey(key)) {
+            return;
+        }
+
+        final Object value = mCustomAttributes.remove(key);
+        try {
+            mSink.setCustomAttribute(key, value);
+        } catch (Exception ex) {
+            BrazeLog.w("Failed to set custom attribute: {}", key, ex);
+        }
+        mEmitted.incrementAndGet();
+
+        if (pendingCount() == 0 && mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+            mScheduledFlush = null;
+        }
+    }
+
+    /**
+     * Flushes any pending writes and stops the window timer. The scheduler itself belongs to the
+     * owner and is left running.
+     */
+    void shutdown() {
+        flush();
+    }
+
+    /**
+     * @return the number of attribute writes that were superseded by a later write to the same
+     * attribute, rather than being sent
+     */
+    synchronized long getCollapsedCount() {
+        return Math.max(0, mReceived.get() - mEmitted.get() - pendingCount());
+    }
+
+    private int pendingCount() {
+        return mPendingFields + mCustomAttributes.size();
+    }
+
+    private void scheduleFlush() {
+        if (mScheduledFlush == null) {
+            mScheduledFlush = mScheduler.schedule(mOnWindowClosed, mWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -22,8 +22,11 @@ import java.util.List;
  * com.tealium.remotecommands.braze.BrazeConstants and its contained public classes.
  * Where a key-value pair is expected in a JSONObject,  this should be documented in the method's
  * Javadoc and whether there is any specific type expected for the values.
+ * <p>
+ * The default implementation calls through to the Braze SDK. An alternative implementation can be
+ * supplied to {@link BrazeRemoteCommand} to run the command without the SDK, e.g. for load testing.
  */
-interface BrazeCommand {
+public interface BrazeCommand {
 
     /**
      * Configures a new Braze instance, setting the Braze API Key and any other configuration items
@@ -327,4 +330,16 @@ interface BrazeCommand {
      * @param accuracy Optional accuracy of the users last known location
      */
     void setLastKnownLocation(@NonNull Double latitude, @NonNull Double longitude, @Nullable Double altitude, @Nullable Double accuracy);
+
+    /**
+     * Returns the state of a Braze SDK that was configured or disabled other than by the remote
+     * commands, e.g. using a braze.xml resource file, or by a "disablesdk" command on a previous
+     * launch.
+     *
+     * @return the detected state, or null if nothing is known about the SDK
+     */
+    @Nullable
+    default BrazeRemoteCommand.SdkState detectSdkState() {
+        return null;
+    }
 }
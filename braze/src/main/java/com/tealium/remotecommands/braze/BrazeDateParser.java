@@ -0,0 +1,214 @@
+package com.tealium.remotecommands.braze;
+
+import com.braze.enums.BrazeDateFormat;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Thread-safe parser for the date formats supported in event, purchase and user attribute values.
+ * <p>
+ * The format is chosen from the shape of the value, its leading character and the separators
+ * between its leading digit runs, and only that format is attempted. The choice is the format
+ * that used to be the first to match when each was tried in turn: the WebView
+ * {@link #DATE_FORMAT_PATTERN}, then {@link #ISO_8601_DATE_FORMAT_PATTERN}, then each of the
+ * {@link BrazeDateFormat}s. As parsing ignores trailing text, {@link BrazeDateFormat#SHORT} matches
+ * any value starting with a date, so {@link BrazeDateFormat#LONG} and
+ * {@link BrazeDateFormat#ISO_8601} are never chosen. Recently parsed values are kept in a small LRU
+ * cache, as the same date values tend to be sent repeatedly.
+ * <p>
+ * As before, the WebView and ISO 8601 formats are parsed in the default time zone, unless the
+ * value names its own, while the {@link BrazeDateFormat}s are parsed in UTC, as Braze's
+ * {@code DateTimeUtils.parseDate} does.
+ * <p>
+ * {@code java.time} formatters are not used, as they require API 26 and this library supports
+ * API 25 without requiring consumers to enable core library desugaring. Instead, each thread
+ * lazily creates its own {@link SimpleDateFormat} instances.
+ */
+final class BrazeDateParser {
+
+    /**
+     * The Format of any Dates that were sent into the WebView as a native java.util.Date, will be
+     * returned to the RemoteCommand in the following date format.
+     */
+    static final String DATE_FORMAT_PATTERN = "E MMM dd HH:mm:ss z yyyy";
+
+    /**
+     * Standard ISO 8601 date format to use when attempting to parse dates.
+     */
+    static final String ISO_8601_DATE_FORMAT_PATTERN = "yyyy-MM-dd'T'HH:mm:ss'Z'";
+
+    static final int DEFAULT_CACHE_SIZE = 64;
+
+    private static final long UNPARSEABLE = Long.MIN_VALUE;
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat(DATE_FORMAT_PATTERN));
+    private static final ThreadLocal<SimpleDateFormat> ISO_8601_DATE_FORMAT =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat(ISO_8601_DATE_FORMAT_PATTERN, Locale.ROOT));
+    private static final ThreadLocal<SimpleDateFormat> SHORT_DATE_FORMAT =
+            ThreadLocal.withInitial(() -> brazeDateFormat(BrazeDateFormat.SHORT));
+    private static final ThreadLocal<SimpleDateFormat> CLOCK_12_HOUR_DATE_FORMAT =
+            ThreadLocal.withInitial(() -> brazeDateFormat(BrazeDateFormat.CLOCK_12_HOUR));
+    private static final ThreadLocal<SimpleDateFormat> ANDROID_LOGCAT_DATE_FORMAT =
+            ThreadLocal.withInitial(() -> brazeDateFormat(BrazeDateFormat.ANDROID_LOGCAT));
+    private static final ThreadLocal<ParsePosition> PARSE_POSITION =
+            ThreadLocal.withInitial(() -> new ParsePosition(0));
+
+    private final Map<String, Long> mCache;
+    private String mCacheTimeZoneId;
+
+    BrazeDateParser() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    BrazeDateParser(final int cacheSize) {
+        mCache = new LinkedHashMap<String, Long>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Parses the given String using the first supported date format that matches it.
+     *
+     * @param dateString - the value to parse
+     * @return A new Date instance, or null if the value is not a supported date
+     */
+    Date parse(String dateString) {
+        if (dateString == null) {
+            return null;
+        }
+
+        final TimeZone timeZone = TimeZone.getDefault();
+        Long cached;
+        synchronized (mCache) {
+            if (!timeZone.getID().equals(mCacheTimeZoneId)) {
+                // WebView and ISO 8601 values are parsed in the default time zone.
+                mCache.clear();
+                mCacheTimeZoneId = timeZone.getID();
+            }
+            cached = mCache.get(dateString);
+        }
+        if (cached != null) {
+            return cached == UNPARSEABLE ? null : new Date(cached);
+        }
+
+        Date date = parseUncached(dateString, timeZone);
+        synchronized (mCache) {
+            mCache.put(dateString, date != null ? date.getTime() : UNPARSEABLE);
+        }
+        return date;
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    void clear() {
+        synchronized (mCache) {
+            mCache.clear();
+        }
+    }
+
+    private static Date parseUncached(String dateString, TimeZone timeZone) {
+        final SimpleDateFormat format = selectFormat(dateString);
+        if (format == null) {
+            return null;
+        }
+
+        final boolean local = format == DATE_FORMAT.get() || format == ISO_8601_DATE_FORMAT.get();
+        final Date date = parse(format, dateString, local ? timeZone : UTC);
+        if (date == null && format == ISO_8601_DATE_FORMAT.get()) {
+            // the date alone, as when the ISO 8601 format was followed by the Braze formats.
+            return parse(SHORT_DATE_FORMAT.get(), dateString, UTC);
+        }
+        return date;
+    }
+
+    /**
+     * Chooses the only format that can match the value:
+     * <ul>
+     *     <li>a leading letter: the WebView format, e.g. "Wed Jan 31 10:15:30 GMT 2024"</li>
+     *     <li>digits, '-', digits, '-': a date, e.g. "2024-01-31"; in the ISO 8601 format if it
+     *     also contains a 'T' and a 'Z', e.g. "2024-01-31T10:15:30Z"</li>
+     *     <li>digits, '-', digits, ' ': the Android logcat format, e.g. "01-31 10:15:30.000"</li>
+     *     <li>digits, ':': the 12 hour clock format, e.g. "10:15 AM"</li>
+     * </ul>
+     *
+     * @return the format, or null if the value cannot be a supported date
+     */
+    private static SimpleDateFormat selectFormat(String dateString) {
+        final int length = dateString.length();
+        int i = 0;
+        while (i < length && (dateString.charAt(i) == ' ' || dateString.charAt(i) == '\t')) i++;
+        if (i == length) {
+            return null;
+        }
+
+        final char leading = dateString.charAt(i);
+        if (Character.isLetter(leading)) {
+            return DATE_FORMAT.get();
+        }
+        if (leading == '-' || leading == '+') {
+            i++;
+        }
+
+        final int first = skipDigits(dateString, i);
+        if (first == i || first == length) {
+            return null;
+        }
+        if (dateString.charAt(first) == ':') {
+            return CLOCK_12_HOUR_DATE_FORMAT.get();
+        }
+        if (dateString.charAt(first) != '-') {
+            return null;
+        }
+
+        final int second = skipDigits(dateString, first + 1);
+        if (second == first + 1 || second == length) {
+            return null;
+        }
+        switch (dateString.charAt(second)) {
+            case '-':
+                return dateString.indexOf('T', second) > 0 && dateString.indexOf('Z', second) > 0
+                        ? ISO_8601_DATE_FORMAT.get()
+                        : SHORT_DATE_FORMAT.get();
+            case ' ':
+                return ANDROID_LOGCAT_DATE_FORMAT.get();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Parses without throwing; equivalent to {@link java.text.DateFormat#parse(String)} which
+     * also accepts trailing, unparsed, text.
+     */
+    private static Date parse(SimpleDateFormat format, String dateString, TimeZone timeZone) {
+        final ParsePosition position = PARSE_POSITION.get();
+        position.setIndex(0);
+        position.setErrorIndex(-1);
+        format.setTimeZone(timeZone);
+        final Date date = format.parse(dateString, position);
+        return position.getIndex() == 0 ? null : date;
+    }
+
+    private static int skipDigits(String string, int from) {
+        int i = from;
+        while (i < string.length() && Character.isDigit(string.charAt(i))) i++;
+        return i;
+    }
+
+    private static SimpleDateFormat brazeDateFormat(BrazeDateFormat dateFormat) {
+        return new SimpleDateFormat(dateFormat.getFormat(), Locale.US);
+    }
+}
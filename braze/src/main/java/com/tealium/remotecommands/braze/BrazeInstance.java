@@ -7,15 +7,15 @@ import androidx.annotation.Nullable;
 
 import android.app.Application;
 import android.app.Application.ActivityLifecycleCallbacks;
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
 
-import com.braze.enums.DeviceKey;
 import com.braze.enums.Gender;
 import com.braze.enums.NotificationSubscriptionType;
-import com.braze.Braze;
 import com.braze.BrazeActivityLifecycleCallbackListener;
-import com.braze.BrazeUser;
 import com.braze.configuration.BrazeConfig;
 import com.braze.models.outgoing.BrazeProperties;
 
@@ -25,16 +25,18 @@ import org.json.JSONObject;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
-import static com.tealium.remotecommands.braze.BrazeConstants.TAG;
-import static com.tealium.remotecommands.braze.BrazeConstants.Config;
+class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks, ComponentCallbacks2 {
 
-class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
+    /**
+     * Name of the string resource Braze reads its API key from when configured by braze.xml
+     */
+    static final String API_KEY_RESOURCE = "com_braze_api_key";
 
     Application mApplication;
     Activity mCurrentActivity;
@@ -44,12 +46,36 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
     boolean mRegisterInAppMessageManager;
     Set<Class<?>> mInAppMessageBlacklist;
 
+    volatile String mCurrentUserId;
+    volatile BrazeSdk.User mCachedUser;
+    volatile IncrementAggregator mIncrementAggregator;
+    volatile AttributeCoalescer mAttributeCoalescer;
+    private ScheduledExecutorService mWriteScheduler;
+    private boolean mComponentCallbacksRegistered = false;
+    private boolean mConfigured = false;
+    private long mConfigFingerprint;
+    ActivityLifecycleCallbacks mBrazeLifecycleListener;
+    volatile LifecycleRecorder mLifecycleRecorder;
+    volatile UserAttributeCache mAttributeCache;
+    final LaunchOptionTable mLaunchOptions;
+    final BrazeSdk mSdk;
+
     public BrazeInstance(Application app) {
         this(app, true, null, true, null);
     }
 
     public BrazeInstance(Application app, boolean sessionHandlingEnabled, Set<Class<?>> sessionHandlingBlacklist, boolean registerInAppMessageManager, Set<Class<?>> inAppMessageBlacklist) {
+        this(app, sessionHandlingEnabled, sessionHandlingBlacklist, registerInAppMessageManager, inAppMessageBlacklist, new LaunchOptionTable());
+    }
+
+    BrazeInstance(Application app, boolean sessionHandlingEnabled, Set<Class<?>> sessionHandlingBlacklist, boolean registerInAppMessageManager, Set<Class<?>> inAppMessageBlacklist, LaunchOptionTable launchOptions) {
+        this(app, sessionHandlingEnabled, sessionHandlingBlacklist, registerInAppMessageManager, inAppMessageBlacklist, launchOptions, new DefaultBrazeSdk(app));
+    }
+
+    BrazeInstance(Application app, boolean sessionHandlingEnabled, Set<Class<?>> sessionHandlingBlacklist, boolean registerInAppMessageManager, Set<Class<?>> inAppMessageBlacklist, LaunchOptionTable launchOptions, BrazeSdk sdk) {
         mApplication = app;
+        mLaunchOptions = launchOptions;
+        mSdk = sdk;
         mSessionHandlingEnabled = sessionHandlingEnabled;
         mSessionHandlingBlacklist = sessionHandlingBlacklist;
         mRegisterInAppMessageManager = registerInAppMessageManager;
@@ -63,8 +89,19 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
         }
     }
 
+    /**
+     * Configures Braze from the given launch options. If Braze has already been configured by this
+     * instance with an identical effective configuration - see {@link ConfigFingerprint} - then
+     * this is a no-op. Braze's activity lifecycle listener is only ever registered once.
+     */
     @Override
-    public void initialize(@Nullable String apiKey, @Nullable JSONObject launchOptions, @Nullable List<BrazeRemoteCommand.ConfigOverrider> overrides) {
+    public synchronized void initialize(@Nullable String apiKey, @Nullable JSONObject launchOptions, @Nullable List<BrazeRemoteCommand.ConfigOverrider> overrides) {
+        final long fingerprint = ConfigFingerprint.compute(mLaunchOptions.keys(), apiKey, launchOptions, overrides);
+        if (mConfigured && fingerprint == mConfigFingerprint) {
+            BrazeLog.d("Braze configuration unchanged; skipping initialize.");
+            return;
+        }
+
         BrazeConfig.Builder builder = new BrazeConfig.Builder();
 
         // API Key can be setup in a local resx file,
@@ -75,125 +112,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
 
         // check for any populated launch options
         if (launchOptions != null) {
-            // Strings
-            if (BrazeUtils.keyHasValue(launchOptions, Config.FIREBASE_SENDER_ID)) {
-                builder.setFirebaseCloudMessagingSenderIdKey(launchOptions.optString(Config.FIREBASE_SENDER_ID));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.FIREBASE_FALLBACK_MESSAGING_SERVICE_CLASSPATH)) {
-                builder.setFallbackFirebaseMessagingServiceClasspath(launchOptions.optString(Config.FIREBASE_FALLBACK_MESSAGING_SERVICE_CLASSPATH));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.CUSTOM_ENDPOINT)) {
-                builder.setCustomEndpoint(launchOptions.optString(Config.CUSTOM_ENDPOINT));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.SMALL_NOTIFICATION_ICON)) {
-                builder.setSmallNotificationIcon(launchOptions.optString(Config.SMALL_NOTIFICATION_ICON));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.LARGE_NOTIFICATION_ICON)) {
-                builder.setLargeNotificationIcon(launchOptions.optString(Config.LARGE_NOTIFICATION_ICON));
-            }
-
-            if(BrazeUtils.keyHasValue(launchOptions, Config.DEFAULT_NOTIFICATION_CHANNEL_DESCRIPTION)) {
-                builder.setDefaultNotificationChannelDescription(launchOptions.optString(Config.DEFAULT_NOTIFICATION_CHANNEL_DESCRIPTION));
-            }
-
-            if(BrazeUtils.keyHasValue(launchOptions, Config.DEFAULT_NOTIFICATION_CHANNEL_NAME)) {
-                builder.setDefaultNotificationChannelName(launchOptions.optString(Config.DEFAULT_NOTIFICATION_CHANNEL_NAME));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.BACKSTACK_ACTIVITY_CLASS)) {
-                try {
-                    builder.setPushDeepLinkBackStackActivityClass(Class.forName(launchOptions.optString(Config.BACKSTACK_ACTIVITY_CLASS)));
-                } catch (ClassNotFoundException cnf) {
-                    Log.w(TAG, "Backstack Class not found.", cnf);
-                }
-            }
-
-            // Booleans
-            if (BrazeUtils.keyHasValue(launchOptions, Config.FIREBASE_ENABLED)) {
-                builder.setIsFirebaseCloudMessagingRegistrationEnabled(launchOptions.optBoolean(Config.FIREBASE_ENABLED));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.FIREBASE_FALLBACK_MESSAGING_SERVICE_ENABLED)) {
-                builder.setFallbackFirebaseMessagingServiceEnabled(launchOptions.optBoolean(Config.FIREBASE_FALLBACK_MESSAGING_SERVICE_ENABLED));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.FIREBASE_NEW_TOKEN_ENABLED)) {
-                builder.setIsFirebaseMessagingServiceOnNewTokenRegistrationEnabled(launchOptions.optBoolean(Config.FIREBASE_NEW_TOKEN_ENABLED));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.ADM_ENABLED)) {
-                builder.setAdmMessagingRegistrationEnabled(launchOptions.optBoolean(Config.ADM_ENABLED));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.AUTO_PUSH_DEEP_LINKS)) {
-                builder.setHandlePushDeepLinksAutomatically(launchOptions.optBoolean(Config.AUTO_PUSH_DEEP_LINKS));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.ENABLE_AUTOMATIC_LOCATION)) {
-                builder.setIsAutomaticLocationCollectionEnabled(launchOptions.optBoolean(Config.ENABLE_AUTOMATIC_LOCATION));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.ENABLE_GEOFENCES)) {
-                builder.setGeofencesEnabled(launchOptions.optBoolean(Config.ENABLE_GEOFENCES));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.ENABLE_AUTOMATIC_GEOFENCE_REQUESTS))  {
-                builder.setAutomaticGeofenceRequestsEnabled(launchOptions.optBoolean(Config.ENABLE_AUTOMATIC_GEOFENCE_REQUESTS));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.BACKSTACK_ACTIVITY_ENABLED)) {
-                builder.setPushDeepLinkBackStackActivityEnabled(launchOptions.optBoolean(Config.BACKSTACK_ACTIVITY_ENABLED));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.IS_SDK_AUTHENTICATION_ENABLED)) {
-                builder.setIsSdkAuthenticationEnabled(launchOptions.optBoolean(Config.IS_SDK_AUTHENTICATION_ENABLED));
-            }
-
-            // Integers
-            if (BrazeUtils.keyHasValue(launchOptions, Config.SESSION_TIMEOUT)) {
-                builder.setSessionTimeout(launchOptions.optInt(Config.SESSION_TIMEOUT));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.TRIGGER_INTERVAL_SECONDS)) {
-                builder.setTriggerActionMinimumTimeIntervalSeconds(launchOptions.optInt(Config.TRIGGER_INTERVAL_SECONDS));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.DEFAULT_NOTIFICATION_COLOR)) {
-                builder.setDefaultNotificationAccentColor(launchOptions.optInt(Config.DEFAULT_NOTIFICATION_COLOR));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.BAD_NETWORK_INTERVAL)) {
-                builder.setBadNetworkDataFlushInterval(launchOptions.optInt(Config.BAD_NETWORK_INTERVAL));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.GOOD_NETWORK_INTERVAL)) {
-                builder.setGoodNetworkDataFlushInterval(launchOptions.optInt(Config.GOOD_NETWORK_INTERVAL));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.GREAT_NETWORK_INTERVAL)) {
-                builder.setGreatNetworkDataFlushInterval(launchOptions.optInt(Config.GREAT_NETWORK_INTERVAL));
-            }
-
-            if (BrazeUtils.keyHasValue(launchOptions, Config.DEVICE_OPTIONS)) {
-                JSONArray options = launchOptions.optJSONArray(Config.DEVICE_OPTIONS);
-                if (options != null && options.length() > 0) {
-
-                    List<DeviceKey> deviceOptions = new ArrayList<>();
-                    for (int i = 0; i < options.length(); i++) {
-                        try {
-                            DeviceKey key = DeviceKey.valueOf(options.getString(i).toUpperCase(Locale.ROOT));
-                            deviceOptions.add(key);
-                        } catch (Exception ignore) {
-                        }
-                    }
-
-                    builder.setDeviceObjectAllowlist(EnumSet.copyOf(deviceOptions));
-                }
-            }
+            mLaunchOptions.apply(builder, launchOptions);
         }
 
         // Go through all the config overrides..
@@ -204,53 +123,114 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
         }
 
         // configure the instance.
-        Braze.configure(mApplication.getApplicationContext(), builder.build());
-
-        if (mSessionHandlingEnabled) {
-            if (mCurrentActivity != null
-                    && (mSessionHandlingBlacklist == null || !mSessionHandlingBlacklist.contains(mCurrentActivity.getClass()))) {
-                // Current activity found.
-                // No longer need a temporary listener.
-                getBrazeInstance().openSession(mCurrentActivity);
+        mSdk.configure(builder.build());
+        invalidateBrazeUser();
+        mConfigured = true;
+        mConfigFingerprint = fingerprint;
+
+        if (mSessionHandlingEnabled && mBrazeLifecycleListener == null) {
+            mBrazeLifecycleListener = createBrazeLifecycleListener();
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                attachBrazeLifecycleListener();
+            } else {
+                // Lifecycle callbacks are delivered on the main thread; handing over there means
+                // no event can be missed between replaying and registering the Braze listener.
+                new Handler(Looper.getMainLooper()).post(this::attachBrazeLifecycleListener);
             }
-            mApplication.unregisterActivityLifecycleCallbacks(this);
-            // register Braze listeners so they can take over the session handling.
-            mApplication.registerActivityLifecycleCallbacks((ActivityLifecycleCallbacks) new BrazeActivityLifecycleCallbackListener(mSessionHandlingEnabled,
-                    mRegisterInAppMessageManager,
-                    mSessionHandlingBlacklist,
-                    mInAppMessageBlacklist));
         }
     }
 
+    ActivityLifecycleCallbacks createBrazeLifecycleListener() {
+        return (ActivityLifecycleCallbacks) new BrazeActivityLifecycleCallbackListener(mSessionHandlingEnabled,
+                mRegisterInAppMessageManager,
+                mSessionHandlingBlacklist,
+                mInAppMessageBlacklist);
+    }
+
+    /**
+     * Hands session handling over from the temporary listener to Braze's lifecycle listener. Must
+     * be called on the main thread.
+     */
+    private void attachBrazeLifecycleListener() {
+        final LifecycleRecorder recorder = mLifecycleRecorder;
+        mLifecycleRecorder = null;
+        if (recorder != null) {
+            // Replay everything seen while Braze was being configured.
+            recorder.replayTo(mBrazeLifecycleListener);
+        } else if (mCurrentActivity != null
+                && (mSessionHandlingBlacklist == null || !mSessionHandlingBlacklist.contains(mCurrentActivity.getClass()))) {
+            // Current activity found.
+            // No longer need a temporary listener.
+            mSdk.openSession(mCurrentActivity);
+        }
+        mApplication.unregisterActivityLifecycleCallbacks(this);
+        // register Braze listeners so they can take over the session handling.
+        mApplication.registerActivityLifecycleCallbacks(mBrazeLifecycleListener);
+    }
+
+    /**
+     * Starts recording Activity lifecycle events, to be replayed to Braze's lifecycle listener
+     * once it is registered. Has no effect if session handling is disabled, or if the Braze
+     * listener is already registered.
+     */
+    synchronized void startLifecycleRecording() {
+        if (mSessionHandlingEnabled && mBrazeLifecycleListener == null && mLifecycleRecorder == null) {
+            mLifecycleRecorder = new LifecycleRecorder();
+        }
+    }
+
+    @Nullable
+    @Override
+    public BrazeRemoteCommand.SdkState detectSdkState() {
+        if (mSdk.isDisabled()) {
+            return BrazeRemoteCommand.SdkState.DISABLED;
+        }
+        if (mConfigured || mApplication.getResources().getIdentifier(API_KEY_RESOURCE, "string", mApplication.getPackageName()) != 0) {
+            return BrazeRemoteCommand.SdkState.ACTIVE;
+        }
+        return null;
+    }
+
     @Override
     public void enableSdk() {
-        Braze.enableSdk(mApplication.getApplicationContext());
+        mSdk.enableSdk();
     }
 
     @Override
     public void disableSdk() {
-        Braze.disableSdk(mApplication.getApplicationContext());
+        flushPendingWritesForUser();
+        mSdk.disableSdk();
+        invalidateBrazeUser();
     }
 
     @Override
     public void wipeData() {
-        Braze.wipeData(mApplication.getApplicationContext());
+        flushPendingWritesForUser();
+        mSdk.wipeData();
+        invalidateBrazeUser();
+        mCurrentUserId = null;
+        invalidateAttributeCache();
     }
 
     @Override
     public void setUserId(@NonNull String userId, @Nullable String sdkAuthSignature) {
         if (BrazeUtils.isNullOrEmpty(userId)) return;
 
+        // pending writes belong to the previous user.
+        flushPendingWritesForUser();
         if (sdkAuthSignature != null) {
-            getBrazeInstance().changeUser(userId, sdkAuthSignature);
+            mSdk.changeUser(userId, sdkAuthSignature);
         } else {
-            getBrazeInstance().changeUser(userId);
+            mSdk.changeUser(userId);
         }
+        invalidateBrazeUser();
+        mCurrentUserId = userId;
+        invalidateAttributeCache();
     }
 
     @Override
     public void setAdTrackingEnabled(@NonNull String googleAdid, boolean limitAdTracking) {
-        getBrazeInstance().setGoogleAdvertisingId(googleAdid, limitAdTracking);
+        mSdk.setGoogleAdvertisingId(googleAdid, limitAdTracking);
     }
 
     @Override
@@ -270,7 +250,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        getBrazeUser().setFirstName(firstName);
+        writeField(UserAttributeCache.Field.FIRST_NAME, firstName);
     }
 
     @Override
@@ -279,7 +259,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        getBrazeUser().setLastName(lastName);
+        writeField(UserAttributeCache.Field.LAST_NAME, lastName);
     }
 
     @Override
@@ -288,7 +268,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        getBrazeUser().setEmail(email);
+        writeField(UserAttributeCache.Field.EMAIL, email);
     }
 
     @Override
@@ -297,7 +277,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        getBrazeUser().setLanguage(language);
+        writeField(UserAttributeCache.Field.LANGUAGE, language);
     }
 
     @Override
@@ -306,10 +286,9 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        Gender gender = BrazeUtils.getGenderEnumFromString(genderString);
-        if (gender == null) return;
+        if (BrazeUtils.getGenderEnumFromString(genderString) == null) return;
 
-        getBrazeUser().setGender(gender);
+        writeField(UserAttributeCache.Field.GENDER, genderString);
     }
 
     @Override
@@ -318,7 +297,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        getBrazeUser().setHomeCity(city);
+        writeField(UserAttributeCache.Field.HOME_CITY, city);
     }
 
     @Override
@@ -327,7 +306,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        getBrazeUser().setCountry(country);
+        writeField(UserAttributeCache.Field.COUNTRY, country);
     }
 
     @Override
@@ -336,7 +315,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        getBrazeUser().setPhoneNumber(phone);
+        writeField(UserAttributeCache.Field.PHONE, phone);
     }
 
     @Override
@@ -345,19 +324,74 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
-        Date dateOfBirth = BrazeUtils.parseDate(dob);
-        if (dateOfBirth == null) return;
+        if (BrazeUtils.parseDate(dob) == null) return;
 
-        getBrazeUser().setDateOfBirth(
-                dateOfBirth.getYear() + 1900,
-                BrazeUtils.getMonthEnumFromInt(dateOfBirth.getMonth()),
-                dateOfBirth.getDate()
-        );
+        writeField(UserAttributeCache.Field.DATE_OF_BIRTH, dob);
+    }
+
+    /**
+     * Writes a validated standard attribute, via the attribute coalescer if it is enabled.
+     */
+    private void writeField(UserAttributeCache.Field field, String value) {
+        AttributeCoalescer coalescer = mAttributeCoalescer;
+        if (coalescer != null) {
+            coalescer.setField(field, value);
+        } else {
+            applyField(field, value);
+        }
+    }
+
+    private void applyField(UserAttributeCache.Field field, String value) {
+        if (!shouldWrite(field, value)) return;
+
+        try {
+            final BrazeSdk.User user = getBrazeUser();
+            switch (field) {
+                case FIRST_NAME:
+                    user.setFirstName(value);
+                    break;
+                case LAST_NAME:
+                    user.setLastName(value);
+                    break;
+                case EMAIL:
+                    user.setEmail(value);
+                    break;
+                case LANGUAGE:
+                    user.setLanguage(value);
+                    break;
+                case GENDER:
+                    user.setGender(BrazeUtils.getGenderEnumFromString(value));
+                    break;
+                case HOME_CITY:
+                    user.setHomeCity(value);
+                    break;
+                case COUNTRY:
+                    user.setCountry(value);
+                    break;
+                case PHONE:
+                    user.setPhoneNumber(value);
+                    break;
+                case DATE_OF_BIRTH:
+                    // unchanged from before: the day is read in the default time zone, while a
+                    // Braze format value, e.g. "2000-01-01", is parsed as midnight UTC.
+                    Date dateOfBirth = BrazeUtils.parseDate(value);
+                    user.setDateOfBirth(
+                            dateOfBirth.getYear() + 1900,
+                            BrazeUtils.getMonthEnumFromInt(dateOfBirth.getMonth()),
+                            dateOfBirth.getDate()
+                    );
+                    break;
+            }
+        } catch (RuntimeException ex) {
+            // the value never reached the SDK, so an identical retry must not be suppressed.
+            forgetAttribute(field);
+            throw ex;
+        }
     }
 
     @Override
     public void setUserCustomAttributes(@NonNull JSONObject attributes) {
-        BrazeUser user = getBrazeUser();
+        BrazeSdk.User user = getBrazeUser();
         if (user == null || BrazeUtils.isNullOrEmpty(attributes)) {
             return;
         }
@@ -371,24 +405,39 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
                 continue;
             }
 
-            if (value instanceof Long) {
-                user.setCustomUserAttribute(key, (Long) value);
-            } else if (value instanceof Integer) {
-                user.setCustomUserAttribute(key, (Integer) value);
-            } else if (value instanceof Double) {
-                user.setCustomUserAttribute(key, (Double) value);
-            } else if (value instanceof Float) {
-                user.setCustomUserAttribute(key, (Float) value);
-            } else if (value instanceof Boolean) {
-                user.setCustomUserAttribute(key, (Boolean) value);
-            } else if (value instanceof JSONArray) {
-                user.setCustomUserAttribute(key, (JSONArray) value);
-            } else if (value instanceof JSONObject) {
-                user.setCustomUserAttribute(key, (JSONObject) value);
-            } else {
-                // default to String.
-                user.setCustomUserAttribute(key, (String) value);
+            // a new value replaces the attribute, so any earlier increment no longer applies.
+            IncrementAggregator aggregator = mIncrementAggregator;
+            if (aggregator != null) {
+                aggregator.discard(key);
             }
+
+            AttributeCoalescer coalescer = mAttributeCoalescer;
+            if (coalescer != null) {
+                coalescer.setCustomAttribute(key, value);
+            } else {
+                applyCustomAttribute(user, key, value);
+            }
+        }
+    }
+
+    private static void applyCustomAttribute(BrazeSdk.User user, String key, Object value) {
+        if (value instanceof Long) {
+            user.setCustomUserAttribute(key, (Long) value);
+        } else if (value instanceof Integer) {
+            user.setCustomUserAttribute(key, (Integer) value);
+        } else if (value instanceof Double) {
+            user.setCustomUserAttribute(key, (Double) value);
+        } else if (value instanceof Float) {
+            user.setCustomUserAttribute(key, (Float) value);
+        } else if (value instanceof Boolean) {
+            user.setCustomUserAttribute(key, (Boolean) value);
+        } else if (value instanceof JSONArray) {
+            user.setCustomUserAttribute(key, (JSONArray) value);
+        } else if (value instanceof JSONObject) {
+            user.setCustomUserAttribute(key, (JSONObject) value);
+        } else {
+            // default to String.
+            user.setCustomUserAttribute(key, (String) value);
         }
     }
 
@@ -398,6 +447,9 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             return;
         }
 
+        // pending writes must not be applied after the unset.
+        flushPendingWrites();
+
         for (int i = 0; i < keys.length(); i++) {
             String key = keys.optString(i);
             if (key != null) {
@@ -420,7 +472,17 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
             }
 
             int increment = attributes.optInt(key, 1);
-            getBrazeUser().incrementCustomUserAttribute(key, increment);
+            AttributeCoalescer coalescer = mAttributeCoalescer;
+            if (coalescer != null) {
+                // a held value must reach the SDK before the increment is applied on top of it
+                coalescer.flush(key);
+            }
+            IncrementAggregator aggregator = mIncrementAggregator;
+            if (aggregator != null) {
+                aggregator.add(key, increment);
+            } else {
+                getBrazeUser().incrementCustomUserAttribute(key, increment);
+            }
         }
     }
 
@@ -437,6 +499,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
         if (BrazeUtils.isNullOrEmpty(attributes)) {
             return;
         }
+        flushCoalescedAttributes();
 
         Iterator<String> iter = attributes.keys();
         while (iter.hasNext()) {
@@ -461,6 +524,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
         if (BrazeUtils.isNullOrEmpty(attributes)) {
             return;
         }
+        flushCoalescedAttributes();
 
         Iterator<String> iter = attributes.keys();
         while (iter.hasNext()) {
@@ -481,6 +545,7 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
         if (BrazeUtils.isNullOrEmpty(attributes)) {
             return;
         }
+        flushCoalescedAttributes();
 
         Iterator<String> iter = attributes.keys();
         while (iter.hasNext()) {
@@ -528,34 +593,45 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
         }
 
         // Braze api handles an empty BrazeProperties object, so no need to wrap both calls.
-        getBrazeInstance().logCustomEvent(eventName, brazeProperties);
+        mSdk.logCustomEvent(eventName, brazeProperties);
     }
 
     @Override
     public void logPurchase(@NonNull String productId, @Nullable String currency, @NonNull BigDecimal unitPrice, Integer quantity, JSONObject purchaseProperties) {
-        if (BrazeUtils.isNullOrEmpty(currency)) {
-            currency = "USD";// braze default.
-        }
-
-        getBrazeInstance().logPurchase(productId, currency, unitPrice, quantity > 0 ? quantity : 1, BrazeUtils.extractCustomProperties(purchaseProperties));
+        mSdk.logPurchase(
+                productId,
+                PurchaseBatch.currencyOrDefault(currency),
+                PurchaseBatch.priceOrDefault(unitPrice),
+                PurchaseBatch.quantityOrDefault(quantity != null ? quantity : 1),
+                BrazeUtils.extractCustomProperties(purchaseProperties)
+        );
     }
 
     @Override
     public void logPurchase(@NonNull String[] productIds, String[] currencies, @NonNull BigDecimal[] unitPrices, Integer[] quantities, JSONObject[] purchaseProperties) {
-        for (int i = 0; i < productIds.length; i++) {
-            logPurchase(
-                    productIds[i],
-                    currencies != null && currencies.length > i ? currencies[i] : null,
-                    unitPrices != null && unitPrices.length > i ? unitPrices[i] : BigDecimal.ZERO,
-                    quantities != null && quantities.length > i ? quantities[i] : 1,
-                    purchaseProperties != null && purchaseProperties.length > i ? purchaseProperties[i] : null
+        logPurchases(PurchaseBatch.of(productIds, currencies, unitPrices, quantities, purchaseProperties));
+    }
+
+    /**
+     * Logs each line of the batch, reading the primitive columns directly. This is the path taken
+     * by the "logpurchase" command for multiple purchases.
+     */
+    void logPurchases(PurchaseBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            mSdk.logPurchase(
+                    batch.productId(i),
+                    batch.currency(i),
+                    batch.unitPrice(i),
+                    batch.quantity(i),
+                    batch.brazeProperties(i)
             );
         }
     }
 
     @Override
     public void requestFlush() {
-        getBrazeInstance().requestImmediateDataFlush();
+        flushPendingWrites();
+        mSdk.requestImmediateDataFlush();
     }
 
     @Override
@@ -580,59 +656,282 @@ class BrazeInstance implements BrazeCommand, ActivityLifecycleCallbacks {
 
     @Override
     public void setSdkAuthSignature(@NonNull String signature) {
-        getBrazeInstance().setSdkAuthenticationSignature(signature);
+        mSdk.setSdkAuthenticationSignature(signature);
     }
 
     /**
-     * Helper method to always fetch the current Braze User rather than storing a local variable
+     * Enables or disables the suppression of unchanged standard user attribute writes.
      *
-     * @return The current Braze User
+     * @param enabled   - true to skip SDK calls for values that match the last written value
+     * @param ttlMillis - maximum age of a remembered value before it is re-sent regardless; zero
+     *                  or less to only re-send values when they change
+     */
+    void setAttributeCacheEnabled(boolean enabled, long ttlMillis) {
+        mAttributeCache = enabled ? new UserAttributeCache(ttlMillis) : null;
+    }
+
+    /**
+     * @return the number of standard user attribute writes that were skipped as unchanged
+     */
+    long getSuppressedAttributeWriteCount() {
+        UserAttributeCache cache = mAttributeCache;
+        return cache != null ? cache.getSuppressedCount() : 0;
+    }
+
+    /**
+     * @return the number of standard user attribute writes that were forwarded to the SDK while
+     * the attribute cache was enabled
+     */
+    long getForwardedAttributeWriteCount() {
+        UserAttributeCache cache = mAttributeCache;
+        return cache != null ? cache.getForwardedCount() : 0;
+    }
+
+    /**
+     * Enables or disables the aggregation of custom attribute increments. When enabled, increments
+     * to the same attribute are summed for the duration of the window and sent as a single
+     * increment when the window closes, when data is flushed, when the user changes or when the
+     * app moves to the background. The window shares a timer with attribute coalescing, and
+     * whichever window closes first flushes both, attribute values first.
+     *
+     * @param windowMillis - the aggregation window; zero or less to disable aggregation
+     */
+    void setIncrementAggregationWindow(long windowMillis) {
+        IncrementAggregator previous = mIncrementAggregator;
+        mIncrementAggregator = windowMillis > 0
+                ? new IncrementAggregator(windowMillis, getWriteScheduler(), this::flushPendingWrites,
+                (key, delta) -> getBrazeUser().incrementCustomUserAttribute(key, delta))
+                : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+        if (windowMillis > 0) {
+            registerComponentCallbacks();
+        }
+    }
+
+    /**
+     * @return the number of custom attribute increments that were merged with others rather than
+     * being sent individually
+     */
+    long getCollapsedIncrementCount() {
+        IncrementAggregator aggregator = mIncrementAggregator;
+        return aggregator != null ? aggregator.getCollapsedCount() : 0;
+    }
+
+    /**
+     * @return the number of custom attribute increments that could not be sent before the user
+     * changed, and were discarded
+     */
+    long getDroppedIncrementCount() {
+        IncrementAggregator aggregator = mIncrementAggregator;
+        return aggregator != null ? aggregator.getDroppedCount() : 0;
+    }
+
+    /**
+     * Enables or disables the coalescing of user attribute writes. When enabled, standard and
+     * custom attribute writes are held for the duration of the window and only the last value
+     * written to each attribute is sent, when the window closes, when data is flushed, before the
+     * user changes, before attributes are unset or data is wiped, and when the app moves to the
+     * background. A pending custom attribute value is also sent before that attribute is
+     * incremented.
+     *
+     * @param windowMillis - the coalescing window; zero or less to disable coalescing
+     */
+    void setAttributeCoalescingWindow(long windowMillis) {
+        AttributeCoalescer previous = mAttributeCoalescer;
+        mAttributeCoalescer = windowMillis > 0
+                ? new AttributeCoalescer(windowMillis, getWriteScheduler(), this::flushPendingWrites, new AttributeCoalescer.Sink() {
+                    @Override
+                    public void setField(UserAttributeCache.Field field, String value) {
+                        applyField(field, value);
+                    }
+
+                    @Override
+                    public void setCustomAttribute(String key, Object value) {
+                        applyCustomAttribute(getBrazeUser(), key, value);
+                    }
+                })
+                : null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+        if (windowMillis > 0) {
+            registerComponentCallbacks();
+        }
+    }
+
+    /**
+     * @return the number of user attribute writes that were superseded by a later write to the
+     * same attribute, rather than being sent
+     */
+    long getCollapsedAttributeWriteCount() {
+        AttributeCoalescer coalescer = mAttributeCoalescer;
+        return coalescer != null ? coalescer.getCollapsedCount() : 0;
+    }
+
+    /**
+     * Synchronously sends any writes that are currently being held back for coalescing or
+     * aggregation. Attribute values are sent before increments, so that an increment received
+     * after a value is applied on top of it.
      */
-    private BrazeUser getBrazeUser() {
-        return getBrazeInstance().getCurrentUser();
+    void flushPendingWrites() {
+        flushCoalescedAttributes();
+        IncrementAggregator aggregator = mIncrementAggregator;
+        if (aggregator != null) {
+            aggregator.flush();
+        }
+    }
+
+    /**
+     * Flushes pending writes before the user changes, or stops being tracked, discarding any
+     * increments that still cannot be sent, as they must not be applied to another user.
+     */
+    private void flushPendingWritesForUser() {
+        flushPendingWrites();
+        IncrementAggregator aggregator = mIncrementAggregator;
+        if (aggregator != null) {
+            aggregator.dropPending();
+        }
+    }
+
+    private void flushCoalescedAttributes() {
+        AttributeCoalescer coalescer = mAttributeCoalescer;
+        if (coalescer != null) {
+            coalescer.flush();
+        }
+    }
+
+    /**
+     * Returns the single thread that closes both the coalescing and the aggregation windows, so
+     * that a window closing always sends attribute values before increments.
+     */
+    private synchronized ScheduledExecutorService getWriteScheduler() {
+        if (mWriteScheduler == null) {
+            mWriteScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Tealium-Braze-Writes");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return mWriteScheduler;
+    }
+
+    private synchronized void registerComponentCallbacks() {
+        if (!mComponentCallbacksRegistered) {
+            mApplication.registerComponentCallbacks(this);
+            mComponentCallbacksRegistered = true;
+        }
+    }
+
+    private boolean shouldWrite(UserAttributeCache.Field field, String value) {
+        UserAttributeCache cache = mAttributeCache;
+        return cache == null || cache.shouldWrite(mCurrentUserId, field, value);
+    }
+
+    private void forgetAttribute(UserAttributeCache.Field field) {
+        UserAttributeCache cache = mAttributeCache;
+        if (cache != null) {
+            cache.forget(field);
+        }
+    }
+
+    private void invalidateAttributeCache() {
+        UserAttributeCache cache = mAttributeCache;
+        if (cache != null) {
+            cache.invalidate();
+        }
     }
 
     /**
-     * Helper method to always fetch the current Braze Instance rather than storing a local variable
+     * Helper method to fetch the current Braze User. The user is looked up once and then reused
+     * until the user is changed, data is wiped, or the SDK is disabled or reconfigured through
+     * this class.
+     * <p>
+     * Apps that call {@code Braze.changeUser} directly, rather than through the RemoteCommand,
+     * should not rely on the cached handle being refreshed.
      *
-     * @return The shared Braze instance
+     * @return The current Braze User
+     */
+    private BrazeSdk.User getBrazeUser() {
+        BrazeSdk.User user = mCachedUser;
+        if (user == null) {
+            user = mSdk.getCurrentUser();
+            mCachedUser = user;
+        }
+        return user;
+    }
+
+    /**
+     * Discards the cached Braze User so that it is looked up again on next use.
      */
-    private Braze getBrazeInstance() {
-        return Braze.getInstance(mApplication.getApplicationContext());
+    private void invalidateBrazeUser() {
+        mCachedUser = null;
     }
 
     @Override
     public void onActivityCreated(@NonNull Activity activity, Bundle savedInstanceState) {
         mCurrentActivity = activity;
+        record(LifecycleRecorder.EventType.CREATED, activity, savedInstanceState);
     }
 
     @Override
     public void onActivityStarted(@NonNull Activity activity) {
         mCurrentActivity = activity;
+        record(LifecycleRecorder.EventType.STARTED, activity, null);
     }
 
     @Override
     public void onActivityResumed(@NonNull Activity activity) {
         mCurrentActivity = activity;
+        record(LifecycleRecorder.EventType.RESUMED, activity, null);
     }
 
     @Override
     public void onActivityPaused(@NonNull Activity activity) {
-
+        record(LifecycleRecorder.EventType.PAUSED, activity, null);
     }
 
     @Override
     public void onActivityStopped(@NonNull Activity activity) {
-
+        record(LifecycleRecorder.EventType.STOPPED, activity, null);
     }
 
     @Override
     public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
-
+        record(LifecycleRecorder.EventType.SAVE_INSTANCE_STATE, activity, outState);
     }
 
     @Override
     public void onActivityDestroyed(@NonNull Activity activity) {
+        LifecycleRecorder recorder = mLifecycleRecorder;
+        if (recorder != null) {
+            recorder.onDestroyed(activity);
+        }
+    }
 
+    private void record(LifecycleRecorder.EventType type, Activity activity, Bundle bundle) {
+        LifecycleRecorder recorder = mLifecycleRecorder;
+        if (recorder != null) {
+            recorder.record(type, activity, bundle);
+        }
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= TRIM_MEMORY_UI_HIDDEN) {
+            // App has moved to the background, and may be killed without further notice.
+            flushPendingWrites();
+        }
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+
+    }
+
+    @Override
+    public void onLowMemory() {
+        flushPendingWrites();
     }
 }
@@ -0,0 +1,174 @@
+package com.tealium.remotecommands.braze;
+
+import android.util.Log;
+
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.LogLevel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.tealium.remotecommands.braze.BrazeConstants.TAG;
+
+/**
+ * Level-gated logging for the Braze remote command. Messages are written to Logcat under
+ * {@link BrazeConstants#TAG}, and to an in-memory ring buffer if one has been enabled.
+ * <p>
+ * Messages take up to three arguments, substituted for each "{}" in the message in turn. Nothing
+ * is formatted, concatenated or allocated unless the level is enabled, so calls on the command
+ * execution path are free when logging is disabled, provided that the arguments passed are not
+ * themselves built for the call. Arguments that would need boxing or building should be guarded
+ * with {@link #isDebugEnabled()}.
+ */
+final class BrazeLog {
+
+    private static final String PLACEHOLDER = "{}";
+
+    private static volatile int sPriority = LogLevel.WARN.priority;
+    private static volatile LogBuffer sBuffer;
+
+    private BrazeLog() {
+    }
+
+    static void setLevel(LogLevel level) {
+        sPriority = level.priority;
+    }
+
+    static LogLevel getLevel() {
+        final int priority = sPriority;
+        for (LogLevel level : LogLevel.values()) {
+            if (level.priority == priority) return level;
+        }
+        return LogLevel.NONE;
+    }
+
+    static boolean isDebugEnabled() {
+        return Log.DEBUG >= sPriority;
+    }
+
+    static boolean isWarnEnabled() {
+        return Log.WARN >= sPriority;
+    }
+
+    /**
+     * Enables the in-memory ring buffer, replacing any existing one.
+     *
+     * @param capacity - the number of messages to keep
+     */
+    static void enableBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+        sBuffer = new LogBuffer(capacity);
+    }
+
+    static void disableBuffer() {
+        sBuffer = null;
+    }
+
+    /**
+     * @return the buffered messages, oldest first; or an empty list if the buffer is not enabled
+     */
+    static List<String> getBuffer() {
+        final LogBuffer buffer = sBuffer;
+        return buffer != null ? buffer.snapshot() : Collections.emptyList();
+    }
+
+    static void d(String message) {
+        if (isDebugEnabled()) log(Log.DEBUG, message, null);
+    }
+
+    static void d(String message, Object arg) {
+        if (isDebugEnabled()) log(Log.DEBUG, format(message, arg, null, null), null);
+    }
+
+    static void d(String message, Object arg1, Object arg2) {
+        if (isDebugEnabled()) log(Log.DEBUG, format(message, arg1, arg2, null), null);
+    }
+
+    static void d(String message, Object arg1, Object arg2, Object arg3) {
+        if (isDebugEnabled()) log(Log.DEBUG, format(message, arg1, arg2, arg3), null);
+    }
+
+    static void w(String message) {
+        if (isWarnEnabled()) log(Log.WARN, message, null);
+    }
+
+    static void w(String message, Throwable tr) {
+        if (isWarnEnabled()) log(Log.WARN, message, tr);
+    }
+
+    static void w(String message, Object arg) {
+        if (isWarnEnabled()) log(Log.WARN, format(message, arg, null, null), null);
+    }
+
+    static void w(String message, Object arg, Throwable tr) {
+        if (isWarnEnabled()) log(Log.WARN, format(message, arg, null, null), tr);
+    }
+
+    static void w(String message, Object arg1, Object arg2) {
+        if (isWarnEnabled()) log(Log.WARN, format(message, arg1, arg2, null), null);
+    }
+
+    /**
+     * Substitutes each argument, in turn, for the next "{}" in the message. Surplus placeholders
+     * are left as they are.
+     */
+    static String format(String message, Object arg1, Object arg2, Object arg3) {
+        int placeholder = message.indexOf(PLACEHOLDER);
+        if (placeholder < 0) {
+            return message;
+        }
+
+        final StringBuilder builder = new StringBuilder(message.length() + 32);
+        int start = 0;
+        int index = 0;
+        while (placeholder >= 0 && index < 3) {
+            builder.append(message, start, placeholder)
+                    .append(index == 0 ? arg1 : index == 1 ? arg2 : arg3);
+            start = placeholder + PLACEHOLDER.length();
+            placeholder = message.indexOf(PLACEHOLDER, start);
+            index++;
+        }
+        return builder.append(message, start, message.length()).toString();
+    }
+
+    private static void log(int priority, String message, Throwable tr) {
+        if (priority == Log.DEBUG) {
+            Log.d(TAG, message, tr);
+        } else {
+            Log.w(TAG, message, tr);
+        }
+
+        final LogBuffer buffer = sBuffer;
+        if (buffer != null) {
+            buffer.add(System.currentTimeMillis() + " " + (priority == Log.DEBUG ? "D " : "W ") + message
+                    + (tr != null ? " - " + tr : ""));
+        }
+    }
+
+    /**
+     * Fixed-size buffer of the most recent log messages.
+     */
+    private static final class LogBuffer {
+        private final String[] mMessages;
+        private long mWritten = 0;
+
+        LogBuffer(int capacity) {
+            mMessages = new String[capacity];
+        }
+
+        synchronized void add(String message) {
+            mMessages[(int) (mWritten++ % mMessages.length)] = message;
+        }
+
+        synchronized List<String> snapshot() {
+            final int count = (int) Math.min(mWritten, mMessages.length);
+            final List<String> messages = new ArrayList<>(count);
+            for (long i = mWritten - count; i < mWritten; i++) {
+                messages.add(mMessages[(int) (i % mMessages.length)]);
+            }
+            return Collections.unmodifiableList(messages);
+        }
+    }
+}
@@ -1,20 +1,28 @@
 package com.tealium.remotecommands.braze;
 
 import android.app.Application;
+import android.os.SystemClock;
 import android.util.Log;
 
+import androidx.annotation.RestrictTo;
+
 import com.braze.configuration.BrazeConfig;
 import com.tealium.remotecommands.RemoteCommand;
 
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.math.BigDecimal;
+import java.io.File;
+import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
 
-import static com.tealium.remotecommands.braze.BrazeConstants.TAG;
 import static com.tealium.remotecommands.braze.BrazeConstants.Commands;
 import static com.tealium.remotecommands.braze.BrazeConstants.Config;
 import static com.tealium.remotecommands.braze.BrazeConstants.User;
@@ -30,9 +38,27 @@ public class BrazeRemoteCommand extends RemoteCommand {
 
     public static final String DEFAULT_COMMAND_ID = "braze";
     public static final String DEFAULT_COMMAND_DESCRIPTION = "Tealium-Braze Remote Command";
+    static final String INIT_THREAD_NAME = "Tealium-Braze-Init";
 
     BrazeCommand mBraze;
     List<ConfigOverrider> configOverriders = new LinkedList<>();
+    final CommandPlanCache mCommandPlans = new CommandPlanCache();
+    final CommandMetrics mMetrics = new CommandMetrics();
+    final CommandErrors mErrors = new CommandErrors();
+    volatile CommandExecutor mExecutor;
+    volatile CommandExecutor mRetiredExecutor;
+    final CommandRegistry mCommands = new CommandRegistry();
+    final CommandInterceptorChain mInterceptors = new CommandInterceptorChain();
+    volatile LocationFilter mLocationFilter;
+    final Application mApplication;
+    volatile CommandJournal mJournal;
+    final SdkStateMachine mSdkState = new SdkStateMachine();
+    ConfigSnapshot mConfigSnapshot;
+    volatile boolean mEarlyConfigureEnabled;
+    final LaunchOptionTable mLaunchOptions = new LaunchOptionTable();
+    volatile ExecutorService mInitExecutor;
+    private final Object mInitLock = new Object();
+    private int mInitPending = 0;
 
     /**
      * Constructs a RemoteCommand that integrates with the Braze SDK to allow Braze API calls to be
@@ -79,7 +105,65 @@ public class BrazeRemoteCommand extends RemoteCommand {
                 !BrazeUtils.isNullOrEmpty(commandId) ? commandId : DEFAULT_COMMAND_ID,
                 !BrazeUtils.isNullOrEmpty(description) ? description : DEFAULT_COMMAND_DESCRIPTION,
                 BuildConfig.TEALIUM_BRAZE_VERSION);
-        mBraze = new BrazeInstance(app, sessionHandlingEnabled, sessionHandlingBlacklist, registerInAppMessageManager, inAppMessageBlacklist);
+        mApplication = app;
+        mBraze = new BrazeInstance(app, sessionHandlingEnabled, sessionHandlingBlacklist, registerInAppMessageManager, inAppMessageBlacklist, mLaunchOptions);
+        registerBuiltInCommands();
+    }
+
+    /**
+     * Constructs a RemoteCommand that dispatches to the given BrazeCommand instead of the Braze SDK.
+     * Intended for testing; configuration methods that require the Braze SDK, such as
+     * {@link #setUserAttributeDiffingEnabled(boolean, long)}, have no effect.
+     *
+     * @param app   - The Application instance
+     * @param braze - The BrazeCommand to dispatch commands to
+     */
+    public BrazeRemoteCommand(Application app, BrazeCommand braze) {
+        this(app, braze, DEFAULT_COMMAND_ID, DEFAULT_COMMAND_DESCRIPTION);
+    }
+
+    /**
+     * Constructs a RemoteCommand that dispatches to the given BrazeCommand instead of the Braze SDK.
+     * Intended for testing; configuration methods that require the Braze SDK, such as
+     * {@link #setUserAttributeDiffingEnabled(boolean, long)}, have no effect.
+     *
+     * @param app         - The Application instance
+     * @param braze       - The BrazeCommand to dispatch commands to
+     * @param commandId   - Override for the default command id as set on your TagBridge Custom
+     *                    Command tag in Tealium IQ.
+     *                    Default - "braze"
+     * @param description - Override description for this Remote Command
+     */
+    public BrazeRemoteCommand(Application app, BrazeCommand braze, String commandId, String description) {
+        super(
+                !BrazeUtils.isNullOrEmpty(commandId) ? commandId : DEFAULT_COMMAND_ID,
+                !BrazeUtils.isNullOrEmpty(description) ? description : DEFAULT_COMMAND_DESCRIPTION,
+                BuildConfig.TEALIUM_BRAZE_VERSION);
+        if (braze == null) {
+            throw new IllegalArgumentException("braze must not be null");
+        }
+        mApplication = app;
+        mBraze = braze;
+        registerBuiltInCommands();
+    }
+
+    /**
+     * Constructs a RemoteCommand that runs the standard command implementation against the given
+     * BrazeSdk instead of the Braze SDK. Intended for testing, e.g. using the braze-testing
+     * artifact; session handling and the InAppMessageManager are not registered.
+     *
+     * @param app - The Application instance
+     * @param sdk - The stand-in for the Braze SDK
+     */
+    @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+    public BrazeRemoteCommand(Application app, BrazeSdk sdk) {
+        super(DEFAULT_COMMAND_ID, DEFAULT_COMMAND_DESCRIPTION, BuildConfig.TEALIUM_BRAZE_VERSION);
+        if (sdk == null) {
+            throw new IllegalArgumentException("sdk must not be null");
+        }
+        mApplication = app;
+        mBraze = new BrazeInstance(app, false, null, false, null, mLaunchOptions, sdk);
+        registerBuiltInCommands();
     }
 
     /**
@@ -188,213 +272,422 @@ public class BrazeRemoteCommand extends RemoteCommand {
      * "property_name_5" : <date>, // format "E MMM dd HH:mm:ss z yyyy"
      * }]
      * }
+     * <p>
+     * If asynchronous execution has been enabled, the response is sent as soon as the payload has
+     * been validated, and the commands are executed later on the background worker.
      *
      * @param response
      * @throws Exception
      */
     @Override
     protected void onInvoke(Response response) throws Exception {
+        final long start = System.nanoTime();
+        try {
+            invoke(response);
+        } finally {
+            mMetrics.recordInvocation(System.nanoTime() - start);
+        }
+    }
+
+    private void invoke(Response response) throws Exception {
+        final JSONObject payload = response.getRequestPayload();
+        final CommandExecutor executor = mExecutor;
+        if (executor == null || payload == null) {
+            awaitRetiredExecutor();
+            CommandPlan plan = mCommandPlans.get(payload != null ? payload.optString(Commands.COMMAND_KEY) : null);
+            parseCommands(plan, payload);
+            response.send();
+            return;
+        }
 
-        JSONObject payload = response.getRequestPayload();
-        String[] commands = splitCommands(payload);
-        parseCommands(commands, payload);
+        final CommandPlan plan = mCommandPlans.get(payload.optString(Commands.COMMAND_KEY));
         response.send();
+        if (plan.size() > 0) {
+            executor.submit(() -> parseCommands(plan, payload));
+        }
     }
 
-    private String[] splitCommands(JSONObject payload) {
-        String commandString = payload.optString(Commands.COMMAND_KEY);
-        return commandString.split(BrazeConstants.SEPARATOR);
+    void parseCommands(CommandPlan plan, JSONObject payload) {
+        parseCommands(plan, payload, 0, false);
+    }
+
+    private void parseCommands(CommandPlan plan, JSONObject payload, int from, boolean onInitThread) {
+        final CommandInterceptor[] interceptors = mInterceptors.get();
+        for (int i = from; i < plan.size(); i++) {
+            if (!onInitThread && deferBehindInitialization(plan, payload, i)) {
+                return;
+            }
+
+            String command = plan.names[i];
+            CommandType type = plan.types[i];
+            JSONObject commandPayload = payload;
+            InterceptedCommand intercepted = null;
+            if (interceptors.length > 0) {
+                intercepted = new InterceptedCommand(command, payload);
+                CommandInterceptorChain.before(interceptors, intercepted);
+                if (intercepted.isSkipped()) {
+                    CommandInterceptorChain.after(interceptors, intercepted, CommandOutcome.SKIPPED, null, 0);
+                    continue;
+                }
+                if (!command.equals(intercepted.getName())) {
+                    command = intercepted.getName();
+                    type = CommandType.fromName(command);
+                }
+                commandPayload = intercepted.getPayload();
+            }
+
+            final CommandHandler handler = type != null
+                    ? mCommands.get(type)
+                    : mCommands.getCustom(command);
+            if (handler == null) {
+                CommandInterceptorChain.after(interceptors, intercepted, CommandOutcome.UNHANDLED, null, 0);
+                continue;
+            }
+            if (type != null) {
+                final String missingKey = mCommands.findMissingKey(type, commandPayload);
+                if (missingKey != null) {
+                    if (mErrors.record(command, type, ErrorType.MISSING_KEY, missingKey, null, commandPayload) == 1) {
+                        BrazeLog.w("Command {} is missing required key: {}; further occurrences are only counted.",
+                                command, missingKey);
+                    }
+                    CommandInterceptorChain.after(interceptors, intercepted, CommandOutcome.REJECTED, null, 0);
+                    continue;
+                }
+            }
+            if (type != null && !type.isLifecycle()) {
+                final SdkStateMachine.Route route = mSdkState.route();
+                if (route.policy != RoutingPolicy.FORWARD) {
+                    CommandOutcome outcome = CommandOutcome.BUFFERED;
+                    if (route.policy != RoutingPolicy.BUFFER || !journal(command, commandPayload)) {
+                        mSdkState.recordDrop(route.state);
+                        outcome = CommandOutcome.DROPPED;
+                    }
+                    CommandInterceptorChain.after(interceptors, intercepted, outcome, null, 0);
+                    continue;
+                }
+            }
+
+            BrazeLog.d("Executing command: {}", command);
+            Exception error = null;
+            final long start = System.nanoTime();
+            try {
+                handler.handle(commandPayload);
+            } catch (Exception ex) {
+                error = ex;
+                mErrors.record(command, type, CommandErrors.classify(ex), ex.getMessage(), ex, commandPayload);
+                BrazeLog.d("Error processing command: {} - {}", command, ex.getMessage());
+            }
+            final long elapsed = System.nanoTime() - start;
+            mMetrics.recordCommand(type, elapsed);
+            CommandInterceptorChain.after(interceptors, intercepted,
+                    error == null ? CommandOutcome.EXECUTED : CommandOutcome.FAILED, error, elapsed);
+        }
     }
 
-    private void parseCommands(String[] commandList, JSONObject payload) {
-        for (String command : commandList) {
-            command = command.trim();
-            Log.d(TAG, "Executing command: " + command);
+    /**
+     * When background initialization is enabled, moves an "initialize" command, and everything
+     * after it, onto the initialization thread. Any command received while an initialization is
+     * still pending is queued behind it in the same way, so commands always execute in order and
+     * never against a partially configured SDK.
+     *
+     * @return true if the remaining commands from {@code index} onwards have been deferred
+     */
+    private boolean deferBehindInitialization(CommandPlan plan, JSONObject payload, int index) {
+        final ExecutorService initExecutor = mInitExecutor;
+        if (initExecutor == null) {
+            return false;
+        }
+
+        synchronized (mInitLock) {
+            if (mInitPending == 0 && plan.types[index] != CommandType.INITIALIZE) {
+                return false;
+            }
+            mInitPending++;
+        }
+
+        initExecutor.execute(() -> {
             try {
-                switch (command) {
-                    case Commands.INITIALIZE:
-                        String apiKey = payload.optString(Config.API_KEY);
-                        mBraze.initialize(
-                                apiKey,
-                                payload,
-                                configOverriders
-                        );
-                        break;
-                    case Commands.ENABLE_SDK:
-                        mBraze.enableSdk();
-                        break;
-                    case Commands.DISABLE_SDK:
-                        mBraze.disableSdk();
-                        break;
-                    case Commands.WIPE_DATA:
-                        mBraze.wipeData();
-                        break;
-                    case Commands.USER_IDENTIFIER:
-                        String authSignature = payload.optString(User.SDK_AUTH_SIGNATURE);
-                        mBraze.setUserId(
-                                payload.optString(User.USER_ID),
-                                !authSignature.isEmpty() ? authSignature : null
-                        );
-                        break;
-                    case Commands.USER_ALIAS:
-                        mBraze.setUserAlias(
-                                payload.optString(User.ALIAS),
-                                payload.optString(User.ALIAS_LABEL)
-                        );
-                        break;
-                    case Commands.USER_ATTRIBUTE:
-                        mBraze.setUserFirstName(
-                                payload.optString(User.FIRST_NAME)
-                        );
-                        mBraze.setUserLastName(
-                                payload.optString(User.LAST_NAME)
-                        );
-                        mBraze.setUserEmail(
-                                payload.optString(User.EMAIL)
-                        );
-                        mBraze.setUserLanguage(
-                                payload.optString(User.LANGUAGE)
-                        );
-                        mBraze.setUserGender(
-                                payload.optString(User.GENDER)
-                        );
-                        mBraze.setUserHomeCity(
-                                payload.optString(User.HOME_CITY)
-                        );
-                        mBraze.setUserCountry(
-                                payload.optString(User.COUNTRY)
-                        );
-                        mBraze.setUserPhone(
-                                payload.optString(User.PHONE)
-                        );
-                        mBraze.setUserDateOfBirth(
-                                payload.optString(User.DATE_OF_BIRTH)
-                        );
-                        break;
-                    case Commands.SET_CUSTOM_ATTRIBUTE:
-                        mBraze.setUserCustomAttributes(
-                                payload.getJSONObject(User.SET_CUSTOM_ATTRIBUTE)
-                        );
-                        break;
-                    case Commands.UNSET_CUSTOM_ATTRIBUTE:
-                        mBraze.unsetUserCustomAttributes(
-                                payload.getJSONArray(User.UNSET_CUSTOM_ATTRIBUTE)
-                        );
-                        break;
-                    case Commands.SET_CUSTOM_ARRAY_ATTRIBUTE:
-                        mBraze.setUserCustomAttributeArrays(
-                                payload.getJSONObject(User.SET_CUSTOM_ARRAY_ATTRIBUTE)
-                        );
-                        break;
-                    case Commands.REMOVE_CUSTOM_ARRAY_ATTRIBUTE:
-                        mBraze.removeFromUserCustomAttributeArrays(
-                                payload.getJSONObject(User.REMOVE_CUSTOM_ARRAY_ATTRIBUTE)
-                        );
-                        break;
-                    case Commands.APPEND_CUSTOM_ARRAY_ATTRIBUTE:
-                        mBraze.appendUserCustomAttributeArrays(
-                                payload.getJSONObject(User.APPEND_CUSTOM_ARRAY_ATTRIBUTE)
-                        );
-                        break;
-                    case Commands.INCREMENT_CUSTOM_ATTRIBUTE:
-                        mBraze.incrementUserCustomAttributes(
-                                payload.getJSONObject(User.INCREMENT_CUSTOM_ATTRIBUTE)
-                        );
-                        break;
-
-                    case Commands.LOG_CUSTOM_EVENT:
-                        JSONObject eventProps = payload.optJSONObject(Event.EVENT_PROPERTIES);
-                        if (eventProps == null) {
-                            eventProps = payload.optJSONObject(Event.EVENT_PROPERTIES_SHORTHAND);
-                        }
-                        mBraze.logCustomEvent(
-                                payload.getString(Event.EVENT_NAME),
-                                eventProps
-                        );
-                        break;
-                    case Commands.LOG_PURCHASE_EVENT:
-                        Object productId = payload.get(Purchase.PRODUCT_ID);
-                        if (productId instanceof JSONArray) {
-                            JSONArray purchaseProps = payload.optJSONArray(Purchase.PURCHASE_PROPERTIES);
-                            if (purchaseProps == null) {
-                                purchaseProps = payload.optJSONArray(Purchase.PURCHASE_PROPERTIES_SHORTHAND);
-                            }
-                            mBraze.logPurchase(
-                                    BrazeUtils.getStringArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_ID)),
-                                    BrazeUtils.getStringArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_CURRENCY)),
-                                    BrazeUtils.getBigDecimalArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_PRICE)),
-                                    BrazeUtils.getIntegerArrayFromJson(payload.optJSONArray(Purchase.PRODUCT_QTY)),
-                                    BrazeUtils.getJSONObjectArrayFromJson(purchaseProps)
-                            );
-                        } else {
-                            // assume a single purchase
-                            JSONObject purchaseProps = payload.optJSONObject(Purchase.PURCHASE_PROPERTIES);
-                            if (purchaseProps == null) {
-                                purchaseProps = payload.optJSONObject(Purchase.PURCHASE_PROPERTIES_SHORTHAND);
-                            }
-                            mBraze.logPurchase(
-                                    payload.optString(Purchase.PRODUCT_ID),
-                                    payload.optString(Purchase.PRODUCT_CURRENCY),
-                                    BigDecimal.valueOf(payload.optDouble(Purchase.PRODUCT_PRICE, 0d)),
-                                    payload.optInt(Purchase.PRODUCT_QTY),
-                                    purchaseProps
-                            );
-                        }
-                        break;
-                    case Commands.EMAIL_NOTIFICATION:
-                        mBraze.setEmailSubscriptionType(
-                                payload.getString(User.EMAIL_NOTIFICATION)
-                        );
-                        break;
-                    case Commands.PUSH_NOTIFICATION:
-                        mBraze.setPushNotificationSubscriptionType(
-                                payload.getString(User.PUSH_NOTIFICATION)
-                        );
-                        break;
-                    case Commands.FLUSH:
-                        mBraze.requestFlush();
-                        break;
-                    case Commands.ADD_TO_SUBSCRIPTION_GROUP:
-                        mBraze.addToSubscriptionGroup(
-                                payload.getString(User.SUBSCRIPTION_GROUP_ID)
-                        );
-                        break;
-                    case Commands.REMOVE_FROM_SUBSCRIPTION_GROUP:
-                        mBraze.removeFromSubscriptionGroup(
-                                payload.getString(User.SUBSCRIPTION_GROUP_ID)
-                        );
-                        break;
-                    case Commands.SET_SDK_AUTH_SIGNATURE:
-                        mBraze.setSdkAuthSignature(
-                                payload.getString(User.SDK_AUTH_SIGNATURE)
-                        );
-                        break;
-                    case Commands.SET_LAST_KNOWN_LOCATION:
-                        double latitude = payload.getDouble(Location.LOCATION_LATITUDE);
-                        double longitude = payload.getDouble(Location.LOCATION_LONGITUDE);
-                        double altitude = payload.optDouble(Location.LOCATION_ALTITUDE);
-                        double accuracy = payload.optDouble(Location.LOCATION_ACCURACY);
-
-                        mBraze.setLastKnownLocation(
-                                latitude,
-                                longitude,
-                                Double.isNaN(altitude) ? null : altitude,
-                                Double.isNaN(accuracy) ? null : accuracy
-                        );
-                        break;
-                    case Commands.SET_AD_TRACKING_ENABLED:
-                        String googleAdid = payload.getString(User.GOOGLE_ADID);
-                        boolean adTrackingEnabled = payload.getBoolean(User.AD_TRACKING_ENABLED);
-
-                        mBraze.setAdTrackingEnabled(googleAdid, !adTrackingEnabled);
-                        break;
+                parseCommands(plan, payload, index, true);
+            } finally {
+                synchronized (mInitLock) {
+                    mInitPending--;
                 }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * @return the BrazeInstance backing this command, or null if a different BrazeCommand
+     * implementation is in use
+     */
+    private BrazeInstance getBrazeInstance() {
+        return mBraze instanceof BrazeInstance ? (BrazeInstance) mBraze : null;
+    }
+
+    private void registerBuiltInCommands() {
+        mCommands.register(CommandType.INITIALIZE, this::initialize);
+        mCommands.register(CommandType.ENABLE_SDK, this::enableSdk);
+        mCommands.register(CommandType.DISABLE_SDK, this::disableSdk);
+        mCommands.register(CommandType.WIPE_DATA, this::wipeData);
+        mCommands.register(CommandType.USER_IDENTIFIER, this::setUserIdentifier);
+        mCommands.register(CommandType.USER_ALIAS, this::setUserAlias);
+        mCommands.register(CommandType.USER_ATTRIBUTE, this::setUserAttributes);
+        mCommands.register(CommandType.SET_CUSTOM_ATTRIBUTE, payload -> mBraze.setUserCustomAttributes(
+                payload.getJSONObject(User.SET_CUSTOM_ATTRIBUTE)
+        ), User.SET_CUSTOM_ATTRIBUTE);
+        mCommands.register(CommandType.UNSET_CUSTOM_ATTRIBUTE, payload -> mBraze.unsetUserCustomAttributes(
+                payload.getJSONArray(User.UNSET_CUSTOM_ATTRIBUTE)
+        ), User.UNSET_CUSTOM_ATTRIBUTE);
+        mCommands.register(CommandType.SET_CUSTOM_ARRAY_ATTRIBUTE, payload -> mBraze.setUserCustomAttributeArrays(
+                payload.getJSONObject(User.SET_CUSTOM_ARRAY_ATTRIBUTE)
+        ), User.SET_CUSTOM_ARRAY_ATTRIBUTE);
+        mCommands.register(CommandType.REMOVE_CUSTOM_ARRAY_ATTRIBUTE, payload -> mBraze.removeFromUserCustomAttributeArrays(
+                payload.getJSONObject(User.REMOVE_CUSTOM_ARRAY_ATTRIBUTE)
+        ), User.REMOVE_CUSTOM_ARRAY_ATTRIBUTE);
+        mCommands.register(CommandType.APPEND_CUSTOM_ARRAY_ATTRIBUTE, payload -> mBraze.appendUserCustomAttributeArrays(
+                payload.getJSONObject(User.APPEND_CUSTOM_ARRAY_ATTRIBUTE)
+        ), User.APPEND_CUSTOM_ARRAY_ATTRIBUTE);
+        mCommands.register(CommandType.INCREMENT_CUSTOM_ATTRIBUTE, payload -> mBraze.incrementUserCustomAttributes(
+                payload.getJSONObject(User.INCREMENT_CUSTOM_ATTRIBUTE)
+        ), User.INCREMENT_CUSTOM_ATTRIBUTE);
+        mCommands.register(CommandType.LOG_CUSTOM_EVENT, this::logCustomEvent, Event.EVENT_NAME);
+        mCommands.register(CommandType.LOG_PURCHASE_EVENT, this::logPurchase, Purchase.PRODUCT_ID);
+        mCommands.register(CommandType.EMAIL_NOTIFICATION, payload -> mBraze.setEmailSubscriptionType(
+                payload.getString(User.EMAIL_NOTIFICATION)
+        ), User.EMAIL_NOTIFICATION);
+        mCommands.register(CommandType.PUSH_NOTIFICATION, payload -> mBraze.setPushNotificationSubscriptionType(
+                payload.getString(User.PUSH_NOTIFICATION)
+        ), User.PUSH_NOTIFICATION);
+        mCommands.register(CommandType.FLUSH, payload -> mBraze.requestFlush());
+        mCommands.register(CommandType.ADD_TO_SUBSCRIPTION_GROUP, payload -> mBraze.addToSubscriptionGroup(
+                payload.getString(User.SUBSCRIPTION_GROUP_ID)
+        ), User.SUBSCRIPTION_GROUP_ID);
+        mCommands.register(CommandType.REMOVE_FROM_SUBSCRIPTION_GROUP, payload -> mBraze.removeFromSubscriptionGroup(
+                payload.getString(User.SUBSCRIPTION_GROUP_ID)
+        ), User.SUBSCRIPTION_GROUP_ID);
+        mCommands.register(CommandType.SET_SDK_AUTH_SIGNATURE, payload -> mBraze.setSdkAuthSignature(
+                payload.getString(User.SDK_AUTH_SIGNATURE)
+        ), User.SDK_AUTH_SIGNATURE);
+        mCommands.register(CommandType.SET_LAST_KNOWN_LOCATION, this::setLastKnownLocation,
+                Location.LOCATION_LATITUDE, Location.LOCATION_LONGITUDE);
+        mCommands.register(CommandType.SET_AD_TRACKING_ENABLED, this::setAdTrackingEnabled,
+                User.GOOGLE_ADID, User.AD_TRACKING_ENABLED);
+    }
+
+    private void initialize(JSONObject payload) {
+        String apiKey = payload.optString(Config.API_KEY);
+        mBraze.initialize(
+                apiKey,
+                payload,
+                configOverriders
+        );
+        mSdkState.onLifecycleCommand(CommandType.INITIALIZE);
+        replayJournal();
+
+        if (mEarlyConfigureEnabled) {
+            try {
+                getConfigSnapshot().save(mLaunchOptions.keys(), apiKey, payload);
             } catch (Exception ex) {
-                Log.d(TAG, "Error processing command: " + command + " - " + ex.getMessage());
+                BrazeLog.w("Unable to persist Braze configuration.", ex);
             }
         }
     }
 
+    private synchronized ConfigSnapshot getConfigSnapshot() {
+        if (mConfigSnapshot == null) {
+            mConfigSnapshot = new ConfigSnapshot(mApplication.getNoBackupFilesDir());
+        }
+        return mConfigSnapshot;
+    }
+
+    private void enableSdk(JSONObject payload) {
+        mBraze.enableSdk();
+        mSdkState.onLifecycleCommand(CommandType.ENABLE_SDK);
+        replayJournal();
+    }
+
+    private void disableSdk(JSONObject payload) {
+        mBraze.disableSdk();
+        mSdkState.onLifecycleCommand(CommandType.DISABLE_SDK);
+    }
+
+    private void wipeData(JSONObject payload) {
+        mBraze.wipeData();
+        mSdkState.onLifecycleCommand(CommandType.WIPE_DATA);
+    }
+
+    /**
+     * @return true if the command was written to the journal
+     */
+    private boolean journal(String command, JSONObject payload) {
+        CommandJournal journal = mJournal;
+        if (journal == null) {
+            return false;
+        }
+        if (!journal.append(command, payload.toString())) {
+            BrazeLog.w("Command journal full; dropping command: {}", command);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Executes, in order, any commands that were journaled while the SDK was not ready.
+     */
+    private void replayJournal() {
+        CommandJournal journal = mJournal;
+        if (journal == null || mSdkState.getState() != SdkState.ACTIVE) {
+            return;
+        }
+
+        journal.replay((command, payloadJson) -> {
+            CommandType type = CommandType.fromName(command);
+            CommandHandler handler = type != null ? mCommands.get(type) : null;
+            if (handler == null) {
+                return;
+            }
+
+            BrazeLog.d("Replaying command: {}", command);
+            JSONObject payload = null;
+            try {
+                payload = new JSONObject(payloadJson);
+                handler.handle(payload);
+            } catch (Exception ex) {
+                mErrors.record(command, type, CommandErrors.classify(ex), ex.getMessage(), ex, payload);
+                BrazeLog.d("Error replaying command: {} - {}", command, ex.getMessage());
+            }
+        });
+    }
+
+    private void setUserIdentifier(JSONObject payload) {
+        String authSignature = payload.optString(User.SDK_AUTH_SIGNATURE);
+        mBraze.setUserId(
+                payload.optString(User.USER_ID),
+                !authSignature.isEmpty() ? authSignature : null
+        );
+    }
+
+    private void setUserAlias(JSONObject payload) {
+        mBraze.setUserAlias(
+                payload.optString(User.ALIAS),
+                payload.optString(User.ALIAS_LABEL)
+        );
+    }
+
+    private void setUserAttributes(JSONObject payload) {
+        mBraze.setUserFirstName(
+                payload.optString(User.FIRST_NAME)
+        );
+        mBraze.setUserLastName(
+                payload.optString(User.LAST_NAME)
+        );
+        mBraze.setUserEmail(
+                payload.optString(User.EMAIL)
+        );
+        mBraze.setUserLanguage(
+                payload.optString(User.LANGUAGE)
+        );
+        mBraze.setUserGender(
+                payload.optString(User.GENDER)
+        );
+        mBraze.setUserHomeCity(
+                payload.optString(User.HOME_CITY)
+        );
+        mBraze.setUserCountry(
+                payload.optString(User.COUNTRY)
+        );
+        mBraze.setUserPhone(
+                payload.optString(User.PHONE)
+        );
+        mBraze.setUserDateOfBirth(
+                payload.optString(User.DATE_OF_BIRTH)
+        );
+    }
+
+    private void logCustomEvent(JSONObject payload) throws JSONException {
+        JSONObject eventProps = payload.optJSONObject(Event.EVENT_PROPERTIES);
+        if (eventProps == null) {
+            eventProps = payload.optJSONObject(Event.EVENT_PROPERTIES_SHORTHAND);
+        }
+        mBraze.logCustomEvent(
+                payload.getString(Event.EVENT_NAME),
+                eventProps
+        );
+    }
+
+    private void logPurchase(JSONObject payload) throws JSONException {
+        Object productId = payload.get(Purchase.PRODUCT_ID);
+        if (productId instanceof JSONArray) {
+            JSONArray purchaseProps = payload.optJSONArray(Purchase.PURCHASE_PROPERTIES);
+            if (purchaseProps == null) {
+                purchaseProps = payload.optJSONArray(Purchase.PURCHASE_PROPERTIES_SHORTHAND);
+            }
+            PurchaseBatch batch = PurchaseBatch.fromJson(
+                    payload.optJSONArray(Purchase.PRODUCT_ID),
+                    payload.optJSONArray(Purchase.PRODUCT_CURRENCY),
+                    payload.optJSONArray(Purchase.PRODUCT_PRICE),
+                    payload.optJSONArray(Purchase.PRODUCT_QTY),
+                    BrazeUtils.getJSONObjectArrayFromJson(purchaseProps)
+            );
+            BrazeInstance instance = getBrazeInstance();
+            if (instance != null) {
+                instance.logPurchases(batch);
+            } else {
+                mBraze.logPurchase(
+                        batch.productIds(),
+                        batch.currencies(),
+                        batch.unitPrices(),
+                        batch.boxedQuantities(),
+                        batch.properties()
+                );
+            }
+        } else {
+            // assume a single purchase
+            JSONObject purchaseProps = payload.optJSONObject(Purchase.PURCHASE_PROPERTIES);
+            if (purchaseProps == null) {
+                purchaseProps = payload.optJSONObject(Purchase.PURCHASE_PROPERTIES_SHORTHAND);
+            }
+            mBraze.logPurchase(
+                    payload.optString(Purchase.PRODUCT_ID),
+                    PurchaseBatch.toCurrency(payload.optString(Purchase.PRODUCT_CURRENCY)),
+                    PurchaseBatch.toPrice(payload.opt(Purchase.PRODUCT_PRICE)),
+                    payload.optInt(Purchase.PRODUCT_QTY),
+                    purchaseProps
+            );
+        }
+    }
+
+    private void setLastKnownLocation(JSONObject payload) throws JSONException {
+        double latitude = payload.getDouble(Location.LOCATION_LATITUDE);
+        double longitude = payload.getDouble(Location.LOCATION_LONGITUDE);
+        double altitude = payload.optDouble(Location.LOCATION_ALTITUDE);
+        double accuracy = payload.optDouble(Location.LOCATION_ACCURACY);
+
+        LocationFilter filter = mLocationFilter;
+        if (filter != null) {
+            latitude = filter.quantise(latitude);
+            longitude = filter.quantise(longitude);
+            if (!filter.accept(latitude, longitude, accuracy, SystemClock.elapsedRealtime())) {
+                return;
+            }
+        }
+
+        mBraze.setLastKnownLocation(
+                latitude,
+                longitude,
+                Double.isNaN(altitude) ? null : altitude,
+                Double.isNaN(accuracy) ? null : accuracy
+        );
+    }
+
+    private void setAdTrackingEnabled(JSONObject payload) throws JSONException {
+        String googleAdid = payload.getString(User.GOOGLE_ADID);
+        boolean adTrackingEnabled = payload.getBoolean(User.AD_TRACKING_ENABLED);
+
+        mBraze.setAdTrackingEnabled(googleAdid, !adTrackingEnabled);
+    }
+
     /**
      * Registers a ConfigOverrider object. Once all Initialization options have been added to the
      * BrazeConfig.Builder object, the Builder will be exposed in the onOverride method, so you
@@ -407,14 +700,1094 @@ public class BrazeRemoteCommand extends RemoteCommand {
         configOverriders.add(overrider);
     }
 
+    /**
+     * Registers a launch option that this library does not map by default. When the "initialize"
+     * command's payload contains a non-null value for the given key, the setter is called with the
+     * BrazeConfig.Builder and that value, before any {@link ConfigOverrider}s are applied.
+     * <p>
+     * Registering one of the keys in {@link BrazeConstants.Config} replaces the built-in mapping.
+     *
+     * @param key    - the launch option key, as sent in the "initialize" payload
+     * @param setter - applies the value to the BrazeConfig.Builder; see the factory methods on
+     *               {@link LaunchOptionSetter} for the standard type conversions
+     */
+    public void registerLaunchOption(String key, LaunchOptionSetter setter) {
+        if (BrazeUtils.isNullOrEmpty(key) || setter == null) {
+            return;
+        }
+
+        mLaunchOptions.register(key, setter);
+    }
+
+    /**
+     * Configures Braze synchronously, using the API key and launch options of the last "initialize"
+     * command successfully applied on a previous launch. Call this from
+     * {@code Application.onCreate}, after registering any {@link ConfigOverrider}s, so that sessions
+     * and in-app messages are available before the first remote command payload is received.
+     * <p>
+     * A subsequent "initialize" command will only reconfigure Braze if its configuration differs
+     * from the one applied here.
+     * <p>
+     * The configuration is only persisted once this method has been called, so it should be
+     * called on every launch, including the first; it returns false until an "initialize"
+     * command has been applied.
+     *
+     * @return true if Braze was configured from a previously persisted configuration
+     */
+    public boolean earlyConfigure() {
+        mEarlyConfigureEnabled = true;
+        ConfigSnapshot.Snapshot snapshot = getConfigSnapshot().load();
+        if (snapshot == null) {
+            return false;
+        }
+
+        try {
+            mBraze.initialize(snapshot.apiKey, snapshot.launchOptions, configOverriders);
+        } catch (Exception ex) {
+            BrazeLog.w("Unable to configure Braze from persisted configuration.", ex);
+            return false;
+        }
+        mSdkState.onLifecycleCommand(CommandType.INITIALIZE);
+        replayJournal();
+        return true;
+    }
+
+    /**
+     * Enables background initialization. Once enabled, the "initialize" command - building the
+     * BrazeConfig and calling Braze.configure - runs on a dedicated background thread instead of
+     * the thread dispatching the command, keeping it off of the main thread during app start.
+     * <p>
+     * Activity lifecycle events received until Braze has been configured are recorded and then
+     * replayed, on the main thread, to Braze's lifecycle listener so that sessions and in-app
+     * messages behave as if it had been registered from the start. Commands received while
+     * initialization is pending are queued behind it and executed, in order, once it completes.
+     * <p>
+     * This should be called from {@code Application.onCreate}, before any Activity is created.
+     * It cannot be disabled again.
+     */
+    public synchronized void enableBackgroundInitialization() {
+        if (mInitExecutor != null) {
+            return;
+        }
+
+        BrazeInstance instance = getBrazeInstance();
+        if (instance != null) {
+            instance.startLifecycleRecording();
+        }
+        mInitExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, INIT_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Deletes the persisted configuration used by {@link #earlyConfigure()}. It will be persisted
+     * again by the next successful "initialize" command.
+     */
+    public void clearPersistedConfiguration() {
+        getConfigSnapshot().clear();
+    }
+
+    /**
+     * Registers a handler for an app-defined command. Once registered, the command can be included
+     * in the Commands.COMMAND_KEY value of the payload alongside any of the standard Braze commands,
+     * and the handler will be called with the full payload.
+     * <p>
+     * Registering a handler using the name of one of the standard commands in
+     * {@link BrazeConstants.Commands} will replace the built-in implementation.
+     *
+     * @param name    - the command name; surrounding whitespace is ignored
+     * @param handler - the handler to execute when the command is received
+     */
+    public void registerCommand(String name, CommandHandler handler) {
+        if (BrazeUtils.isNullOrEmpty(name) || handler == null) {
+            return;
+        }
+
+        mCommands.register(name.trim(), handler);
+    }
+
+    /**
+     * Enables the command journal. While enabled, any data commands received before the
+     * "initialize" command, or after the "disablesdk" command, are written to an append-only
+     * journal file in the app's no-backup files directory instead of being sent to Braze. They are
+     * replayed, in order, once the SDK has been initialized and is enabled, and the journal is
+     * then truncated.
+     * <p>
+     * This sets the {@link RoutingPolicy} of the {@link SdkState#UNCONFIGURED} and
+     * {@link SdkState#DISABLED} states to {@link RoutingPolicy#BUFFER}; either can be changed
+     * afterwards using {@link #setRoutingPolicy(SdkState, RoutingPolicy)}.
+     * <p>
+     * If no lifecycle command has been executed yet, the SdkState is first restored from the Braze
+     * SDK: {@link SdkState#ACTIVE} if it has been configured using a braze.xml resource file, or
+     * {@link SdkState#DISABLED} if it was disabled on a previous launch. Otherwise use
+     * {@link #setInitialSdkState(SdkState)}.
+     *
+     * @param maxBytes     - maximum size of the journal file; commands received once it is full
+     *                     are dropped
+     * @param maxAgeMillis - journaled commands older than this are discarded rather than
+     *                     replayed; zero or less to replay regardless of age
+     * @return true if the journal was opened successfully
+     */
+    public boolean enableCommandJournal(long maxBytes, long maxAgeMillis) {
+        return enableCommandJournal(mApplication.getNoBackupFilesDir(), maxBytes, maxAgeMillis);
+    }
+
+    synchronized boolean enableCommandJournal(File directory, long maxBytes, long maxAgeMillis) {
+        try {
+            CommandJournal previous = mJournal;
+            mJournal = new CommandJournal(directory, maxBytes, maxAgeMillis);
+            if (previous != null) {
+                previous.close();
+            }
+            mSdkState.setPolicy(SdkState.UNCONFIGURED, RoutingPolicy.BUFFER);
+            mSdkState.setPolicy(SdkState.DISABLED, RoutingPolicy.BUFFER);
+            restoreSdkState();
+            replayJournal();
+            return true;
+        } catch (IOException | RuntimeException ex) {
+            BrazeLog.w("Unable to open command journal.", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Restores the SdkState from the Braze SDK, if it was configured or disabled other than by
+     * the lifecycle commands.
+     */
+    private void restoreSdkState() {
+        if (mSdkState.getState() != SdkState.UNCONFIGURED) {
+            return;
+        }
+
+        try {
+            SdkState detected = mBraze.detectSdkState();
+            if (detected != null && mSdkState.restore(detected)) {
+                BrazeLog.d("Restored SdkState: {}", detected);
+            }
+        } catch (Exception ex) {
+            BrazeLog.w("Unable to detect Braze SDK state.", ex);
+        }
+    }
+
+    /**
+     * Sets the lifecycle state of the Braze SDK for when it has been configured, or disabled,
+     * other than by the lifecycle commands - e.g. by calling Braze.configure directly from
+     * {@code Application.onCreate}. Has no effect once a lifecycle command has been executed.
+     * <p>
+     * Any journaled commands are replayed if the state is {@link SdkState#ACTIVE}.
+     *
+     * @param state - the current state of the Braze SDK
+     */
+    public void setInitialSdkState(SdkState state) {
+        if (state == null) {
+            return;
+        }
+
+        if (mSdkState.restore(state)) {
+            replayJournal();
+        }
+    }
+
+    /**
+     * Returns the current lifecycle state of the Braze SDK, as determined by the lifecycle
+     * commands executed so far.
+     *
+     * @return the current SdkState
+     */
+    public SdkState getSdkState() {
+        return mSdkState.getState();
+    }
+
+    /**
+     * Sets how data commands are handled while the SDK is in the given state. Lifecycle commands
+     * ("initialize", "enablesdk", "disablesdk" and "wipedata") and app-defined commands are always
+     * executed. The {@link SdkState#ACTIVE} state always forwards commands and cannot be changed.
+     *
+     * @param state  - the state to set the policy for
+     * @param policy - the policy to apply to data commands in that state
+     */
+    public void setRoutingPolicy(SdkState state, RoutingPolicy policy) {
+        if (state == null || policy == null) {
+            return;
+        }
+        if (state == SdkState.ACTIVE && policy != RoutingPolicy.FORWARD) {
+            BrazeLog.w("Commands are always forwarded while the SDK is active.");
+            return;
+        }
+
+        mSdkState.setPolicy(state, policy);
+    }
+
+    /**
+     * @param state - the state to look up
+     * @return the policy applied to data commands while the SDK is in the given state
+     */
+    public RoutingPolicy getRoutingPolicy(SdkState state) {
+        return mSdkState.getPolicy(state);
+    }
+
+    /**
+     * Returns the number of data commands that were dropped while the SDK was in the given state,
+     * either due to a {@link RoutingPolicy#DROP} policy, or because they could not be buffered.
+     *
+     * @param state - the state to look up
+     * @return the dropped command count
+     */
+    public long getDroppedCommandCount(SdkState state) {
+        return mSdkState.getDroppedCount(state);
+    }
+
+    /**
+     * Registers a listener to be notified of each SDK state transition. Listeners are called on
+     * the thread executing the lifecycle command.
+     *
+     * @param listener - the listener to add
+     */
+    public void addSdkStateListener(SdkStateListener listener) {
+        if (listener != null) {
+            mSdkState.addListener(listener);
+        }
+    }
+
+    /**
+     * @param listener - the listener to remove
+     */
+    public void removeSdkStateListener(SdkStateListener listener) {
+        mSdkState.removeListener(listener);
+    }
+
+    /**
+     * Enables asynchronous command execution. Once enabled, each payload is validated and the
+     * RemoteCommand response is sent immediately, with the Braze calls themselves being made, in
+     * order, on a dedicated background thread.
+     *
+     * @param queueCapacity  - maximum number of payloads waiting to be executed
+     * @param overflowPolicy - what to do with new payloads when the queue is full
+     */
+    public synchronized void enableAsyncExecution(int queueCapacity, OverflowPolicy overflowPolicy) {
+        CommandExecutor previous = mExecutor != null ? mExecutor : mRetiredExecutor;
+        // the new executor waits for the previous one to finish its queue before running anything.
+        mExecutor = new CommandExecutor(queueCapacity, overflowPolicy, previous);
+        mRetiredExecutor = null;
+        if (previous != null) {
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Disables asynchronous command execution; subsequent payloads are executed on the calling
+     * thread again. Payloads already queued will still be executed, before any subsequent payload.
+     */
+    public synchronized void disableAsyncExecution() {
+        CommandExecutor previous = mExecutor;
+        mExecutor = null;
+        if (previous != null) {
+            mRetiredExecutor = previous;
+            previous.shutdown();
+        }
+    }
+
+    /**
+     * Waits, before executing a payload on the calling thread, for any payloads still queued on an
+     * executor that has since been disabled.
+     */
+    private void awaitRetiredExecutor() {
+        final CommandExecutor retired = mRetiredExecutor;
+        if (retired != null && retired.awaitTermination(0)) {
+            synchronized (this) {
+                if (mRetiredExecutor == retired) {
+                    mRetiredExecutor = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of payloads dropped by the asynchronous executor's overflow policy.
+     *
+     * @return the dropped payload count, or 0 if asynchronous execution is not enabled
+     */
+    public long getAsyncDroppedCount() {
+        CommandExecutor executor = mExecutor;
+        return executor != null ? executor.getDroppedCount() : 0;
+    }
+
+    /**
+     * Enables or disables suppression of unchanged standard user attributes (first name, last
+     * name, email etc). When enabled, the last value written for each attribute is remembered for
+     * the current user and identical values are not sent to Braze again, saving data points.
+     * Remembered values are discarded when the user changes or data is wiped.
+     *
+     * @param enabled   - true to suppress unchanged values
+     * @param ttlMillis - maximum age of a remembered value before it is sent again regardless;
+     *                  zero or less to only send values when they change
+     */
+    public void setUserAttributeDiffingEnabled(boolean enabled, long ttlMillis) {
+        BrazeInstance instance = getBrazeInstance();
+        if (instance != null) {
+            instance.setAttributeCacheEnabled(enabled, ttlMillis);
+        }
+    }
+
+    /**
+     * Returns the number of standard user attribute writes that were skipped because the value was
+     * unchanged.
+     *
+     * @return the suppressed write count
+     */
+    public long getSuppressedAttributeWriteCount() {
+        BrazeInstance instance = getBrazeInstance();
+        return instance != null ? instance.getSuppressedAttributeWriteCount() : 0;
+    }
+
+    /**
+     * Returns the number of standard user attribute writes that were sent to Braze while attribute
+     * diffing was enabled.
+     *
+     * @return the forwarded write count
+     */
+    public long getForwardedAttributeWriteCount() {
+        BrazeInstance instance = getBrazeInstance();
+        return instance != null ? instance.getForwardedAttributeWriteCount() : 0;
+    }
+
+    /**
+     * Enables aggregation of custom attribute increments. Increments received for the same
+     * attribute within the window are summed and sent to Braze as a single increment once the
+     * window closes. Pending increments are also sent on {@link #flushPendingWrites()}, on the
+     * "flush" command, when the user changes and when the app moves to the background. An increment
+     * that Braze fails to apply is retried on the next of these, unless the user has changed; see
+     * {@link #getDroppedIncrementCount()}.
+     *
+     * @param windowMillis - the aggregation window; zero or less disables aggregation, sending any
+     *                     pending increments immediately
+     */
+    public void setIncrementAggregationWindow(long windowMillis) {
+        BrazeInstance instance = getBrazeInstance();
+        if (instance != null) {
+            instance.setIncrementAggregationWindow(windowMillis);
+        }
+    }
+
+    /**
+     * Enables coalescing of user attribute writes, from the "userattribute" and
+     * "setcustomattribute" commands. Writes received within the window are held, and only the last
+     * value written to each attribute is sent to Braze once the window closes. Pending writes are
+     * also sent on {@link #flushPendingWrites()}, on the "flush" command, before the user changes,
+     * before attributes are unset or data is wiped, and when the app moves to the background. A
+     * pending custom attribute value is sent before that attribute is incremented.
+     *
+     * @param windowMillis - the coalescing window; zero or less disables coalescing, sending any
+     *                     pending writes immediately
+     */
+    public void setAttributeCoalescingWindow(long windowMillis) {
+        BrazeInstance instance = getBrazeInstance();
+        if (instance != null) {
+            instance.setAttributeCoalescingWindow(windowMillis);
+        }
+    }
+
+    /**
+     * Returns the number of user attribute writes that were superseded by a later write to the
+     * same attribute within the coalescing window, rather than being sent to Braze.
+     *
+     * @return the collapsed attribute write count
+     */
+    public long getCollapsedAttributeWriteCount() {
+        BrazeInstance instance = getBrazeInstance();
+        return instance != null ? instance.getCollapsedAttributeWriteCount() : 0;
+    }
+
+    /**
+     * Synchronously sends any writes that are currently being held back for coalescing or
+     * aggregation. Call this before the process may be terminated, to ensure no data is lost.
+     */
+    public void flushPendingWrites() {
+        BrazeInstance instance = getBrazeInstance();
+        if (instance != null) {
+            instance.flushPendingWrites();
+        }
+    }
+
+    /**
+     * Returns the number of custom attribute increments that were merged with others, rather than
+     * being sent to Braze individually.
+     *
+     * @return the collapsed increment count
+     */
+    public long getCollapsedIncrementCount() {
+        BrazeInstance instance = getBrazeInstance();
+        return instance != null ? instance.getCollapsedIncrementCount() : 0;
+    }
+
+    /**
+     * Returns the number of custom attribute increments that Braze failed to apply, were retried,
+     * and were still unsent when the user changed, so were discarded.
+     *
+     * @return the dropped increment count
+     */
+    public long getDroppedIncrementCount() {
+        BrazeInstance instance = getBrazeInstance();
+        return instance != null ? instance.getDroppedIncrementCount() : 0;
+    }
+
+    /**
+     * Enables filtering of the "setlastknownlocation" command, so that updates with near-identical
+     * coordinates are not all sent to Braze. An update is sent if it is the first, or if both the
+     * minimum interval and minimum displacement have been exceeded since the last update sent.
+     *
+     * @param minDisplacementMeters      - minimum distance from the last location sent
+     * @param minIntervalMillis          - minimum time since the last location sent
+     * @param acceptAccuracyImprovements - true to always send a location reporting a better
+     *                                   accuracy than the last location sent
+     * @param quantisationDecimals       - number of decimal places to round coordinates to before
+     *                                   filtering and sending, or a negative number to disable
+     *                                   rounding
+     */
+    public void setLocationFilter(double minDisplacementMeters, long minIntervalMillis, boolean acceptAccuracyImprovements, int quantisationDecimals) {
+        mLocationFilter = new LocationFilter(minDisplacementMeters, minIntervalMillis, acceptAccuracyImprovements, quantisationDecimals);
+    }
+
+    /**
+     * Removes any location filter, so that every "setlastknownlocation" command is sent to Braze.
+     */
+    public void clearLocationFilter() {
+        mLocationFilter = null;
+    }
+
+    /**
+     * Returns the number of location updates that were dropped by the current location filter.
+     *
+     * @return the suppressed location update count, or 0 if no filter is set
+     */
+    public long getSuppressedLocationUpdateCount() {
+        LocationFilter filter = mLocationFilter;
+        return filter != null ? filter.getSuppressedCount() : 0;
+    }
+
+    /**
+     * Returns the number of payloads whose Commands.COMMAND_KEY value was dispatched using an
+     * already compiled command plan.
+     *
+     * @return the command plan cache hit count
+     */
+    public long getCommandPlanCacheHitCount() {
+        return mCommandPlans.getHitCount();
+    }
+
+    /**
+     * Returns the number of payloads whose Commands.COMMAND_KEY value had to be split and compiled
+     * into a new command plan.
+     *
+     * @return the command plan cache miss count
+     */
+    public long getCommandPlanCacheMissCount() {
+        return mCommandPlans.getMissCount();
+    }
+
+    /**
+     * Sets the minimum level of messages logged by all Braze remote commands. Messages below this
+     * level are neither formatted nor written; the default is {@link LogLevel#WARN}.
+     *
+     * @param level - the minimum level to log, or {@link LogLevel#NONE} to disable logging
+     */
+    public static void setLogLevel(LogLevel level) {
+        if (level != null) {
+            BrazeLog.setLevel(level);
+        }
+    }
+
+    /**
+     * @return the minimum level of messages currently logged
+     */
+    public static LogLevel getLogLevel() {
+        return BrazeLog.getLevel();
+    }
+
+    /**
+     * Keeps the most recent log messages in memory, in addition to writing them to Logcat, so that
+     * they can be retrieved with {@link #getLogBuffer()}; e.g. to attach to a bug report. Only
+     * messages at or above the current {@link LogLevel} are kept. Any existing buffer is replaced.
+     *
+     * @param capacity - the number of messages to keep
+     */
+    public static void enableLogBuffer(int capacity) {
+        BrazeLog.enableBuffer(capacity);
+    }
+
+    /**
+     * Discards the in-memory log buffer, and stops buffering messages.
+     */
+    public static void disableLogBuffer() {
+        BrazeLog.disableBuffer();
+    }
+
+    /**
+     * @return the buffered log messages, oldest first; or an empty list if the log buffer is not
+     * enabled
+     */
+    public static List<String> getLogBuffer() {
+        return BrazeLog.getBuffer();
+    }
+
+    /**
+     * Adds an interceptor to be called before and after each command is executed. Interceptors
+     * are called, on the thread executing the commands, before each command in the order they
+     * were added and after each command in the reverse order. Adding the same interceptor again
+     * has no effect.
+     * <p>
+     * Commands buffered in the command journal are intercepted when they are received; they are
+     * not intercepted again when the journal is replayed.
+     *
+     * @param interceptor - the interceptor to add
+     */
+    public void addCommandInterceptor(CommandInterceptor interceptor) {
+        if (interceptor != null) {
+            mInterceptors.add(interceptor);
+        }
+    }
+
+    /**
+     * @param interceptor - the interceptor to remove
+     */
+    public void removeCommandInterceptor(CommandInterceptor interceptor) {
+        mInterceptors.remove(interceptor);
+    }
+
+    /**
+     * Returns the number of times a command has failed with the given kind of error, since this
+     * remote command was created or {@link #resetErrors()} was last called. Failures of all
+     * app-defined commands are counted together.
+     *
+     * @param commandName - the built-in command name, e.g. "logcustomevent", or the name of any
+     *                    app-defined command
+     * @param errorType   - the kind of error
+     * @return the error count
+     */
+    public long getErrorCount(String commandName, ErrorType errorType) {
+        if (errorType == null) {
+            return 0;
+        }
+        return mErrors.getCount(CommandType.fromName(commandName), errorType);
+    }
+
+    /**
+     * @return the total number of failed commands, of any kind
+     */
+    public long getTotalErrorCount() {
+        return mErrors.getTotalCount();
+    }
+
+    /**
+     * Returns the most recent command failures, oldest first. Only the last 32 failures are kept.
+     *
+     * @return the recent failures
+     */
+    public List<CommandFailure> getRecentFailures() {
+        return mErrors.getRecent();
+    }
+
+    /**
+     * Clears all error counts and recent failures.
+     */
+    public void resetErrors() {
+        mErrors.reset();
+    }
+
+    /**
+     * Returns the latencies of the commands executed since this remote command was created, or
+     * since {@link #resetMetrics()} was last called.
+     * <p>
+     * Each command's handler is timed individually, as is each invocation of the remote command
+     * as a whole. When asynchronous execution is enabled, an invocation only covers validating and
+     * queuing the payload, as the commands themselves are executed later.
+     *
+     * @return a snapshot of the current latency metrics
+     */
+    public MetricsSnapshot getMetricsSnapshot() {
+        return mMetrics.snapshot();
+    }
+
+    /**
+     * Clears all recorded command latencies.
+     */
+    public void resetMetrics() {
+        mMetrics.reset();
+    }
+
+    /**
+     * Interface for the execution of a single command. Implementations are registered with
+     * {@link #registerCommand(String, CommandHandler)} and are called with the full payload for
+     * each received command of that name. Any Exception thrown is logged and does not prevent
+     * subsequent commands in the same payload from executing.
+     */
+    @FunctionalInterface
+    public interface CommandHandler {
+        void handle(JSONObject payload) throws Exception;
+    }
+
+    /**
+     * Observes, and optionally alters, each command before and after it is executed. Implementations
+     * are registered with {@link #addCommandInterceptor(CommandInterceptor)}; any Exception thrown
+     * is logged and does not prevent the command, or other interceptors, from running.
+     */
+    public interface CommandInterceptor {
+        /**
+         * Called before a command is executed. The command may be skipped, rerouted to a different
+         * command name, or given a different payload.
+         *
+         * @param command - the command about to be executed
+         */
+        default void beforeCommand(InterceptedCommand command) {
+        }
+
+        /**
+         * Called once a command has been executed, or has not been executed for the given reason.
+         *
+         * @param command      - the command, with any changes made by the interceptors
+         * @param outcome      - what happened to the command
+         * @param error        - the Exception thrown by the command, if it {@link CommandOutcome#FAILED}
+         * @param elapsedNanos - the time taken to execute the command, or 0 if it was not executed
+         */
+        default void afterCommand(InterceptedCommand command, CommandOutcome outcome, Exception error, long elapsedNanos) {
+        }
+    }
+
+    /**
+     * A single command, as seen by a {@link CommandInterceptor}.
+     * <p>
+     * The payload is shared by every command listed in the same RemoteCommand invocation. To change
+     * the payload for this command only, set a modified copy with {@link #setPayload(JSONObject)}
+     * rather than modifying it in place.
+     */
+    public static final class InterceptedCommand {
+        private String mName;
+        private JSONObject mPayload;
+        private boolean mSkipped;
+
+        InterceptedCommand(String name, JSONObject payload) {
+            mName = name;
+            mPayload = payload;
+        }
+
+        /**
+         * @return the name of the command to execute
+         */
+        public String getName() {
+            return mName;
+        }
+
+        /**
+         * @return the payload the command will be executed with
+         */
+        public JSONObject getPayload() {
+            return mPayload;
+        }
+
+        /**
+         * @return true if an interceptor has skipped this command
+         */
+        public boolean isSkipped() {
+            return mSkipped;
+        }
+
+        /**
+         * Executes a different command in place of this one.
+         *
+         * @param name - the command name, e.g. "logcustomevent", or the name of a registered
+         *             custom command
+         */
+        public void reroute(String name) {
+            if (BrazeUtils.isNullOrEmpty(name)) {
+                throw new IllegalArgumentException("name must not be empty");
+            }
+            mName = name.trim();
+        }
+
+        /**
+         * Executes the command with a different payload.
+         *
+         * @param payload - the payload to use
+         */
+        public void setPayload(JSONObject payload) {
+            if (payload == null) {
+                throw new IllegalArgumentException("payload must not be null");
+            }
+            mPayload = payload;
+        }
+
+        /**
+         * Prevents the command from being executed. No further interceptors are called before the
+         * command, though all are still notified after it.
+         */
+        public void skip() {
+            mSkipped = true;
+        }
+    }
+
+    /**
+     * What happened to a command, as reported to
+     * {@link CommandInterceptor#afterCommand(InterceptedCommand, CommandOutcome, Exception, long)}.
+     */
+    public enum CommandOutcome {
+        /**
+         * The command was executed successfully.
+         */
+        EXECUTED,
+        /**
+         * The command was executed and threw an Exception.
+         */
+        FAILED,
+        /**
+         * The command was skipped by an interceptor.
+         */
+        SKIPPED,
+        /**
+         * No handler is registered for the command name.
+         */
+        UNHANDLED,
+        /**
+         * The command was not executed as its payload is missing a required key.
+         */
+        REJECTED,
+        /**
+         * The command was written to the command journal, to be executed once the SDK is active.
+         */
+        BUFFERED,
+        /**
+         * The command was discarded due to the current {@link RoutingPolicy}.
+         */
+        DROPPED
+    }
+
+    /**
+     * Log levels, as set by {@link #setLogLevel(LogLevel)}.
+     */
+    public enum LogLevel {
+        DEBUG(Log.DEBUG),
+        WARN(Log.WARN),
+        NONE(Integer.MAX_VALUE);
+
+        final int priority;
+
+        LogLevel(int priority) {
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * The kinds of error counted by {@link #getErrorCount(String, ErrorType)}.
+     */
+    public enum ErrorType {
+        /**
+         * The payload did not contain a key the command requires; the command was not executed.
+         */
+        MISSING_KEY,
+        /**
+         * A value in the payload was of the wrong type or format.
+         */
+        INVALID_VALUE,
+        /**
+         * The command threw any other Exception, e.g. from the Braze SDK or an app-defined handler.
+         */
+        EXCEPTION
+    }
+
+    /**
+     * A single failed command, as returned by {@link #getRecentFailures()}.
+     */
+    public static final class CommandFailure {
+        private final long mTimestamp;
+        private final String mCommandName;
+        private final ErrorType mErrorType;
+        private final String mExceptionClass;
+        private final String mDetail;
+        private final List<String> mPayloadKeys;
+
+        CommandFailure(long timestamp, String commandName, ErrorType errorType, String exceptionClass, String detail, List<String> payloadKeys) {
+            mTimestamp = timestamp;
+            mCommandName = commandName;
+            mErrorType = errorType;
+            mExceptionClass = exceptionClass;
+            mDetail = detail;
+            mPayloadKeys = payloadKeys;
+        }
+
+        /**
+         * @return the time of the failure, in milliseconds since the epoch
+         */
+        public long getTimestamp() {
+            return mTimestamp;
+        }
+
+        public String getCommandName() {
+            return mCommandName;
+        }
+
+        public ErrorType getErrorType() {
+            return mErrorType;
+        }
+
+        /**
+         * @return the class name of the Exception thrown, or null if the command was rejected
+         * without being executed
+         */
+        public String getExceptionClass() {
+            return mExceptionClass;
+        }
+
+        /**
+         * @return the missing key, for {@link ErrorType#MISSING_KEY}; otherwise the Exception message
+         */
+        public String getDetail() {
+            return mDetail;
+        }
+
+        /**
+         * @return the names of the keys present in the payload; values are not retained
+         */
+        public List<String> getPayloadKeys() {
+            return mPayloadKeys;
+        }
+
+        @Override
+        public String toString() {
+            return mCommandName + " " + mErrorType
+                    + (mExceptionClass != null ? " (" + mExceptionClass + ")" : "")
+                    + ": " + mDetail + ", keys=" + mPayloadKeys;
+        }
+    }
+
+    /**
+     * Latency percentiles, in nanoseconds, of a single command or of whole invocations. Percentiles
+     * are accurate to within 12.5%; the maximum is exact.
+     */
+    public static final class LatencySummary {
+        private final long mCount;
+        private final long mP50;
+        private final long mP90;
+        private final long mP99;
+        private final long mMax;
+
+        LatencySummary(long count, long p50, long p90, long p99, long max) {
+            mCount = count;
+            mP50 = p50;
+            mP90 = p90;
+            mP99 = p99;
+            mMax = max;
+        }
+
+        /**
+         * @return the number of latencies recorded
+         */
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getP50Nanos() {
+            return mP50;
+        }
+
+        public long getP90Nanos() {
+            return mP90;
+        }
+
+        public long getP99Nanos() {
+            return mP99;
+        }
+
+        public long getMaxNanos() {
+            return mMax;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + mCount + ", p50=" + mP50 + "ns, p90=" + mP90 + "ns, p99=" + mP99
+                    + "ns, max=" + mMax + "ns";
+        }
+    }
+
+    /**
+     * Command latencies, as returned by {@link #getMetricsSnapshot()}.
+     */
+    public static final class MetricsSnapshot {
+        private final Map<String, LatencySummary> mCommands;
+        private final LatencySummary mCustomCommands;
+        private final LatencySummary mInvocations;
+
+        MetricsSnapshot(Map<String, LatencySummary> commands, LatencySummary customCommands, LatencySummary invocations) {
+            mCommands = commands;
+            mCustomCommands = customCommands;
+            mInvocations = invocations;
+        }
+
+        /**
+         * @return the latencies of each built-in command that has been executed, keyed by command
+         * name
+         */
+        public Map<String, LatencySummary> getCommands() {
+            return mCommands;
+        }
+
+        /**
+         * @param commandName - the built-in command name, e.g. "logcustomevent"
+         * @return the latencies of the command, or null if it has not been executed
+         */
+        public LatencySummary getCommand(String commandName) {
+            return mCommands.get(commandName);
+        }
+
+        /**
+         * @return the combined latencies of all commands registered with
+         * {@link BrazeRemoteCommand#registerCommand(String, CommandHandler)} that are not built-in
+         * commands
+         */
+        public LatencySummary getCustomCommands() {
+            return mCustomCommands;
+        }
+
+        /**
+         * @return the latencies of each invocation of the remote command
+         */
+        public LatencySummary getInvocations() {
+            return mInvocations;
+        }
+    }
+
+    /**
+     * Determines how new payloads are handled when asynchronous execution is enabled and the
+     * queue of pending payloads is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Discards the oldest pending payload to make room for the new one.
+         */
+        DROP_OLDEST,
+        /**
+         * Discards the new payload.
+         */
+        DROP_NEWEST,
+        /**
+         * Executes the pending payloads, followed by the new one, on the calling thread.
+         */
+        CALLER_RUNS
+    }
+
+    /**
+     * Lifecycle state of the Braze SDK, driven by the "initialize", "enablesdk", "disablesdk" and
+     * "wipedata" commands.
+     */
+    public enum SdkState {
+        /**
+         * No "initialize" command has been executed yet. The SDK may still have been configured
+         * by the app, e.g. via a braze.xml resource file.
+         */
+        UNCONFIGURED,
+        /**
+         * The SDK has been initialized and is enabled.
+         */
+        ACTIVE,
+        /**
+         * The SDK has been disabled with "disablesdk"; a subsequent "enablesdk" makes it active.
+         */
+        DISABLED,
+        /**
+         * SDK data has been wiped with "wipedata"; a subsequent "enablesdk" makes it active.
+         */
+        WIPED
+    }
+
+    /**
+     * Determines how data commands are handled in a given {@link SdkState}.
+     */
+    public enum RoutingPolicy {
+        /**
+         * Executes the command immediately.
+         */
+        FORWARD,
+        /**
+         * Writes the command to the command journal, to be executed once the SDK is active. The
+         * command is dropped if the journal is not enabled or is full.
+         */
+        BUFFER,
+        /**
+         * Discards the command.
+         */
+        DROP
+    }
+
+    /**
+     * Listener for SDK state transitions.
+     */
+    @FunctionalInterface
+    public interface SdkStateListener {
+        void onSdkStateChanged(SdkState previous, SdkState current);
+    }
+
+    /**
+     * Applies a single launch option value to the BrazeConfig.Builder. Implementations are
+     * registered with {@link #registerLaunchOption(String, LaunchOptionSetter)}; any Exception
+     * thrown is logged and the remaining launch options are still applied.
+     */
+    @FunctionalInterface
+    public interface LaunchOptionSetter {
+        /**
+         * @param builder - the builder being configured
+         * @param value   - the raw, non-null, launch option value; a String, Boolean, Number,
+         *                JSONArray or JSONObject
+         */
+        void apply(BrazeConfig.Builder builder, Object value) throws Exception;
+
+        /**
+         * @return a setter for a String option, converting the value as JSONObject.optString does
+         */
+        static LaunchOptionSetter forString(BiConsumer<BrazeConfig.Builder, String> setter) {
+            return (builder, value) -> setter.accept(builder, LaunchOptionTable.toString(value));
+        }
+
+        /**
+         * @return a setter for a boolean option, converting the value as JSONObject.optBoolean does
+         */
+        static LaunchOptionSetter forBoolean(BiConsumer<BrazeConfig.Builder, Boolean> setter) {
+            return (builder, value) -> setter.accept(builder, LaunchOptionTable.toBoolean(value));
+        }
+
+        /**
+         * @return a setter for an integer option, converting the value as JSONObject.optInt does
+         */
+        static LaunchOptionSetter forInteger(BiConsumer<BrazeConfig.Builder, Integer> setter) {
+            return (builder, value) -> setter.accept(builder, LaunchOptionTable.toInteger(value));
+        }
+
+        /**
+         * @return a setter for an option naming a class; resolved classes are cached
+         */
+        static LaunchOptionSetter forClass(BiConsumer<BrazeConfig.Builder, Class<?>> setter) {
+            return (builder, value) -> setter.accept(builder, LaunchOptionTable.toClass(value));
+        }
+    }
+
     /**
      * Interface to allow users to inject additional configuration items that may not be present
      * in the data supplied back from the RemoteCommand. This method is called after all LaunchOption
      * variables have been added to the BrazeConfig.Builder object, so be aware that this can
      * overwrite any configuration properties that have already been setup.
+     * <p>
+     * Repeated "initialize" commands only reconfigure Braze when the effective configuration has
+     * changed. If the overrides applied can change at runtime, then return a different value from
+     * {@link #getConfigVersion()} whenever they do.
      */
     @FunctionalInterface
     public interface ConfigOverrider {
         void onOverride(BrazeConfig.Builder b);
+
+        /**
+         * @return a value that changes whenever the overrides applied by {@link #onOverride} change
+         */
+        default long getConfigVersion() {
+            return 0;
+        }
     }
 }
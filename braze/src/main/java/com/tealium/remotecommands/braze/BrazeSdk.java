@@ -0,0 +1,124 @@
+package com.tealium.remotecommands.braze;
+
+import android.app.Activity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+import com.braze.configuration.BrazeConfig;
+import com.braze.enums.Gender;
+import com.braze.enums.Month;
+import com.braze.enums.NotificationSubscriptionType;
+import com.braze.models.outgoing.BrazeProperties;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+
+/**
+ * The calls made on the Braze SDK by the default {@link BrazeCommand} implementation. Each method
+ * mirrors the Braze or BrazeUser method of the same name.
+ * <p>
+ * The default implementation calls through to the Braze SDK. An alternative implementation can be
+ * supplied, via the braze-testing artifact, to run the full command implementation - including
+ * user caching, attribute coalescing and increment aggregation - without the SDK.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+public interface BrazeSdk {
+
+    void configure(@NonNull BrazeConfig config);
+
+    boolean isDisabled();
+
+    void enableSdk();
+
+    void disableSdk();
+
+    void wipeData();
+
+    void openSession(@NonNull Activity activity);
+
+    void changeUser(@NonNull String userId);
+
+    void changeUser(@NonNull String userId, @NonNull String sdkAuthSignature);
+
+    void setGoogleAdvertisingId(@NonNull String googleAdvertisingId, boolean limitAdTrackingEnabled);
+
+    void logCustomEvent(@NonNull String eventName, @Nullable BrazeProperties properties);
+
+    void logPurchase(@NonNull String productId, @Nullable String currencyCode, @NonNull BigDecimal price, int quantity, @Nullable BrazeProperties properties);
+
+    void requestImmediateDataFlush();
+
+    void setSdkAuthenticationSignature(@NonNull String signature);
+
+    /**
+     * @return the current user, or null if it is not available
+     */
+    @Nullable
+    User getCurrentUser();
+
+    /**
+     * The calls made on a BrazeUser.
+     */
+    interface User {
+
+        void addAlias(@NonNull String alias, @NonNull String label);
+
+        void setFirstName(@NonNull String firstName);
+
+        void setLastName(@NonNull String lastName);
+
+        void setEmail(@NonNull String email);
+
+        void setLanguage(@NonNull String language);
+
+        void setGender(@NonNull Gender gender);
+
+        void setHomeCity(@NonNull String homeCity);
+
+        void setCountry(@NonNull String country);
+
+        void setPhoneNumber(@NonNull String phoneNumber);
+
+        void setDateOfBirth(int year, @NonNull Month month, int day);
+
+        void setCustomUserAttribute(@NonNull String key, long value);
+
+        void setCustomUserAttribute(@NonNull String key, int value);
+
+        void setCustomUserAttribute(@NonNull String key, double value);
+
+        void setCustomUserAttribute(@NonNull String key, float value);
+
+        void setCustomUserAttribute(@NonNull String key, boolean value);
+
+        void setCustomUserAttribute(@NonNull String key, @NonNull String value);
+
+        void setCustomUserAttribute(@NonNull String key, @NonNull JSONArray value);
+
+        void setCustomUserAttribute(@NonNull String key, @NonNull JSONObject value);
+
+        void unsetCustomUserAttribute(@NonNull String key);
+
+        void incrementCustomUserAttribute(@NonNull String key, int incrementValue);
+
+        void setCustomAttributeArray(@NonNull String key, @Nullable String[] values);
+
+        void addToCustomAttributeArray(@NonNull String key, @NonNull String value);
+
+        void removeFromCustomAttributeArray(@NonNull String key, @NonNull String value);
+
+        void setPushNotificationSubscriptionType(@NonNull NotificationSubscriptionType type);
+
+        void setEmailNotificationSubscriptionType(@NonNull NotificationSubscriptionType type);
+
+        void setLastKnownLocation(double latitude, double longitude, @Nullable Double altitude, @Nullable Double accuracy);
+
+        void addToSubscriptionGroup(@NonNull String groupId);
+
+        void removeFromSubscriptionGroup(@NonNull String groupId);
+    }
+}
@@ -1,37 +1,23 @@
 package com.tealium.remotecommands.braze;
 
-import android.util.Log;
-
-import com.braze.enums.BrazeDateFormat;
 import com.braze.enums.Month;
 import com.braze.enums.Gender;
 import com.braze.models.outgoing.BrazeProperties;
-import com.braze.support.DateTimeUtils;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.math.BigDecimal;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.Locale;
 
 class BrazeUtils {
 
     /**
-     * The Format of any Dates that were sent into the WebView as a native java.util.Date, will be
-     * returned to the RemoteCommand in the following date format. This is a static property to
-     * easily help conversion back into a native Date type.
-     */
-    public static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("E MMM dd HH:mm:ss z yyyy");
-
-    /**
-     * Standard ISO 8601 date format to use when attempting to parse dates.
+     * Shared, thread-safe, parser for any date values received in the payload.
      */
-    public static final SimpleDateFormat ISO_8601_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.ROOT);
+    private static final BrazeDateParser DATE_PARSER = new BrazeDateParser();
 
     /**
      * At the time of writing, the Android SDK will stringify values in a HashMap such that
@@ -49,33 +35,37 @@ class BrazeUtils {
      */
     public static BrazeProperties addCustomProperty(String key, Object data, BrazeProperties properties) {
         if (properties == null) {
-            Log.d(BrazeConstants.TAG, "Creating new  BrazeProperties");
+            BrazeLog.d("Creating new BrazeProperties");
             properties = new BrazeProperties();
         }
 
         if (data instanceof String) {
-            try {
-                properties = addCustomProperty(key, Integer.parseInt((String) data), properties);
-                return properties;
-            } catch (NumberFormatException ignored) {
-
-            }
-            try {
-                properties = addCustomProperty(key, Double.parseDouble((String) data), properties);
-                return properties;
-            } catch (NumberFormatException ignored) {
-
-            }
-            Date date;
-            if ((date = BrazeUtils.parseDate((String) data)) != null) {
-                properties = addCustomProperty(key, date, properties);
-                return properties;
-            }
-            if (((String) data).equalsIgnoreCase("true") || ((String) data).equalsIgnoreCase("false")) {
-                properties = addCustomProperty(key, Boolean.parseBoolean((String) data), properties);
-                return properties;
-            } else {
-                properties.addProperty(key, (String) data);
+            final String string = (String) data;
+            switch (classifyString(string)) {
+                case INTEGER:
+                    properties.addProperty(key, (Integer) Integer.parseInt(string));
+                    break;
+                case DOUBLE:
+                    properties.addProperty(key, (Double) Double.parseDouble(string));
+                    break;
+                case DATE_SHAPE:
+                    Date date;
+                    if ((date = BrazeUtils.parseDate(string)) != null) {
+                        properties.addProperty(key, date);
+                    } else {
+                        properties.addProperty(key, string);
+                    }
+                    break;
+                case BOOLEAN:
+                    properties.addProperty(key, (Boolean) Boolean.parseBoolean(string));
+                    break;
+                case UNKNOWN:
+                    properties = addCustomPropertyByParsing(key, string, properties);
+                    break;
+                case STRING:
+                default:
+                    properties.addProperty(key, string);
+                    break;
             }
 
         } else if (data instanceof Integer) {
@@ -91,6 +81,199 @@ class BrazeUtils {
         return properties;
     }
 
+    /**
+     * The possible shapes of a String value, as determined by {@link #classifyString(String)}.
+     */
+    enum StringShape {
+        /**
+         * Parses successfully using {@link Integer#parseInt(String)}
+         */
+        INTEGER,
+        /**
+         * Parses successfully using {@link Double#parseDouble(String)}, including integers that
+         * are too large for an int.
+         */
+        DOUBLE,
+        /**
+         * Contains the digits and separators required by at least one supported date format, so
+         * may parse as a date.
+         */
+        DATE_SHAPE,
+        /**
+         * "true" or "false", case-insensitive
+         */
+        BOOLEAN,
+        /**
+         * Cannot be any of the above
+         */
+        STRING,
+        /**
+         * Uses characters, such as non-ASCII digits or hexadecimal floating point, that are not
+         * classified and should be parsed the slow way.
+         */
+        UNKNOWN
+    }
+
+    /**
+     * Single-pass classification of a String value into the type it would be converted to by
+     * {@link #addCustomProperty(String, Object, BrazeProperties)}. No parsing is attempted and no
+     * objects are allocated, so plain strings are rejected without any exceptions being thrown.
+     *
+     * @param string - the value to classify
+     * @return the shape of the value
+     */
+    static StringShape classifyString(String string) {
+        final int length = string.length();
+        if (length == 0) {
+            return StringShape.STRING;
+        }
+
+        // Integer.parseInt: optional sign followed by digits only.
+        int i = 0;
+        final char first = string.charAt(0);
+        if (first == '-' || first == '+') {
+            i = 1;
+        }
+        if (i < length) {
+            int j = i;
+            long value = 0;
+            boolean overflow = false;
+            for (; j < length; j++) {
+                final char c = string.charAt(j);
+                if (c < '0' || c > '9') break;
+                if (!overflow) {
+                    value = value * 10 + (c - '0');
+                    overflow = value > (long) Integer.MAX_VALUE + 1;
+                }
+            }
+            if (j == length) {
+                if (overflow || (first != '-' && value > Integer.MAX_VALUE)) {
+                    return StringShape.DOUBLE;
+                }
+                return StringShape.INTEGER;
+            }
+        }
+
+        switch (classifyFloatingPoint(string)) {
+            case 1:
+                return StringShape.DOUBLE;
+            case -1:
+                return StringShape.UNKNOWN;
+        }
+
+        boolean hasDigit = false;
+        boolean hasSeparator = false;
+        for (i = 0; i < length; i++) {
+            final char c = string.charAt(i);
+            if (c >= '0' && c <= '9') {
+                hasDigit = true;
+            } else if (c == '-' || c == ':') {
+                hasSeparator = true;
+            } else if (c > 0x7F && Character.isDigit(c)) {
+                return StringShape.UNKNOWN;
+            }
+        }
+        if (hasDigit && hasSeparator) {
+            return StringShape.DATE_SHAPE;
+        }
+
+        if (string.equalsIgnoreCase("true") || string.equalsIgnoreCase("false")) {
+            return StringShape.BOOLEAN;
+        }
+
+        return StringShape.STRING;
+    }
+
+    /**
+     * Validates the String against the decimal grammar accepted by
+     * {@link Double#parseDouble(String)}.
+     *
+     * @return 1 if the value is a valid decimal double, 0 if it is not, or -1 if it uses a form
+     * (hexadecimal) that is not validated here.
+     */
+    private static int classifyFloatingPoint(String string) {
+        // Double.parseDouble trims whitespace first.
+        int start = 0;
+        int end = string.length();
+        while (start < end && string.charAt(start) <= ' ') start++;
+        while (end > start && string.charAt(end - 1) <= ' ') end--;
+        if (start == end) return 0;
+
+        int i = start;
+        char c = string.charAt(i);
+        if (c == '-' || c == '+') {
+            if (++i == end) return 0;
+            c = string.charAt(i);
+        }
+
+        if (c == 'N') {
+            return string.regionMatches(i, "NaN", 0, 3) && i + 3 == end ? 1 : 0;
+        }
+        if (c == 'I') {
+            return string.regionMatches(i, "Infinity", 0, 8) && i + 8 == end ? 1 : 0;
+        }
+        if (c == '0' && i + 1 < end && (string.charAt(i + 1) == 'x' || string.charAt(i + 1) == 'X')) {
+            return -1;
+        }
+
+        int digits = 0;
+        while (i < end && (c = string.charAt(i)) >= '0' && c <= '9') {
+            i++;
+            digits++;
+        }
+        if (i < end && string.charAt(i) == '.') {
+            i++;
+            while (i < end && (c = string.charAt(i)) >= '0' && c <= '9') {
+                i++;
+                digits++;
+            }
+        }
+        if (digits == 0) return 0;
+
+        if (i < end && ((c = string.charAt(i)) == 'e' || c == 'E')) {
+            i++;
+            if (i < end && ((c = string.charAt(i)) == '-' || c == '+')) i++;
+            int exponentDigits = 0;
+            while (i < end && (c = string.charAt(i)) >= '0' && c <= '9') {
+                i++;
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) return 0;
+        }
+
+        if (i < end && ((c = string.charAt(i)) == 'f' || c == 'F' || c == 'd' || c == 'D')) {
+            i++;
+        }
+
+        return i == end ? 1 : 0;
+    }
+
+    /**
+     * Original, exception driven, conversion of a String value; only used for values that
+     * {@link #classifyString(String)} cannot classify.
+     */
+    private static BrazeProperties addCustomPropertyByParsing(String key, String data, BrazeProperties properties) {
+        try {
+            return addCustomProperty(key, Integer.parseInt(data), properties);
+        } catch (NumberFormatException ignored) {
+
+        }
+        try {
+            return addCustomProperty(key, Double.parseDouble(data), properties);
+        } catch (NumberFormatException ignored) {
+
+        }
+        Date date;
+        if ((date = BrazeUtils.parseDate(data)) != null) {
+            return addCustomProperty(key, date, properties);
+        }
+        if (data.equalsIgnoreCase("true") || data.equalsIgnoreCase("false")) {
+            return addCustomProperty(key, Boolean.parseBoolean(data), properties);
+        }
+        properties.addProperty(key, data);
+        return properties;
+    }
+
     /**
      * Short-hand method for calling addCustomProperty, generating a new  BrazeProperties object at
      * the same time.
@@ -107,25 +290,37 @@ class BrazeUtils {
      * Helper method to translate a JSONObject of key-value pairs into an  BrazeProperties object.
      * The values in the JSONObject should only be supported types for the  BrazeProperties class,
      * which at the time of writing is only String, Integer, Double, Date and Boolean
+     * <p>
+     * Values that are already a native Integer, Double or Boolean are added as-is; only the
+     * remaining values are coerced. A value that cannot be added is logged and skipped, without
+     * affecting the other properties.
      *
      * @param customProperties - JSONObject of Key-Value pairs.
      * @return  BrazeProperties containing the Key-Value pairs supplied
      */
     public static BrazeProperties extractCustomProperties(JSONObject customProperties) {
         BrazeProperties props = new BrazeProperties();
-        if (customProperties != null) {
+        if (customProperties == null) {
+            return props;
+        }
+
+        // add the provided custom properties into the new payload object
+        Iterator<String> iterator = customProperties.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
             try {
-                // add the provided custom properties into the new payload object
-                Iterator<String> iterator = customProperties.keys();
-                while (iterator.hasNext()) {
-                    String key = iterator.next();
-                    props = BrazeUtils.addCustomProperty(key, customProperties.get(key), props);
+                Object value = customProperties.opt(key);
+                if (value instanceof Integer) {
+                    props.addProperty(key, (Integer) value);
+                } else if (value instanceof Double) {
+                    props.addProperty(key, (Double) value);
+                } else if (value instanceof Boolean) {
+                    props.addProperty(key, (Boolean) value);
+                } else {
+                    props = BrazeUtils.addCustomProperty(key, value, props);
                 }
-
-            } catch (JSONException jex) {
-                Log.w(BrazeConstants.TAG, "Failed to extract custom_attributes from JSON", jex);
-            } catch (NullPointerException npe) {
-                Log.w(BrazeConstants.TAG, "Object is null.", npe);
+            } catch (RuntimeException ex) {
+                BrazeLog.w("Failed to extract custom property: {}", key, ex);
             }
         }
         return props;
@@ -249,7 +444,8 @@ class BrazeUtils {
     }
 
     /**
-     * Helper to convert a JSONArray to an array of Strings
+     * Helper to convert a JSONArray to an array of Strings. No longer used by the "logpurchase"
+     * command, which converts its arrays with {@link PurchaseBatch#fromJson}.
      *
      * @param jsonArray
      * @return
@@ -269,7 +465,8 @@ class BrazeUtils {
     }
 
     /**
-     * Helper to convert a JSONArray to an array of Integers
+     * Helper to convert a JSONArray to an array of Integers. No longer used by the "logpurchase"
+     * command, which converts its arrays with {@link PurchaseBatch#fromJson}.
      *
      * @param jsonArray
      * @return
@@ -289,7 +486,9 @@ class BrazeUtils {
     }
 
     /**
-     * Helper to convert a JSONArray to an array of BigDecimals
+     * Helper to convert a JSONArray to an array of BigDecimals. Values are converted exactly from
+     * their decimal representation; see {@link PurchaseBatch#toPrice(Object)}. No longer used by
+     * the "logpurchase" command, which converts its arrays with {@link PurchaseBatch#fromJson}.
      *
      * @param jsonArray
      * @return
@@ -301,7 +500,7 @@ class BrazeUtils {
         } else {
             returnData = new BigDecimal[jsonArray.length()];
             for (int i = 0; i < jsonArray.length(); i++) {
-                returnData[i] = new BigDecimal(jsonArray.optDouble(i, 0));
+                returnData[i] = PurchaseBatch.toPrice(jsonArray.opt(i));
             }
         }
 
@@ -309,7 +508,9 @@ class BrazeUtils {
     }
 
     /**
-     * Helper to convert a JSONArray to an array of JSONObjects
+     * Helper to convert a JSONArray to an array of JSONObjects. Elements that are already
+     * JSONObjects are returned as-is, rather than copied; string elements are parsed, and any other
+     * element is replaced by an empty JSONObject.
      *
      * @param jsonArray
      * @return
@@ -321,10 +522,16 @@ class BrazeUtils {
         } else {
             returnData = new JSONObject[jsonArray.length()];
             for (int i = 0; i < jsonArray.length(); i++) {
-                try {
-                    String jsonString = jsonArray.optString(i, "{}");
-                    returnData[i] = new JSONObject(jsonString);
-                } catch (JSONException jsEx) {
+                Object value = jsonArray.opt(i);
+                if (value instanceof JSONObject) {
+                    returnData[i] = (JSONObject) value;
+                } else if (value instanceof String) {
+                    try {
+                        returnData[i] = new JSONObject((String) value);
+                    } catch (JSONException jsEx) {
+                        returnData[i] = new JSONObject();
+                    }
+                } else {
                     returnData[i] = new JSONObject();
                 }
             }
@@ -333,6 +540,35 @@ class BrazeUtils {
         return returnData;
     }
 
+    /**
+     * Determines whether two JSONObjects hold the same properties. Nested JSONObjects and
+     * JSONArrays are only considered the same if they are the same instance.
+     *
+     * @return true if both are null, or both have equal values for the same keys
+     */
+    static boolean haveSameProperties(JSONObject first, JSONObject second) {
+        if (first == second) {
+            return true;
+        }
+        if (first == null || second == null || first.length() != second.length()) {
+            return false;
+        }
+
+        Iterator<String> iterator = first.keys();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            Object value = first.opt(key);
+            Object other = second.opt(key);
+            if (value == other) continue;
+            if (value == null || other == null
+                    || value instanceof JSONObject || value instanceof JSONArray
+                    || !value.equals(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Helper to determine if the JSONArray is null, or has no entries.
      *
@@ -363,34 +599,14 @@ class BrazeUtils {
         return string == null || string.isEmpty();
     }
 
+    /**
+     * Attempts to parse the given String as a Date, using the WebView date format, ISO 8601 and
+     * then each of the Braze date formats in turn.
+     *
+     * @param dateString - the value to parse
+     * @return The parsed Date, or null if the value is not in a supported date format
+     */
     public static Date parseDate(String dateString) {
-        Date date = null;
-        try {
-            // try with simple date format (in case of webview support)
-            date = BrazeUtils.DATE_FORMAT.parse(dateString);
-            if (date != null) return date;
-        } catch (ParseException ignore) {
-        }
-
-        try {
-            // try with ISO8601 date format
-            date = BrazeUtils.ISO_8601_DATE_FORMAT.parse(dateString);
-            if (date != null) return date;
-        } catch (ParseException ignore) {
-        }
-
-        // try Braze date formats
-        for (BrazeDateFormat dateFormat : BrazeDateFormat.values()) {
-            try {
-                // try with ISO8601 date format
-                date = DateTimeUtils.parseDate(dateString, dateFormat);
-            } catch (Exception ignore) {
-                /* Method does not specify ParseException, but does throw during tests. */
-            }
-
-            if (date != null) break;
-        }
-
-        return date;
+        return DATE_PARSER.parse(dateString);
     }
 }
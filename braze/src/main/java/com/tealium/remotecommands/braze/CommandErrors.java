@@ -0,0 +1,140 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.CommandFailure;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.ErrorType;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Counts command failures by command and {@link ErrorType}, and keeps the most recent failures in
+ * a fixed-size ring buffer.
+ * <p>
+ * Counters are a single AtomicLongArray indexed by {@link CommandType#ordinal()}, with one extra
+ * row shared by all app-defined commands. The ring buffer is lock-free; under heavy contention a
+ * failure may be overwritten before it is read, but the counters are always exact.
+ */
+final class CommandErrors {
+
+    static final int DEFAULT_HISTORY_SIZE = 32;
+
+    private static final ErrorType[] ERROR_TYPES = ErrorType.values();
+    private static final int CUSTOM_ROW = CommandType.count();
+
+    private final AtomicLongArray mCounts = new AtomicLongArray((CommandType.count() + 1) * ERROR_TYPES.length);
+    private final AtomicReferenceArray<CommandFailure> mHistory;
+    private final AtomicLong mSequence = new AtomicLong();
+
+    CommandErrors() {
+        this(DEFAULT_HISTORY_SIZE);
+    }
+
+    CommandErrors(int historySize) {
+        if (historySize <= 0) {
+            throw new IllegalArgumentException("historySize must be greater than 0");
+        }
+        mHistory = new AtomicReferenceArray<>(historySize);
+    }
+
+    /**
+     * Records a failed command.
+     *
+     * @param command - the command name
+     * @param type    - the command opcode, or null for an app-defined command
+     * @param error   - the kind of failure
+     * @param detail  - the missing key, or the Exception message
+     * @param ex      - the Exception thrown, if any
+     * @param payload - the payload the command was executed with
+     * @return the number of times this command has now failed with this kind of failure
+     */
+    long record(String command, CommandType type, ErrorType error, String detail, Exception ex, JSONObject payload) {
+        final long count = mCounts.incrementAndGet(index(type, error));
+        final CommandFailure failure = new CommandFailure(System.currentTimeMillis(), command, error,
+                ex != null ? ex.getClass().getName() : null, detail, keys(payload));
+        mHistory.set((int) (mSequence.getAndIncrement() % mHistory.length()), failure);
+        return count;
+    }
+
+    /**
+     * @param type  - the command opcode, or null for app-defined commands
+     * @param error - the kind of failure
+     * @return the number of failures recorded
+     */
+    long getCount(CommandType type, ErrorType error) {
+        return mCounts.get(index(type, error));
+    }
+
+    /**
+     * @return the total number of failures recorded, for all commands
+     */
+    long getTotalCount() {
+        long total = 0;
+        for (int i = 0; i < mCounts.length(); i++) {
+            total += mCounts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * @return the most recent failures, oldest first
+     */
+    List<CommandFailure> getRecent() {
+        final int size = mHistory.length();
+        final long sequence = mSequence.get();
+        final List<CommandFailure> failures = new ArrayList<>(size);
+        for (long i = Math.max(0, sequence - size); i < sequence; i++) {
+            CommandFailure failure = mHistory.get((int) (i % size));
+            if (failure != null) {
+                failures.add(failure);
+            }
+        }
+        return Collections.unmodifiableList(failures);
+    }
+
+    void reset() {
+        for (int i = 0; i < mCounts.length(); i++) {
+            mCounts.set(i, 0);
+        }
+        for (int i = 0; i < mHistory.length(); i++) {
+            mHistory.set(i, null);
+        }
+    }
+
+    /**
+     * Classifies an Exception thrown by a command handler: JSON and conversion errors indicate a
+     * value of the wrong type or format in the payload; anything else is treated as a failure of
+     * the handler or SDK itself.
+     */
+    static ErrorType classify(Exception ex) {
+        return ex instanceof JSONException
+                || ex instanceof ClassCastException
+                || ex instanceof IllegalArgumentException // includes NumberFormatException
+                ? ErrorType.INVALID_VALUE
+                : ErrorType.EXCEPTION;
+    }
+
+    private static int index(CommandType type, ErrorType error) {
+        final int row = type != null ? type.ordinal() : CUSTOM_ROW;
+        return row * ERROR_TYPES.length + error.ordinal();
+    }
+
+    private static List<String> keys(JSONObject payload) {
+        if (payload == null) {
+            return Collections.emptyList();
+        }
+        final List<String> keys = new ArrayList<>(payload.length());
+        final Iterator<String> iterator = payload.keys();
+        while (iterator.hasNext()) {
+            keys.add(iterator.next());
+        }
+        return Collections.unmodifiableList(keys);
+    }
+}
@@ -0,0 +1,232 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Single-consumer executor with a bounded queue, used to move command execution off of the
+ * RemoteCommands dispatch thread.
+ * <p>
+ * Tasks are always executed in the order in which they were accepted, including when the
+ * {@link BrazeRemoteCommand.OverflowPolicy#CALLER_RUNS} policy is in effect: in that case the
+ * calling thread first drains and runs anything already queued, and then runs its own task.
+ * <p>
+ * An executor may be created to replace a previous one; it will not run any task until the
+ * previous executor has finished executing every task it accepted.
+ */
+class CommandExecutor {
+
+    static final String THREAD_NAME = "Tealium-Braze-Worker";
+
+    private final Object mQueueLock = new Object();
+    private final Object mRunLock = new Object();
+    private final ArrayDeque<Runnable> mQueue;
+    private final int mCapacity;
+    private final BrazeRemoteCommand.OverflowPolicy mOverflowPolicy;
+    private final Thread mWorker;
+
+    private final AtomicLong mDropped = new AtomicLong();
+    private final AtomicLong mCallerRuns = new AtomicLong();
+
+    private boolean mShutdown = false;
+    private volatile CommandExecutor mPredecessor;
+
+    CommandExecutor(int capacity, BrazeRemoteCommand.OverflowPolicy overflowPolicy) {
+        this(capacity, overflowPolicy, null);
+    }
+
+    /**
+     * @param predecessor - an executor being replaced by this one, whose tasks must all complete
+     *                    before this executor runs any of its own; may be null
+     */
+    CommandExecutor(int capacity, BrazeRemoteCommand.OverflowPolicy overflowPolicy, CommandExecutor predecessor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be greater than 0");
+        }
+
+        mCapacity = capacity;
+        mOverflowPolicy = overflowPolicy != null
+                ? overflowPolicy
+                : BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS;
+        mQueue = new ArrayDeque<>(capacity);
+        mPredecessor = predecessor;
+
+        mWorker = new Thread(this::runWorker, THREAD_NAME);
+        mWorker.setDaemon(true);
+        mWorker.start();
+    }
+
+    /**
+     * Queues a task for execution on the worker thread, applying the overflow policy if the queue
+     * is already at capacity.
+     *
+     * @param task - the task to execute
+     * @return true if the task was, or will be, executed; false if it was dropped
+     */
+    boolean submit(Runnable task) {
+        synchronized (mQueueLock) {
+            if (mShutdown) {
+                mDropped.incrementAndGet();
+                return false;
+            }
+
+            if (mQueue.size() < mCapacity) {
+                mQueue.addLast(task);
+                mQueueLock.notifyAll();
+                return true;
+            }
+
+            switch (mOverflowPolicy) {
+                case DROP_OLDEST:
+                    mQueue.pollFirst();
+                    mDropped.incrementAndGet();
+                    mQueue.addLast(task);
+                    mQueueLock.notifyAll();
+                    return true;
+                case DROP_NEWEST:
+                    mDropped.incrementAndGet();
+                    return false;
+                case CALLER_RUNS:
+                default:
+                    break;
+            }
+        }
+
+        // The queue may have been drained since it was found to be full, so whether the caller
+        // runs the task is decided again under the run lock, which is then held until the task
+        // has run; the worker cannot take any task in the meantime, and only those tasks queued
+        // before this one are run ahead of it.
+        synchronized (mRunLock) {
+            final Runnable[] queued;
+            synchronized (mQueueLock) {
+                if (mShutdown) {
+                    mDropped.incrementAndGet();
+                    return false;
+                }
+                if (mQueue.size() < mCapacity) {
+                    mQueue.addLast(task);
+                    mQueueLock.notifyAll();
+                    return true;
+                }
+                queued = mQueue.toArray(new Runnable[0]);
+                mQueue.clear();
+            }
+
+            mCallerRuns.incrementAndGet();
+            awaitPredecessor();
+            for (Runnable queuedTask : queued) {
+                runSafely(queuedTask);
+            }
+            runSafely(task);
+        }
+        return true;
+    }
+
+    /**
+     * Stops accepting new tasks. Any tasks already queued will still be executed, in order, before
+     * the worker thread exits.
+     */
+    void shutdown() {
+        synchronized (mQueueLock) {
+            mShutdown = true;
+            mQueueLock.notifyAll();
+        }
+    }
+
+    /**
+     * Waits for every task accepted before {@link #shutdown()} to finish executing, whether on the
+     * worker thread or on a calling thread. Returns immediately if called from the worker thread.
+     *
+     * @param timeoutMillis - the maximum time to wait; zero to wait indefinitely
+     * @return true if all tasks have finished executing
+     */
+    boolean awaitTermination(long timeoutMillis) {
+        if (Thread.currentThread() == mWorker) {
+            return false;
+        }
+
+        try {
+            mWorker.join(timeoutMillis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        if (mWorker.isAlive()) {
+            return false;
+        }
+
+        // wait for any caller that is still running tasks under the caller-runs policy.
+        synchronized (mRunLock) {
+            return true;
+        }
+    }
+
+    /**
+     * @return the number of tasks currently waiting to be executed
+     */
+    int getQueueSize() {
+        synchronized (mQueueLock) {
+            return mQueue.size();
+        }
+    }
+
+    long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    long getCallerRunsCount() {
+        return mCallerRuns.get();
+    }
+
+    private Runnable poll() {
+        synchronized (mQueueLock) {
+            return mQueue.pollFirst();
+        }
+    }
+
+    private void awaitPredecessor() {
+        final CommandExecutor predecessor = mPredecessor;
+        if (predecessor != null && Thread.currentThread() != predecessor.mWorker) {
+            while (!predecessor.awaitTermination(TimeUnit.SECONDS.toMillis(1))) {
+                if (Thread.currentThread().isInterrupted()) return;
+                BrazeLog.d("Waiting for previous executor to finish.");
+            }
+            mPredecessor = null;
+        }
+    }
+
+    private void runWorker() {
+        awaitPredecessor();
+        while (true) {
+            synchronized (mQueueLock) {
+                while (mQueue.isEmpty()) {
+                    if (mShutdown) return;
+                    try {
+                        mQueueLock.wait();
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+
+            // Polling under the run lock keeps ordering intact should a caller be draining the
+            // queue at the same time.
+            synchronized (mRunLock) {
+                Runnable task = poll();
+                if (task != null) {
+                    runSafely(task);
+                }
+            }
+        }
+    }
+
+    private static void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (Exception ex) {
+            BrazeLog.w("Error executing queued command.", ex);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.CommandInterceptor;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.CommandOutcome;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.InterceptedCommand;
+
+import java.util.Arrays;
+
+/**
+ * The registered {@link CommandInterceptor}s, held in a copy-on-write array: adding or removing an
+ * interceptor replaces the array, so reading the chain on the command execution path takes no
+ * locks and does not allocate.
+ * <p>
+ * Interceptors are called before a command in the order they were added, and after it in the
+ * reverse order. Any Exception thrown by an interceptor is logged and the remaining interceptors
+ * are still called.
+ */
+final class CommandInterceptorChain {
+
+    private static final CommandInterceptor[] EMPTY = new CommandInterceptor[0];
+
+    private volatile CommandInterceptor[] mInterceptors = EMPTY;
+
+    /**
+     * Adds an interceptor to the end of the chain, unless it has already been added.
+     */
+    synchronized void add(CommandInterceptor interceptor) {
+        final CommandInterceptor[] current = mInterceptors;
+        if (indexOf(current, interceptor) >= 0) {
+            return;
+        }
+        final CommandInterceptor[] interceptors = Arrays.copyOf(current, current.length + 1);
+        interceptors[current.length] = interceptor;
+        mInterceptors = interceptors;
+    }
+
+    /**
+     * @return true if the interceptor was removed
+     */
+    synchronized boolean remove(CommandInterceptor interceptor) {
+        final CommandInterceptor[] current = mInterceptors;
+        final int index = indexOf(current, interceptor);
+        if (index < 0) {
+            return false;
+        }
+        final CommandInterceptor[] interceptors = new CommandInterceptor[current.length - 1];
+        System.arraycopy(current, 0, interceptors, 0, index);
+        System.arraycopy(current, index + 1, interceptors, index, current.length - index - 1);
+        mInterceptors = interceptors;
+        return true;
+    }
+
+    /**
+     * @return the current interceptors; the returned array must not be modified
+     */
+    CommandInterceptor[] get() {
+        return mInterceptors;
+    }
+
+    /**
+     * Calls {@link CommandInterceptor#beforeCommand} on each interceptor, in order, stopping once
+     * the command has been skipped.
+     */
+    static void before(CommandInterceptor[] interceptors, InterceptedCommand command) {
+        for (CommandInterceptor interceptor : interceptors) {
+            try {
+                interceptor.beforeCommand(command);
+            } catch (Exception ex) {
+                BrazeLog.w("Error in CommandInterceptor before command: {}", command.getName(), ex);
+            }
+            if (command.isSkipped()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Calls {@link CommandInterceptor#afterCommand} on each interceptor, in reverse order.
+     *
+     * @param command - the intercepted command, or null if the command was not intercepted
+     */
+    static void after(CommandInterceptor[] interceptors, InterceptedCommand command, CommandOutcome outcome, Exception error, long elapsedNanos) {
+        if (command == null) {
+            return;
+        }
+        for (int i = interceptors.length - 1; i >= 0; i--) {
+            try {
+                interceptors[i].afterCommand(command, outcome, error, elapsedNanos);
+            } catch (Exception ex) {
+                BrazeLog.w("Error in CommandInterceptor after command: {}", command.getName(), ex);
+            }
+        }
+    }
+
+    private static int indexOf(CommandInterceptor[] interceptors, CommandInterceptor interceptor) {
+        for (int i = 0; i < interceptors.length; i++) {
+            if (interceptors[i] == interceptor) return i;
+        }
+        return -1;
+    }
+}
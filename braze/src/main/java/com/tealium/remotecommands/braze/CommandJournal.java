@@ -0,0 +1,345 @@
+package com.tealium.remotecommands.braze;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped, journal of commands that could not be executed at the time they
+ * were received, e.g. because Braze had not yet been initialized or the SDK was disabled.
+ * <p>
+ * The journal file has a fixed maximum size. It starts with a 12 byte header (magic, version and
+ * replay cursor) followed by a sequence of frames:
+ * <pre>
+ *   int    length      - number of bytes in the body; 0 marks the end of the journal
+ *   int    crc32       - checksum of the timestamp and body
+ *   long   timestamp   - wall clock time the command was received, in milliseconds
+ *   short  nameLength  - number of bytes of the command name
+ *   byte[] name        - UTF-8 command name
+ *   byte[] payload     - UTF-8 payload JSON; the remainder of the body
+ * </pre>
+ * The length of each frame is written last, so a partially written frame is never read back. The
+ * mapped buffer is forced to disk in groups, once {@code groupCommitSize} frames or
+ * {@code groupCommitMillis} have elapsed since the last sync, rather than after every append.
+ * <p>
+ * The replay cursor is the offset of the first frame not yet replayed. It is advanced as each
+ * replayed command completes, so should the process die part way through a replay, only the
+ * command being replayed at the time is replayed again on the next launch. The journal is
+ * truncated once every frame has been replayed.
+ * <p>
+ * This class only depends on the JVM and can be tested using any temporary directory.
+ */
+class CommandJournal {
+
+    static final String FILE_NAME = "tealium-braze-journal";
+    static final long DEFAULT_MAX_BYTES = 256 * 1024;
+    static final long DEFAULT_MAX_AGE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    static final int DEFAULT_GROUP_COMMIT_SIZE = 16;
+    static final long DEFAULT_GROUP_COMMIT_MILLIS = 1000;
+
+    private static final int MAGIC = 0x54424A31; // "TBJ1"
+    private static final int VERSION = 2;
+    private static final int CURSOR_OFFSET = 8;
+    private static final int HEADER_SIZE = 12;
+    private static final int FRAME_HEADER_SIZE = 4 + 4 + 8;
+
+    /**
+     * Receives each journaled command on replay.
+     */
+    interface Replayer {
+        void replay(String command, String payload);
+    }
+
+    private final File mFile;
+    private final long mMaxAgeMillis;
+    private final int mGroupCommitSize;
+    private final long mGroupCommitMillis;
+    private final RandomAccessFile mRandomAccessFile;
+    private final MappedByteBuffer mBuffer;
+    private final CRC32 mCrc = new CRC32();
+
+    private int mPosition;
+    private int mCursor;
+    private int mCount;
+    private boolean mReplaying;
+    private int mUnsynced;
+    private long mLastSyncMillis;
+    private long mDropped;
+
+    CommandJournal(File directory, long maxBytes, long maxAgeMillis) throws IOException {
+        this(directory, maxBytes, maxAgeMillis, DEFAULT_GROUP_COMMIT_SIZE, DEFAULT_GROUP_COMMIT_MILLIS);
+    }
+
+    CommandJournal(File directory, long maxBytes, long maxAgeMillis, int groupCommitSize, long groupCommitMillis) throws IOException {
+        if (maxBytes <= HEADER_SIZE + FRAME_HEADER_SIZE || maxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxBytes out of range: " + maxBytes);
+        }
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create journal directory: " + directory);
+        }
+
+        mFile = new File(directory, FILE_NAME);
+        mMaxAgeMillis = maxAgeMillis;
+        mGroupCommitSize = Math.max(1, groupCommitSize);
+        mGroupCommitMillis = groupCommitMillis;
+
+        mRandomAccessFile = new RandomAccessFile(mFile, "rw");
+        try {
+            final long existingLength = mRandomAccessFile.length();
+            mBuffer = mRandomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, maxBytes);
+
+            if (existingLength < HEADER_SIZE || mBuffer.getInt(0) != MAGIC || mBuffer.getInt(4) != VERSION) {
+                reset(mBuffer.capacity());
+            } else {
+                recover();
+            }
+        } catch (IOException | RuntimeException ex) {
+            try {
+                mRandomAccessFile.close();
+            } catch (IOException ignore) {
+            }
+            throw ex;
+        }
+        mLastSyncMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Appends a command to the journal.
+     *
+     * @param command - the command name
+     * @param payload - the full payload JSON
+     * @return true if the command was written; false if the journal is full
+     */
+    synchronized boolean append(String command, String payload) {
+        final byte[] name = command.getBytes(StandardCharsets.UTF_8);
+        final byte[] body = payload.getBytes(StandardCharsets.UTF_8);
+        final int length = 2 + name.length + body.length;
+        if (name.length > Short.MAX_VALUE
+                || (long) mPosition + FRAME_HEADER_SIZE + length + 4 > mBuffer.capacity()) {
+            mDropped++;
+            return false;
+        }
+
+        final long timestamp = System.currentTimeMillis();
+        final int start = mPosition + FRAME_HEADER_SIZE;
+        mBuffer.putShort(start, (short) name.length);
+        putBytes(start + 2, name);
+        putBytes(start + 2 + name.length, body);
+        mBuffer.putLong(mPosition + 8, timestamp);
+        mBuffer.putInt(mPosition + 4, checksum(mPosition + 8, 8 + length));
+        // Length is written last; a frame is only visible once complete.
+        mBuffer.putInt(mPosition, length);
+
+        mPosition += FRAME_HEADER_SIZE + length;
+        mCount++;
+        mUnsynced++;
+        if (mUnsynced >= mGroupCommitSize || timestamp - mLastSyncMillis >= mGroupCommitMillis) {
+            sync();
+        }
+        return true;
+    }
+
+    /**
+     * Forces any unsynced frames to disk.
+     */
+    synchronized void sync() {
+        if (mUnsynced > 0) {
+            mBuffer.force();
+            mUnsynced = 0;
+        }
+        mLastSyncMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Replays every journaled command, in the order they were appended, skipping any older than
+     * the maximum age, and then truncates the journal. Commands appended during the replay are
+     * replayed too.
+     * <p>
+     * The journal is not locked while the replayer is called, so it may append to the journal.
+     * An Exception thrown by the replayer is logged and the command is treated as replayed. Only
+     * one replay runs at a time; a call made while another is running returns immediately.
+     *
+     * @param replayer - receives each command
+     * @return the number of commands replayed
+     */
+    int replay(Replayer replayer) {
+        synchronized (this) {
+            if (mReplaying || mCount == 0) {
+                return 0;
+            }
+            mReplaying = true;
+        }
+
+        final long oldest = mMaxAgeMillis > 0 ? System.currentTimeMillis() - mMaxAgeMillis : Long.MIN_VALUE;
+        int replayed = 0;
+        try {
+            List<Frame> frames;
+            while (!(frames = pending()).isEmpty()) {
+                for (Frame frame : frames) {
+                    if (frame.timestamp >= oldest) {
+                        try {
+                            replayer.replay(frame.command, frame.payload);
+                        } catch (RuntimeException ex) {
+                            BrazeLog.w("Error replaying journaled command: {}", frame.command, ex);
+                        }
+                        replayed++;
+                    }
+                    complete(frame.end);
+                }
+            }
+        } finally {
+            synchronized (this) {
+                mReplaying = false;
+                if (mCount == 0) {
+                    reset(mPosition);
+                }
+            }
+        }
+        return replayed;
+    }
+
+    /**
+     * @return the number of commands currently in the journal
+     */
+    synchronized int size() {
+        return mCount;
+    }
+
+    /**
+     * @return the number of commands that could not be journaled as it was full
+     */
+    synchronized long getDroppedCount() {
+        return mDropped;
+    }
+
+    /**
+     * Syncs and releases the underlying file.
+     */
+    synchronized void close() throws IOException {
+        sync();
+        mRandomAccessFile.close();
+    }
+
+    /**
+     * Scans existing frames, stopping at the first empty or corrupt frame. Frames before the
+     * replay cursor have already been replayed and are not counted.
+     */
+    private void recover() {
+        final int cursor = mBuffer.getInt(CURSOR_OFFSET);
+        int position = HEADER_SIZE;
+        int firstPending = -1;
+        int count = 0;
+        while (position + FRAME_HEADER_SIZE <= mBuffer.capacity()) {
+            final int length = mBuffer.getInt(position);
+            if (length <= 2 || position + FRAME_HEADER_SIZE + length > mBuffer.capacity()) break;
+            if (checksum(position + 8, 8 + length) != mBuffer.getInt(position + 4)) break;
+
+            if (position >= cursor) {
+                if (firstPending < 0) firstPending = position;
+                count++;
+            }
+            position += FRAME_HEADER_SIZE + length;
+        }
+
+        // anything after a torn or corrupt frame cannot be trusted.
+        for (int i = position; i < Math.min(position + FRAME_HEADER_SIZE, mBuffer.capacity()); i++) {
+            mBuffer.put(i, (byte) 0);
+        }
+        mPosition = position;
+        mCursor = firstPending >= 0 ? firstPending : position;
+        mCount = count;
+        if (mCount == 0 && mPosition > HEADER_SIZE) {
+            reset(mPosition);
+        }
+    }
+
+    /**
+     * @return a copy of the frames from the replay cursor onwards
+     */
+    private synchronized List<Frame> pending() {
+        final List<Frame> frames = new ArrayList<>(mCount);
+        int position = mCursor;
+        while (position < mPosition) {
+            final int length = mBuffer.getInt(position);
+            final long timestamp = mBuffer.getLong(position + 8);
+            final int start = position + FRAME_HEADER_SIZE;
+            final int nameLength = mBuffer.getShort(start);
+            position += FRAME_HEADER_SIZE + length;
+            frames.add(new Frame(
+                    getString(start + 2, nameLength),
+                    getString(start + 2 + nameLength, length - 2 - nameLength),
+                    timestamp,
+                    position));
+        }
+        return frames;
+    }
+
+    /**
+     * Advances the replay cursor past a replayed frame.
+     */
+    private synchronized void complete(int end) {
+        mCursor = end;
+        mBuffer.putInt(CURSOR_OFFSET, end);
+        mCount--;
+        mUnsynced++;
+        if (mUnsynced >= mGroupCommitSize || System.currentTimeMillis() - mLastSyncMillis >= mGroupCommitMillis) {
+            sync();
+        }
+    }
+
+    private void reset(int usedBytes) {
+        for (int i = HEADER_SIZE; i < usedBytes; i++) {
+            mBuffer.put(i, (byte) 0);
+        }
+        mBuffer.putInt(0, MAGIC);
+        mBuffer.putInt(4, VERSION);
+        mBuffer.putInt(CURSOR_OFFSET, HEADER_SIZE);
+        mBuffer.force();
+        mPosition = HEADER_SIZE;
+        mCursor = HEADER_SIZE;
+        mCount = 0;
+        mUnsynced = 0;
+    }
+
+    private int checksum(int offset, int length) {
+        mCrc.reset();
+        for (int i = offset; i < offset + length; i++) {
+            mCrc.update(mBuffer.get(i));
+        }
+        return (int) mCrc.getValue();
+    }
+
+    private void putBytes(int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            mBuffer.put(offset + i, bytes[i]);
+        }
+    }
+
+    private String getString(int offset, int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = mBuffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Frame {
+        final String command;
+        final String payload;
+        final long timestamp;
+        final int end;
+
+        Frame(String command, String payload, long timestamp, int end) {
+            this.command = command;
+            this.payload = payload;
+            this.timestamp = timestamp;
+            this.end = end;
+        }
+    }
+}
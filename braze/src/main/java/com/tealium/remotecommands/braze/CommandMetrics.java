@@ -0,0 +1,83 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.LatencySummary;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.MetricsSnapshot;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latency histograms for command execution: one per {@link CommandType}, one shared by all
+ * app-defined commands, and one for each invocation of the remote command as a whole. All
+ * histograms are allocated up front, so recording never allocates.
+ */
+final class CommandMetrics {
+
+    private final LatencyHistogram[] mCommands = new LatencyHistogram[CommandType.count()];
+    private final LatencyHistogram mCustomCommands = new LatencyHistogram();
+    private final LatencyHistogram mInvocations = new LatencyHistogram();
+
+    CommandMetrics() {
+        for (int i = 0; i < mCommands.length; i++) {
+            mCommands[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the time taken by a single command handler.
+     *
+     * @param type  - the command opcode, or null for an app-defined command
+     * @param nanos - the elapsed time
+     */
+    void recordCommand(CommandType type, long nanos) {
+        (type != null ? mCommands[type.ordinal()] : mCustomCommands).record(nanos);
+    }
+
+    /**
+     * Records the time taken by a single invocation of the remote command.
+     *
+     * @param nanos - the elapsed time
+     */
+    void recordInvocation(long nanos) {
+        mInvocations.record(nanos);
+    }
+
+    /**
+     * @return the latency summaries of every command executed since the last reset
+     */
+    MetricsSnapshot snapshot() {
+        final Map<String, LatencySummary> commands = new LinkedHashMap<>();
+        for (CommandType type : CommandType.values()) {
+            LatencySummary summary = summarize(mCommands[type.ordinal()]);
+            if (summary.getCount() > 0) {
+                commands.put(type.commandName, summary);
+            }
+        }
+        return new MetricsSnapshot(
+                Collections.unmodifiableMap(commands),
+                summarize(mCustomCommands),
+                summarize(mInvocations));
+    }
+
+    /**
+     * Clears every histogram.
+     */
+    void reset() {
+        for (LatencyHistogram histogram : mCommands) {
+            histogram.reset();
+        }
+        mCustomCommands.reset();
+        mInvocations.reset();
+    }
+
+    private static LatencySummary summarize(LatencyHistogram histogram) {
+        final LatencyHistogram.Summary summary = histogram.summarize();
+        return new LatencySummary(
+                summary.count,
+                summary.percentile(50),
+                summary.percentile(90),
+                summary.percentile(99),
+                summary.max);
+    }
+}
@@ -0,0 +1,77 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.Arrays;
+
+/**
+ * An immutable, pre-compiled list of the commands contained in a single Commands.COMMAND_KEY
+ * value. Command names are split on {@link BrazeConstants#SEPARATOR}, trimmed and de-duplicated
+ * once at compile time; each entry holds both the trimmed name and its {@link CommandType}.
+ * <p>
+ * Names that do not match a known Braze command are retained with a {@code null} type.
+ */
+final class CommandPlan {
+
+    static final CommandPlan EMPTY = new CommandPlan(new String[0], new CommandType[0]);
+
+    final String[] names;
+    final CommandType[] types;
+
+    private CommandPlan(String[] names, CommandType[] types) {
+        this.names = names;
+        this.types = types;
+    }
+
+    /**
+     * @return the number of commands in this plan
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * Compiles a raw, comma-separated, command string into a CommandPlan.
+     *
+     * @param commandString - the raw value of the Commands.COMMAND_KEY key
+     * @return The compiled plan; never null
+     */
+    static CommandPlan compile(String commandString) {
+        if (BrazeUtils.isNullOrEmpty(commandString)) {
+            return EMPTY;
+        }
+
+        final char separator = BrazeConstants.SEPARATOR.charAt(0);
+        String[] names = new String[8];
+        CommandType[] types = new CommandType[8];
+        int count = 0;
+
+        int start = 0;
+        final int length = commandString.length();
+        while (start <= length) {
+            int end = commandString.indexOf(separator, start);
+            if (end < 0) end = length;
+
+            String name = commandString.substring(start, end).trim();
+            if (!name.isEmpty() && !contains(names, count, name)) {
+                if (count == names.length) {
+                    names = Arrays.copyOf(names, count * 2);
+                    types = Arrays.copyOf(types, count * 2);
+                }
+                names[count] = name;
+                types[count] = CommandType.fromName(name);
+                count++;
+            }
+            start = end + 1;
+        }
+
+        return count == 0
+                ? EMPTY
+                : new CommandPlan(Arrays.copyOf(names, count), Arrays.copyOf(types, count));
+    }
+
+    private static boolean contains(String[] names, int count, String name) {
+        for (int i = 0; i < count; i++) {
+            if (names[i].equals(name)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,87 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, least-recently-used, cache of compiled {@link CommandPlan}s keyed by the raw
+ * Commands.COMMAND_KEY string. Tealium mappings typically only produce a few dozen distinct
+ * command strings, so after warm-up nearly every payload is dispatched from a cached plan.
+ */
+class CommandPlanCache {
+
+    static final int DEFAULT_MAX_SIZE = 64;
+
+    private final Map<String, CommandPlan> mPlans;
+    private final AtomicLong mHits = new AtomicLong();
+    private final AtomicLong mMisses = new AtomicLong();
+
+    CommandPlanCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    CommandPlanCache(final int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be greater than 0");
+        }
+
+        mPlans = new LinkedHashMap<String, CommandPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CommandPlan> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled plan for the given command string, compiling and caching it if it has
+     * not been seen recently.
+     *
+     * @param commandString - the raw value of the Commands.COMMAND_KEY key
+     * @return The compiled plan; never null
+     */
+    CommandPlan get(String commandString) {
+        if (commandString == null) {
+            return CommandPlan.EMPTY;
+        }
+
+        CommandPlan plan;
+        synchronized (mPlans) {
+            plan = mPlans.get(commandString);
+        }
+        if (plan != null) {
+            mHits.incrementAndGet();
+            return plan;
+        }
+
+        mMisses.incrementAndGet();
+        plan = CommandPlan.compile(commandString);
+        synchronized (mPlans) {
+            mPlans.put(commandString, plan);
+        }
+        return plan;
+    }
+
+    long getHitCount() {
+        return mHits.get();
+    }
+
+    long getMissCount() {
+        return mMisses.get();
+    }
+
+    int size() {
+        synchronized (mPlans) {
+            return mPlans.size();
+        }
+    }
+
+    void clear() {
+        synchronized (mPlans) {
+            mPlans.clear();
+        }
+        mHits.set(0);
+        mMisses.set(0);
+    }
+}
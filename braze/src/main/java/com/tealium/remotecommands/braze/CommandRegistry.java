@@ -0,0 +1,92 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.CommandHandler;
+
+import org.json.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of {@link CommandHandler}s. Handlers for the built-in Braze commands are stored in an
+ * array indexed by {@link CommandType#ordinal()}; app-defined commands, which have no opcode, are
+ * stored by name.
+ * <p>
+ * Each built-in handler may declare the payload keys it requires, so that a payload missing one of
+ * them can be rejected up front rather than by the handler throwing a JSONException. Replacing a
+ * built-in handler clears its required keys.
+ * <p>
+ * Lookups are constant time and do not allocate.
+ */
+class CommandRegistry {
+
+    private static final String[] NO_KEYS = new String[0];
+
+    private final CommandHandler[] mHandlers = new CommandHandler[CommandType.count()];
+    private final String[][] mRequiredKeys = new String[CommandType.count()][];
+    private final Map<String, CommandHandler> mCustomHandlers = new ConcurrentHashMap<>();
+
+    /**
+     * Registers the handler for one of the built-in commands, replacing any existing handler.
+     *
+     * @param type         - the command opcode
+     * @param handler      - the handler to execute for this command
+     * @param requiredKeys - the payload keys the handler cannot execute without
+     */
+    void register(CommandType type, CommandHandler handler, String... requiredKeys) {
+        mRequiredKeys[type.ordinal()] = requiredKeys != null ? requiredKeys : NO_KEYS;
+        mHandlers[type.ordinal()] = handler;
+    }
+
+    /**
+     * Registers a handler by command name. If the name matches one of the built-in commands then
+     * the built-in handler is replaced.
+     *
+     * @param name    - the command name, as it will appear in the Commands.COMMAND_KEY value
+     * @param handler - the handler to execute for this command
+     */
+    void register(String name, CommandHandler handler) {
+        CommandType type = CommandType.fromName(name);
+        if (type != null) {
+            register(type, handler);
+        } else {
+            mCustomHandlers.put(name, handler);
+        }
+    }
+
+    /**
+     * @param type - the command opcode
+     * @return the handler registered for this opcode, or null
+     */
+    CommandHandler get(CommandType type) {
+        return mHandlers[type.ordinal()];
+    }
+
+    /**
+     * Checks the payload for the keys required by the handler registered for the given opcode.
+     *
+     * @param type    - the command opcode
+     * @param payload - the command payload
+     * @return the first required key that is not present in the payload, or null if there is none
+     */
+    String findMissingKey(CommandType type, JSONObject payload) {
+        final String[] keys = mRequiredKeys[type.ordinal()];
+        if (keys == null) {
+            return null;
+        }
+        for (String key : keys) {
+            if (payload == null || !payload.has(key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param name - the trimmed command name
+     * @return the app-defined handler registered for this name, or null
+     */
+    CommandHandler getCustom(String name) {
+        return mCustomHandlers.isEmpty() ? null : mCustomHandlers.get(name);
+    }
+}
@@ -0,0 +1,77 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.tealium.remotecommands.braze.BrazeConstants.Commands;
+
+/**
+ * Opcodes for each of the command names listed in {@link BrazeConstants.Commands}. Command name
+ * strings are resolved to one of these once, when a {@link CommandPlan} is compiled, so that
+ * dispatching a repeated payload does not need to compare strings again.
+ */
+enum CommandType {
+    INITIALIZE(Commands.INITIALIZE),
+    ENABLE_SDK(Commands.ENABLE_SDK),
+    DISABLE_SDK(Commands.DISABLE_SDK),
+    WIPE_DATA(Commands.WIPE_DATA),
+    USER_IDENTIFIER(Commands.USER_IDENTIFIER),
+    USER_ALIAS(Commands.USER_ALIAS),
+    USER_ATTRIBUTE(Commands.USER_ATTRIBUTE),
+    SET_CUSTOM_ATTRIBUTE(Commands.SET_CUSTOM_ATTRIBUTE),
+    UNSET_CUSTOM_ATTRIBUTE(Commands.UNSET_CUSTOM_ATTRIBUTE),
+    INCREMENT_CUSTOM_ATTRIBUTE(Commands.INCREMENT_CUSTOM_ATTRIBUTE),
+    SET_CUSTOM_ARRAY_ATTRIBUTE(Commands.SET_CUSTOM_ARRAY_ATTRIBUTE),
+    APPEND_CUSTOM_ARRAY_ATTRIBUTE(Commands.APPEND_CUSTOM_ARRAY_ATTRIBUTE),
+    REMOVE_CUSTOM_ARRAY_ATTRIBUTE(Commands.REMOVE_CUSTOM_ARRAY_ATTRIBUTE),
+    EMAIL_NOTIFICATION(Commands.EMAIL_NOTIFICATION),
+    PUSH_NOTIFICATION(Commands.PUSH_NOTIFICATION),
+    LOG_CUSTOM_EVENT(Commands.LOG_CUSTOM_EVENT),
+    LOG_PURCHASE_EVENT(Commands.LOG_PURCHASE_EVENT),
+    FLUSH(Commands.FLUSH),
+    ADD_TO_SUBSCRIPTION_GROUP(Commands.ADD_TO_SUBSCRIPTION_GROUP),
+    REMOVE_FROM_SUBSCRIPTION_GROUP(Commands.REMOVE_FROM_SUBSCRIPTION_GROUP),
+    SET_SDK_AUTH_SIGNATURE(Commands.SET_SDK_AUTH_SIGNATURE),
+    SET_LAST_KNOWN_LOCATION(Commands.SET_LAST_KNOWN_LOCATION),
+    SET_AD_TRACKING_ENABLED(Commands.SET_AD_TRACKING_ENABLED);
+
+    private static final CommandType[] VALUES = values();
+    private static final Map<String, CommandType> BY_NAME = new HashMap<>(VALUES.length * 2);
+
+    static {
+        for (CommandType type : VALUES) {
+            BY_NAME.put(type.commandName, type);
+        }
+    }
+
+    final String commandName;
+
+    CommandType(String commandName) {
+        this.commandName = commandName;
+    }
+
+    /**
+     * Looks up the opcode for the given, already trimmed, command name.
+     *
+     * @param commandName - the command name as sent in the Commands.COMMAND_KEY value
+     * @return The matching CommandType, or null if the command is not a known Braze command
+     */
+    static CommandType fromName(String commandName) {
+        return commandName == null ? null : BY_NAME.get(commandName);
+    }
+
+    /**
+     * @return true if this command changes the configuration or enabled state of the SDK, rather
+     * than sending data to it
+     */
+    boolean isLifecycle() {
+        return this == INITIALIZE || this == ENABLE_SDK || this == DISABLE_SDK || this == WIPE_DATA;
+    }
+
+    /**
+     * @return the number of opcodes; useful for sizing arrays indexed by {@link #ordinal()}
+     */
+    static int count() {
+        return VALUES.length;
+    }
+}
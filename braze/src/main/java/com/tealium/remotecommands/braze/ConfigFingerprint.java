@@ -0,0 +1,73 @@
+package com.tealium.remotecommands.braze;
+
+import org.json.JSONObject;
+
+import java.util.List;
+
+/**
+ * Computes a stable, 64-bit, fingerprint of the effective Braze configuration: the API key, the
+ * value of each registered launch option, and the class and
+ * {@link BrazeRemoteCommand.ConfigOverrider#getConfigVersion() version} of each registered
+ * ConfigOverrider, in order.
+ * <p>
+ * Only the keys registered in the {@link LaunchOptionTable} contribute, so unrelated
+ * keys in the same payload - such as the command list or user data - do not change the
+ * fingerprint. The fingerprint is FNV-1a over the canonical key/value sequence.
+ */
+final class ConfigFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private ConfigFingerprint() {
+    }
+
+    /**
+     * @param keys          - the launch option keys to include, in a stable order
+     * @param apiKey        - the API key, or null
+     * @param launchOptions - the launch options, or null
+     * @param overrides     - the registered ConfigOverriders, or null
+     * @return the fingerprint of the resulting configuration
+     */
+    static long compute(String[] keys, String apiKey, JSONObject launchOptions, List<BrazeRemoteCommand.ConfigOverrider> overrides) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = update(hash, apiKey);
+
+        if (launchOptions != null) {
+            for (String key : keys) {
+                if (!BrazeUtils.keyHasValue(launchOptions, key)) continue;
+
+                hash = update(hash, key);
+                hash = update(hash, String.valueOf(launchOptions.opt(key)));
+            }
+        }
+
+        if (overrides != null) {
+            for (BrazeRemoteCommand.ConfigOverrider overrider : overrides) {
+                hash = update(hash, overrider.getClass().getName());
+                hash = update(hash, overrider.getConfigVersion());
+            }
+        }
+        return hash;
+    }
+
+    private static long update(long hash, String value) {
+        if (value == null) {
+            return update(hash, -1L);
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // terminate each value, so that adjacent values cannot run together
+        return (hash ^ 0xFFFF) * FNV_PRIME;
+    }
+
+    private static long update(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash = (hash ^ (value & 0xFF)) * FNV_PRIME;
+            value >>>= 8;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,140 @@
+package com.tealium.remotecommands.braze;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Persists the API key and launch options of the last successfully applied "initialize" command,
+ * so that Braze can be configured from {@code Application.onCreate} on the next launch, before any
+ * remote command payload has been received.
+ * <p>
+ * Only registered launch option keys are stored. The file is rewritten, atomically via a temporary
+ * file, only when the stored configuration changes.
+ */
+class ConfigSnapshot {
+
+    static final String FILE_NAME = "tealium-braze-config";
+
+    private static final int MAGIC = 0x54424331; // "TBC1"
+    private static final int VERSION = 1;
+
+    /**
+     * A previously persisted configuration.
+     */
+    static final class Snapshot {
+        final String apiKey;
+        final JSONObject launchOptions;
+
+        Snapshot(String apiKey, JSONObject launchOptions) {
+            this.apiKey = apiKey;
+            this.launchOptions = launchOptions;
+        }
+    }
+
+    private final File mFile;
+    private String mStoredApiKey;
+    private String mStoredOptions;
+
+    ConfigSnapshot(File directory) {
+        mFile = new File(directory, FILE_NAME);
+    }
+
+    /**
+     * Persists the given configuration, unless it is identical to the one already stored.
+     *
+     * @param keys          - the launch option keys to store
+     * @param apiKey        - the API key, or null
+     * @param launchOptions - the launch options; any other keys are ignored
+     * @return true if the configuration is now stored
+     */
+    synchronized boolean save(String[] keys, String apiKey, JSONObject launchOptions) {
+        final JSONObject options = new JSONObject();
+        try {
+            if (launchOptions != null) {
+                for (String key : keys) {
+                    if (BrazeUtils.keyHasValue(launchOptions, key)) {
+                        options.put(key, launchOptions.opt(key));
+                    }
+                }
+            }
+        } catch (JSONException ex) {
+            BrazeLog.w("Unable to snapshot launch options.", ex);
+            return false;
+        }
+
+        final String serializedOptions = options.toString();
+        if (serializedOptions.equals(mStoredOptions) && Objects.equals(apiKey, mStoredApiKey)) {
+            return true;
+        }
+
+        final File temp = new File(mFile.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeBoolean(apiKey != null);
+            if (apiKey != null) {
+                out.writeUTF(apiKey);
+            }
+            out.writeUTF(serializedOptions);
+        } catch (IOException ex) {
+            BrazeLog.w("Unable to write config snapshot.", ex);
+            temp.delete();
+            return false;
+        }
+
+        if (!temp.renameTo(mFile)) {
+            BrazeLog.w("Unable to replace config snapshot.");
+            temp.delete();
+            return false;
+        }
+        mStoredApiKey = apiKey;
+        mStoredOptions = serializedOptions;
+        return true;
+    }
+
+    /**
+     * @return the stored configuration, or null if there is none or it cannot be read
+     */
+    synchronized Snapshot load() {
+        if (!mFile.exists()) {
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            final String apiKey = in.readBoolean() ? in.readUTF() : null;
+            final String serializedOptions = in.readUTF();
+            final JSONObject options = new JSONObject(serializedOptions);
+
+            mStoredApiKey = apiKey;
+            mStoredOptions = serializedOptions;
+            return new Snapshot(apiKey, options);
+        } catch (IOException | JSONException ex) {
+            BrazeLog.w("Unable to read config snapshot.", ex);
+            return null;
+        }
+    }
+
+    /**
+     * Deletes any stored configuration.
+     */
+    synchronized void clear() {
+        mStoredApiKey = null;
+        mStoredOptions = null;
+        if (mFile.exists() && !mFile.delete()) {
+            BrazeLog.w("Unable to delete config snapshot.");
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.tealium.remotecommands.braze;
+
+import android.app.Activity;
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.braze.Braze;
+import com.braze.BrazeUser;
+import com.braze.configuration.BrazeConfig;
+import com.braze.enums.Gender;
+import com.braze.enums.Month;
+import com.braze.enums.NotificationSubscriptionType;
+import com.braze.models.outgoing.BrazeProperties;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+
+/**
+ * {@link BrazeSdk} implementation that calls through to the Braze SDK. The Braze instance is
+ * always fetched rather than stored, as it is replaced when Braze is reconfigured.
+ */
+class DefaultBrazeSdk implements BrazeSdk {
+
+    private final Context mContext;
+
+    DefaultBrazeSdk(Context context) {
+        mContext = context;
+    }
+
+    private Braze braze() {
+        return Braze.getInstance(mContext.getApplicationContext());
+    }
+
+    @Override
+    public void configure(@NonNull BrazeConfig config) {
+        Braze.configure(mContext.getApplicationContext(), config);
+    }
+
+    @Override
+    public boolean isDisabled() {
+        return Braze.isDisabled();
+    }
+
+    @Override
+    public void enableSdk() {
+        Braze.enableSdk(mContext.getApplicationContext());
+    }
+
+    @Override
+    public void disableSdk() {
+        Braze.disableSdk(mContext.getApplicationContext());
+    }
+
+    @Override
+    public void wipeData() {
+        Braze.wipeData(mContext.getApplicationContext());
+    }
+
+    @Override
+    public void openSession(@NonNull Activity activity) {
+        braze().openSession(activity);
+    }
+
+    @Override
+    public void changeUser(@NonNull String userId) {
+        braze().changeUser(userId);
+    }
+
+    @Override
+    public void changeUser(@NonNull String userId, @NonNull String sdkAuthSignature) {
+        braze().changeUser(userId, sdkAuthSignature);
+    }
+
+    @Override
+    public void setGoogleAdvertisingId(@NonNull String googleAdvertisingId, boolean limitAdTrackingEnabled) {
+        braze().setGoogleAdvertisingId(googleAdvertisingId, limitAdTrackingEnabled);
+    }
+
+    @Override
+    public void logCustomEvent(@NonNull String eventName, @Nullable BrazeProperties properties) {
+        braze().logCustomEvent(eventName, properties);
+    }
+
+    @Override
+    public void logPurchase(@NonNull String productId, @Nullable String currencyCode, @NonNull BigDecimal price, int quantity, @Nullable BrazeProperties properties) {
+        braze().logPurchase(productId, currencyCode, price, quantity, properties);
+    }
+
+    @Override
+    public void requestImmediateDataFlush() {
+        braze().requestImmediateDataFlush();
+    }
+
+    @Override
+    public void setSdkAuthenticationSignature(@NonNull String signature) {
+        braze().setSdkAuthenticationSignature(signature);
+    }
+
+    @Nullable
+    @Override
+    public User getCurrentUser() {
+        final BrazeUser user = braze().getCurrentUser();
+        return user != null ? new DefaultUser(user) : null;
+    }
+
+    /**
+     * Calls through to a BrazeUser.
+     */
+    static final class DefaultUser implements User {
+
+        private final BrazeUser mUser;
+
+        DefaultUser(BrazeUser user) {
+            mUser = user;
+        }
+
+        @Override
+        public void addAlias(@NonNull String alias, @NonNull String label) {
+            mUser.addAlias(alias, label);
+        }
+
+        @Override
+        public void setFirstName(@NonNull String firstName) {
+            mUser.setFirstName(firstName);
+        }
+
+        @Override
+        public void setLastName(@NonNull String lastName) {
+            mUser.setLastName(lastName);
+        }
+
+        @Override
+        public void setEmail(@NonNull String email) {
+            mUser.setEmail(email);
+        }
+
+        @Override
+        public void setLanguage(@NonNull String language) {
+            mUser.setLanguage(language);
+        }
+
+        @Override
+        public void setGender(@NonNull Gender gender) {
+            mUser.setGender(gender);
+        }
+
+        @Override
+        public void setHomeCity(@NonNull String homeCity) {
+            mUser.setHomeCity(homeCity);
+        }
+
+        @Override
+        public void setCountry(@NonNull String country) {
+            mUser.setCountry(country);
+        }
+
+        @Override
+        public void setPhoneNumber(@NonNull String phoneNumber) {
+            mUser.setPhoneNumber(phoneNumber);
+        }
+
+        @Override
+        public void setDateOfBirth(int year, @NonNull Month month, int day) {
+            mUser.setDateOfBirth(year, month, day);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, long value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, int value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, double value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, float value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, boolean value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, @NonNull String value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, @NonNull JSONArray value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void setCustomUserAttribute(@NonNull String key, @NonNull JSONObject value) {
+            mUser.setCustomUserAttribute(key, value);
+        }
+
+        @Override
+        public void unsetCustomUserAttribute(@NonNull String key) {
+            mUser.unsetCustomUserAttribute(key);
+        }
+
+        @Override
+        public void incrementCustomUserAttribute(@NonNull String key, int incrementValue) {
+            mUser.incrementCustomUserAttribute(key, incrementValue);
+        }
+
+        @Override
+        public void setCustomAttributeArray(@NonNull String key, @Nullable String[] values) {
+            mUser.setCustomAttributeArray(key, values);
+        }
+
+        @Override
+        public void addToCustomAttributeArray(@NonNull String key, @NonNull String value) {
+            mUser.addToCustomAttributeArray(key, value);
+        }
+
+        @Override
+        public void removeFromCustomAttributeArray(@NonNull String key, @NonNull String value) {
+            mUser.removeFromCustomAttributeArray(key, value);
+        }
+
+        @Override
+        public void setPushNotificationSubscriptionType(@NonNull NotificationSubscriptionType type) {
+            mUser.setPushNotificationSubscriptionType(type);
+        }
+
+        @Override
+        public void setEmailNotificationSubscriptionType(@NonNull NotificationSubscriptionType type) {
+            mUser.setEmailNotificationSubscriptionType(type);
+        }
+
+        @Override
+        public void setLastKnownLocation(double latitude, double longitude, @Nullable Double altitude, @Nullable Double accuracy) {
+            mUser.setLastKnownLocation(latitude, longitude, altitude, accuracy);
+        }
+
+        @Override
+        public void addToSubscriptionGroup(@NonNull String groupId) {
+            mUser.addToSubscriptionGroup(groupId);
+        }
+
+        @Override
+        public void removeFromSubscriptionGroup(@NonNull String groupId) {
+            mUser.removeFromSubscriptionGroup(groupId);
+        }
+    }
+}
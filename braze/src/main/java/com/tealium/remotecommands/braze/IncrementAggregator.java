@@ -0,0 +1,246 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sums custom attribute increments over a time window, so that many small increments to the same
+ * attribute result in a single SDK call.
+ * <p>
+ * Pending deltas are held in a primitive, open-addressed, attribute-name to long map. They are
+ * emitted when the window closes, or earlier when {@link #flush()} is called; callers are
+ * expected to flush before anything that changes which user the increments apply to.
+ * <p>
+ * An increment that the sink fails to apply is kept, and retried on the next flush, rather than
+ * lost. Only when the user changes are increments that still cannot be sent discarded, with
+ * {@link #dropPending()}, as they must not be applied to the next user.
+ * <p>
+ * The window timer runs on a scheduler supplied by the owner, which decides what to flush when
+ * the window closes, so that pending {@link AttributeCoalescer} values can be sent first.
+ */
+class IncrementAggregator {
+
+    /**
+     * Receives the aggregated increments.
+     */
+    interface Sink {
+        void increment(String key, int delta);
+    }
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long mWindowMillis;
+    private final Sink mSink;
+    private final ScheduledExecutorService mScheduler;
+    private final Runnable mOnWindowClosed;
+
+    private String[] mKeys = new String[INITIAL_CAPACITY];
+    private long[] mDeltas = new long[INITIAL_CAPACITY];
+    private int[] mCounts = new int[INITIAL_CAPACITY];
+    private int mSize = 0;
+    private ScheduledFuture<?> mScheduledFlush;
+
+    private final AtomicLong mReceived = new AtomicLong();
+    private final AtomicLong mEmitted = new AtomicLong();
+    private final AtomicLong mDropped = new AtomicLong();
+
+    /**
+     * @param windowMillis   - how long increments are summed for
+     * @param scheduler      - the scheduler to run the window timer on
+     * @param onWindowClosed - run on the scheduler when the window closes; expected to call
+     *                       {@link #flush()}
+     * @param sink           - receives the aggregated increments
+     */
+    IncrementAggregator(long windowMillis, ScheduledExecutorService scheduler, Runnable onWindowClosed, Sink sink) {
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("windowMillis must be greater than 0");
+        }
+
+        mWindowMillis = windowMillis;
+        mScheduler = scheduler;
+        mOnWindowClosed = onWindowClosed;
+        mSink = sink;
+    }
+
+    /**
+     * Adds an increment to the pending total for the given attribute, starting a new window if
+     * none is open.
+     *
+     * @param key   - the custom attribute name
+     * @param delta - the amount to increment by
+     */
+    synchronized void add(String key, int delta) {
+        mReceived.incrementAndGet();
+
+        int slot = slotFor(key);
+        if (mKeys[slot] == null) {
+            if ((mSize + 1) * 4 > mKeys.length * 3) {
+                grow();
+                slot = slotFor(key);
+            }
+            mKeys[slot] = key;
+            mSize++;
+        }
+        mDeltas[slot] += delta;
+        mCounts[slot]++;
+
+        if (mScheduledFlush == null) {
+            mScheduledFlush = mScheduler.schedule(mOnWindowClosed, mWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Discards any pending increment for the given attribute, e.g. because the attribute has since
+     * been set to a new value, which the increment must not be applied on top of.
+     *
+     * @param key - the custom attribute name
+     */
+    synchronized void discard(String key) {
+        if (mSize == 0) {
+            return;
+        }
+        final int slot = slotFor(key);
+        if (mKeys[slot] != null) {
+            mDeltas[slot] = 0;
+        }
+    }
+
+    /**
+     * Synchronously emits all pending increments to the sink and closes the current window. Any
+     * increment that the sink fails to apply remains pending, and is retried on the next flush.
+     */
+    synchronized void flush() {
+        if (mScheduledFlush != null) {
+            mScheduledFlush.cancel(false);
+            mScheduledFlush = null;
+        }
+        if (mSize == 0) {
+            return;
+        }
+
+        boolean unsent = false;
+        for (int i = 0; i < mKeys.length; i++) {
+            final String key = mKeys[i];
+            if (key == null) continue;
+
+            long delta = mDeltas[i];
+            while (delta != 0) {
+                int chunk = (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, delta));
+                try {
+                    mSink.increment(key, chunk);
+                    mEmitted.incrementAndGet();
+                    delta -= chunk;
+                } catch (Exception ex) {
+                    BrazeLog.w("Failed to increment custom attribute: {}; will retry.", key, ex);
+                    unsent = true;
+                    break;
+                }
+            }
+            // whatever remains is still owed to the attribute.
+            mDeltas[i] = delta;
+        }
+
+        if (unsent) {
+            retainUnsent();
+        } else {
+            Arrays.fill(mKeys, null);
+            Arrays.fill(mDeltas, 0L);
+            Arrays.fill(mCounts, 0);
+            mSize = 0;
+        }
+    }
+
+    /**
+     * Discards all pending increments, e.g. those that still could not be sent by
+     * {@link #flush()} before the user changes, counting them as dropped.
+     */
+    synchronized void dropPending() {
+        if (mSize == 0) {
+            return;
+        }
+
+        for (int i = 0; i < mKeys.length; i++) {
+            if (mKeys[i] != null && mDeltas[i] != 0) {
+                BrazeLog.w("Dropping unsent increment of custom attribute: {}", mKeys[i]);
+                mDropped.addAndGet(mCounts[i]);
+            }
+        }
+        Arrays.fill(mKeys, null);
+        Arrays.fill(mDeltas, 0L);
+        Arrays.fill(mCounts, 0);
+        mSize = 0;
+    }
+
+    /**
+     * Flushes any pending increments and stops the window timer. The scheduler itself belongs to
+     * the owner and is left running.
+     */
+    void shutdown() {
+        flush();
+    }
+
+    /**
+     * @return the number of raw increments that were merged into another increment, or cancelled
+     * out, rather than being sent individually
+     */
+    synchronized long getCollapsedCount() {
+        return Math.max(0, mReceived.get() - mEmitted.get() - mSize - mDropped.get());
+    }
+
+    /**
+     * @return the number of raw increments that were discarded by {@link #dropPending()}, having
+     * failed to be sent
+     */
+    long getDroppedCount() {
+        return mDropped.get();
+    }
+
+    private int slotFor(String key) {
+        final int mask = mKeys.length - 1;
+        int slot = (key.hashCode() * 0x9E3779B9) >>> 16 & mask;
+        while (mKeys[slot] != null && !mKeys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Rebuilds the map from only those entries with a delta that could not be sent.
+     */
+    private void retainUnsent() {
+        final String[] oldKeys = mKeys;
+        final long[] oldDeltas = mDeltas;
+        final int[] oldCounts = mCounts;
+        mKeys = new String[oldKeys.length];
+        mDeltas = new long[oldDeltas.length];
+        mCounts = new int[oldCounts.length];
+        mSize = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null || oldDeltas[i] == 0) continue;
+            int slot = slotFor(oldKeys[i]);
+            mKeys[slot] = oldKeys[i];
+            mDeltas[slot] = oldDeltas[i];
+            mCounts[slot] = oldCounts[i];
+            mSize++;
+        }
+    }
+
+    private void grow() {
+        final String[] oldKeys = mKeys;
+        final long[] oldDeltas = mDeltas;
+        final int[] oldCounts = mCounts;
+        mKeys = new String[oldKeys.length * 2];
+        mDeltas = new long[oldDeltas.length * 2];
+        mCounts = new int[oldCounts.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int slot = slotFor(oldKeys[i]);
+            mKeys[slot] = oldKeys[i];
+            mDeltas[slot] = oldDeltas[i];
+            mCounts[slot] = oldCounts[i];
+        }
+    }
+}
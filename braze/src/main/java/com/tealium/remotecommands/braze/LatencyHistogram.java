@@ -0,0 +1,124 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, lock-free, histogram of latencies in nanoseconds.
+ * <p>
+ * Buckets are log-linear: each power of two is split into {@link #SUB_BUCKETS} equal buckets, so
+ * a recorded value is reported to within 12.5% of its true value. Values from 0 up to
+ * {@link #MAX_TRACKABLE_NANOS} (about 68 seconds) are tracked; larger values are counted in the
+ * last bucket, though the exact maximum is always kept.
+ * <p>
+ * Recording is a single atomic increment, plus a compare-and-set when a new maximum is seen, and
+ * does not allocate. Snapshots and resets may run concurrently with recording; a value recorded
+ * during a reset may or may not be cleared.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 35;
+    static final long MAX_TRACKABLE_NANOS = (1L << (MAX_EXPONENT + 1)) - 1;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records a single latency.
+     *
+     * @param nanos - the latency; negative values are recorded as 0
+     */
+    void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        mBuckets.incrementAndGet(bucketIndex(nanos));
+
+        long max = mMax.get();
+        while (nanos > max && !mMax.compareAndSet(max, nanos)) {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * Clears all recorded latencies.
+     */
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mMax.set(0);
+    }
+
+    /**
+     * @return a copy of the current bucket counts, and the maximum recorded latency
+     */
+    Summary summarize() {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = mBuckets.get(i);
+            total += counts[i];
+        }
+        return new Summary(counts, total, mMax.get());
+    }
+
+    /**
+     * Immutable copy of a histogram's counts.
+     */
+    static final class Summary {
+        final long count;
+        final long max;
+        private final long[] mCounts;
+
+        Summary(long[] counts, long count, long max) {
+            this.mCounts = counts;
+            this.count = count;
+            this.max = max;
+        }
+
+        /**
+         * @param percentile - between 0 and 100
+         * @return the highest value in the bucket containing the given percentile, capped at the
+         * maximum recorded latency; or 0 if nothing has been recorded
+         */
+        long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(count * Math.min(percentile, 100d) / 100d));
+            long seen = 0;
+            for (int i = 0; i < mCounts.length; i++) {
+                seen += mCounts[i];
+                if (seen >= rank) {
+                    return Math.min(highestEquivalentValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+
+    static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        if (nanos > MAX_TRACKABLE_NANOS) {
+            return BUCKET_COUNT - 1;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        final int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestEquivalentValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = index / SUB_BUCKETS - 1;
+        final long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,197 @@
+package com.tealium.remotecommands.braze;
+
+import com.braze.configuration.BrazeConfig;
+import com.braze.enums.DeviceKey;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.LaunchOptionSetter;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.tealium.remotecommands.braze.BrazeConstants.Config;
+
+/**
+ * Table of launch option keys and the {@link LaunchOptionSetter} that applies each one to a
+ * {@link BrazeConfig.Builder}.
+ * <p>
+ * Launch options are applied in a single pass over the keys present in the payload, with one map
+ * lookup per key. Resolved backstack Activity classes and parsed {@link DeviceKey} allowlists are
+ * cached, as they are typically identical on every initialization.
+ */
+class LaunchOptionTable {
+
+    private static final int MAX_DEVICE_KEY_CACHE_SIZE = 16;
+    private static final Map<String, Class<?>> CLASS_CACHE = new ConcurrentHashMap<>();
+    private static final Map<String, EnumSet<DeviceKey>> DEVICE_KEY_CACHE = new ConcurrentHashMap<>();
+
+    private final Map<String, LaunchOptionSetter> mSetters = new ConcurrentHashMap<>();
+    private volatile String[] mKeys = new String[0];
+
+    LaunchOptionTable() {
+        // Strings
+        register(Config.FIREBASE_SENDER_ID, LaunchOptionSetter.forString(BrazeConfig.Builder::setFirebaseCloudMessagingSenderIdKey));
+        register(Config.FIREBASE_FALLBACK_MESSAGING_SERVICE_CLASSPATH, LaunchOptionSetter.forString(BrazeConfig.Builder::setFallbackFirebaseMessagingServiceClasspath));
+        register(Config.CUSTOM_ENDPOINT, LaunchOptionSetter.forString(BrazeConfig.Builder::setCustomEndpoint));
+        register(Config.SMALL_NOTIFICATION_ICON, LaunchOptionSetter.forString(BrazeConfig.Builder::setSmallNotificationIcon));
+        register(Config.LARGE_NOTIFICATION_ICON, LaunchOptionSetter.forString(BrazeConfig.Builder::setLargeNotificationIcon));
+        register(Config.DEFAULT_NOTIFICATION_CHANNEL_DESCRIPTION, LaunchOptionSetter.forString(BrazeConfig.Builder::setDefaultNotificationChannelDescription));
+        register(Config.DEFAULT_NOTIFICATION_CHANNEL_NAME, LaunchOptionSetter.forString(BrazeConfig.Builder::setDefaultNotificationChannelName));
+        register(Config.BACKSTACK_ACTIVITY_CLASS, LaunchOptionSetter.forClass(BrazeConfig.Builder::setPushDeepLinkBackStackActivityClass));
+
+        // Booleans
+        register(Config.FIREBASE_ENABLED, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setIsFirebaseCloudMessagingRegistrationEnabled));
+        register(Config.FIREBASE_FALLBACK_MESSAGING_SERVICE_ENABLED, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setFallbackFirebaseMessagingServiceEnabled));
+        register(Config.FIREBASE_NEW_TOKEN_ENABLED, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setIsFirebaseMessagingServiceOnNewTokenRegistrationEnabled));
+        register(Config.ADM_ENABLED, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setAdmMessagingRegistrationEnabled));
+        register(Config.AUTO_PUSH_DEEP_LINKS, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setHandlePushDeepLinksAutomatically));
+        register(Config.ENABLE_AUTOMATIC_LOCATION, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setIsAutomaticLocationCollectionEnabled));
+        register(Config.ENABLE_GEOFENCES, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setGeofencesEnabled));
+        register(Config.ENABLE_AUTOMATIC_GEOFENCE_REQUESTS, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setAutomaticGeofenceRequestsEnabled));
+        register(Config.BACKSTACK_ACTIVITY_ENABLED, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setPushDeepLinkBackStackActivityEnabled));
+        register(Config.IS_SDK_AUTHENTICATION_ENABLED, LaunchOptionSetter.forBoolean(BrazeConfig.Builder::setIsSdkAuthenticationEnabled));
+
+        // Integers
+        register(Config.SESSION_TIMEOUT, LaunchOptionSetter.forInteger(BrazeConfig.Builder::setSessionTimeout));
+        register(Config.TRIGGER_INTERVAL_SECONDS, LaunchOptionSetter.forInteger(BrazeConfig.Builder::setTriggerActionMinimumTimeIntervalSeconds));
+        register(Config.DEFAULT_NOTIFICATION_COLOR, LaunchOptionSetter.forInteger(BrazeConfig.Builder::setDefaultNotificationAccentColor));
+        register(Config.BAD_NETWORK_INTERVAL, LaunchOptionSetter.forInteger(BrazeConfig.Builder::setBadNetworkDataFlushInterval));
+        register(Config.GOOD_NETWORK_INTERVAL, LaunchOptionSetter.forInteger(BrazeConfig.Builder::setGoodNetworkDataFlushInterval));
+        register(Config.GREAT_NETWORK_INTERVAL, LaunchOptionSetter.forInteger(BrazeConfig.Builder::setGreatNetworkDataFlushInterval));
+
+        // Arrays
+        register(Config.DEVICE_OPTIONS, (builder, value) -> {
+            EnumSet<DeviceKey> deviceKeys = value instanceof JSONArray ? toDeviceKeys((JSONArray) value) : null;
+            if (deviceKeys != null) {
+                builder.setDeviceObjectAllowlist(deviceKeys);
+            }
+        });
+    }
+
+    /**
+     * Registers the setter for a launch option key, replacing any existing setter for that key.
+     *
+     * @param key    - the launch option key
+     * @param setter - applies the option's value to the BrazeConfig.Builder
+     */
+    synchronized void register(String key, LaunchOptionSetter setter) {
+        if (mSetters.put(key, setter) == null) {
+            String[] keys = Arrays.copyOf(mKeys, mKeys.length + 1);
+            keys[keys.length - 1] = key;
+            mKeys = keys;
+        }
+    }
+
+    /**
+     * @return every registered key, in registration order; the returned array must not be modified
+     */
+    String[] keys() {
+        return mKeys;
+    }
+
+    /**
+     * Applies each registered launch option present in the given JSON to the builder. Options that
+     * fail to apply are logged and skipped.
+     *
+     * @param builder       - the builder to configure
+     * @param launchOptions - the launch options
+     */
+    void apply(BrazeConfig.Builder builder, JSONObject launchOptions) {
+        final Iterator<String> keys = launchOptions.keys();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            final LaunchOptionSetter setter = mSetters.get(key);
+            if (setter == null) continue;
+
+            final Object value = launchOptions.opt(key);
+            if (value == null || value == JSONObject.NULL) continue;
+
+            try {
+                setter.apply(builder, value);
+            } catch (Exception ex) {
+                BrazeLog.w("Unable to apply launch option: {}", key, ex);
+            }
+        }
+    }
+
+    /**
+     * Equivalent to {@link JSONObject#optString(String)} for a non-null value.
+     */
+    static String toString(Object value) {
+        return String.valueOf(value);
+    }
+
+    /**
+     * Equivalent to {@link JSONObject#optBoolean(String)} for a non-null value.
+     */
+    static boolean toBoolean(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        } else if (value instanceof String) {
+            return "true".equalsIgnoreCase((String) value);
+        }
+        return false;
+    }
+
+    /**
+     * Equivalent to {@link JSONObject#optInt(String)} for a non-null value.
+     */
+    static int toInteger(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof String) {
+            try {
+                return (int) Double.parseDouble((String) value);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Resolves, and caches, a class by name.
+     */
+    static Class<?> toClass(Object value) throws ClassNotFoundException {
+        final String name = toString(value);
+        Class<?> clazz = CLASS_CACHE.get(name);
+        if (clazz == null) {
+            clazz = Class.forName(name);
+            CLASS_CACHE.put(name, clazz);
+        }
+        return clazz;
+    }
+
+    /**
+     * Parses, and caches, a DeviceKey allowlist. Unrecognised entries are ignored.
+     *
+     * @return a new EnumSet of the recognised keys, or null if there were none
+     */
+    static EnumSet<DeviceKey> toDeviceKeys(JSONArray options) {
+        if (options.length() == 0) {
+            return null;
+        }
+
+        final String cacheKey = options.toString();
+        EnumSet<DeviceKey> deviceKeys = DEVICE_KEY_CACHE.get(cacheKey);
+        if (deviceKeys == null) {
+            deviceKeys = EnumSet.noneOf(DeviceKey.class);
+            for (int i = 0; i < options.length(); i++) {
+                try {
+                    deviceKeys.add(DeviceKey.valueOf(options.getString(i).toUpperCase(Locale.ROOT)));
+                } catch (Exception ignore) {
+                }
+            }
+            if (DEVICE_KEY_CACHE.size() >= MAX_DEVICE_KEY_CACHE_SIZE) {
+                DEVICE_KEY_CACHE.clear();
+            }
+            DEVICE_KEY_CACHE.put(cacheKey, deviceKeys);
+        }
+        // EnumSets are mutable; never hand out the cached instance.
+        return deviceKeys.isEmpty() ? null : EnumSet.copyOf(deviceKeys);
+    }
+}
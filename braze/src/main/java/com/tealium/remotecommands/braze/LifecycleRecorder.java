@@ -0,0 +1,128 @@
+package com.tealium.remotecommands.braze;
+
+import android.app.Activity;
+import android.app.Application.ActivityLifecycleCallbacks;
+import android.os.Bundle;
+import android.os.SystemClock;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Records Activity lifecycle events, with timestamps, while Braze is being configured off of the
+ * main thread, so that they can be replayed to Braze's own lifecycle listener once it has been
+ * registered. This keeps session open/close and in-app message registration consistent with what
+ * the listener would have seen had it been registered from the start.
+ * <p>
+ * Activities are only weakly referenced. All events for an Activity are discarded once it is
+ * destroyed, since replaying them could only open and close a session for an Activity that no
+ * longer exists; this also keeps the number of recorded events bounded.
+ * <p>
+ * Recording and replay are both expected to happen on the main thread.
+ */
+class LifecycleRecorder {
+
+    enum EventType {
+        CREATED, STARTED, RESUMED, PAUSED, STOPPED, SAVE_INSTANCE_STATE
+    }
+
+    private static final class Event {
+        final EventType type;
+        final WeakReference<Activity> activity;
+        final Bundle bundle;
+        final long timestamp;
+
+        Event(EventType type, Activity activity, Bundle bundle, long timestamp) {
+            this.type = type;
+            this.activity = new WeakReference<>(activity);
+            this.bundle = bundle;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final List<Event> mEvents = new ArrayList<>();
+
+    /**
+     * Records a lifecycle event.
+     *
+     * @param type     - the lifecycle callback that was received
+     * @param activity - the Activity the event is for
+     * @param bundle   - the saved instance state, for CREATED and SAVE_INSTANCE_STATE events
+     */
+    synchronized void record(EventType type, Activity activity, Bundle bundle) {
+        mEvents.add(new Event(type, activity, bundle, SystemClock.elapsedRealtime()));
+    }
+
+    /**
+     * Discards all recorded events for an Activity that has been destroyed.
+     *
+     * @param activity - the destroyed Activity
+     */
+    synchronized void onDestroyed(Activity activity) {
+        final Iterator<Event> iterator = mEvents.iterator();
+        while (iterator.hasNext()) {
+            Activity recorded = iterator.next().activity.get();
+            if (recorded == null || recorded == activity) {
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Replays all recorded events to the given listener, in the order they were received, and then
+     * clears them. Events for Activities that have since been garbage collected are skipped.
+     *
+     * @param listener - the listener to replay to
+     * @return the number of events replayed
+     */
+    synchronized int replayTo(ActivityLifecycleCallbacks listener) {
+        final long now = SystemClock.elapsedRealtime();
+        int replayed = 0;
+        for (Event event : mEvents) {
+            final Activity activity = event.activity.get();
+            if (activity == null) continue;
+
+            if (BrazeLog.isDebugEnabled()) {
+                BrazeLog.d("Replaying {} for {}, recorded {}ms ago",
+                        event.type, activity.getClass().getSimpleName(), now - event.timestamp);
+            }
+            try {
+                dispatch(listener, event.type, activity, event.bundle);
+                replayed++;
+            } catch (Exception ex) {
+                BrazeLog.w("Error replaying lifecycle event: {}", event.type, ex);
+            }
+        }
+        mEvents.clear();
+        return replayed;
+    }
+
+    synchronized int size() {
+        return mEvents.size();
+    }
+
+    private static void dispatch(ActivityLifecycleCallbacks listener, EventType type, Activity activity, Bundle bundle) {
+        switch (type) {
+            case CREATED:
+                listener.onActivityCreated(activity, bundle);
+                break;
+            case STARTED:
+                listener.onActivityStarted(activity);
+                break;
+            case RESUMED:
+                listener.onActivityResumed(activity);
+                break;
+            case PAUSED:
+                listener.onActivityPaused(activity);
+                break;
+            case STOPPED:
+                listener.onActivityStopped(activity);
+                break;
+            case SAVE_INSTANCE_STATE:
+                listener.onActivitySaveInstanceState(activity, bundle != null ? bundle : new Bundle());
+                break;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.tealium.remotecommands.braze;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Filters last known location updates so that near-identical coordinates, e.g. those attached to
+ * every tracked event, are not all sent to the Braze SDK.
+ * <p>
+ * An update is accepted if it is the first update, or if both the minimum interval has elapsed and
+ * the minimum displacement has been exceeded since the last accepted update. Optionally, an update
+ * that reports a better accuracy than the last accepted update is always accepted.
+ * <p>
+ * Only primitive state is held, and nothing is allocated per update.
+ */
+class LocationFilter {
+
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+
+    private final double mMinDisplacementMeters;
+    private final long mMinIntervalMillis;
+    private final boolean mAcceptAccuracyImprovements;
+    private final double mQuantum;
+
+    private boolean mHasLast = false;
+    private double mLastLatitude;
+    private double mLastLongitude;
+    private double mLastAccuracy;
+    private long mLastTimeMillis;
+
+    private final AtomicLong mAccepted = new AtomicLong();
+    private final AtomicLong mSuppressed = new AtomicLong();
+
+    /**
+     * @param minDisplacementMeters      - minimum distance from the last accepted location
+     * @param minIntervalMillis          - minimum time since the last accepted location
+     * @param acceptAccuracyImprovements - whether to always accept a more accurate location
+     * @param quantisationDecimals       - number of decimal places to round coordinates to, or a
+     *                                   negative number to leave them unchanged
+     */
+    LocationFilter(double minDisplacementMeters, long minIntervalMillis, boolean acceptAccuracyImprovements, int quantisationDecimals) {
+        mMinDisplacementMeters = Math.max(0, minDisplacementMeters);
+        mMinIntervalMillis = Math.max(0, minIntervalMillis);
+        mAcceptAccuracyImprovements = acceptAccuracyImprovements;
+        mQuantum = quantisationDecimals >= 0 ? Math.pow(10, quantisationDecimals) : 0;
+    }
+
+    /**
+     * Rounds a coordinate to the configured precision.
+     *
+     * @param coordinate - latitude or longitude in degrees
+     * @return the rounded coordinate, or the same coordinate if quantisation is disabled
+     */
+    double quantise(double coordinate) {
+        return mQuantum > 0 ? Math.round(coordinate * mQuantum) / mQuantum : coordinate;
+    }
+
+    /**
+     * Determines whether a location update should be sent, and if so records it as the last
+     * accepted location.
+     *
+     * @param latitude   - latitude in degrees, already quantised
+     * @param longitude  - longitude in degrees, already quantised
+     * @param accuracy   - horizontal accuracy in metres, or NaN if unknown
+     * @param nowMillis  - monotonic timestamp of the update
+     * @return true if the update should be sent
+     */
+    synchronized boolean accept(double latitude, double longitude, double accuracy, long nowMillis) {
+        if (mHasLast && !isAccuracyImprovement(accuracy)) {
+            if (nowMillis - mLastTimeMillis < mMinIntervalMillis
+                    || distanceMeters(mLastLatitude, mLastLongitude, latitude, longitude) < mMinDisplacementMeters) {
+                mSuppressed.incrementAndGet();
+                return false;
+            }
+        }
+
+        mHasLast = true;
+        mLastLatitude = latitude;
+        mLastLongitude = longitude;
+        mLastAccuracy = accuracy;
+        mLastTimeMillis = nowMillis;
+        mAccepted.incrementAndGet();
+        return true;
+    }
+
+    long getAcceptedCount() {
+        return mAccepted.get();
+    }
+
+    long getSuppressedCount() {
+        return mSuppressed.get();
+    }
+
+    private boolean isAccuracyImprovement(double accuracy) {
+        return mAcceptAccuracyImprovements
+                && !Double.isNaN(accuracy)
+                && (Double.isNaN(mLastAccuracy) || accuracy < mLastAccuracy);
+    }
+
+    /**
+     * Great-circle distance using the haversine formula.
+     */
+    static double distanceMeters(double lat1, double lon1, double lat2, double lon2) {
+        final double dLat = Math.toRadians(lat2 - lat1);
+        final double dLon = Math.toRadians(lon2 - lon1);
+        final double sinLat = Math.sin(dLat / 2);
+        final double sinLon = Math.sin(dLon / 2);
+        final double a = sinLat * sinLat
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * sinLon * sinLon;
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+}
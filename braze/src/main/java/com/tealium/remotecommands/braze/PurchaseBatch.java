@@ -0,0 +1,344 @@
+package com.tealium.remotecommands.braze;
+
+import com.braze.models.outgoing.BrazeProperties;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column-oriented batch of purchase lines: one array per field, indexed by line.
+ * <p>
+ * Quantities are held as primitive ints. Prices are converted to {@link BigDecimal} from the
+ * shortest decimal text of the JSON value, so that 9.99 becomes exactly 9.99 rather than the
+ * binary approximation {@code new BigDecimal(9.99)} produces, and integral prices always have a
+ * scale of 0. Recently seen prices are cached, as baskets tend to repeat the same few prices.
+ * Currency codes are upper-cased and interned.
+ * <p>
+ * Purchase properties are converted to {@link BrazeProperties} once per distinct object; lines
+ * that share a JSONObject, or whose properties are the same as the previous line's, share the
+ * converted properties. Conversion is not thread-safe; a batch is expected to be logged from a
+ * single thread.
+ * <p>
+ * Missing or invalid values fall back to the defaults that have always applied: a currency of
+ * {@link #DEFAULT_CURRENCY}, a price of 0 and a quantity of 1.
+ */
+final class PurchaseBatch {
+
+    static final String DEFAULT_CURRENCY = "USD"; // braze default.
+
+    private static final int PRICE_CACHE_SIZE = 256; // power of 2
+    private static final int MAX_INTERNED_CURRENCIES = 512;
+
+    private static final PriceEntry[] PRICE_CACHE = new PriceEntry[PRICE_CACHE_SIZE];
+    private static final Map<String, String> CURRENCIES = new ConcurrentHashMap<>();
+
+    private static final class PriceEntry {
+        final Object key;
+        final BigDecimal price;
+
+        PriceEntry(Object key, BigDecimal price) {
+            this.key = key;
+            this.price = price;
+        }
+    }
+
+    private final int mSize;
+    private final String[] mProductIds;
+    private final String[] mCurrencies;
+    private final BigDecimal[] mUnitPrices;
+    private final int[] mQuantities;
+    private final JSONObject[] mProperties;
+
+    private IdentityHashMap<JSONObject, BrazeProperties> mConverted;
+    private JSONObject mLastProperties;
+    private BrazeProperties mLastConverted;
+
+    /**
+     * Wraps the given columns without copying them. Only {@code productIds} is required; any other
+     * column may be null or shorter than it, in which case the defaults apply.
+     */
+    PurchaseBatch(String[] productIds, String[] currencies, BigDecimal[] unitPrices, int[] quantities, JSONObject[] properties) {
+        mSize = productIds.length;
+        mProductIds = productIds;
+        mCurrencies = currencies;
+        mUnitPrices = unitPrices;
+        mQuantities = quantities;
+        mProperties = properties;
+    }
+
+    /**
+     * Wraps the given columns, unboxing the quantities; a null quantity is treated as missing.
+     */
+    static PurchaseBatch of(String[] productIds, String[] currencies, BigDecimal[] unitPrices, Integer[] quantities, JSONObject[] properties) {
+        int[] counts = null;
+        if (quantities != null) {
+            counts = new int[quantities.length];
+            for (int i = 0; i < quantities.length; i++) {
+                counts[i] = quantities[i] != null ? quantities[i] : 1;
+            }
+        }
+        return new PurchaseBatch(productIds, currencies, unitPrices, counts, properties);
+    }
+
+    /**
+     * Builds a batch from the parallel JSON arrays of a "logpurchase" command.
+     *
+     * @param productIds - the product ids; one line is created per entry
+     * @param currencies - the currency codes, or null
+     * @param prices     - the unit prices, as numbers or numeric strings, or null
+     * @param quantities - the quantities, as numbers or numeric strings, or null
+     * @param properties - the purchase properties, or null
+     */
+    static PurchaseBatch fromJson(JSONArray productIds, JSONArray currencies, JSONArray prices, JSONArray quantities, JSONObject[] properties) {
+        final int size = productIds != null ? productIds.length() : 0;
+        final String[] ids = new String[size];
+        final String[] codes = new String[size];
+        final BigDecimal[] unitPrices = new BigDecimal[size];
+        final int[] counts = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            ids[i] = productIds.optString(i, "");
+            codes[i] = currencies != null ? toCurrency(currencies.optString(i, null)) : DEFAULT_CURRENCY;
+            unitPrices[i] = prices != null ? toPrice(prices.opt(i)) : BigDecimal.ZERO;
+            counts[i] = quantities != null ? toQuantity(quantities.opt(i)) : 1;
+        }
+        return new PurchaseBatch(ids, codes, unitPrices, counts, properties);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    String[] productIds() {
+        return mProductIds;
+    }
+
+    String[] currencies() {
+        return mCurrencies;
+    }
+
+    BigDecimal[] unitPrices() {
+        return mUnitPrices;
+    }
+
+    int[] quantities() {
+        return mQuantities;
+    }
+
+    /**
+     * @return the quantities, boxed for {@link BrazeCommand} implementations other than
+     * {@link BrazeInstance}, which is given the batch itself; or null if there are none
+     */
+    Integer[] boxedQuantities() {
+        if (mQuantities == null) {
+            return null;
+        }
+        final Integer[] quantities = new Integer[mQuantities.length];
+        for (int i = 0; i < mQuantities.length; i++) {
+            quantities[i] = mQuantities[i];
+        }
+        return quantities;
+    }
+
+    JSONObject[] properties() {
+        return mProperties;
+    }
+
+    String productId(int index) {
+        return mProductIds[index];
+    }
+
+    /**
+     * @return the currency of the line, or {@link #DEFAULT_CURRENCY} if none was given
+     */
+    String currency(int index) {
+        return currencyOrDefault(mCurrencies != null && mCurrencies.length > index ? mCurrencies[index] : null);
+    }
+
+    /**
+     * @return the unit price of the line, or 0 if none was given
+     */
+    BigDecimal unitPrice(int index) {
+        return priceOrDefault(mUnitPrices != null && mUnitPrices.length > index ? mUnitPrices[index] : null);
+    }
+
+    /**
+     * @return the quantity of the line, or 1 if none, or a non-positive quantity, was given
+     */
+    int quantity(int index) {
+        return quantityOrDefault(mQuantities != null && mQuantities.length > index ? mQuantities[index] : 1);
+    }
+
+    JSONObject properties(int index) {
+        return mProperties != null && mProperties.length > index ? mProperties[index] : null;
+    }
+
+    /**
+     * @return the purchase properties of the line, converted to BrazeProperties
+     */
+    BrazeProperties brazeProperties(int index) {
+        final JSONObject properties = properties(index);
+        if (mSize == 1) {
+            return BrazeUtils.extractCustomProperties(properties);
+        }
+        if (mLastConverted != null && BrazeUtils.haveSameProperties(mLastProperties, properties)) {
+            return mLastConverted;
+        }
+
+        if (mConverted == null) {
+            mConverted = new IdentityHashMap<>();
+        }
+        BrazeProperties converted = mConverted.get(properties);
+        if (converted == null) {
+            converted = BrazeUtils.extractCustomProperties(properties);
+            mConverted.put(properties, converted);
+        }
+        mLastProperties = properties;
+        mLastConverted = converted;
+        return converted;
+    }
+
+    /**
+     * @return the currency, or {@link #DEFAULT_CURRENCY} if none was given
+     */
+    static String currencyOrDefault(String currency) {
+        return BrazeUtils.isNullOrEmpty(currency) ? DEFAULT_CURRENCY : currency;
+    }
+
+    /**
+     * @return the price, or 0 if none was given
+     */
+    static BigDecimal priceOrDefault(BigDecimal price) {
+        return price != null ? price : BigDecimal.ZERO;
+    }
+
+    /**
+     * @return the quantity, or 1 if it is not positive
+     */
+    static int quantityOrDefault(int quantity) {
+        return quantity > 0 ? quantity : 1;
+    }
+
+    /**
+     * Converts a JSON value to a price.
+     *
+     * @param value - a Number, or numeric String
+     * @return the exact decimal value, with a scale of 0 if it is integral; or 0 if the value is
+     * missing or not numeric
+     */
+    static BigDecimal toPrice(Object value) {
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        if (!(value instanceof Number) && !(value instanceof String)) {
+            return BigDecimal.ZERO;
+        }
+
+        final int slot = spread(value.hashCode()) & (PRICE_CACHE_SIZE - 1);
+        final PriceEntry entry = PRICE_CACHE[slot];
+        if (entry != null && entry.key.equals(value)) {
+            return entry.price;
+        }
+
+        final BigDecimal price;
+        if (value instanceof String) {
+            price = parsePrice(((String) value).trim());
+        } else if (value instanceof Float) {
+            // the float's own shortest text; widening to double would add binary noise.
+            price = parsePrice(value.toString());
+        } else if (value instanceof Double) {
+            price = toPrice(((Double) value).doubleValue());
+        } else {
+            price = parsePrice(value.toString());
+        }
+        // entries are immutable, so a racing overwrite can only cost a cache miss.
+        PRICE_CACHE[slot] = new PriceEntry(value, price);
+        return price;
+    }
+
+    /**
+     * Normalises a currency code: trimmed, upper-cased and interned.
+     *
+     * @return the code, or null if none was given
+     */
+    static String toCurrency(String code) {
+        if (code == null) {
+            return null;
+        }
+        String interned = CURRENCIES.get(code);
+        if (interned != null) {
+            return interned;
+        }
+
+        final String normalised = code.trim().toUpperCase(Locale.ROOT);
+        if (normalised.isEmpty()) {
+            return null;
+        }
+        interned = CURRENCIES.get(normalised);
+        if (interned == null) {
+            interned = normalised;
+        }
+        if (CURRENCIES.size() < MAX_INTERNED_CURRENCIES) {
+            CURRENCIES.putIfAbsent(normalised, interned);
+            CURRENCIES.putIfAbsent(code, interned);
+        }
+        return interned;
+    }
+
+    /**
+     * Converts a JSON value to a quantity.
+     *
+     * @return the quantity, or 1 if the value is missing or not numeric
+     */
+    static int toQuantity(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value instanceof String) {
+            try {
+                return (int) Double.parseDouble((String) value);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return 1;
+    }
+
+    private static BigDecimal toPrice(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return BigDecimal.ZERO;
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 0x1p53) {
+            return BigDecimal.valueOf((long) value);
+        }
+        // uses the shortest decimal text that uniquely identifies the double.
+        final BigDecimal price = BigDecimal.valueOf(value);
+        return price.scale() < 0 ? price.setScale(0) : price;
+    }
+
+    private static BigDecimal parsePrice(String text) {
+        if (text.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        try {
+            final BigDecimal price = new BigDecimal(text);
+            if (price.signum() == 0) {
+                return BigDecimal.ZERO;
+            }
+            // "10.00" and "1e3" are integral; keep the scale of other values, e.g. "9.90".
+            return price.scale() != 0 && price.stripTrailingZeros().scale() <= 0
+                    ? price.setScale(0)
+                    : price;
+        } catch (NumberFormatException ex) {
+            return BigDecimal.ZERO;
+        }
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,164 @@
+package com.tealium.remotecommands.braze;
+
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.RoutingPolicy;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.SdkState;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.SdkStateListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Tracks the lifecycle state of the Braze SDK, as driven by the lifecycle commands, and the
+ * {@link RoutingPolicy} to apply to data commands in each state.
+ * <pre>
+ *   UNCONFIGURED --initialize--> ACTIVE
+ *   ACTIVE       --disablesdk--> DISABLED --enablesdk--> ACTIVE
+ *   any          --wipedata----> WIPED    --enablesdk--> ACTIVE
+ * </pre>
+ * An UNCONFIGURED state machine may also be restored directly to any other state, when the SDK
+ * was configured or disabled other than by the lifecycle commands.
+ * <p>
+ * The current state and its policy are published together as a single immutable {@link Route},
+ * so routing a data command costs one volatile read.
+ */
+class SdkStateMachine {
+
+    /**
+     * Immutable pairing of a state with the policy in effect for it.
+     */
+    static final class Route {
+        final SdkState state;
+        final RoutingPolicy policy;
+
+        Route(SdkState state, RoutingPolicy policy) {
+            this.state = state;
+            this.policy = policy;
+        }
+    }
+
+    private static final SdkState[] STATES = SdkState.values();
+
+    private final RoutingPolicy[] mPolicies = new RoutingPolicy[STATES.length];
+    private final AtomicLongArray mDropped = new AtomicLongArray(STATES.length);
+    private final List<SdkStateListener> mListeners = new CopyOnWriteArrayList<>();
+
+    private volatile Route mRoute;
+
+    SdkStateMachine() {
+        mPolicies[SdkState.UNCONFIGURED.ordinal()] = RoutingPolicy.FORWARD;
+        mPolicies[SdkState.ACTIVE.ordinal()] = RoutingPolicy.FORWARD;
+        mPolicies[SdkState.DISABLED.ordinal()] = RoutingPolicy.DROP;
+        mPolicies[SdkState.WIPED.ordinal()] = RoutingPolicy.DROP;
+        mRoute = new Route(SdkState.UNCONFIGURED, RoutingPolicy.FORWARD);
+    }
+
+    /**
+     * @return the current state and the policy to apply to data commands
+     */
+    Route route() {
+        return mRoute;
+    }
+
+    SdkState getState() {
+        return mRoute.state;
+    }
+
+    /**
+     * Moves to the state that follows a successfully executed lifecycle command, notifying any
+     * listeners if the state changed.
+     *
+     * @param type - the lifecycle command that was executed
+     * @return true if the state changed
+     */
+    boolean onLifecycleCommand(CommandType type) {
+        final SdkState previous;
+        final SdkState next;
+        synchronized (this) {
+            previous = mRoute.state;
+            next = nextState(previous, type);
+            if (next == previous) {
+                return false;
+            }
+            mRoute = new Route(next, mPolicies[next.ordinal()]);
+        }
+
+        notifyListeners(previous, next);
+        return true;
+    }
+
+    /**
+     * Moves to a state established outside of the lifecycle commands, e.g. by a braze.xml
+     * resource file or on a previous launch. Only applies while still
+     * {@link SdkState#UNCONFIGURED}, notifying any listeners if the state changed.
+     *
+     * @param state - the state to restore
+     * @return true if the state changed
+     */
+    boolean restore(SdkState state) {
+        synchronized (this) {
+            if (mRoute.state != SdkState.UNCONFIGURED || state == SdkState.UNCONFIGURED) {
+                return false;
+            }
+            mRoute = new Route(state, mPolicies[state.ordinal()]);
+        }
+
+        notifyListeners(SdkState.UNCONFIGURED, state);
+        return true;
+    }
+
+    private void notifyListeners(SdkState previous, SdkState next) {
+        for (SdkStateListener listener : mListeners) {
+            try {
+                listener.onSdkStateChanged(previous, next);
+            } catch (Exception ex) {
+                BrazeLog.w("Error notifying SdkStateListener", ex);
+            }
+        }
+    }
+
+    synchronized void setPolicy(SdkState state, RoutingPolicy policy) {
+        mPolicies[state.ordinal()] = policy;
+        if (mRoute.state == state) {
+            mRoute = new Route(state, policy);
+        }
+    }
+
+    synchronized RoutingPolicy getPolicy(SdkState state) {
+        return mPolicies[state.ordinal()];
+    }
+
+    /**
+     * Records that a data command was dropped while in the given state.
+     */
+    void recordDrop(SdkState state) {
+        mDropped.incrementAndGet(state.ordinal());
+    }
+
+    long getDroppedCount(SdkState state) {
+        return mDropped.get(state.ordinal());
+    }
+
+    void addListener(SdkStateListener listener) {
+        mListeners.add(listener);
+    }
+
+    void removeListener(SdkStateListener listener) {
+        mListeners.remove(listener);
+    }
+
+    static SdkState nextState(SdkState current, CommandType type) {
+        switch (type) {
+            case INITIALIZE:
+                return current == SdkState.UNCONFIGURED ? SdkState.ACTIVE : current;
+            case ENABLE_SDK:
+                return current == SdkState.UNCONFIGURED ? current : SdkState.ACTIVE;
+            case DISABLE_SDK:
+                return current == SdkState.WIPED ? current : SdkState.DISABLED;
+            case WIPE_DATA:
+                return SdkState.WIPED;
+            default:
+                return current;
+        }
+    }
+}
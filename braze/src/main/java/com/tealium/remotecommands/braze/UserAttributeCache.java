@@ -0,0 +1,109 @@
+package com.tealium.remotecommands.braze;
+
+import android.os.SystemClock;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the last value written to each of the standard Braze user attributes, for the
+ * current user, so that unchanged values need not be sent to the Braze SDK again.
+ * <p>
+ * Values are held for a single Braze user id at a time; any change of user id discards all
+ * remembered values. An optional time-to-live forces a value to be re-sent periodically even if
+ * it has not changed.
+ */
+class UserAttributeCache {
+
+    /**
+     * The standard user attributes that are tracked.
+     */
+    enum Field {
+        FIRST_NAME,
+        LAST_NAME,
+        EMAIL,
+        LANGUAGE,
+        GENDER,
+        HOME_CITY,
+        COUNTRY,
+        PHONE,
+        DATE_OF_BIRTH
+    }
+
+    private static final int FIELD_COUNT = Field.values().length;
+
+    private final long mTtlMillis;
+    private final String[] mValues = new String[FIELD_COUNT];
+    private final long[] mWrittenAt = new long[FIELD_COUNT];
+    private String mUserId;
+
+    private final AtomicLong mSuppressed = new AtomicLong();
+    private final AtomicLong mForwarded = new AtomicLong();
+
+    /**
+     * @param ttlMillis - maximum age of a remembered value before it is re-sent regardless; zero
+     *                  or less to remember values until they change or are invalidated
+     */
+    UserAttributeCache(long ttlMillis) {
+        mTtlMillis = ttlMillis;
+    }
+
+    /**
+     * Determines whether the given value needs to be sent to the Braze SDK, and if so remembers it
+     * as the last written value.
+     *
+     * @param userId - the current Braze user id, or null if unknown/anonymous
+     * @param field  - the attribute being written
+     * @param value  - the new value
+     * @return true if the value should be forwarded to the SDK; false if it is unchanged
+     */
+    synchronized boolean shouldWrite(String userId, Field field, String value) {
+        if (mUserId == null ? userId != null : !mUserId.equals(userId)) {
+            clear();
+            mUserId = userId;
+        }
+
+        final int i = field.ordinal();
+        final long now = SystemClock.elapsedRealtime();
+        if (value.equals(mValues[i])
+                && (mTtlMillis <= 0 || now - mWrittenAt[i] < mTtlMillis)) {
+            mSuppressed.incrementAndGet();
+            return false;
+        }
+
+        mValues[i] = value;
+        mWrittenAt[i] = now;
+        mForwarded.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Forgets a single remembered value, e.g. if the write to the SDK subsequently failed.
+     *
+     * @param field - the attribute to forget
+     */
+    synchronized void forget(Field field) {
+        mValues[field.ordinal()] = null;
+    }
+
+    /**
+     * Forgets all remembered values.
+     */
+    synchronized void invalidate() {
+        clear();
+        mUserId = null;
+    }
+
+    long getSuppressedCount() {
+        return mSuppressed.get();
+    }
+
+    long getForwardedCount() {
+        return mForwarded.get();
+    }
+
+    private void clear() {
+        Arrays.fill(mValues, null);
+        Arrays.fill(mWrittenAt, 0L);
+    }
+}
@@ -0,0 +1,154 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class BrazeDateParserTests {
+
+    BrazeDateParser parser;
+
+    @Before
+    public void setup() {
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+        parser = new BrazeDateParser(4);
+    }
+
+    @Test
+    public void parse_ParsesWebViewFormat() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat(BrazeDateParser.DATE_FORMAT_PATTERN);
+        Date expected = new Date(946688461000L);
+
+        Date date = parser.parse(format.format(expected));
+
+        assertEquals(expected, date);
+    }
+
+    @Test
+    public void parse_ParsesIso8601Format() {
+        Date date = parser.parse("2000-01-01T01:01:01Z");
+
+        assertEquals(946688461000L, date.getTime());
+    }
+
+    @Test
+    public void parse_ParsesBrazeFormats() {
+        Date date = parser.parse("2000-01-01");
+
+        assertEquals(1, date.getDate());
+        assertEquals(0, date.getMonth());
+        assertEquals(2000 - 1900, date.getYear());
+    }
+
+    @Test
+    public void parse_ParsesBrazeFormatsInUtc_WhenDefaultTimeZoneIsNotGmt() {
+        TimeZone.setDefault(TimeZone.getTimeZone("America/New_York"));
+        try {
+            assertEquals(946684800000L, parser.parse("2000-01-01").getTime());
+            assertEquals(946684800000L, parser.parse("2000-01-01 10:15:30").getTime());
+            // ISO 8601 values are still parsed in the default time zone, as they always were.
+            assertEquals(946688461000L + 5 * 3_600_000L, parser.parse("2000-01-01T01:01:01Z").getTime());
+        } finally {
+            TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+        }
+    }
+
+    @Test
+    public void parse_ParsesLogcatAndClockFormats() {
+        Date logcat = parser.parse("01-31 10:15:30.000");
+        assertEquals(0, logcat.getMonth());
+        assertEquals(31, logcat.getDate());
+        assertEquals(10, logcat.getHours());
+
+        Date clock = parser.parse("10:15 PM");
+        assertEquals(22, clock.getHours());
+        assertEquals(15, clock.getMinutes());
+    }
+
+    @Test
+    public void parse_ParsesDateOnly_WhenValueStartsWithADate() {
+        // the date format has always matched first, ignoring any trailing text.
+        assertEquals(parser.parse("2000-01-01"), parser.parse("2000-01-01 10:15:30"));
+        assertEquals(parser.parse("2000-01-01"), parser.parse("2000-01-01T10:15:30.000Z"));
+    }
+
+    @Test
+    public void parse_ReturnsNull_WhenNotADate() {
+        assertNull(parser.parse("cat"));
+        assertNull(parser.parse("Monday"));
+        assertNull(parser.parse(""));
+        assertNull(parser.parse("12345"));
+        assertNull(parser.parse("2000/01/01"));
+        assertNull(parser.parse("3.14"));
+        assertNull(parser.parse(null));
+    }
+
+    @Test
+    public void parse_ReturnsNewInstances_WhenCached() {
+        Date first = parser.parse("2000-01-01T01:01:01Z");
+        first.setTime(0);
+        Date second = parser.parse("2000-01-01T01:01:01Z");
+
+        assertNotSame(first, second);
+        assertEquals(946688461000L, second.getTime());
+    }
+
+    @Test
+    public void parse_IsConsistent_AcrossThreads() throws Exception {
+        SimpleDateFormat webViewFormat = new SimpleDateFormat(BrazeDateParser.DATE_FORMAT_PATTERN);
+        SimpleDateFormat isoFormat = new SimpleDateFormat(BrazeDateParser.ISO_8601_DATE_FORMAT_PATTERN, Locale.ROOT);
+        webViewFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        isoFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        final List<String> values = new ArrayList<>();
+        final List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            Date date = new Date(946688461000L + i * 86_400_000L + i * 1000L);
+            values.add(i % 2 == 0 ? webViewFormat.format(date) : isoFormat.format(date));
+            expected.add(date.getTime());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                final int offset = t;
+                results.add(executor.submit((Callable<Boolean>) () -> {
+                    for (int n = 0; n < 500; n++) {
+                        int i = (n + offset) % values.size();
+                        Date date = parser.parse(values.get(i));
+                        if (date == null || date.getTime() != expected.get(i)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
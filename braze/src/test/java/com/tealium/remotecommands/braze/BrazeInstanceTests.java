@@ -2,21 +2,29 @@ package com.tealium.remotecommands.braze;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.Activity;
 import android.app.Application;
+import android.content.ComponentCallbacks2;
+import android.content.res.Resources;
 
 import androidx.test.core.app.ApplicationProvider;
 
 import com.braze.Braze;
+import com.braze.BrazeActivityLifecycleCallbackListener;
 import com.braze.BrazeUser;
 import com.braze.configuration.BrazeConfig;
 import com.braze.enums.DeviceKey;
@@ -33,6 +41,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.MockedStatic;
 import org.robolectric.RobolectricTestRunner;
 
@@ -170,6 +179,138 @@ public class BrazeInstanceTests {
         assertFalse(config.getValue().isFirebaseCloudMessagingRegistrationEnabled);
     }
 
+    @Test
+    public void initialize_AppliesRegisteredLaunchOptions() throws JSONException {
+        ArgumentCaptor<BrazeConfig> config = ArgumentCaptor.forClass(BrazeConfig.class);
+        LaunchOptionTable launchOptions = new LaunchOptionTable();
+        launchOptions.register("endpoint", BrazeRemoteCommand.LaunchOptionSetter.forString(BrazeConfig.Builder::setCustomEndpoint));
+        brazeInstance = new BrazeInstance(context, true, null, true, null, launchOptions);
+        JSONObject options = new JSONObject();
+        options.put("endpoint", "custom-endpoint");
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, "20");
+
+        brazeInstance.initialize(null, options, null);
+
+        mockedBrazeStatic.verify(() -> {
+            Braze.configure(eq(context), config.capture());
+        });
+        assertEquals("custom-endpoint", config.getValue().customEndpoint);
+        assertEquals(20, config.getValue().sessionTimeout.intValue());
+    }
+
+    @Test
+    public void initialize_AppliesRemainingOptions_WhenOneFails() throws JSONException {
+        ArgumentCaptor<BrazeConfig> config = ArgumentCaptor.forClass(BrazeConfig.class);
+        JSONObject options = new JSONObject();
+        options.put(BrazeConstants.Config.BACKSTACK_ACTIVITY_CLASS, "com.example.Missing");
+        options.put(BrazeConstants.Config.CUSTOM_ENDPOINT, "custom-endpoint");
+        JSONArray deviceOptions = new JSONArray();
+        deviceOptions.put("not_a_key");
+        options.put(BrazeConstants.Config.DEVICE_OPTIONS, deviceOptions);
+
+        brazeInstance.initialize(null, options, null);
+
+        mockedBrazeStatic.verify(() -> {
+            Braze.configure(eq(context), config.capture());
+        });
+        assertEquals("custom-endpoint", config.getValue().customEndpoint);
+        assertEquals(null, config.getValue().deviceObjectAllowlist);
+    }
+
+    @Test
+    public void initialize_SkipsConfigure_WhenConfigurationUnchanged() throws JSONException {
+        JSONObject options = new JSONObject();
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 30);
+        options.put(BrazeConstants.Commands.COMMAND_KEY, "initialize");
+
+        brazeInstance.initialize("api_key", options, null);
+        options.put(BrazeConstants.Commands.COMMAND_KEY, "initialize,flush");
+        brazeInstance.initialize("api_key", options, null);
+
+        mockedBrazeStatic.verify(() -> Braze.configure(eq(context), any()), times(1));
+    }
+
+    @Test
+    public void initialize_Reconfigures_WhenConfigurationChanged() throws JSONException {
+        JSONObject options = new JSONObject();
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 30);
+
+        brazeInstance.initialize("api_key", options, null);
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 60);
+        brazeInstance.initialize("api_key", options, null);
+        brazeInstance.initialize("other_api_key", options, null);
+
+        mockedBrazeStatic.verify(() -> Braze.configure(eq(context), any()), times(3));
+    }
+
+    @Test
+    public void initialize_Reconfigures_WhenConfigOverriderVersionChanged() {
+        final long[] version = {1};
+        BrazeRemoteCommand.ConfigOverrider overrider = new BrazeRemoteCommand.ConfigOverrider() {
+            @Override
+            public void onOverride(BrazeConfig.Builder b) {
+                b.setSessionTimeout((int) version[0]);
+            }
+
+            @Override
+            public long getConfigVersion() {
+                return version[0];
+            }
+        };
+
+        brazeInstance.initialize("api_key", null, List.of(overrider));
+        brazeInstance.initialize("api_key", null, List.of(overrider));
+        version[0] = 2;
+        brazeInstance.initialize("api_key", null, List.of(overrider));
+
+        mockedBrazeStatic.verify(() -> Braze.configure(eq(context), any()), times(2));
+    }
+
+    @Test
+    public void initialize_RegistersBrazeLifecycleListenerOnce() throws JSONException {
+        Application mockApplication = mock();
+        when(mockApplication.getApplicationContext()).thenReturn(context);
+        brazeInstance = new BrazeInstance(mockApplication);
+        JSONObject options = new JSONObject();
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 30);
+
+        brazeInstance.initialize("api_key", options, null);
+        brazeInstance.initialize("api_key", options, null);
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 60);
+        brazeInstance.initialize("api_key", options, null);
+
+        mockedBrazeStatic.verify(() -> Braze.configure(eq(context), any()), times(2));
+        verify(mockApplication, times(1)).registerActivityLifecycleCallbacks(any(BrazeActivityLifecycleCallbackListener.class));
+        verify(mockApplication, times(1)).unregisterActivityLifecycleCallbacks(brazeInstance);
+    }
+
+    @Test
+    public void initialize_ReplaysRecordedLifecycleEvents() {
+        Application mockApplication = mock();
+        when(mockApplication.getApplicationContext()).thenReturn(context);
+        Application.ActivityLifecycleCallbacks mockListener = mock();
+        brazeInstance = new BrazeInstance(mockApplication) {
+            @Override
+            Application.ActivityLifecycleCallbacks createBrazeLifecycleListener() {
+                return mockListener;
+            }
+        };
+        brazeInstance.startLifecycleRecording();
+
+        brazeInstance.onActivityCreated(activity, null);
+        brazeInstance.onActivityStarted(activity);
+        brazeInstance.onActivityResumed(activity);
+        brazeInstance.initialize("api_key", null, null);
+
+        InOrder inOrder = inOrder(mockListener, mockApplication);
+        inOrder.verify(mockListener).onActivityCreated(activity, null);
+        inOrder.verify(mockListener).onActivityStarted(activity);
+        inOrder.verify(mockListener).onActivityResumed(activity);
+        inOrder.verify(mockApplication).unregisterActivityLifecycleCallbacks(brazeInstance);
+        inOrder.verify(mockApplication).registerActivityLifecycleCallbacks(mockListener);
+        verify(mockBraze, never()).openSession(any());
+    }
+
     @Test
     public void enableSdk_EnablesSdk() {
         brazeInstance.enableSdk();
@@ -240,6 +381,63 @@ public class BrazeInstanceTests {
         verify(mockBrazeUser).setFirstName("name");
     }
 
+    @Test
+    public void setUserFirstName_SuppressesUnchangedValue_WhenAttributeCacheEnabled() {
+        brazeInstance.setAttributeCacheEnabled(true, 0);
+        brazeInstance.setUserFirstName("name");
+        brazeInstance.setUserFirstName("name");
+        brazeInstance.setUserFirstName("other");
+
+        verify(mockBrazeUser, times(1)).setFirstName("name");
+        verify(mockBrazeUser, times(1)).setFirstName("other");
+        assertEquals(1, brazeInstance.getSuppressedAttributeWriteCount());
+        assertEquals(2, brazeInstance.getForwardedAttributeWriteCount());
+    }
+
+    @Test
+    public void setUserFirstName_ResendsValue_WhenPreviousWriteFailed() {
+        brazeInstance.setAttributeCacheEnabled(true, 0);
+        when(mockBrazeUser.setFirstName("name"))
+                .thenThrow(new IllegalStateException())
+                .thenReturn(true);
+
+        try {
+            brazeInstance.setUserFirstName("name");
+        } catch (IllegalStateException ignored) {
+        }
+        brazeInstance.setUserFirstName("name");
+
+        verify(mockBrazeUser, times(2)).setFirstName("name");
+        assertEquals(0, brazeInstance.getSuppressedAttributeWriteCount());
+    }
+
+    @Test
+    public void setUserFirstName_ResendsValue_AfterUserChangeOrWipe() {
+        brazeInstance.setAttributeCacheEnabled(true, 0);
+        brazeInstance.setUserFirstName("name");
+        brazeInstance.setUserId("user", null);
+        brazeInstance.setUserFirstName("name");
+        brazeInstance.wipeData();
+        brazeInstance.setUserFirstName("name");
+
+        verify(mockBrazeUser, times(3)).setFirstName("name");
+        assertEquals(0, brazeInstance.getSuppressedAttributeWriteCount());
+    }
+
+    @Test
+    public void getBrazeUser_IsLookedUpOnce_UntilUserChanges() {
+        brazeInstance.setUserFirstName("first");
+        brazeInstance.setUserLastName("last");
+        brazeInstance.setUserEmail("email");
+
+        verify(mockBraze, times(1)).getCurrentUser();
+
+        brazeInstance.setUserId("user", null);
+        brazeInstance.setUserFirstName("first");
+
+        verify(mockBraze, times(2)).getCurrentUser();
+    }
+
     @Test
     public void setUserLastName_SetsLastName() {
         brazeInstance.setUserLastName("name");
@@ -364,6 +562,206 @@ public class BrazeInstanceTests {
         verify(mockBrazeUser).incrementCustomUserAttribute("attr3", 3);
     }
 
+    @Test
+    public void incrementUserCustomAttribute_AggregatesIncrements_UntilFlushed() throws Exception {
+        brazeInstance.setIncrementAggregationWindow(60_000);
+        JSONObject attributes = new JSONObject();
+        attributes.put("attr1", 1);
+        attributes.put("attr2", 2);
+
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        verify(mockBrazeUser, never()).incrementCustomUserAttribute(any(), anyInt());
+
+        brazeInstance.flushPendingWrites();
+
+        verify(mockBrazeUser).incrementCustomUserAttribute("attr1", 3);
+        verify(mockBrazeUser).incrementCustomUserAttribute("attr2", 6);
+        assertEquals(4, brazeInstance.getCollapsedIncrementCount());
+    }
+
+    @Test
+    public void incrementUserCustomAttribute_RetriesIncrements_WhenSendFails() throws Exception {
+        brazeInstance.setIncrementAggregationWindow(60_000);
+        when(mockBrazeUser.incrementCustomUserAttribute("attr1", 3))
+                .thenThrow(new IllegalStateException())
+                .thenReturn(true);
+        JSONObject attributes = new JSONObject();
+        attributes.put("attr1", 1);
+        attributes.put("attr2", 2);
+
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.flushPendingWrites();
+        brazeInstance.flushPendingWrites();
+
+        verify(mockBrazeUser, times(2)).incrementCustomUserAttribute("attr1", 3);
+        verify(mockBrazeUser, times(1)).incrementCustomUserAttribute("attr2", 6);
+        assertEquals(4, brazeInstance.getCollapsedIncrementCount());
+        assertEquals(0, brazeInstance.getDroppedIncrementCount());
+    }
+
+    @Test
+    public void incrementUserCustomAttribute_DropsUnsentIncrements_WhenUserChanges() throws Exception {
+        brazeInstance.setIncrementAggregationWindow(60_000);
+        when(mockBrazeUser.incrementCustomUserAttribute(any(), anyInt()))
+                .thenThrow(new IllegalStateException());
+        JSONObject attributes = new JSONObject();
+        attributes.put("attr1", 1);
+
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.setUserId("user", null);
+        brazeInstance.flushPendingWrites();
+
+        // attempted once for the previous user, and never for the new one.
+        verify(mockBrazeUser, times(1)).incrementCustomUserAttribute("attr1", 2);
+        assertEquals(2, brazeInstance.getDroppedIncrementCount());
+        assertEquals(0, brazeInstance.getCollapsedIncrementCount());
+    }
+
+    @Test
+    public void incrementUserCustomAttribute_FlushesIncrements_BeforeUserChange() throws Exception {
+        brazeInstance.setIncrementAggregationWindow(60_000);
+        JSONObject attributes = new JSONObject();
+        attributes.put("attr1", 1);
+
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.setUserId("user", null);
+
+        InOrder inOrder = inOrder(mockBraze, mockBrazeUser);
+        inOrder.verify(mockBrazeUser).incrementCustomUserAttribute("attr1", 1);
+        inOrder.verify(mockBraze).changeUser("user");
+    }
+
+    @Test
+    public void incrementUserCustomAttribute_FlushesIncrements_WhenBackgrounded() throws Exception {
+        brazeInstance.setIncrementAggregationWindow(60_000);
+        JSONObject attributes = new JSONObject();
+        attributes.put("attr1", 1);
+
+        brazeInstance.incrementUserCustomAttributes(attributes);
+        brazeInstance.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        verify(mockBrazeUser).incrementCustomUserAttribute("attr1", 1);
+    }
+
+    @Test
+    public void setUserAttributes_CoalescesWrites_UntilFlushed() throws Exception {
+        brazeInstance.setAttributeCoalescingWindow(60_000);
+        JSONObject first = new JSONObject();
+        first.put("attr1", "value1");
+        JSONObject second = new JSONObject();
+        second.put("attr1", "value2");
+
+        brazeInstance.setUserFirstName("first");
+        brazeInstance.setUserFirstName("second");
+        brazeInstance.setUserCustomAttributes(first);
+        brazeInstance.setUserCustomAttributes(second);
+        verify(mockBrazeUser, never()).setFirstName(any());
+        verify(mockBrazeUser, never()).setCustomUserAttribute(any(), any(String.class));
+
+        brazeInstance.flushPendingWrites();
+
+        verify(mockBrazeUser).setFirstName("second");
+        verify(mockBrazeUser, never()).setFirstName("first");
+        verify(mockBrazeUser).setCustomUserAttribute("attr1", "value2");
+        verify(mockBrazeUser, never()).setCustomUserAttribute("attr1", "value1");
+        assertEquals(2, brazeInstance.getCollapsedAttributeWriteCount());
+    }
+
+    @Test
+    public void setUserAttributes_FlushesWrites_BeforeUserChange() {
+        brazeInstance.setAttributeCoalescingWindow(60_000);
+
+        brazeInstance.setUserFirstName("name");
+        brazeInstance.setUserId("user", null);
+
+        InOrder inOrder = inOrder(mockBraze, mockBrazeUser);
+        inOrder.verify(mockBrazeUser).setFirstName("name");
+        inOrder.verify(mockBraze).changeUser("user");
+    }
+
+    @Test
+    public void setUserCustomAttributes_FlushesWrites_BeforeUnset() throws Exception {
+        brazeInstance.setAttributeCoalescingWindow(60_000);
+        JSONObject attributes = new JSONObject();
+        attributes.put("attr1", "value1");
+
+        brazeInstance.setUserCustomAttributes(attributes);
+        brazeInstance.unsetUserCustomAttributes(new JSONArray().put("attr1"));
+
+        InOrder inOrder = inOrder(mockBrazeUser);
+        inOrder.verify(mockBrazeUser).setCustomUserAttribute("attr1", "value1");
+        inOrder.verify(mockBrazeUser).unsetCustomUserAttribute("attr1");
+    }
+
+    @Test
+    public void setUserCustomAttributes_DiscardsPendingIncrements() throws Exception {
+        brazeInstance.setIncrementAggregationWindow(60_000);
+        brazeInstance.setAttributeCoalescingWindow(60_000);
+        JSONObject increment = new JSONObject();
+        increment.put("attr1", 1);
+        JSONObject value = new JSONObject();
+        value.put("attr1", 10);
+
+        brazeInstance.incrementUserCustomAttributes(increment);
+        brazeInstance.setUserCustomAttributes(value);
+        brazeInstance.flushPendingWrites();
+
+        verify(mockBrazeUser).setCustomUserAttribute("attr1", 10);
+        verify(mockBrazeUser, never()).incrementCustomUserAttribute(any(), anyInt());
+    }
+
+    @Test
+    public void incrementUserCustomAttribute_FlushesCoalescedValue_BeforeIncrementing() throws Exception {
+        brazeInstance.setAttributeCoalescingWindow(60_000);
+        JSONObject value = new JSONObject();
+        value.put("attr1", 5);
+        JSONObject increment = new JSONObject();
+        increment.put("attr1", 1);
+
+        brazeInstance.setUserCustomAttributes(value);
+        brazeInstance.incrementUserCustomAttributes(increment);
+
+        InOrder inOrder = inOrder(mockBrazeUser);
+        inOrder.verify(mockBrazeUser).setCustomUserAttribute("attr1", 5);
+        inOrder.verify(mockBrazeUser).incrementCustomUserAttribute("attr1", 1);
+    }
+
+    @Test
+    public void incrementUserCustomAttribute_SendsCoalescedValues_BeforeAggregatedIncrements() throws Exception {
+        brazeInstance.setAttributeCoalescingWindow(60_000);
+        brazeInstance.setIncrementAggregationWindow(50);
+        JSONObject values = new JSONObject();
+        values.put("attr1", 5);
+        values.put("attr2", "value2");
+        JSONObject increment = new JSONObject();
+        increment.put("attr1", 1);
+
+        brazeInstance.setUserCustomAttributes(values);
+        brazeInstance.incrementUserCustomAttributes(increment);
+
+        // the increment window closing also flushes the held attr2, ahead of the increment
+        verify(mockBrazeUser, timeout(5_000)).incrementCustomUserAttribute("attr1", 1);
+        InOrder inOrder = inOrder(mockBrazeUser);
+        inOrder.verify(mockBrazeUser).setCustomUserAttribute("attr1", 5);
+        inOrder.verify(mockBrazeUser).setCustomUserAttribute("attr2", "value2");
+        inOrder.verify(mockBrazeUser).incrementCustomUserAttribute("attr1", 1);
+    }
+
+    @Test
+    public void setUserAttributes_FlushesWrites_WhenBackgrounded() {
+        brazeInstance.setAttributeCoalescingWindow(60_000);
+
+        brazeInstance.setUserEmail("email");
+        brazeInstance.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+
+        verify(mockBrazeUser).setEmail("email");
+    }
+
     @Test
     public void removeUserCustomAttribute_RemovesAttributes() throws Exception {
         JSONObject attributes = new JSONObject();
@@ -506,4 +904,27 @@ public class BrazeInstanceTests {
 
         verify(mockBraze).setSdkAuthenticationSignature("signature");
     }
+
+    @Test
+    public void detectSdkState_ReturnsNull_WhenNotConfigured() {
+        assertNull(brazeInstance.detectSdkState());
+    }
+
+    @Test
+    public void detectSdkState_ReturnsActive_WhenConfiguredByResources() {
+        Application app = mock(Application.class);
+        Resources resources = mock(Resources.class);
+        when(app.getResources()).thenReturn(resources);
+        when(app.getPackageName()).thenReturn("com.example");
+        when(resources.getIdentifier(BrazeInstance.API_KEY_RESOURCE, "string", "com.example")).thenReturn(1);
+
+        assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, new BrazeInstance(app).detectSdkState());
+    }
+
+    @Test
+    public void detectSdkState_ReturnsDisabled_WhenDisabledOnPreviousLaunch() {
+        mockedBrazeStatic.when(Braze::isDisabled).thenReturn(true);
+
+        assertEquals(BrazeRemoteCommand.SdkState.DISABLED, brazeInstance.detectSdkState());
+    }
 }
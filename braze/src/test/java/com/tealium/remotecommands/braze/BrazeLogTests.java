@@ -0,0 +1,134 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import android.app.Application;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.tealium.remotecommands.braze.BrazeConstants.Commands;
+import com.tealium.remotecommands.braze.BrazeRemoteCommand.LogLevel;
+
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BrazeLogTests {
+
+    @After
+    public void tearDown() {
+        BrazeRemoteCommand.setLogLevel(LogLevel.WARN);
+        BrazeRemoteCommand.disableLogBuffer();
+    }
+
+    @Test
+    public void format_SubstitutesArgumentsInOrder() {
+        assertEquals("no placeholders", BrazeLog.format("no placeholders", "a", null, null));
+        assertEquals("a and b", BrazeLog.format("{} and {}", "a", "b", null));
+        assertEquals("1-2-3", BrazeLog.format("{}-{}-{}", 1, 2, 3));
+        assertEquals("null!", BrazeLog.format("{}!", null, null, null));
+        assertEquals("a b c {}", BrazeLog.format("{} {} {} {}", "a", "b", "c"));
+    }
+
+    @Test
+    public void level_DefaultsToWarn() {
+        assertEquals(LogLevel.WARN, BrazeRemoteCommand.getLogLevel());
+        assertFalse(BrazeLog.isDebugEnabled());
+        assertTrue(BrazeLog.isWarnEnabled());
+    }
+
+    @Test
+    public void buffer_KeepsOnlyEnabledLevels() {
+        BrazeRemoteCommand.enableLogBuffer(10);
+
+        BrazeLog.d("debug {}", "message");
+        BrazeLog.w("warn {}", "message");
+        BrazeRemoteCommand.setLogLevel(LogLevel.DEBUG);
+        BrazeLog.d("debug {}", "again");
+
+        List<String> messages = BrazeRemoteCommand.getLogBuffer();
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(0).endsWith("W warn message"));
+        assertTrue(messages.get(1).endsWith("D debug again"));
+    }
+
+    @Test
+    public void buffer_KeepsMostRecentMessages() {
+        BrazeRemoteCommand.enableLogBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            BrazeLog.w("message {}", i);
+        }
+
+        List<String> messages = BrazeRemoteCommand.getLogBuffer();
+        assertEquals(3, messages.size());
+        assertTrue(messages.get(0).endsWith("message 2"));
+        assertTrue(messages.get(2).endsWith("message 4"));
+
+        BrazeRemoteCommand.disableLogBuffer();
+        assertTrue(BrazeRemoteCommand.getLogBuffer().isEmpty());
+    }
+
+    @Test
+    public void none_DisablesAllLogging() {
+        BrazeRemoteCommand.enableLogBuffer(10);
+        BrazeRemoteCommand.setLogLevel(LogLevel.NONE);
+
+        BrazeLog.w("warn", new RuntimeException());
+
+        assertFalse(BrazeLog.isWarnEnabled());
+        assertTrue(BrazeRemoteCommand.getLogBuffer().isEmpty());
+    }
+
+    @Test
+    public void dispatch_DoesNotAllocate_WhenDebugLoggingDisabled() {
+        final com.sun.management.ThreadMXBean threads = threadMXBean();
+        assumeTrue(threads != null);
+
+        Application application = ApplicationProvider.getApplicationContext();
+        BrazeRemoteCommand command = new BrazeRemoteCommand(application);
+        command.registerCommand(Commands.FLUSH, payload -> {
+        });
+        command.registerCommand("customcommand", payload -> {
+        });
+        final CommandPlan plan = CommandPlan.compile(Commands.FLUSH + ",customcommand");
+        final JSONObject payload = new JSONObject();
+
+        for (int i = 0; i < 10_000; i++) {
+            command.parseCommands(plan, payload);
+        }
+
+        final long threadId = Thread.currentThread().getId();
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < 10_000; i++) {
+            command.parseCommands(plan, payload);
+        }
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        // allow for the measurement itself; any per-command allocation would be far larger.
+        assertTrue("allocated " + allocated + " bytes", allocated < 10_000);
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    threads.setThreadAllocatedMemoryEnabled(true);
+                    return threads;
+                }
+            }
+        } catch (Exception ignore) {
+        }
+        return null;
+    }
+}
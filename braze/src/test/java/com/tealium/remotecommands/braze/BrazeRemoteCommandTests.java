@@ -4,9 +4,14 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import android.app.Activity;
 import android.app.Application;
@@ -27,11 +32,17 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.robolectric.RobolectricTestRunner;
 
+import java.io.File;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(RobolectricTestRunner.class)
 public class BrazeRemoteCommandTests {
@@ -172,6 +183,23 @@ public class BrazeRemoteCommandTests {
         verify(mockBrazeInstance).logPurchase("product_id", "GBP",  BigDecimal.valueOf(10.10), 10, null);
     }
 
+    @Test
+    public void testPurchaseEvent_SendsIntegralPriceWithZeroScale() throws Exception {
+        RemoteCommand.Response response = ResponseBuilder.create()
+                .addCommand(Commands.LOG_PURCHASE_EVENT)
+                .populatePayload((json) -> {
+                    json.put(Purchase.PRODUCT_ID, "product_id");
+                    json.put(Purchase.PRODUCT_QTY, 1);
+                    json.put(Purchase.PRODUCT_PRICE, 10.0);
+                })
+                .build();
+
+        brazeRemoteCommand.onInvoke(response);
+
+        // previously BigDecimal.valueOf(10.0), i.e. "10.0" with a scale of 1.
+        verify(mockBrazeInstance).logPurchase("product_id", null, new BigDecimal(10), 1, null);
+    }
+
     @Test
     public void testPurchaseEventWithProperties() throws Exception {
         JSONObject purchaseProps = new JSONObject();
@@ -210,6 +238,52 @@ public class BrazeRemoteCommandTests {
         verify(mockBrazeInstance).logPurchase("product_id", "GBP",  BigDecimal.valueOf(10.10), 10, purchaseProps);
     }
 
+    @Test
+    public void testMultiplePurchaseEvent_UsesExactPrices() throws Exception {
+        RemoteCommand.Response response = ResponseBuilder.create()
+                .addCommand(Commands.LOG_PURCHASE_EVENT)
+                .populatePayload((json) -> {
+                    json.put(Purchase.PRODUCT_ID, new JSONArray().put("product1").put("product2"));
+                    json.put(Purchase.PRODUCT_QTY, new JSONArray().put(2).put("3"));
+                    json.put(Purchase.PRODUCT_PRICE, new JSONArray().put(9.99).put("10.00"));
+                    json.put(Purchase.PRODUCT_CURRENCY, new JSONArray().put("gbp").put("GBP"));
+                })
+                .build();
+
+        brazeRemoteCommand.onInvoke(response);
+
+        ArgumentCaptor<PurchaseBatch> batch = ArgumentCaptor.forClass(PurchaseBatch.class);
+        verify(mockBrazeInstance).logPurchases(batch.capture());
+        Assert.assertArrayEquals(new String[]{"product1", "product2"}, batch.getValue().productIds());
+        Assert.assertArrayEquals(new String[]{"GBP", "GBP"}, batch.getValue().currencies());
+        Assert.assertArrayEquals(new BigDecimal[]{new BigDecimal("9.99"), new BigDecimal(10)}, batch.getValue().unitPrices());
+        Assert.assertArrayEquals(new int[]{2, 3}, batch.getValue().quantities());
+    }
+
+    @Test
+    public void testMultiplePurchaseEvent_BoxesQuantities_ForOtherBrazeCommands() throws Exception {
+        BrazeCommand mockBrazeCommand = mock(BrazeCommand.class);
+        brazeRemoteCommand.mBraze = mockBrazeCommand;
+        RemoteCommand.Response response = ResponseBuilder.create()
+                .addCommand(Commands.LOG_PURCHASE_EVENT)
+                .populatePayload((json) -> {
+                    json.put(Purchase.PRODUCT_ID, new JSONArray().put("product1").put("product2"));
+                    json.put(Purchase.PRODUCT_QTY, new JSONArray().put(2).put("3"));
+                    json.put(Purchase.PRODUCT_PRICE, new JSONArray().put(9.99).put("10.00"));
+                    json.put(Purchase.PRODUCT_CURRENCY, new JSONArray().put("gbp").put("GBP"));
+                })
+                .build();
+
+        brazeRemoteCommand.onInvoke(response);
+
+        verify(mockBrazeCommand).logPurchase(
+                eq(new String[]{"product1", "product2"}),
+                eq(new String[]{"GBP", "GBP"}),
+                eq(new BigDecimal[]{new BigDecimal("9.99"), new BigDecimal(10)}),
+                eq(new Integer[]{2, 3}),
+                any());
+    }
+
     @Test
     public void testWipeData() throws Exception {
         RemoteCommand.Response response = ResponseBuilder.create()
@@ -510,6 +584,46 @@ public class BrazeRemoteCommandTests {
         verify(mockBrazeInstance).setLastKnownLocation(0.0, 1.1, 2.2, 3.3);
     }
 
+    @Test
+    public void testSetLastLocation_FiltersNearbyUpdates() throws Exception {
+        brazeRemoteCommand.setLocationFilter(100, 0, false, -1);
+        double[][] locations = {{51.5, -0.12}, {51.5001, -0.12}, {51.51, -0.12}};
+        for (double[] location : locations) {
+            RemoteCommand.Response response = ResponseBuilder.create()
+                    .addCommand(Commands.SET_LAST_KNOWN_LOCATION)
+                    .populatePayload((json) -> {
+                        json.put(Location.LOCATION_LATITUDE, location[0]);
+                        json.put(Location.LOCATION_LONGITUDE, location[1]);
+                    })
+                    .build();
+            brazeRemoteCommand.onInvoke(response);
+        }
+
+        verify(mockBrazeInstance).setLastKnownLocation(51.5, -0.12, null, null);
+        verify(mockBrazeInstance, never()).setLastKnownLocation(51.5001, -0.12, null, null);
+        verify(mockBrazeInstance).setLastKnownLocation(51.51, -0.12, null, null);
+        Assert.assertEquals(1, brazeRemoteCommand.getSuppressedLocationUpdateCount());
+    }
+
+    @Test
+    public void testLocationFilter_AcceptsAccuracyImprovements() {
+        LocationFilter filter = new LocationFilter(1000, 60_000, true, -1);
+
+        Assert.assertTrue(filter.accept(51.5, -0.12, 50, 0));
+        Assert.assertFalse(filter.accept(51.5, -0.12, 50, 10));
+        Assert.assertTrue(filter.accept(51.5, -0.12, 10, 20));
+        Assert.assertFalse(filter.accept(51.6, -0.12, Double.NaN, 30));
+        Assert.assertTrue(filter.accept(51.6, -0.12, Double.NaN, 60_020));
+    }
+
+    @Test
+    public void testLocationFilter_QuantisesCoordinates() {
+        LocationFilter filter = new LocationFilter(0, 0, false, 3);
+
+        Assert.assertEquals(51.501, filter.quantise(51.50123), 0);
+        Assert.assertEquals(-0.123, filter.quantise(-0.12251), 0);
+    }
+
     @Test
     public void testSetAdTrackingEnabled() throws Exception {
         RemoteCommand.Response response = ResponseBuilder.create()
@@ -536,6 +650,662 @@ public class BrazeRemoteCommandTests {
         verify(mockBrazeInstance, never()).setAdTrackingEnabled(anyString(), anyBoolean());
     }
 
+    @Test
+    public void testCommandPlanCache_HitsOnRepeatedPayloads() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            RemoteCommand.Response response = ResponseBuilder.create()
+                    .addCommand(Commands.ENABLE_SDK)
+                    .addCommand(Commands.FLUSH)
+                    .build();
+            brazeRemoteCommand.onInvoke(response);
+        }
+
+        verify(mockBrazeInstance, times(3)).enableSdk();
+        verify(mockBrazeInstance, times(3)).requestFlush();
+        Assert.assertEquals(1, brazeRemoteCommand.getCommandPlanCacheMissCount());
+        Assert.assertEquals(2, brazeRemoteCommand.getCommandPlanCacheHitCount());
+    }
+
+    @Test
+    public void testMetricsSnapshot_RecordsEachExecutedCommand() throws Exception {
+        brazeRemoteCommand.registerCommand("customcommand", payload -> {
+        });
+        for (int i = 0; i < 3; i++) {
+            RemoteCommand.Response response = ResponseBuilder.create()
+                    .addCommand(Commands.ENABLE_SDK)
+                    .addCommand(Commands.FLUSH)
+                    .addCommand("customcommand")
+                    .build();
+            brazeRemoteCommand.onInvoke(response);
+        }
+
+        BrazeRemoteCommand.MetricsSnapshot snapshot = brazeRemoteCommand.getMetricsSnapshot();
+        Assert.assertEquals(2, snapshot.getCommands().size());
+        Assert.assertEquals(3, snapshot.getCommand(Commands.ENABLE_SDK).getCount());
+        Assert.assertEquals(3, snapshot.getCommand(Commands.FLUSH).getCount());
+        Assert.assertNull(snapshot.getCommand(Commands.WIPE_DATA));
+        Assert.assertEquals(3, snapshot.getCustomCommands().getCount());
+        Assert.assertEquals(3, snapshot.getInvocations().getCount());
+
+        BrazeRemoteCommand.LatencySummary flush = snapshot.getCommand(Commands.FLUSH);
+        Assert.assertTrue(flush.getP50Nanos() <= flush.getP90Nanos());
+        Assert.assertTrue(flush.getP90Nanos() <= flush.getP99Nanos());
+        Assert.assertTrue(flush.getP99Nanos() <= flush.getMaxNanos());
+    }
+
+    @Test
+    public void testMetricsSnapshot_ClearedByReset() throws Exception {
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .build());
+
+        brazeRemoteCommand.resetMetrics();
+
+        BrazeRemoteCommand.MetricsSnapshot snapshot = brazeRemoteCommand.getMetricsSnapshot();
+        Assert.assertTrue(snapshot.getCommands().isEmpty());
+        Assert.assertEquals(0, snapshot.getInvocations().getCount());
+        Assert.assertEquals(0, snapshot.getInvocations().getMaxNanos());
+    }
+
+    @Test
+    public void testCommandInterceptor_CanSkipCommand() throws Exception {
+        List<BrazeRemoteCommand.CommandOutcome> outcomes = new ArrayList<>();
+        brazeRemoteCommand.addCommandInterceptor(new BrazeRemoteCommand.CommandInterceptor() {
+            @Override
+            public void beforeCommand(BrazeRemoteCommand.InterceptedCommand command) {
+                if (Commands.FLUSH.equals(command.getName())) {
+                    command.skip();
+                }
+            }
+
+            @Override
+            public void afterCommand(BrazeRemoteCommand.InterceptedCommand command, BrazeRemoteCommand.CommandOutcome outcome, Exception error, long elapsedNanos) {
+                outcomes.add(outcome);
+            }
+        });
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .addCommand(Commands.ENABLE_SDK)
+                .build());
+
+        verify(mockBrazeInstance, never()).requestFlush();
+        verify(mockBrazeInstance).enableSdk();
+        Assert.assertEquals(2, outcomes.size());
+        Assert.assertEquals(BrazeRemoteCommand.CommandOutcome.SKIPPED, outcomes.get(0));
+        Assert.assertEquals(BrazeRemoteCommand.CommandOutcome.EXECUTED, outcomes.get(1));
+    }
+
+    @Test
+    public void testCommandInterceptor_CanRerouteAndReplacePayload() throws Exception {
+        brazeRemoteCommand.addCommandInterceptor(new BrazeRemoteCommand.CommandInterceptor() {
+            @Override
+            public void beforeCommand(BrazeRemoteCommand.InterceptedCommand command) {
+                try {
+                    command.reroute(Commands.LOG_CUSTOM_EVENT);
+                    command.setPayload(new JSONObject().put(BrazeConstants.Event.EVENT_NAME, "rerouted"));
+                } catch (JSONException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        });
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .build());
+
+        verify(mockBrazeInstance, never()).requestFlush();
+        verify(mockBrazeInstance).logCustomEvent(eq("rerouted"), eq(null));
+    }
+
+    @Test
+    public void testCommandInterceptor_NotifiedOfFailuresInReverseOrder() throws Exception {
+        List<String> calls = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+        for (String name : new String[]{"first", "second"}) {
+            brazeRemoteCommand.addCommandInterceptor(new BrazeRemoteCommand.CommandInterceptor() {
+                @Override
+                public void beforeCommand(BrazeRemoteCommand.InterceptedCommand command) {
+                    calls.add("before " + name);
+                }
+
+                @Override
+                public void afterCommand(BrazeRemoteCommand.InterceptedCommand command, BrazeRemoteCommand.CommandOutcome outcome, Exception error, long elapsedNanos) {
+                    calls.add("after " + name + " " + outcome);
+                    errors.add(error);
+                    Assert.assertTrue(elapsedNanos >= 0);
+                }
+            });
+        }
+
+        // not a JSONObject
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.SET_CUSTOM_ATTRIBUTE)
+                .populatePayload(json -> json.put(User.SET_CUSTOM_ATTRIBUTE, "not an object"))
+                .build());
+
+        Assert.assertEquals(4, calls.size());
+        Assert.assertEquals("before first", calls.get(0));
+        Assert.assertEquals("before second", calls.get(1));
+        Assert.assertEquals("after second FAILED", calls.get(2));
+        Assert.assertEquals("after first FAILED", calls.get(3));
+        Assert.assertTrue(errors.get(0) instanceof JSONException);
+    }
+
+    @Test
+    public void testCommandInterceptor_ExceptionsDoNotPreventExecution() throws Exception {
+        BrazeRemoteCommand.CommandInterceptor interceptor = new BrazeRemoteCommand.CommandInterceptor() {
+            @Override
+            public void beforeCommand(BrazeRemoteCommand.InterceptedCommand command) {
+                throw new IllegalStateException("before");
+            }
+
+            @Override
+            public void afterCommand(BrazeRemoteCommand.InterceptedCommand command, BrazeRemoteCommand.CommandOutcome outcome, Exception error, long elapsedNanos) {
+                throw new IllegalStateException("after");
+            }
+        };
+        brazeRemoteCommand.addCommandInterceptor(interceptor);
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .build());
+        brazeRemoteCommand.removeCommandInterceptor(interceptor);
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .build());
+
+        verify(mockBrazeInstance, times(2)).requestFlush();
+        Assert.assertEquals(0, brazeRemoteCommand.mInterceptors.get().length);
+    }
+
+    @Test
+    public void testCommandInterceptor_NotifiedOfDroppedCommands() throws Exception {
+        List<BrazeRemoteCommand.CommandOutcome> outcomes = new ArrayList<>();
+        brazeRemoteCommand.addCommandInterceptor(new BrazeRemoteCommand.CommandInterceptor() {
+            @Override
+            public void afterCommand(BrazeRemoteCommand.InterceptedCommand command, BrazeRemoteCommand.CommandOutcome outcome, Exception error, long elapsedNanos) {
+                outcomes.add(outcome);
+            }
+        });
+        brazeRemoteCommand.setRoutingPolicy(BrazeRemoteCommand.SdkState.UNCONFIGURED, BrazeRemoteCommand.RoutingPolicy.DROP);
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .addCommand("unknowncommand")
+                .build());
+
+        verify(mockBrazeInstance, never()).requestFlush();
+        Assert.assertEquals(2, outcomes.size());
+        Assert.assertEquals(BrazeRemoteCommand.CommandOutcome.DROPPED, outcomes.get(0));
+        Assert.assertEquals(BrazeRemoteCommand.CommandOutcome.UNHANDLED, outcomes.get(1));
+    }
+
+    @Test
+    public void testErrors_MissingRequiredKey_RejectedWithoutExecuting() throws Exception {
+        List<BrazeRemoteCommand.CommandOutcome> outcomes = new ArrayList<>();
+        brazeRemoteCommand.addCommandInterceptor(new BrazeRemoteCommand.CommandInterceptor() {
+            @Override
+            public void afterCommand(BrazeRemoteCommand.InterceptedCommand command, BrazeRemoteCommand.CommandOutcome outcome, Exception error, long elapsedNanos) {
+                outcomes.add(outcome);
+            }
+        });
+
+        for (int i = 0; i < 2; i++) {
+            brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                    .addCommand(Commands.SET_LAST_KNOWN_LOCATION)
+                    .populatePayload(json -> json.put(Location.LOCATION_LATITUDE, 1.0))
+                    .build());
+        }
+
+        verify(mockBrazeInstance, never()).setLastKnownLocation(any(), any(), any(), any());
+        Assert.assertEquals(2, brazeRemoteCommand.getErrorCount(Commands.SET_LAST_KNOWN_LOCATION, BrazeRemoteCommand.ErrorType.MISSING_KEY));
+        Assert.assertEquals(0, brazeRemoteCommand.getErrorCount(Commands.SET_LAST_KNOWN_LOCATION, BrazeRemoteCommand.ErrorType.INVALID_VALUE));
+        Assert.assertEquals(BrazeRemoteCommand.CommandOutcome.REJECTED, outcomes.get(0));
+
+        List<BrazeRemoteCommand.CommandFailure> failures = brazeRemoteCommand.getRecentFailures();
+        Assert.assertEquals(2, failures.size());
+        BrazeRemoteCommand.CommandFailure failure = failures.get(0);
+        Assert.assertEquals(Commands.SET_LAST_KNOWN_LOCATION, failure.getCommandName());
+        Assert.assertEquals(BrazeRemoteCommand.ErrorType.MISSING_KEY, failure.getErrorType());
+        Assert.assertEquals(Location.LOCATION_LONGITUDE, failure.getDetail());
+        Assert.assertNull(failure.getExceptionClass());
+        Assert.assertTrue(failure.getPayloadKeys().contains(Location.LOCATION_LATITUDE));
+    }
+
+    @Test
+    public void testErrors_CountsByErrorType() throws Exception {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("sdk failure");
+        }).when(mockBrazeInstance).requestFlush();
+        brazeRemoteCommand.registerCommand("customcommand", payload -> {
+            throw new RuntimeException("custom failure");
+        });
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.SET_CUSTOM_ATTRIBUTE)
+                .addCommand(Commands.FLUSH)
+                .addCommand("customcommand")
+                .populatePayload(json -> json.put(User.SET_CUSTOM_ATTRIBUTE, "not an object"))
+                .build());
+
+        Assert.assertEquals(1, brazeRemoteCommand.getErrorCount(Commands.SET_CUSTOM_ATTRIBUTE, BrazeRemoteCommand.ErrorType.INVALID_VALUE));
+        Assert.assertEquals(1, brazeRemoteCommand.getErrorCount(Commands.FLUSH, BrazeRemoteCommand.ErrorType.EXCEPTION));
+        Assert.assertEquals(1, brazeRemoteCommand.getErrorCount("customcommand", BrazeRemoteCommand.ErrorType.EXCEPTION));
+        Assert.assertEquals(3, brazeRemoteCommand.getTotalErrorCount());
+
+        List<BrazeRemoteCommand.CommandFailure> failures = brazeRemoteCommand.getRecentFailures();
+        Assert.assertEquals(3, failures.size());
+        Assert.assertEquals(IllegalStateException.class.getName(), failures.get(1).getExceptionClass());
+        Assert.assertEquals("sdk failure", failures.get(1).getDetail());
+
+        brazeRemoteCommand.resetErrors();
+        Assert.assertEquals(0, brazeRemoteCommand.getTotalErrorCount());
+        Assert.assertTrue(brazeRemoteCommand.getRecentFailures().isEmpty());
+    }
+
+    @Test
+    public void testErrors_ReplacedBuiltInHandler_HasNoRequiredKeys() throws Exception {
+        List<JSONObject> payloads = new ArrayList<>();
+        brazeRemoteCommand.registerCommand(Commands.LOG_CUSTOM_EVENT, payloads::add);
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.LOG_CUSTOM_EVENT)
+                .build());
+
+        Assert.assertEquals(1, payloads.size());
+        Assert.assertEquals(0, brazeRemoteCommand.getTotalErrorCount());
+    }
+
+    @Test
+    public void testCommandErrors_HistoryKeepsMostRecentFailures() {
+        CommandErrors errors = new CommandErrors(2);
+        for (int i = 0; i < 5; i++) {
+            errors.record("command" + i, null, BrazeRemoteCommand.ErrorType.EXCEPTION, null, null, null);
+        }
+
+        List<BrazeRemoteCommand.CommandFailure> failures = errors.getRecent();
+        Assert.assertEquals(2, failures.size());
+        Assert.assertEquals("command3", failures.get(0).getCommandName());
+        Assert.assertEquals("command4", failures.get(1).getCommandName());
+        Assert.assertEquals(5, errors.getCount(null, BrazeRemoteCommand.ErrorType.EXCEPTION));
+    }
+
+    @Test
+    public void testCommandPlan_TrimsAndRemovesDuplicates() {
+        CommandPlan plan = CommandPlan.compile(" wipedata, flush ,wipedata,,unknown");
+
+        Assert.assertEquals(3, plan.size());
+        Assert.assertEquals(CommandType.WIPE_DATA, plan.types[0]);
+        Assert.assertEquals(CommandType.FLUSH, plan.types[1]);
+        Assert.assertEquals("unknown", plan.names[2]);
+        Assert.assertNull(plan.types[2]);
+    }
+
+    @Test
+    public void testAsyncExecution_ExecutesCommandsOffCallerThread() throws Exception {
+        brazeRemoteCommand.enableAsyncExecution(10, BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS);
+        RemoteCommand.Response response = ResponseBuilder.create()
+                .addCommand(Commands.ENABLE_SDK)
+                .addCommand(Commands.FLUSH)
+                .build();
+
+        brazeRemoteCommand.onInvoke(response);
+
+        InOrder inOrder = inOrder(mockBrazeInstance);
+        inOrder.verify(mockBrazeInstance, timeout(1000)).enableSdk();
+        inOrder.verify(mockBrazeInstance, timeout(1000)).requestFlush();
+        brazeRemoteCommand.disableAsyncExecution();
+    }
+
+    @Test
+    public void testDisableAsyncExecution_RunsQueuedPayloads_BeforeLaterPayloads() throws Exception {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        brazeRemoteCommand.registerCommand("slowcommand", payload -> {
+            Thread.sleep(100);
+            executed.add("slowcommand");
+        });
+        brazeRemoteCommand.registerCommand("fastcommand", payload -> executed.add("fastcommand"));
+        brazeRemoteCommand.enableAsyncExecution(10, BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS);
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create().addCommand("slowcommand").build());
+        brazeRemoteCommand.disableAsyncExecution();
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create().addCommand("fastcommand").build());
+
+        Assert.assertEquals(List.of("slowcommand", "fastcommand"), executed);
+    }
+
+    @Test
+    public void testRegisterCommand_ExecutesCustomCommand() throws Exception {
+        BrazeRemoteCommand.CommandHandler handler = mock();
+        brazeRemoteCommand.registerCommand("customcommand", handler);
+        RemoteCommand.Response response = ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .addCommand("customcommand")
+                .build();
+
+        brazeRemoteCommand.onInvoke(response);
+
+        verify(mockBrazeInstance).requestFlush();
+        verify(handler).handle(response.getRequestPayload());
+    }
+
+    @Test
+    public void testRegisterCommand_ReplacesBuiltInCommand() throws Exception {
+        BrazeRemoteCommand.CommandHandler handler = mock();
+        brazeRemoteCommand.registerCommand(Commands.FLUSH, handler);
+        RemoteCommand.Response response = ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .build();
+
+        brazeRemoteCommand.onInvoke(response);
+
+        verify(mockBrazeInstance, never()).requestFlush();
+        verify(handler).handle(response.getRequestPayload());
+    }
+
+    @Test
+    public void testCommandJournal_ReplaysCommandsAfterInitialize() throws Exception {
+        File directory = java.nio.file.Files.createTempDirectory("journal").toFile();
+        Assert.assertTrue(brazeRemoteCommand.enableCommandJournal(directory, 4096, 0));
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.LOG_CUSTOM_EVENT)
+                .populatePayload((json) -> json.put(BrazeConstants.Event.EVENT_NAME, "event"))
+                .build());
+        verify(mockBrazeInstance, never()).logCustomEvent(any(), any());
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .addCommand(Commands.FLUSH)
+                .build());
+
+        InOrder inOrder = inOrder(mockBrazeInstance);
+        inOrder.verify(mockBrazeInstance).initialize(any(), any(), any());
+        inOrder.verify(mockBrazeInstance).logCustomEvent(eq("event"), eq(null));
+        inOrder.verify(mockBrazeInstance).requestFlush();
+    }
+
+    @Test
+    public void testCommandJournal_ForwardsCommands_WhenConfiguredByBrazeXml() throws Exception {
+        when(mockBrazeInstance.detectSdkState()).thenReturn(BrazeRemoteCommand.SdkState.ACTIVE);
+        File directory = java.nio.file.Files.createTempDirectory("journal").toFile();
+        brazeRemoteCommand.enableCommandJournal(directory, 4096, 0);
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.LOG_CUSTOM_EVENT)
+                .populatePayload((json) -> json.put(BrazeConstants.Event.EVENT_NAME, "event"))
+                .build());
+
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, brazeRemoteCommand.getSdkState());
+        verify(mockBrazeInstance).logCustomEvent(eq("event"), eq(null));
+        verify(mockBrazeInstance, never()).initialize(any(), any(), any());
+    }
+
+    @Test
+    public void testCommandJournal_RestoresDisabledState() throws Exception {
+        when(mockBrazeInstance.detectSdkState()).thenReturn(BrazeRemoteCommand.SdkState.DISABLED);
+        File directory = java.nio.file.Files.createTempDirectory("journal").toFile();
+        brazeRemoteCommand.enableCommandJournal(directory, 4096, 0);
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .addCommand(Commands.FLUSH)
+                .build());
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.DISABLED, brazeRemoteCommand.getSdkState());
+        verify(mockBrazeInstance, never()).requestFlush();
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.ENABLE_SDK)
+                .build());
+        verify(mockBrazeInstance).requestFlush();
+    }
+
+    @Test
+    public void testSetInitialSdkState_ReplaysJournal() throws Exception {
+        File directory = java.nio.file.Files.createTempDirectory("journal").toFile();
+        brazeRemoteCommand.enableCommandJournal(directory, 4096, 0);
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.LOG_CUSTOM_EVENT)
+                .populatePayload((json) -> json.put(BrazeConstants.Event.EVENT_NAME, "event"))
+                .build());
+        verify(mockBrazeInstance, never()).logCustomEvent(any(), any());
+
+        brazeRemoteCommand.setInitialSdkState(BrazeRemoteCommand.SdkState.ACTIVE);
+
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, brazeRemoteCommand.getSdkState());
+        verify(mockBrazeInstance).logCustomEvent(eq("event"), eq(null));
+    }
+
+    @Test
+    public void testSetInitialSdkState_IgnoredAfterLifecycleCommand() throws Exception {
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .build());
+
+        brazeRemoteCommand.setInitialSdkState(BrazeRemoteCommand.SdkState.DISABLED);
+
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, brazeRemoteCommand.getSdkState());
+    }
+
+    @Test
+    public void testCommandJournal_JournalsCommandsWhileDisabled() throws Exception {
+        File directory = java.nio.file.Files.createTempDirectory("journal").toFile();
+        brazeRemoteCommand.enableCommandJournal(directory, 4096, 0);
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .addCommand(Commands.DISABLE_SDK)
+                .build());
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .build());
+        verify(mockBrazeInstance, never()).requestFlush();
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.ENABLE_SDK)
+                .build());
+        verify(mockBrazeInstance).requestFlush();
+    }
+
+    @Test
+    public void testSdkState_TransitionsOnLifecycleCommands() throws Exception {
+        BrazeRemoteCommand.SdkStateListener listener = mock();
+        brazeRemoteCommand.addSdkStateListener(listener);
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.UNCONFIGURED, brazeRemoteCommand.getSdkState());
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create().addCommand(Commands.INITIALIZE).build());
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, brazeRemoteCommand.getSdkState());
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create().addCommand(Commands.DISABLE_SDK).build());
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.DISABLED, brazeRemoteCommand.getSdkState());
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create().addCommand(Commands.ENABLE_SDK).build());
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, brazeRemoteCommand.getSdkState());
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create().addCommand(Commands.WIPE_DATA).build());
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.WIPED, brazeRemoteCommand.getSdkState());
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onSdkStateChanged(BrazeRemoteCommand.SdkState.UNCONFIGURED, BrazeRemoteCommand.SdkState.ACTIVE);
+        inOrder.verify(listener).onSdkStateChanged(BrazeRemoteCommand.SdkState.ACTIVE, BrazeRemoteCommand.SdkState.DISABLED);
+        inOrder.verify(listener).onSdkStateChanged(BrazeRemoteCommand.SdkState.DISABLED, BrazeRemoteCommand.SdkState.ACTIVE);
+        inOrder.verify(listener).onSdkStateChanged(BrazeRemoteCommand.SdkState.ACTIVE, BrazeRemoteCommand.SdkState.WIPED);
+    }
+
+    @Test
+    public void testSdkState_DropsCommandsWhileDisabled() throws Exception {
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .addCommand(Commands.DISABLE_SDK)
+                .addCommand(Commands.FLUSH)
+                .addCommand(Commands.ENABLE_SDK)
+                .build());
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.WIPE_DATA)
+                .addCommand(Commands.FLUSH)
+                .build());
+
+        verify(mockBrazeInstance).disableSdk();
+        verify(mockBrazeInstance).enableSdk();
+        verify(mockBrazeInstance).wipeData();
+        verify(mockBrazeInstance, never()).requestFlush();
+        Assert.assertEquals(1, brazeRemoteCommand.getDroppedCommandCount(BrazeRemoteCommand.SdkState.DISABLED));
+        Assert.assertEquals(1, brazeRemoteCommand.getDroppedCommandCount(BrazeRemoteCommand.SdkState.WIPED));
+        Assert.assertEquals(0, brazeRemoteCommand.getDroppedCommandCount(BrazeRemoteCommand.SdkState.ACTIVE));
+    }
+
+    @Test
+    public void testSdkState_ForwardsCommandsWhenPolicyChanged() throws Exception {
+        brazeRemoteCommand.setRoutingPolicy(BrazeRemoteCommand.SdkState.DISABLED, BrazeRemoteCommand.RoutingPolicy.FORWARD);
+        brazeRemoteCommand.setRoutingPolicy(BrazeRemoteCommand.SdkState.ACTIVE, BrazeRemoteCommand.RoutingPolicy.DROP);
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.DISABLE_SDK)
+                .addCommand(Commands.FLUSH)
+                .build());
+
+        verify(mockBrazeInstance).requestFlush();
+        Assert.assertEquals(BrazeRemoteCommand.RoutingPolicy.FORWARD, brazeRemoteCommand.getRoutingPolicy(BrazeRemoteCommand.SdkState.ACTIVE));
+    }
+
+    @Test
+    public void testEarlyConfigure_ReturnsFalse_WhenNoPersistedConfiguration() {
+        brazeRemoteCommand.clearPersistedConfiguration();
+
+        Assert.assertFalse(brazeRemoteCommand.earlyConfigure());
+        verify(mockBrazeInstance, never()).initialize(any(), any(), any());
+    }
+
+    @Test
+    public void testEarlyConfigure_AppliesLastInitializedConfiguration() throws Exception {
+        brazeRemoteCommand.clearPersistedConfiguration();
+        Assert.assertFalse(brazeRemoteCommand.earlyConfigure());
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .populatePayload((json) -> {
+                    json.put(Config.API_KEY, "api_key");
+                    json.put(Config.SESSION_TIMEOUT, 30);
+                })
+                .build());
+
+        BrazeRemoteCommand nextLaunch = new BrazeRemoteCommand(context);
+        BrazeInstance nextBrazeInstance = mock(BrazeInstance.class);
+        nextLaunch.mBraze = nextBrazeInstance;
+        ArgumentCaptor<JSONObject> options = ArgumentCaptor.forClass(JSONObject.class);
+
+        Assert.assertTrue(nextLaunch.earlyConfigure());
+        verify(nextBrazeInstance).initialize(eq("api_key"), options.capture(), any());
+        Assert.assertEquals(30, options.getValue().getInt(Config.SESSION_TIMEOUT));
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, nextLaunch.getSdkState());
+    }
+
+    @Test
+    public void testInitialize_DoesNotPersistConfiguration_UnlessEarlyConfigureCalled() throws Exception {
+        brazeRemoteCommand.clearPersistedConfiguration();
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .populatePayload((json) -> {
+                    json.put(Config.API_KEY, "api_key");
+                })
+                .build());
+
+        BrazeRemoteCommand nextLaunch = new BrazeRemoteCommand(context);
+        BrazeInstance nextBrazeInstance = mock(BrazeInstance.class);
+        nextLaunch.mBraze = nextBrazeInstance;
+
+        Assert.assertFalse(nextLaunch.earlyConfigure());
+        verify(nextBrazeInstance, never()).initialize(any(), any(), any());
+    }
+
+    @Test
+    public void testInitialize_ActivatesAndReplays_WhenConfigurationCannotBePersisted() throws Exception {
+        BrazeRemoteCommand command = new BrazeRemoteCommand(null, mockBrazeInstance);
+        command.mEarlyConfigureEnabled = true;
+        File directory = java.nio.file.Files.createTempDirectory("journal").toFile();
+        command.enableCommandJournal(directory, 4096, 0);
+        command.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.LOG_CUSTOM_EVENT)
+                .populatePayload((json) -> json.put(BrazeConstants.Event.EVENT_NAME, "event"))
+                .build());
+        verify(mockBrazeInstance, never()).logCustomEvent(any(), any());
+
+        command.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .populatePayload((json) -> {
+                    json.put(Config.API_KEY, "api_key");
+                })
+                .build());
+
+        Assert.assertEquals(BrazeRemoteCommand.SdkState.ACTIVE, command.getSdkState());
+        verify(mockBrazeInstance).logCustomEvent(eq("event"), eq(null));
+    }
+
+    @Test
+    public void testBackgroundInitialization_QueuesCommandsBehindInitialize() throws Exception {
+        CountDownLatch configuring = new CountDownLatch(1);
+        String[] initThread = new String[1];
+        doAnswer(invocation -> {
+            initThread[0] = Thread.currentThread().getName();
+            configuring.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(mockBrazeInstance).initialize(any(), any(), any());
+        brazeRemoteCommand.enableBackgroundInitialization();
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.INITIALIZE)
+                .addCommand(Commands.FLUSH)
+                .build());
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.LOG_CUSTOM_EVENT)
+                .populatePayload((json) -> json.put(BrazeConstants.Event.EVENT_NAME, "event"))
+                .build());
+
+        verify(mockBrazeInstance, never()).requestFlush();
+        verify(mockBrazeInstance, never()).logCustomEvent(any(), any());
+        configuring.countDown();
+
+        InOrder inOrder = inOrder(mockBrazeInstance);
+        inOrder.verify(mockBrazeInstance, timeout(1000)).initialize(any(), any(), any());
+        inOrder.verify(mockBrazeInstance, timeout(1000)).requestFlush();
+        inOrder.verify(mockBrazeInstance, timeout(1000)).logCustomEvent(eq("event"), eq(null));
+        Assert.assertEquals(BrazeRemoteCommand.INIT_THREAD_NAME, initThread[0]);
+    }
+
+    @Test
+    public void testBackgroundInitialization_ExecutesDirectlyWhenNotInitializing() throws Exception {
+        brazeRemoteCommand.enableBackgroundInitialization();
+
+        brazeRemoteCommand.onInvoke(ResponseBuilder.create()
+                .addCommand(Commands.FLUSH)
+                .build());
+
+        verify(mockBrazeInstance).requestFlush();
+    }
+
+    @Test
+    public void testCustomBrazeCommand_ReceivesCommands() throws Exception {
+        BrazeCommand braze = mock(BrazeCommand.class);
+        BrazeRemoteCommand command = new BrazeRemoteCommand(context, braze);
+        RemoteCommand.Response response = ResponseBuilder.create()
+                .addCommand(Commands.LOG_CUSTOM_EVENT)
+                .addCommand(Commands.FLUSH)
+                .populatePayload((json) -> {
+                    json.put(BrazeConstants.Event.EVENT_NAME, "event");
+                })
+                .build();
+
+        command.onInvoke(response);
+
+        verify(braze).logCustomEvent(eq("event"), any());
+        verify(braze).requestFlush();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCustomBrazeCommand_RejectsNull() {
+        new BrazeRemoteCommand(context, null);
+    }
+
     private static class ResponseBuilder {
 
         private final List<String> commands;
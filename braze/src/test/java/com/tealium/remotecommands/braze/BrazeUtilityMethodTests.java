@@ -4,8 +4,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
 
 import com.braze.enums.Gender;
 import com.braze.enums.Month;
@@ -166,6 +169,96 @@ public class BrazeUtilityMethodTests {
         }
     }
 
+    @Test
+    public void classifyStringTests() {
+        assertEquals(BrazeUtils.StringShape.INTEGER, BrazeUtils.classifyString("10"));
+        assertEquals(BrazeUtils.StringShape.INTEGER, BrazeUtils.classifyString("-2147483648"));
+        assertEquals(BrazeUtils.StringShape.INTEGER, BrazeUtils.classifyString("+007"));
+        assertEquals(BrazeUtils.StringShape.DOUBLE, BrazeUtils.classifyString("2147483648"));
+        assertEquals(BrazeUtils.StringShape.DOUBLE, BrazeUtils.classifyString("10.10"));
+        assertEquals(BrazeUtils.StringShape.DOUBLE, BrazeUtils.classifyString(" 10 "));
+        assertEquals(BrazeUtils.StringShape.DOUBLE, BrazeUtils.classifyString(".5e-3"));
+        assertEquals(BrazeUtils.StringShape.DOUBLE, BrazeUtils.classifyString("1f"));
+        assertEquals(BrazeUtils.StringShape.DOUBLE, BrazeUtils.classifyString("-Infinity"));
+        assertEquals(BrazeUtils.StringShape.DOUBLE, BrazeUtils.classifyString("NaN"));
+        assertEquals(BrazeUtils.StringShape.DATE_SHAPE, BrazeUtils.classifyString("2000-01-01"));
+        assertEquals(BrazeUtils.StringShape.DATE_SHAPE, BrazeUtils.classifyString("2000-01-01T01:01:01Z"));
+        assertEquals(BrazeUtils.StringShape.BOOLEAN, BrazeUtils.classifyString("TRUE"));
+        assertEquals(BrazeUtils.StringShape.BOOLEAN, BrazeUtils.classifyString("false"));
+        assertEquals(BrazeUtils.StringShape.STRING, BrazeUtils.classifyString("cat"));
+        assertEquals(BrazeUtils.StringShape.STRING, BrazeUtils.classifyString(""));
+        assertEquals(BrazeUtils.StringShape.STRING, BrazeUtils.classifyString("-"));
+        assertEquals(BrazeUtils.StringShape.STRING, BrazeUtils.classifyString("1e"));
+        assertEquals(BrazeUtils.StringShape.STRING, BrazeUtils.classifyString("."));
+        assertEquals(BrazeUtils.StringShape.UNKNOWN, BrazeUtils.classifyString("0x1p3"));
+    }
+
+    @Test
+    public void addCustomPropertyTests_MatchesParsingBehaviour() throws JSONException {
+        String[] values = {"10", "2147483648", "10.10", " 10 ", "1e3", "cat", "TRUE", "2000-01-01", "-", ""};
+        for (String value : values) {
+            Object classified = BrazeUtils.addCustomProperty("key", value).forJsonPut().opt("key");
+            Object expected;
+            try {
+                expected = Integer.parseInt(value);
+            } catch (NumberFormatException nfe) {
+                try {
+                    expected = Double.parseDouble(value);
+                } catch (NumberFormatException nfe2) {
+                    expected = null;
+                }
+            }
+            if (expected != null) {
+                assertEquals(value, expected, classified);
+            } else {
+                assertFalse(value, classified instanceof Number);
+            }
+        }
+    }
+
+    @Test
+    public void extractCustomPropertiesTests_NativelyTyped() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("integerValue", 10);
+        json.put("doubleValue", 10.10);
+        json.put("booleanValue", true);
+
+        JSONObject brazePropsJson = BrazeUtils.extractCustomProperties(json).forJsonPut();
+
+        assertEquals(10, brazePropsJson.get("integerValue"));
+        assertEquals(10.10, brazePropsJson.get("doubleValue"));
+        assertEquals(true, brazePropsJson.get("booleanValue"));
+    }
+
+    @Test
+    public void extractCustomPropertiesTests_Mixed() throws JSONException {
+        JSONObject json = new JSONObject();
+        json.put("integerValue", 10);
+        json.put("integerStringValue", "10");
+        json.put("stringValue", "test");
+
+        JSONObject brazePropsJson = BrazeUtils.extractCustomProperties(json).forJsonPut();
+
+        assertEquals(10, brazePropsJson.get("integerValue"));
+        assertEquals(10, brazePropsJson.get("integerStringValue"));
+        assertEquals("test", brazePropsJson.get("stringValue"));
+    }
+
+    @Test
+    public void extractCustomPropertiesTests_SkipsOnlyFailingValues() throws JSONException {
+        JSONObject json = spy(new JSONObject());
+        json.put("integerValue", 10);
+        json.put("badValue", "bad");
+        json.put("stringValue", "test");
+        doThrow(new IllegalStateException()).when(json).opt("badValue");
+
+        JSONObject brazePropsJson = BrazeUtils.extractCustomProperties(json).forJsonPut();
+
+        assertEquals(2, brazePropsJson.length());
+        assertEquals(10, brazePropsJson.get("integerValue"));
+        assertEquals("test", brazePropsJson.get("stringValue"));
+    }
+
     @Test
     public void jsonKeyHasValueTests() {
         JSONObject json = new JSONObject();
@@ -284,6 +377,41 @@ public class BrazeUtilityMethodTests {
         assertTrue(unexpectedResult[0].equals(new BigDecimal(0)) && unexpectedResult[1].equals(new BigDecimal(10)) && unexpectedResult[2].equals(new BigDecimal(0)));
     }
 
+    @Test
+    public void jsonArrayToJSONObjectArray_ReusesObjectElements() throws JSONException {
+        JSONObject object = new JSONObject().put("key", "value");
+        JSONArray array = new JSONArray()
+                .put(object)
+                .put("{\"parsed\":true}")
+                .put("not json");
+
+        JSONObject[] result = BrazeUtils.getJSONObjectArrayFromJson(array);
+
+        assertSame(object, result[0]);
+        assertTrue(result[1].getBoolean("parsed"));
+        assertEquals(0, result[2].length());
+    }
+
+    @Test
+    public void haveSamePropertiesTests() throws JSONException {
+        JSONObject nested = new JSONObject().put("nested", 1);
+        JSONObject properties = new JSONObject().put("key", "value").put("count", 1).put("object", nested);
+
+        assertTrue(BrazeUtils.haveSameProperties(null, null));
+        assertTrue(BrazeUtils.haveSameProperties(properties, properties));
+        assertTrue(BrazeUtils.haveSameProperties(properties,
+                new JSONObject().put("object", nested).put("count", 1).put("key", "value")));
+
+        assertFalse(BrazeUtils.haveSameProperties(properties, null));
+        assertFalse(BrazeUtils.haveSameProperties(properties,
+                new JSONObject().put("key", "value").put("count", 2).put("object", nested)));
+        assertFalse(BrazeUtils.haveSameProperties(properties,
+                new JSONObject().put("key", "value").put("count", 1)));
+        // nested objects are only the same if they are the same instance
+        assertFalse(BrazeUtils.haveSameProperties(properties,
+                new JSONObject().put("key", "value").put("count", 1).put("object", new JSONObject().put("nested", 1))));
+    }
+
     @Test
     public void jsonArrayToJSONObjectArrayTests() {
         JSONArray expectedArray = new JSONArray();
@@ -0,0 +1,186 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class CommandExecutorTests {
+
+    CommandExecutor executor;
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch blocked = new CountDownLatch(1);
+    final List<Integer> executed = new CopyOnWriteArrayList<>();
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void submit_ExecutesInOrder() throws Exception {
+        executor = new CommandExecutor(10, BrazeRemoteCommand.OverflowPolicy.DROP_NEWEST);
+        CountDownLatch done = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            final int id = i;
+            executor.submit(() -> {
+                executed.add(id);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(0, 1, 2, 3, 4), executed);
+    }
+
+    @Test
+    public void submit_DropNewest_DropsNewTasksWhenFull() throws Exception {
+        executor = new CommandExecutor(2, BrazeRemoteCommand.OverflowPolicy.DROP_NEWEST);
+        blockWorker();
+
+        assertTrue(executor.submit(record(1)));
+        assertTrue(executor.submit(record(2)));
+        assertFalse(executor.submit(record(3)));
+
+        assertEquals(List.of(1, 2), drain());
+        assertEquals(1, executor.getDroppedCount());
+    }
+
+    @Test
+    public void submit_DropOldest_DropsOldestTaskWhenFull() throws Exception {
+        executor = new CommandExecutor(2, BrazeRemoteCommand.OverflowPolicy.DROP_OLDEST);
+        blockWorker();
+
+        assertTrue(executor.submit(record(1)));
+        assertTrue(executor.submit(record(2)));
+        assertTrue(executor.submit(record(3)));
+
+        assertEquals(List.of(2, 3), drain());
+        assertEquals(1, executor.getDroppedCount());
+    }
+
+    @Test
+    public void submit_CallerRuns_RunsQueuedTasksThenNewTaskOnCaller() throws Exception {
+        executor = new CommandExecutor(2, BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS);
+        CountDownLatch blockedRunner = new CountDownLatch(1);
+        executor.submit(() -> {
+            blockedRunner.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertTrue(blockedRunner.await(5, TimeUnit.SECONDS));
+
+        executor.submit(record(1));
+        executor.submit(record(2));
+
+        // caller-runs waits for the worker's in-flight task, so release it from another thread.
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        }).start();
+        executor.submit(record(3));
+
+        assertEquals(List.of(1, 2, 3), executed);
+        assertEquals(1, executor.getCallerRunsCount());
+    }
+
+    @Test
+    public void submit_CallerRuns_PreservesOrder_WhenWorkerFreesSpace() throws Exception {
+        executor = new CommandExecutor(1, BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS);
+        blockWorker();
+        executor.submit(record(1));
+
+        // the queue is full; once released, the worker may free the slot while this caller waits.
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ignored) {
+            }
+            release.countDown();
+        }).start();
+        executor.submit(record(2));
+
+        assertEquals(List.of(1, 2), drain());
+    }
+
+    @Test
+    public void submit_WaitsForPredecessor_BeforeRunningTasks() throws Exception {
+        executor = new CommandExecutor(10, BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS);
+        blockWorker();
+        executor.submit(record(1));
+        executor.submit(record(2));
+
+        CommandExecutor successor = new CommandExecutor(10, BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS, executor);
+        executor.shutdown();
+        CountDownLatch done = new CountDownLatch(1);
+        successor.submit(record(3));
+        successor.submit(done::countDown);
+        Thread.sleep(50);
+        assertTrue(executed.isEmpty());
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), executed);
+        successor.shutdown();
+    }
+
+    @Test
+    public void awaitTermination_WaitsForQueuedTasks() throws Exception {
+        executor = new CommandExecutor(10, BrazeRemoteCommand.OverflowPolicy.CALLER_RUNS);
+        blockWorker();
+        executor.submit(record(1));
+        executor.shutdown();
+
+        assertFalse(executor.awaitTermination(50));
+        release.countDown();
+
+        assertTrue(executor.awaitTermination(5000));
+        assertEquals(List.of(1), executed);
+        assertFalse(executor.submit(record(2)));
+    }
+
+    private Runnable record(int id) {
+        return () -> executed.add(id);
+    }
+
+    private void blockWorker() throws InterruptedException {
+        executor.submit(() -> {
+            blocked.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+        });
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+    }
+
+    private List<Integer> drain() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (executor.getQueueSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        executor.submit(done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        return executed;
+    }
+}
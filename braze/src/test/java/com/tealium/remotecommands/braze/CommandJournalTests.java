@@ -0,0 +1,167 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+public class CommandJournalTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replay_ReplaysCommandsInOrder_AndTruncates() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 4096, 0);
+        journal.append("logcustomevent", "{\"event_name\":\"one\"}");
+        journal.append("setcustomattribute", "{\"set_custom_attribute\":{\"key\":\"välue\"}}");
+
+        List<String> replayed = new ArrayList<>();
+        int count = journal.replay((command, payload) -> replayed.add(command + " " + payload));
+
+        assertEquals(2, count);
+        assertEquals("logcustomevent {\"event_name\":\"one\"}", replayed.get(0));
+        assertEquals("setcustomattribute {\"set_custom_attribute\":{\"key\":\"välue\"}}", replayed.get(1));
+        assertEquals(0, journal.size());
+        assertEquals(0, journal.replay((command, payload) -> replayed.add(command)));
+        journal.close();
+    }
+
+    @Test
+    public void open_RecoversJournaledCommands_AfterReopening() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 4096, 0);
+        journal.append("logcustomevent", "{}");
+        journal.append("flush", "{}");
+        journal.close();
+
+        CommandJournal reopened = new CommandJournal(folder.getRoot(), 4096, 0);
+        List<String> replayed = new ArrayList<>();
+        reopened.replay((command, payload) -> replayed.add(command));
+
+        assertEquals(List.of("logcustomevent", "flush"), replayed);
+        reopened.close();
+    }
+
+    @Test
+    public void open_IgnoresCorruptFrames() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 4096, 0);
+        journal.append("logcustomevent", "{}");
+        journal.append("flush", "{}");
+        journal.close();
+
+        // corrupt the body of the second frame
+        File file = new File(folder.getRoot(), CommandJournal.FILE_NAME);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long secondFrame = 12 + 16 + 2 + "logcustomevent".length() + 2;
+            raf.seek(secondFrame + 16 + 3);
+            raf.write('X');
+        }
+
+        CommandJournal reopened = new CommandJournal(folder.getRoot(), 4096, 0);
+        assertEquals(1, reopened.size());
+        reopened.close();
+    }
+
+    @Test
+    public void replay_ResumesFromCursor_AfterCrash() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 4096, 0);
+        journal.append("one", "{}");
+        journal.append("two", "{}");
+        journal.append("three", "{}");
+
+        List<String> replayed = new ArrayList<>();
+        try {
+            journal.replay((command, payload) -> {
+                if (command.equals("two")) throw new SimulatedCrash();
+                replayed.add(command);
+            });
+        } catch (SimulatedCrash ignore) {
+        }
+        journal.close();
+
+        CommandJournal reopened = new CommandJournal(folder.getRoot(), 4096, 0);
+        assertEquals(2, reopened.size());
+        reopened.replay((command, payload) -> replayed.add(command));
+
+        assertEquals(List.of("one", "two", "three"), replayed);
+        assertEquals(0, reopened.size());
+        reopened.close();
+    }
+
+    @Test
+    public void replay_TreatsFailedCommandsAsReplayed() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 4096, 0);
+        journal.append("one", "{}");
+        journal.append("two", "{}");
+
+        List<String> replayed = new ArrayList<>();
+        int count = journal.replay((command, payload) -> {
+            replayed.add(command);
+            if (command.equals("one")) throw new IllegalStateException();
+        });
+
+        assertEquals(2, count);
+        assertEquals(List.of("one", "two"), replayed);
+        assertEquals(0, journal.size());
+        journal.close();
+    }
+
+    @Test
+    public void replay_DoesNotHoldLock_WhileReplaying() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 4096, 0);
+        journal.append("one", "{}");
+
+        List<String> replayed = new ArrayList<>();
+        int count = journal.replay((command, payload) -> {
+            replayed.add(command);
+            if (command.equals("one")) {
+                Thread appender = new Thread(() -> journal.append("two", "{}"));
+                appender.start();
+                try {
+                    appender.join(1000);
+                } catch (InterruptedException ignore) {
+                }
+                assertFalse(appender.isAlive());
+            }
+        });
+
+        assertEquals(2, count);
+        assertEquals(List.of("one", "two"), replayed);
+        assertEquals(0, journal.size());
+        journal.close();
+    }
+
+    @Test
+    public void append_DropsCommands_WhenFull() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 64, 0);
+
+        assertTrue(journal.append("flush", "{}"));
+        assertFalse(journal.append("logcustomevent", "{\"event_name\":\"too big to fit\"}"));
+        assertEquals(1, journal.size());
+        assertEquals(1, journal.getDroppedCount());
+        journal.close();
+    }
+
+    @Test
+    public void replay_SkipsExpiredCommands() throws Exception {
+        CommandJournal journal = new CommandJournal(folder.getRoot(), 4096, 1);
+        journal.append("flush", "{}");
+        Thread.sleep(10);
+
+        assertEquals(0, journal.replay((command, payload) -> {
+        }));
+        assertEquals(0, journal.size());
+        journal.close();
+    }
+
+    private static class SimulatedCrash extends Error {
+    }
+}
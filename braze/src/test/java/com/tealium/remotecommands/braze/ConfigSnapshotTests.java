@@ -0,0 +1,92 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+@RunWith(RobolectricTestRunner.class)
+public class ConfigSnapshotTests {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    ConfigSnapshot snapshot;
+    String[] keys = new LaunchOptionTable().keys();
+
+    @Before
+    public void setup() {
+        snapshot = new ConfigSnapshot(folder.getRoot());
+    }
+
+    @Test
+    public void load_ReturnsNull_WhenNothingSaved() {
+        assertNull(snapshot.load());
+    }
+
+    @Test
+    public void save_PersistsLaunchOptionsOnly() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 30);
+        options.put(BrazeConstants.Config.FIREBASE_ENABLED, true);
+        options.put(BrazeConstants.Config.CUSTOM_ENDPOINT, "sdk.example.com");
+        options.put(BrazeConstants.Commands.COMMAND_KEY, "initialize,setuserid");
+        options.put(BrazeConstants.User.USER_ID, "user");
+
+        assertTrue(snapshot.save(keys, "api_key", options));
+        ConfigSnapshot.Snapshot loaded = new ConfigSnapshot(folder.getRoot()).load();
+
+        assertEquals("api_key", loaded.apiKey);
+        assertEquals(3, loaded.launchOptions.length());
+        assertEquals(30, loaded.launchOptions.getInt(BrazeConstants.Config.SESSION_TIMEOUT));
+        assertTrue(loaded.launchOptions.getBoolean(BrazeConstants.Config.FIREBASE_ENABLED));
+        assertEquals("sdk.example.com", loaded.launchOptions.getString(BrazeConstants.Config.CUSTOM_ENDPOINT));
+        assertEquals(ConfigFingerprint.compute(keys, "api_key", options, null),
+                ConfigFingerprint.compute(keys, loaded.apiKey, loaded.launchOptions, null));
+    }
+
+    @Test
+    public void save_DoesNotRewrite_WhenUnchanged() throws Exception {
+        JSONObject options = new JSONObject();
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 30);
+        snapshot.save(keys, "api_key", options);
+        File file = new File(folder.getRoot(), ConfigSnapshot.FILE_NAME);
+        assertTrue(file.delete());
+
+        options.put(BrazeConstants.Commands.COMMAND_KEY, "initialize");
+        snapshot.save(keys, "api_key", options);
+        assertFalse(file.exists());
+
+        options.put(BrazeConstants.Config.SESSION_TIMEOUT, 60);
+        snapshot.save(keys, "api_key", options);
+        assertTrue(file.exists());
+    }
+
+    @Test
+    public void load_ReturnsNull_WhenCorrupt() throws Exception {
+        try (FileOutputStream out = new FileOutputStream(new File(folder.getRoot(), ConfigSnapshot.FILE_NAME))) {
+            out.write(new byte[]{1, 2, 3});
+        }
+
+        assertNull(snapshot.load());
+    }
+
+    @Test
+    public void clear_DeletesSnapshot() throws Exception {
+        snapshot.save(keys, "api_key", new JSONObject());
+        snapshot.clear();
+
+        assertNull(snapshot.load());
+    }
+}
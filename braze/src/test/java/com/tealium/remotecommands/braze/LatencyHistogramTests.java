@@ -0,0 +1,102 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LatencyHistogramTests {
+
+    @Test
+    public void bucketIndex_IsExactForSmallValues() {
+        for (int i = 0; i < LatencyHistogram.SUB_BUCKETS * 2; i++) {
+            assertEquals(i, LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(i)));
+        }
+    }
+
+    @Test
+    public void bucketIndex_IsWithinRelativeError() {
+        for (long value = 1; value < LatencyHistogram.MAX_TRACKABLE_NANOS; value = value * 3 + 1) {
+            long reported = LatencyHistogram.highestEquivalentValue(LatencyHistogram.bucketIndex(value));
+            assertTrue(reported >= value);
+            assertTrue("value: " + value + ", reported: " + reported, reported - value <= value / LatencyHistogram.SUB_BUCKETS);
+        }
+    }
+
+    @Test
+    public void bucketIndex_ClampsLargeValues() {
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(LatencyHistogram.MAX_TRACKABLE_NANOS));
+        assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void summarize_ReportsPercentilesAndMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Summary summary = histogram.summarize();
+        assertEquals(1000, summary.count);
+        assertEquals(1_000_000L, summary.max);
+        assertWithin(500_000L, summary.percentile(50));
+        assertWithin(900_000L, summary.percentile(90));
+        assertWithin(990_000L, summary.percentile(99));
+        assertEquals(1_000_000L, summary.percentile(100));
+    }
+
+    @Test
+    public void summarize_KeepsExactMax_ForClampedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        LatencyHistogram.Summary summary = histogram.summarize();
+        assertEquals(2, summary.count);
+        assertEquals(0, summary.percentile(50));
+        assertEquals(Long.MAX_VALUE, summary.max);
+    }
+
+    @Test
+    public void reset_ClearsAllCounts() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        LatencyHistogram.Summary summary = histogram.summarize();
+        assertEquals(0, summary.count);
+        assertEquals(0, summary.max);
+        assertEquals(0, summary.percentile(99));
+    }
+
+    @Test
+    public void record_IsSafeUnderConcurrency() throws InterruptedException {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final long offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i + offset);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram.Summary summary = histogram.summarize();
+        assertEquals(40_000, summary.count);
+        assertEquals(10_002, summary.max);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                actual >= expected && actual - expected <= expected / LatencyHistogram.SUB_BUCKETS);
+    }
+}
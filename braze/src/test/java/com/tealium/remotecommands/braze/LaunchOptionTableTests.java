@@ -0,0 +1,78 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.braze.enums.DeviceKey;
+
+import org.json.JSONArray;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.EnumSet;
+
+@RunWith(RobolectricTestRunner.class)
+public class LaunchOptionTableTests {
+
+    @Test
+    public void conversions_MatchJsonOptMethods() {
+        assertTrue(LaunchOptionTable.toBoolean(true));
+        assertTrue(LaunchOptionTable.toBoolean("TRUE"));
+        assertFalse(LaunchOptionTable.toBoolean("yes"));
+        assertFalse(LaunchOptionTable.toBoolean(1));
+
+        assertEquals(10, LaunchOptionTable.toInteger(10));
+        assertEquals(10, LaunchOptionTable.toInteger(10.9));
+        assertEquals(10, LaunchOptionTable.toInteger("10.5"));
+        assertEquals(0, LaunchOptionTable.toInteger("ten"));
+
+        assertEquals("10", LaunchOptionTable.toString(10));
+        assertEquals("true", LaunchOptionTable.toString(true));
+    }
+
+    @Test
+    public void toClass_ReturnsCachedClass() throws Exception {
+        Class<?> first = LaunchOptionTable.toClass("java.lang.String");
+        Class<?> second = LaunchOptionTable.toClass("java.lang.String");
+
+        assertSame(String.class, first);
+        assertSame(first, second);
+    }
+
+    @Test
+    public void toDeviceKeys_ReturnsCopyOfCachedAllowlist() {
+        JSONArray options = new JSONArray();
+        options.put("model");
+        options.put("invalid");
+        options.put("android_version");
+
+        EnumSet<DeviceKey> first = LaunchOptionTable.toDeviceKeys(options);
+        first.add(DeviceKey.TIMEZONE);
+        EnumSet<DeviceKey> second = LaunchOptionTable.toDeviceKeys(options);
+
+        assertNotSame(first, second);
+        assertEquals(EnumSet.of(DeviceKey.MODEL, DeviceKey.ANDROID_VERSION), second);
+        assertNull(LaunchOptionTable.toDeviceKeys(new JSONArray()));
+    }
+
+    @Test
+    public void register_AppendsNewKeysOnly() {
+        LaunchOptionTable table = new LaunchOptionTable();
+        String[] defaults = table.keys();
+
+        table.register(BrazeConstants.Config.SESSION_TIMEOUT, (builder, value) -> {
+        });
+        assertArrayEquals(defaults, table.keys());
+
+        table.register("custom_key", (builder, value) -> {
+        });
+        assertEquals(defaults.length + 1, table.keys().length);
+        assertEquals("custom_key", table.keys()[defaults.length]);
+    }
+}
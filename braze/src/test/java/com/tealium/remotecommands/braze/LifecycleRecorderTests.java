@@ -0,0 +1,80 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import android.app.Activity;
+import android.app.Application.ActivityLifecycleCallbacks;
+import android.os.Bundle;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class LifecycleRecorderTests {
+
+    LifecycleRecorder recorder;
+    ActivityLifecycleCallbacks listener;
+    Activity first;
+    Activity second;
+
+    @Before
+    public void setup() {
+        recorder = new LifecycleRecorder();
+        listener = mock();
+        first = mock();
+        second = mock();
+    }
+
+    @Test
+    public void replayTo_ReplaysEventsInOrder() {
+        Bundle state = new Bundle();
+        recorder.record(LifecycleRecorder.EventType.CREATED, first, state);
+        recorder.record(LifecycleRecorder.EventType.STARTED, first, null);
+        recorder.record(LifecycleRecorder.EventType.RESUMED, first, null);
+        recorder.record(LifecycleRecorder.EventType.PAUSED, first, null);
+        recorder.record(LifecycleRecorder.EventType.CREATED, second, null);
+        recorder.record(LifecycleRecorder.EventType.STARTED, second, null);
+        recorder.record(LifecycleRecorder.EventType.RESUMED, second, null);
+        recorder.record(LifecycleRecorder.EventType.STOPPED, first, null);
+
+        assertEquals(8, recorder.replayTo(listener));
+
+        InOrder inOrder = inOrder(listener);
+        inOrder.verify(listener).onActivityCreated(first, state);
+        inOrder.verify(listener).onActivityStarted(first);
+        inOrder.verify(listener).onActivityResumed(first);
+        inOrder.verify(listener).onActivityPaused(first);
+        inOrder.verify(listener).onActivityCreated(second, null);
+        inOrder.verify(listener).onActivityStarted(second);
+        inOrder.verify(listener).onActivityResumed(second);
+        inOrder.verify(listener).onActivityStopped(first);
+        assertEquals(0, recorder.size());
+    }
+
+    @Test
+    public void onDestroyed_DiscardsEventsForDestroyedActivity() {
+        recorder.record(LifecycleRecorder.EventType.CREATED, first, null);
+        recorder.record(LifecycleRecorder.EventType.STARTED, first, null);
+        recorder.record(LifecycleRecorder.EventType.CREATED, second, null);
+        recorder.record(LifecycleRecorder.EventType.STOPPED, first, null);
+        recorder.onDestroyed(first);
+        recorder.record(LifecycleRecorder.EventType.STARTED, second, null);
+
+        assertEquals(2, recorder.replayTo(listener));
+
+        verify(listener, never()).onActivityCreated(eq(first), any());
+        verify(listener, never()).onActivityStarted(first);
+        verify(listener, never()).onActivityStopped(first);
+        verify(listener).onActivityCreated(second, null);
+        verify(listener).onActivityStarted(second);
+    }
+}
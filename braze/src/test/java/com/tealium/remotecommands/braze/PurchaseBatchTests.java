@@ -0,0 +1,163 @@
+package com.tealium.remotecommands.braze;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.braze.models.outgoing.BrazeProperties;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.math.BigDecimal;
+
+@RunWith(RobolectricTestRunner.class)
+public class PurchaseBatchTests {
+
+    @Test
+    public void toPrice_IsExact() {
+        assertEquals(new BigDecimal("9.99"), PurchaseBatch.toPrice(9.99));
+        assertEquals(new BigDecimal("0.1"), PurchaseBatch.toPrice(0.1));
+        assertEquals(new BigDecimal("9.99"), PurchaseBatch.toPrice("9.99"));
+        assertEquals(new BigDecimal("9.90"), PurchaseBatch.toPrice(" 9.90 "));
+        assertEquals(new BigDecimal("-1.5"), PurchaseBatch.toPrice(-1.5f));
+        assertEquals(new BigDecimal("0.1"), PurchaseBatch.toPrice(0.1f));
+    }
+
+    @Test
+    public void toPrice_IntegralValues_HaveScaleZero() {
+        assertEquals(new BigDecimal(10), PurchaseBatch.toPrice(10));
+        assertEquals(new BigDecimal(10), PurchaseBatch.toPrice(10L));
+        assertEquals(new BigDecimal(10), PurchaseBatch.toPrice(10.0));
+        assertEquals(new BigDecimal(10), PurchaseBatch.toPrice("10.00"));
+        assertEquals(new BigDecimal(1000), PurchaseBatch.toPrice("1e3"));
+    }
+
+    @Test
+    public void toPrice_InvalidValues_AreZero() {
+        assertEquals(BigDecimal.ZERO, PurchaseBatch.toPrice(null));
+        assertEquals(BigDecimal.ZERO, PurchaseBatch.toPrice(false));
+        assertEquals(BigDecimal.ZERO, PurchaseBatch.toPrice("value"));
+        assertEquals(BigDecimal.ZERO, PurchaseBatch.toPrice(""));
+        assertEquals(BigDecimal.ZERO, PurchaseBatch.toPrice(Double.NaN));
+        assertEquals(BigDecimal.ZERO, PurchaseBatch.toPrice("0.00"));
+    }
+
+    @Test
+    public void toPrice_ReturnsCachedPrice() {
+        BigDecimal first = PurchaseBatch.toPrice(19.99);
+        assertSame(first, PurchaseBatch.toPrice(19.99));
+        assertSame(PurchaseBatch.toPrice("4.50"), PurchaseBatch.toPrice("4.50"));
+    }
+
+    @Test
+    public void toCurrency_NormalisesAndInterns() {
+        assertEquals("GBP", PurchaseBatch.toCurrency("gbp"));
+        assertEquals("GBP", PurchaseBatch.toCurrency(" GBP "));
+        assertSame(PurchaseBatch.toCurrency("GBP"), PurchaseBatch.toCurrency(new String("gbp")));
+        assertNull(PurchaseBatch.toCurrency(""));
+        assertNull(PurchaseBatch.toCurrency(null));
+    }
+
+    @Test
+    public void fromJson_BuildsColumns() throws Exception {
+        PurchaseBatch batch = PurchaseBatch.fromJson(
+                new JSONArray().put("product1").put("product2").put("product3"),
+                new JSONArray().put("gbp").put(""),
+                new JSONArray().put(9.99).put("19.99"),
+                new JSONArray().put(2).put("3").put("many"),
+                new JSONObject[]{new JSONObject().put("key", "value")});
+
+        assertEquals(3, batch.size());
+        assertArrayEquals(new String[]{"product1", "product2", "product3"}, batch.productIds());
+        assertArrayEquals(new int[]{2, 3, 1}, batch.quantities());
+        assertArrayEquals(new BigDecimal[]{new BigDecimal("9.99"), new BigDecimal("19.99"), BigDecimal.ZERO}, batch.unitPrices());
+
+        assertEquals("GBP", batch.currency(0));
+        assertEquals(PurchaseBatch.DEFAULT_CURRENCY, batch.currency(1));
+        assertEquals(PurchaseBatch.DEFAULT_CURRENCY, batch.currency(2));
+        assertEquals("value", batch.properties(0).getString("key"));
+        assertNull(batch.properties(1));
+    }
+
+    @Test
+    public void of_UnboxesQuantities() {
+        PurchaseBatch batch = PurchaseBatch.of(
+                new String[]{"product1", "product2", "product3"},
+                null,
+                null,
+                new Integer[]{2, null, 0},
+                null);
+
+        assertArrayEquals(new int[]{2, 1, 0}, batch.quantities());
+        assertArrayEquals(new Integer[]{2, 1, 0}, batch.boxedQuantities());
+        assertEquals(1, batch.quantity(2));
+        assertNull(PurchaseBatch.of(new String[]{"product1"}, null, null, null, null).boxedQuantities());
+    }
+
+    @Test
+    public void accessors_ApplyDefaults_ForShortOrMissingColumns() {
+        PurchaseBatch batch = new PurchaseBatch(
+                new String[]{"product1", "product2"},
+                null,
+                new BigDecimal[]{BigDecimal.ONE},
+                new int[]{0},
+                null);
+
+        assertEquals(PurchaseBatch.DEFAULT_CURRENCY, batch.currency(0));
+        assertEquals(BigDecimal.ONE, batch.unitPrice(0));
+        assertEquals(BigDecimal.ZERO, batch.unitPrice(1));
+        assertEquals(1, batch.quantity(0));
+        assertEquals(1, batch.quantity(1));
+        assertNull(batch.properties(1));
+    }
+
+    @Test
+    public void brazeProperties_ConvertsSharedPropertiesOnce() throws Exception {
+        JSONObject shared = new JSONObject().put("key", "value");
+        JSONObject other = new JSONObject().put("key", "other");
+        PurchaseBatch batch = new PurchaseBatch(
+                new String[]{"product1", "product2", "product3", "product4"},
+                null, null, null,
+                new JSONObject[]{shared, other, shared, other});
+
+        BrazeProperties first = batch.brazeProperties(0);
+        BrazeProperties second = batch.brazeProperties(1);
+
+        assertNotSame(first, second);
+        assertSame(first, batch.brazeProperties(2));
+        assertSame(second, batch.brazeProperties(3));
+    }
+
+    @Test
+    public void brazeProperties_ReusesConversion_ForEqualAdjacentProperties() throws Exception {
+        PurchaseBatch batch = new PurchaseBatch(
+                new String[]{"product1", "product2", "product3"},
+                null, null, null,
+                new JSONObject[]{
+                        new JSONObject().put("key", "value").put("count", 1),
+                        new JSONObject().put("count", 1).put("key", "value"),
+                        new JSONObject().put("key", "value").put("count", 2)});
+
+        BrazeProperties first = batch.brazeProperties(0);
+
+        assertSame(first, batch.brazeProperties(1));
+        assertNotSame(first, batch.brazeProperties(2));
+    }
+
+    @Test
+    public void brazeProperties_SharesEmptyProperties_ForMissingProperties() {
+        PurchaseBatch batch = new PurchaseBatch(new String[]{"product1", "product2"}, null, null, null, null);
+
+        BrazeProperties first = batch.brazeProperties(0);
+
+        assertNotNull(first);
+        assertSame(first, batch.brazeProperties(1));
+    }
+}